@@ -19,6 +19,8 @@ package com.android.car.settings;
 import static android.car.settings.CarSettings.Global.ENABLE_USER_SWITCH_DEVELOPER_MESSAGE;
 
 import android.app.Activity;
+import android.app.role.OnRoleHoldersChangedListener;
+import android.app.role.RoleManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -40,6 +42,8 @@ import android.view.animation.AnimationUtils;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.car.settings.common.Logger;
 
 import java.util.Objects;
@@ -50,8 +54,24 @@ import java.util.Objects;
 public class FallbackHome extends Activity {
     private static final Logger LOG = new Logger(FallbackHome.class);
     private static final int PROGRESS_TIMEOUT = 2000;
+    // Home changes are normally picked up from package and role holder events. Polling is only a
+    // safety net in case an event is missed, so it gives up after about 30 seconds.
+    @VisibleForTesting
+    static final int HOME_POLL_INTERVAL_MS = 500;
+    @VisibleForTesting
+    static final int MAX_HOME_POLLS = 60;
+
+    private static final String REASON_CREATE = "create";
+    private static final String REASON_USER_UNLOCKED = "user unlocked";
+    private static final String REASON_PACKAGE_CHANGED = "package changed";
+    private static final String REASON_ROLE_CHANGED = "home role changed";
+    private static final String REASON_POLL = "poll";
 
     private boolean mProvisioned;
+    private boolean mListeningForHome;
+    private int mHomePollCount;
+    // Elapsed realtime at which the user was first seen unlocked without a real home.
+    private long mHomeWaitStartElapsedRealtime;
 
     private final Runnable mProgressTimeoutRunnable = () -> {
         View v = getLayoutInflater().inflate(
@@ -114,7 +134,7 @@ public class FallbackHome extends Activity {
         getWindow().getDecorView().setSystemUiVisibility(flags);
 
         registerReceiver(mReceiver, new IntentFilter(Intent.ACTION_USER_UNLOCKED));
-        maybeFinish();
+        maybeFinish(REASON_CREATE);
     }
 
     @Override
@@ -135,16 +155,66 @@ public class FallbackHome extends Activity {
     protected void onDestroy() {
         super.onDestroy();
         unregisterReceiver(mReceiver);
+        stopListeningForHome();
     }
 
     private BroadcastReceiver mReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
-            maybeFinish();
+            maybeFinish(REASON_USER_UNLOCKED);
         }
     };
 
-    private void maybeFinish() {
+    private final BroadcastReceiver mPackageChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            maybeFinish(REASON_PACKAGE_CHANGED);
+        }
+    };
+
+    private final OnRoleHoldersChangedListener mRoleHoldersChangedListener = (roleName, user) -> {
+        if (RoleManager.ROLE_HOME.equals(roleName)) {
+            maybeFinish(REASON_ROLE_CHANGED);
+        }
+    };
+
+    /**
+     * Starts listening for events which may make a real home activity resolvable: packages being
+     * installed, enabled or updated, and the home role holder changing.
+     */
+    private void startListeningForHome() {
+        if (mListeningForHome) {
+            return;
+        }
+        mListeningForHome = true;
+        mHomeWaitStartElapsedRealtime = SystemClock.elapsedRealtime();
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        registerReceiver(mPackageChangeReceiver, filter);
+
+        getSystemService(RoleManager.class).addOnRoleHoldersChangedListenerAsUser(
+                getMainExecutor(), mRoleHoldersChangedListener, UserHandle.of(getUserId()));
+    }
+
+    private void stopListeningForHome() {
+        mHandler.removeMessages(0);
+        if (!mListeningForHome) {
+            return;
+        }
+        mListeningForHome = false;
+        unregisterReceiver(mPackageChangeReceiver);
+        getSystemService(RoleManager.class).removeOnRoleHoldersChangedListenerAsUser(
+                mRoleHoldersChangedListener, UserHandle.of(getUserId()));
+    }
+
+    private void maybeFinish(String reason) {
+        if (isFinishing()) {
+            return;
+        }
         if (getSystemService(UserManager.class).isUserUnlocked()) {
             final Intent homeIntent = new Intent(Intent.ACTION_MAIN)
                     .addCategory(Intent.CATEGORY_HOME);
@@ -156,12 +226,22 @@ public class FallbackHome extends Activity {
                     // SUW and this activity continues to throw out warnings. See b/28870689.
                     return;
                 }
-                LOG.d("User " + getUserId() + " unlocked but no home; let's hope someone enables "
-                        + "one soon?");
-                mHandler.sendEmptyMessageDelayed(0, 500);
+                LOG.d("User " + getUserId() + " unlocked but no home (" + reason + "); let's hope "
+                        + "someone enables one soon?");
+                startListeningForHome();
+                if (!mHandler.hasMessages(0) && mHomePollCount < MAX_HOME_POLLS) {
+                    mHomePollCount++;
+                    mHandler.sendEmptyMessageDelayed(0, HOME_POLL_INTERVAL_MS);
+                }
             } else {
                 LOG.d("User " + getUserId() + " unlocked and real home ("
                         + homeInfo.activityInfo.packageName + ") found; let's go!");
+                long now = SystemClock.elapsedRealtime();
+                long waitedForHome = mListeningForHome ? now - mHomeWaitStartElapsedRealtime : 0;
+                LOG.i("Home handoff for user " + getUserId() + " on " + reason + ": "
+                        + now + "ms since boot, " + waitedForHome + "ms waiting for home, "
+                        + mHomePollCount + " fallback polls");
+                stopListeningForHome();
                 getSystemService(PowerManager.class).userActivity(
                         SystemClock.uptimeMillis(), false);
                 finishAndRemoveTask();
@@ -169,10 +249,15 @@ public class FallbackHome extends Activity {
         }
     }
 
+    @VisibleForTesting
+    int getHomePollCount() {
+        return mHomePollCount;
+    }
+
     private Handler mHandler = new Handler() {
         @Override
         public void handleMessage(Message msg) {
-            maybeFinish();
+            maybeFinish(REASON_POLL);
         }
     };
 }
@@ -24,12 +24,9 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentSender;
-import android.content.SyncAdapterType;
-import android.content.SyncInfo;
-import android.content.SyncStatusInfo;
 import android.content.SyncStatusObserver;
-import android.content.pm.PackageManager;
 import android.os.UserHandle;
+import android.text.TextUtils;
 import android.text.format.DateFormat;
 
 import androidx.annotation.Nullable;
@@ -43,7 +40,6 @@ import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.Logger;
 import com.android.car.settings.common.PreferenceController;
 import com.android.settingslib.accounts.AuthenticatorHelper;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -68,19 +64,15 @@ public class AccountSyncDetailsPreferenceController extends
      * sync.
      */
     private final Map<String, SyncPreference> mSyncPreferences = new ArrayMap<>();
-    private boolean mIsStarted = false;
     private Account mAccount;
     private UserHandle mUserHandle;
     private AuthenticatorHelper mAuthenticatorHelper;
+    private AccountSyncStatusAggregator mSyncStatusAggregator;
     private Object mStatusChangeListenerHandle;
+    // Sync status changes arrive in bursts while a sync is running, so they are coalesced by the
+    // aggregator which only delivers results while the controller is started.
     private SyncStatusObserver mSyncStatusObserver =
-            which -> ThreadUtils.postOnMainThread(() -> {
-                // The observer call may occur even if the fragment hasn't been started, so
-                // only force an update if the fragment hasn't been stopped.
-                if (mIsStarted) {
-                    forceUpdateSyncCategory();
-                }
-            });
+            which -> mSyncStatusAggregator.requestRefresh();
 
     public AccountSyncDetailsPreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
@@ -124,12 +116,14 @@ public class AccountSyncDetailsPreferenceController extends
     }
 
     /**
-     * Initializes the authenticator helper.
+     * Initializes the authenticator helper and the sync status aggregator.
      */
     @Override
     protected void onCreateInternal() {
         mAuthenticatorHelper = new AuthenticatorHelper(getContext(), mUserHandle, /* listener= */
                 this);
+        mSyncStatusAggregator = new AccountSyncStatusAggregator(getContext(), mAccount,
+                mUserHandle, this::updateSyncPreferences);
     }
 
     /**
@@ -137,8 +131,8 @@ public class AccountSyncDetailsPreferenceController extends
      */
     @Override
     protected void onStartInternal() {
-        mIsStarted = true;
         mAuthenticatorHelper.listenToAccountUpdates();
+        mSyncStatusAggregator.start();
 
         mStatusChangeListenerHandle = ContentResolver.addStatusChangeListener(
                 ContentResolver.SYNC_OBSERVER_TYPE_ACTIVE
@@ -151,8 +145,8 @@ public class AccountSyncDetailsPreferenceController extends
      */
     @Override
     protected void onStopInternal() {
-        mIsStarted = false;
         mAuthenticatorHelper.stopListeningToAccountUpdates();
+        mSyncStatusAggregator.stop();
         if (mStatusChangeListenerHandle != null) {
             ContentResolver.removeStatusChangeListener(mStatusChangeListenerHandle);
         }
@@ -169,7 +163,7 @@ public class AccountSyncDetailsPreferenceController extends
     @Override
     public void updateState(PreferenceGroup preferenceGroup) {
         // Add preferences for each account if the controller should be available
-        forceUpdateSyncCategory();
+        updateSyncPreferences(mSyncStatusAggregator.computeSyncStatesNow());
     }
 
     /**
@@ -265,10 +259,31 @@ public class AccountSyncDetailsPreferenceController extends
         }
     }
 
-    /** Forces a refresh of the sync adapter preferences. */
+    /**
+     * Returns the number of sync status refreshes which were coalesced into an earlier refresh.
+     */
+    @VisibleForTesting
+    int getSuppressedRefreshCount() {
+        return mSyncStatusAggregator.getSuppressedRefreshCount();
+    }
+
+    /**
+     * Forces a refresh of the sync adapter preferences. Cached sync adapter information is
+     * discarded so that changes to the installed packages are picked up.
+     */
     private void forceUpdateSyncCategory() {
+        mSyncStatusAggregator.invalidateAdapterInfo();
+        updateSyncPreferences(mSyncStatusAggregator.computeSyncStatesNow());
+    }
+
+    /**
+     * Updates the sync adapter preferences to reflect the given sync states. Only attributes
+     * which have changed are pushed to existing preferences.
+     */
+    private void updateSyncPreferences(
+            List<AccountSyncStatusAggregator.AdapterSyncState> syncStates) {
         Set<String> preferencesToRemove = new HashSet<>(mSyncPreferences.keySet());
-        List<SyncPreference> preferences = getSyncPreferences(preferencesToRemove);
+        List<SyncPreference> preferences = getSyncPreferences(syncStates, preferencesToRemove);
 
         // Sort the preferences, add the ones that need to be added, and remove the ones that need
         // to be removed. Manually set the order so that existing preferences are reordered
@@ -280,8 +295,10 @@ public class AccountSyncDetailsPreferenceController extends
         for (int i = 0; i < preferences.size(); i++) {
             SyncPreference pref = preferences.get(i);
             pref.setOrder(i);
-            mSyncPreferences.put(pref.getKey(), pref);
-            getPreference().addPreference(pref);
+            if (!mSyncPreferences.containsKey(pref.getKey())) {
+                mSyncPreferences.put(pref.getKey(), pref);
+                getPreference().addPreference(pref);
+            }
         }
 
         for (String key : preferencesToRemove) {
@@ -291,8 +308,7 @@ public class AccountSyncDetailsPreferenceController extends
     }
 
     /**
-     * Returns a list of preferences corresponding to the visible sync adapters for the current
-     * user.
+     * Returns a list of preferences corresponding to the given sync states.
      *
      * <p> Derived from {@link com.android.settings.accounts.AccountSyncSettings#setFeedsState}
      * and {@link com.android.settings.accounts.AccountSyncSettings#updateAccountSwitches}.
@@ -300,72 +316,53 @@ public class AccountSyncDetailsPreferenceController extends
      * @param preferencesToRemove the keys for the preferences currently being shown; only the keys
      *                            for preferences to be removed will remain after method execution
      */
-    private List<SyncPreference> getSyncPreferences(Set<String> preferencesToRemove) {
-        int userId = mUserHandle.getIdentifier();
-        PackageManager packageManager = getContext().getPackageManager();
-        List<SyncInfo> currentSyncs = ContentResolver.getCurrentSyncsAsUser(userId);
-        // Whether one time sync is enabled rather than automtic sync
-        boolean oneTimeSyncMode = !ContentResolver.getMasterSyncAutomaticallyAsUser(userId);
-
+    private List<SyncPreference> getSyncPreferences(
+            List<AccountSyncStatusAggregator.AdapterSyncState> syncStates,
+            Set<String> preferencesToRemove) {
         List<SyncPreference> syncPreferences = new ArrayList<>();
 
-        Set<SyncAdapterType> syncAdapters = AccountSyncHelper.getVisibleSyncAdaptersForAccount(
-                getContext(), mAccount, mUserHandle);
-        for (SyncAdapterType syncAdapter : syncAdapters) {
-            String authority = syncAdapter.authority;
-
-            int uid;
-            try {
-                uid = packageManager.getPackageUidAsUser(syncAdapter.getPackageName(), userId);
-            } catch (PackageManager.NameNotFoundException e) {
-                LOG.e("No uid for package" + syncAdapter.getPackageName(), e);
-                // If we can't get the Uid for the package hosting the sync adapter, don't show it
-                continue;
-            }
-
-            // If we've reached this point, the sync adapter should be shown. If a preference for
-            // the sync adapter already exists, update its state. Otherwise, create a new
-            // preference.
-            SyncPreference pref = mSyncPreferences.getOrDefault(authority,
-                    new SyncPreference(getContext(), authority));
-            pref.setUid(uid);
-            pref.setPackageName(syncAdapter.getPackageName());
-            pref.setOnPreferenceClickListener(
-                    (Preference p) -> onSyncPreferenceClicked((SyncPreference) p));
+        for (AccountSyncStatusAggregator.AdapterSyncState syncState : syncStates) {
+            String authority = syncState.mAuthority;
 
-            CharSequence title = AccountSyncHelper.getTitle(getContext(), authority, mUserHandle);
-            pref.setTitle(title);
+            // If a preference for the sync adapter already exists, update its state. Otherwise,
+            // create a new preference.
+            SyncPreference pref = mSyncPreferences.get(authority);
+            if (pref == null) {
+                pref = new SyncPreference(getContext(), authority);
+                pref.setOnPreferenceClickListener(
+                        (Preference p) -> onSyncPreferenceClicked((SyncPreference) p));
+            }
+            pref.setUid(syncState.mUid);
+            pref.setPackageName(syncState.mPackageName);
+            if (!TextUtils.equals(pref.getTitle(), syncState.mTitle)) {
+                pref.setTitle(syncState.mTitle);
+            }
 
             // Keep track of preferences that need to be added and removed
             syncPreferences.add(pref);
             preferencesToRemove.remove(authority);
 
-            SyncStatusInfo status = ContentResolver.getSyncStatusAsUser(mAccount, authority,
-                    userId);
-            boolean syncEnabled = ContentResolver.getSyncAutomaticallyAsUser(mAccount, authority,
-                    userId);
-            boolean activelySyncing = AccountSyncHelper.isSyncing(mAccount, currentSyncs,
-                    authority);
-
             // The preference should be checked if one one-time sync or regular sync is enabled
-            boolean checked = oneTimeSyncMode || syncEnabled;
-            pref.setChecked(checked);
+            boolean checked = syncState.mOneTimeSyncMode || syncState.mSyncEnabled;
+            if (pref.isChecked() != checked) {
+                pref.setChecked(checked);
+            }
 
-            String summary = getSummary(status, syncEnabled, activelySyncing);
-            pref.setSummary(summary);
+            String summary = getSummary(syncState.mLastSuccessTime, syncState.mSyncEnabled,
+                    syncState.mActivelySyncing);
+            if (!TextUtils.equals(pref.getSummary(), summary)) {
+                pref.setSummary(summary);
+            }
 
             // Update the sync state so the icon is updated
-            AccountSyncHelper.SyncState syncState = AccountSyncHelper.getSyncState(status,
-                    syncEnabled, activelySyncing);
-            pref.setSyncState(syncState);
-            pref.setOneTimeSyncMode(oneTimeSyncMode);
+            pref.setSyncState(syncState.mSyncState);
+            pref.setOneTimeSyncMode(syncState.mOneTimeSyncMode);
         }
 
         return syncPreferences;
     }
 
-    private String getSummary(SyncStatusInfo status, boolean syncEnabled, boolean activelySyncing) {
-        long successEndTime = (status == null) ? 0 : status.lastSuccessTime;
+    private String getSummary(long successEndTime, boolean syncEnabled, boolean activelySyncing) {
         // Set the summary based on the current syncing state
         if (!syncEnabled) {
             return getContext().getString(R.string.sync_disabled);
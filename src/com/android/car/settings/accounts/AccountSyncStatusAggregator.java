@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.accounts;
+
+import android.accounts.Account;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SyncAdapterType;
+import android.content.SyncInfo;
+import android.content.SyncStatusInfo;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.UserHandle;
+import android.text.TextUtils;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.collection.ArrayMap;
+
+import com.android.car.settings.common.Logger;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes the sync state of the visible sync adapters for an account.
+ *
+ * <p>Refresh requests made through {@link #requestRefresh()} may arrive from any thread and in
+ * bursts while a sync is running. Requests are coalesced so that at most one refresh is computed
+ * per {@link #REFRESH_DEBOUNCE_MS}; the computation runs on a background thread and the result is
+ * delivered to the {@link Callback} on the main thread. Data that does not change with the sync
+ * status of an adapter (uid, package name and title) is cached until {@link
+ * #invalidateAdapterInfo()} is called. Sync states computed synchronously with {@link
+ * #computeSyncStatesNow()} supersede any refresh which is still in flight.
+ */
+class AccountSyncStatusAggregator {
+    private static final Logger LOG = new Logger(AccountSyncStatusAggregator.class);
+
+    @VisibleForTesting
+    static final long REFRESH_DEBOUNCE_MS = 250;
+
+    /** Receives computed sync states on the main thread. */
+    interface Callback {
+        /** Called with the sync states of all visible sync adapters for the account. */
+        void onSyncStatesComputed(List<AdapterSyncState> syncStates);
+    }
+
+    /** Snapshot of the state of a single sync adapter. */
+    static final class AdapterSyncState {
+        final String mAuthority;
+        final String mPackageName;
+        final int mUid;
+        final CharSequence mTitle;
+        final boolean mOneTimeSyncMode;
+        final boolean mSyncEnabled;
+        final boolean mActivelySyncing;
+        final long mLastSuccessTime;
+        final AccountSyncHelper.SyncState mSyncState;
+
+        AdapterSyncState(AdapterInfo info, boolean oneTimeSyncMode, boolean syncEnabled,
+                boolean activelySyncing, SyncStatusInfo status) {
+            mAuthority = info.mAuthority;
+            mPackageName = info.mPackageName;
+            mUid = info.mUid;
+            mTitle = info.mTitle;
+            mOneTimeSyncMode = oneTimeSyncMode;
+            mSyncEnabled = syncEnabled;
+            mActivelySyncing = activelySyncing;
+            mLastSuccessTime = (status == null) ? 0 : status.lastSuccessTime;
+            mSyncState = AccountSyncHelper.getSyncState(status, syncEnabled, activelySyncing);
+        }
+    }
+
+    /** Information about a sync adapter which does not depend on its sync status. */
+    private static final class AdapterInfo {
+        final String mAuthority;
+        final String mPackageName;
+        final int mUid;
+        final CharSequence mTitle;
+
+        AdapterInfo(String authority, String packageName, int uid, CharSequence title) {
+            mAuthority = authority;
+            mPackageName = packageName;
+            mUid = uid;
+            mTitle = title;
+        }
+    }
+
+    private final Context mContext;
+    private final Account mAccount;
+    private final UserHandle mUserHandle;
+    private final Callback mCallback;
+    private final Executor mBackgroundExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /** Cached adapter information keyed by authority. Guarded by itself. */
+    private final Map<String, AdapterInfo> mAdapterInfoCache = new ArrayMap<>();
+
+    private final AtomicBoolean mRefreshPending = new AtomicBoolean(false);
+    private final AtomicInteger mSuppressedRefreshCount = new AtomicInteger(0);
+    private final AtomicInteger mRefreshSequence = new AtomicInteger(0);
+    private int mLastDeliveredSequence;
+    private boolean mIsActive;
+
+    private final Runnable mRefreshRunnable = this::computeAndDeliver;
+
+    AccountSyncStatusAggregator(Context context, Account account, UserHandle userHandle,
+            Callback callback) {
+        this(context, account, userHandle, callback, ThreadUtils::postOnBackgroundThread);
+    }
+
+    @VisibleForTesting
+    AccountSyncStatusAggregator(Context context, Account account, UserHandle userHandle,
+            Callback callback, Executor backgroundExecutor) {
+        mContext = context;
+        mAccount = account;
+        mUserHandle = userHandle;
+        mCallback = callback;
+        mBackgroundExecutor = backgroundExecutor;
+    }
+
+    /** Allows refreshes requested through {@link #requestRefresh()} to be delivered. */
+    void start() {
+        mIsActive = true;
+    }
+
+    /** Cancels any pending refresh and drops results of refreshes which are in flight. */
+    void stop() {
+        mIsActive = false;
+        mMainHandler.removeCallbacks(mRefreshRunnable);
+        mRefreshPending.set(false);
+        mLastDeliveredSequence = mRefreshSequence.get();
+    }
+
+    /**
+     * Requests that the sync states be recomputed. May be called from any thread. If a refresh is
+     * already pending, the request is folded into it and counted as suppressed.
+     */
+    void requestRefresh() {
+        if (!mRefreshPending.compareAndSet(false, true)) {
+            mSuppressedRefreshCount.incrementAndGet();
+            return;
+        }
+        mMainHandler.postDelayed(mRefreshRunnable, REFRESH_DEBOUNCE_MS);
+    }
+
+    /** Returns the number of refresh requests which were coalesced into an earlier request. */
+    int getSuppressedRefreshCount() {
+        return mSuppressedRefreshCount.get();
+    }
+
+    /** Clears the cached uid, package name and title of the sync adapters. */
+    void invalidateAdapterInfo() {
+        synchronized (mAdapterInfoCache) {
+            mAdapterInfoCache.clear();
+        }
+    }
+
+    /**
+     * Synchronously computes the sync states of the visible sync adapters for the account. Any
+     * adapters whose information is not yet cached are looked up and cached.
+     */
+    private List<AdapterSyncState> computeSyncStates() {
+        int userId = mUserHandle.getIdentifier();
+        List<SyncInfo> currentSyncs = ContentResolver.getCurrentSyncsAsUser(userId);
+        // Whether one time sync is enabled rather than automatic sync
+        boolean oneTimeSyncMode = !ContentResolver.getMasterSyncAutomaticallyAsUser(userId);
+
+        Set<SyncAdapterType> syncAdapters = AccountSyncHelper.getSyncableSyncAdaptersForAccount(
+                mAccount, mUserHandle);
+        List<AdapterSyncState> syncStates = new ArrayList<>(syncAdapters.size());
+        for (SyncAdapterType syncAdapter : syncAdapters) {
+            AdapterInfo info = getAdapterInfo(syncAdapter);
+            if (info == null) {
+                continue;
+            }
+            String authority = info.mAuthority;
+            SyncStatusInfo status = ContentResolver.getSyncStatusAsUser(mAccount, authority,
+                    userId);
+            boolean syncEnabled = ContentResolver.getSyncAutomaticallyAsUser(mAccount, authority,
+                    userId);
+            boolean activelySyncing = AccountSyncHelper.isSyncing(mAccount, currentSyncs,
+                    authority);
+            syncStates.add(new AdapterSyncState(info, oneTimeSyncMode, syncEnabled,
+                    activelySyncing, status));
+        }
+        return Collections.unmodifiableList(syncStates);
+    }
+
+    /**
+     * Synchronously computes the sync states on the main thread. Results of refreshes started
+     * before this call are dropped, as they may be older than the returned states.
+     */
+    List<AdapterSyncState> computeSyncStatesNow() {
+        mLastDeliveredSequence = mRefreshSequence.incrementAndGet();
+        return computeSyncStates();
+    }
+
+    private void computeAndDeliver() {
+        mRefreshPending.set(false);
+        if (!mIsActive) {
+            return;
+        }
+        int sequence = mRefreshSequence.incrementAndGet();
+        mBackgroundExecutor.execute(() -> {
+            List<AdapterSyncState> syncStates = computeSyncStates();
+            mMainHandler.post(() -> deliver(sequence, syncStates));
+        });
+    }
+
+    private void deliver(int sequence, List<AdapterSyncState> syncStates) {
+        // Drop results which were overtaken by a newer refresh or computed before a stop.
+        if (!mIsActive || sequence <= mLastDeliveredSequence) {
+            return;
+        }
+        mLastDeliveredSequence = sequence;
+        mCallback.onSyncStatesComputed(syncStates);
+    }
+
+    /**
+     * Returns the cached information for a sync adapter, looking it up if necessary. Returns
+     * {@code null} if the sync adapter should not be shown.
+     */
+    private AdapterInfo getAdapterInfo(SyncAdapterType syncAdapter) {
+        String authority = syncAdapter.authority;
+        String packageName = syncAdapter.getPackageName();
+        synchronized (mAdapterInfoCache) {
+            AdapterInfo cached = mAdapterInfoCache.get(authority);
+            if (cached != null && TextUtils.equals(cached.mPackageName, packageName)) {
+                return cached;
+            }
+        }
+
+        if (!syncAdapter.isUserVisible()) {
+            return null;
+        }
+        int uid;
+        try {
+            uid = mContext.getPackageManager().getPackageUidAsUser(packageName,
+                    mUserHandle.getIdentifier());
+        } catch (PackageManager.NameNotFoundException e) {
+            LOG.e("No uid for package" + packageName, e);
+            // If we can't get the Uid for the package hosting the sync adapter, don't show it
+            return null;
+        }
+        CharSequence title = AccountSyncHelper.getTitle(mContext, authority, mUserHandle);
+        if (TextUtils.isEmpty(title)) {
+            return null;
+        }
+
+        AdapterInfo info = new AdapterInfo(authority, packageName, uid, title);
+        synchronized (mAdapterInfoCache) {
+            mAdapterInfoCache.put(authority, info);
+        }
+        return info;
+    }
+}
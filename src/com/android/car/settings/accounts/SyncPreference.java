@@ -88,6 +88,9 @@ public class SyncPreference extends SwitchPreference {
 
     /** Sets the sync state for this preference. */
     public void setSyncState(AccountSyncHelper.SyncState state) {
+        if (mSyncState == state) {
+            return;
+        }
         mSyncState = state;
         // Force a manual update of the icon since the sync state affects what is shown.
         updateIcon();
@@ -105,6 +108,9 @@ public class SyncPreference extends SwitchPreference {
 
     /** Sets whether one-time sync mode is on for this preference. */
     public void setOneTimeSyncMode(boolean oneTimeSyncMode) {
+        if (mOneTimeSyncMode == oneTimeSyncMode) {
+            return;
+        }
         mOneTimeSyncMode = oneTimeSyncMode;
         // Force a refresh so that onBindViewHolder is called
         notifyChanged();
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.applications;
+
+import android.content.ComponentName;
+import android.content.pm.PackageInfo;
+
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Immutable state of an application which is used to populate {@link ApplicationDetailsFragment}.
+ * Instances are created by {@link AppDetailsSnapshotLoader}.
+ */
+public final class AppDetailsSnapshot {
+
+    private final String mPackageName;
+    private final int mUserId;
+    private final long mCreatedElapsedRealtime;
+    @Nullable
+    private final PackageInfo mPackageInfo;
+    private final Set<String> mHomePackages;
+    @Nullable
+    private final ComponentName mCurrentDefaultHome;
+    private final boolean mIsSystemPackage;
+    private final boolean mIsKeepEnabledPackage;
+    private final boolean mHasActiveAdmins;
+    private final boolean mIsProfileOrDeviceOwner;
+    private final boolean mIsUninstallInQueue;
+    private final boolean mHasAppsControlRestriction;
+    private final boolean mHasUninstallAppsRestriction;
+
+    private AppDetailsSnapshot(Builder builder) {
+        mPackageName = builder.mPackageName;
+        mUserId = builder.mUserId;
+        mCreatedElapsedRealtime = builder.mCreatedElapsedRealtime;
+        mPackageInfo = builder.mPackageInfo;
+        mHomePackages = Collections.unmodifiableSet(builder.mHomePackages);
+        mCurrentDefaultHome = builder.mCurrentDefaultHome;
+        mIsSystemPackage = builder.mIsSystemPackage;
+        mIsKeepEnabledPackage = builder.mIsKeepEnabledPackage;
+        mHasActiveAdmins = builder.mHasActiveAdmins;
+        mIsProfileOrDeviceOwner = builder.mIsProfileOrDeviceOwner;
+        mIsUninstallInQueue = builder.mIsUninstallInQueue;
+        mHasAppsControlRestriction = builder.mHasAppsControlRestriction;
+        mHasUninstallAppsRestriction = builder.mHasUninstallAppsRestriction;
+    }
+
+    /** Returns the name of the package described by this snapshot. */
+    public String getPackageName() {
+        return mPackageName;
+    }
+
+    /** Returns the id of the user for which this snapshot was created. */
+    public int getUserId() {
+        return mUserId;
+    }
+
+    /** Returns the {@link android.os.SystemClock#elapsedRealtime()} at creation. */
+    public long getCreatedElapsedRealtime() {
+        return mCreatedElapsedRealtime;
+    }
+
+    /** Returns the package info, or {@code null} if the package could not be found. */
+    @Nullable
+    public PackageInfo getPackageInfo() {
+        return mPackageInfo;
+    }
+
+    /** Returns the packages which provide or proxy for a home activity. */
+    public Set<String> getHomePackages() {
+        return mHomePackages;
+    }
+
+    /** Returns the explicitly preferred home activity, if any. */
+    @Nullable
+    public ComponentName getCurrentDefaultHome() {
+        return mCurrentDefaultHome;
+    }
+
+    /** Returns whether the package is signed with the system signature. */
+    public boolean isSystemPackage() {
+        return mIsSystemPackage;
+    }
+
+    /** Returns whether the package is the default dialer or sms app and should stay enabled. */
+    public boolean isKeepEnabledPackage() {
+        return mIsKeepEnabledPackage;
+    }
+
+    /** Returns whether the package has an active device admin. */
+    public boolean hasActiveAdmins() {
+        return mHasActiveAdmins;
+    }
+
+    /** Returns whether the package is a profile owner or device owner on any user. */
+    public boolean isProfileOrDeviceOwner() {
+        return mIsProfileOrDeviceOwner;
+    }
+
+    /** Returns whether an uninstall intent for the package is already queued. */
+    public boolean isUninstallInQueue() {
+        return mIsUninstallInQueue;
+    }
+
+    /** Returns whether the user has the {@code DISALLOW_APPS_CONTROL} restriction. */
+    public boolean hasAppsControlRestriction() {
+        return mHasAppsControlRestriction;
+    }
+
+    /** Returns whether the user has the {@code DISALLOW_UNINSTALL_APPS} restriction. */
+    public boolean hasUninstallAppsRestriction() {
+        return mHasUninstallAppsRestriction;
+    }
+
+    /** Builder for {@link AppDetailsSnapshot}. */
+    static final class Builder {
+        private final String mPackageName;
+        private final int mUserId;
+        private final long mCreatedElapsedRealtime;
+        private PackageInfo mPackageInfo;
+        private Set<String> mHomePackages = Collections.emptySet();
+        private ComponentName mCurrentDefaultHome;
+        private boolean mIsSystemPackage;
+        private boolean mIsKeepEnabledPackage;
+        private boolean mHasActiveAdmins;
+        private boolean mIsProfileOrDeviceOwner;
+        private boolean mIsUninstallInQueue;
+        private boolean mHasAppsControlRestriction;
+        private boolean mHasUninstallAppsRestriction;
+
+        Builder(String packageName, int userId, long createdElapsedRealtime) {
+            mPackageName = packageName;
+            mUserId = userId;
+            mCreatedElapsedRealtime = createdElapsedRealtime;
+        }
+
+        Builder setPackageInfo(PackageInfo packageInfo) {
+            mPackageInfo = packageInfo;
+            return this;
+        }
+
+        Builder setHomePackages(Set<String> homePackages,
+                @Nullable ComponentName currentDefaultHome) {
+            mHomePackages = homePackages;
+            mCurrentDefaultHome = currentDefaultHome;
+            return this;
+        }
+
+        Builder setSystemPackage(boolean isSystemPackage) {
+            mIsSystemPackage = isSystemPackage;
+            return this;
+        }
+
+        Builder setKeepEnabledPackage(boolean isKeepEnabledPackage) {
+            mIsKeepEnabledPackage = isKeepEnabledPackage;
+            return this;
+        }
+
+        Builder setHasActiveAdmins(boolean hasActiveAdmins) {
+            mHasActiveAdmins = hasActiveAdmins;
+            return this;
+        }
+
+        Builder setProfileOrDeviceOwner(boolean isProfileOrDeviceOwner) {
+            mIsProfileOrDeviceOwner = isProfileOrDeviceOwner;
+            return this;
+        }
+
+        Builder setUninstallInQueue(boolean isUninstallInQueue) {
+            mIsUninstallInQueue = isUninstallInQueue;
+            return this;
+        }
+
+        Builder setAppsControlRestriction(boolean hasRestriction) {
+            mHasAppsControlRestriction = hasRestriction;
+            return this;
+        }
+
+        Builder setUninstallAppsRestriction(boolean hasRestriction) {
+            mHasUninstallAppsRestriction = hasRestriction;
+            return this;
+        }
+
+        AppDetailsSnapshot build() {
+            return new AppDetailsSnapshot(this);
+        }
+    }
+}
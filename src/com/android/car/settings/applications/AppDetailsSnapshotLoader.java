@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.applications;
+
+import static com.android.car.settings.applications.ApplicationsUtils.isKeepEnabledPackage;
+import static com.android.car.settings.applications.ApplicationsUtils.isProfileOrDeviceOwner;
+
+import android.app.ActivityManager;
+import android.app.admin.DevicePolicyManager;
+import android.car.userlib.CarUserManagerHelper;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.os.UserManager;
+import android.util.ArraySet;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.collection.LruCache;
+
+import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.SettingsExecutor;
+import com.android.settingslib.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads an {@link AppDetailsSnapshot} in the visible lane of the {@link SettingsExecutor}. Package
+ * info, home app status, admin and
+ * owner status and user restrictions are gathered in a single pass.
+ *
+ * <p>Loaded snapshots are kept for {@link #CACHE_TTL_MS} so that returning to the details of a
+ * recently viewed application can be rendered immediately while a fresh snapshot is loaded. At
+ * most {@link #MAX_CACHED_SNAPSHOTS} snapshots are kept, and expired snapshots are evicted
+ * whenever a new one is cached.
+ */
+public class AppDetailsSnapshotLoader {
+
+    private static final Logger LOG = new Logger(AppDetailsSnapshotLoader.class);
+
+    @VisibleForTesting
+    static final long CACHE_TTL_MS = 10_000;
+    @VisibleForTesting
+    static final int MAX_CACHED_SNAPSHOTS = 8;
+
+    /** Snapshots keyed by {@link #getCacheKey(String, int)}. Only accessed on the main thread. */
+    private static final LruCache<String, AppDetailsSnapshot> sCache =
+            new LruCache<>(MAX_CACHED_SNAPSHOTS);
+
+    /** Listener notified on the main thread when a snapshot is loaded. */
+    public interface AppDetailsSnapshotListener {
+        /** Called with the loaded snapshot. */
+        void onAppDetailsSnapshotLoaded(AppDetailsSnapshot snapshot);
+    }
+
+    private final Context mContext;
+    private final String mPackageName;
+    private final int mUserId;
+    private final AppDetailsSnapshotListener mListener;
+    private SettingsExecutor.Task mTask;
+
+    public AppDetailsSnapshotLoader(Context context, String packageName, int userId,
+            AppDetailsSnapshotListener listener) {
+        mContext = context.getApplicationContext();
+        mPackageName = packageName;
+        mUserId = userId;
+        mListener = listener;
+    }
+
+    /**
+     * Returns the cached snapshot for the given package and user if it was loaded within the last
+     * {@link #CACHE_TTL_MS}, and {@code null} otherwise.
+     */
+    @MainThread
+    @Nullable
+    public static AppDetailsSnapshot getCachedSnapshot(String packageName, int userId) {
+        String key = getCacheKey(packageName, userId);
+        AppDetailsSnapshot snapshot = sCache.get(key);
+        if (snapshot == null) {
+            return null;
+        }
+        if (isExpired(snapshot)) {
+            sCache.remove(key);
+            return null;
+        }
+        return snapshot;
+    }
+
+    /** Clears all cached snapshots. */
+    @MainThread
+    @VisibleForTesting
+    public static void clearCache() {
+        sCache.evictAll();
+    }
+
+    /** Returns the number of cached snapshots, including expired ones not yet evicted. */
+    @MainThread
+    @VisibleForTesting
+    static int getCacheSize() {
+        return sCache.size();
+    }
+
+    /** Starts loading the snapshot. The listener is called unless the load is cancelled. */
+    @MainThread
+    public void execute() {
+        mTask = SettingsExecutor.getInstance().execute(SettingsExecutor.PRIORITY_VISIBLE,
+                this::loadSnapshot, this::onSnapshotLoaded);
+    }
+
+    /** Cancels the load, so that the listener is not called. */
+    @MainThread
+    public void cancel() {
+        if (mTask != null) {
+            mTask.cancel();
+        }
+    }
+
+    private AppDetailsSnapshot loadSnapshot() {
+        PackageManager pm = mContext.getPackageManager();
+        DevicePolicyManager dpm = (DevicePolicyManager) mContext.getSystemService(
+                Context.DEVICE_POLICY_SERVICE);
+        CarUserManagerHelper carUserManagerHelper = new CarUserManagerHelper(mContext);
+
+        AppDetailsSnapshot.Builder builder = new AppDetailsSnapshot.Builder(mPackageName, mUserId,
+                SystemClock.elapsedRealtime());
+
+        PackageInfo packageInfo = null;
+        try {
+            packageInfo = pm.getPackageInfo(mPackageName,
+                    PackageManager.MATCH_DISABLED_COMPONENTS | PackageManager.MATCH_ANY_USER
+                            | PackageManager.GET_SIGNATURES | PackageManager.GET_PERMISSIONS);
+        } catch (PackageManager.NameNotFoundException e) {
+            LOG.e("Exception when retrieving package:" + mPackageName, e);
+        }
+        builder.setPackageInfo(packageInfo);
+
+        List<ResolveInfo> homeActivities = new ArrayList<>();
+        ComponentName currentDefaultHome = pm.getHomeActivities(homeActivities);
+        builder.setHomePackages(getHomePackages(pm, homeActivities), currentDefaultHome);
+
+        return builder
+                .setSystemPackage(packageInfo != null
+                        && Utils.isSystemPackage(mContext.getResources(), pm, packageInfo))
+                .setKeepEnabledPackage(isKeepEnabledPackage(mContext, mPackageName))
+                .setHasActiveAdmins(dpm.packageHasActiveAdmins(mPackageName))
+                .setProfileOrDeviceOwner(
+                        isProfileOrDeviceOwner(mPackageName, dpm, carUserManagerHelper))
+                .setUninstallInQueue(dpm.isUninstallInQueue(mPackageName))
+                .setAppsControlRestriction(carUserManagerHelper.isCurrentProcessUserHasRestriction(
+                        UserManager.DISALLOW_APPS_CONTROL))
+                .setUninstallAppsRestriction(
+                        carUserManagerHelper.isCurrentProcessUserHasRestriction(
+                                UserManager.DISALLOW_UNINSTALL_APPS))
+                .build();
+    }
+
+    private void onSnapshotLoaded(AppDetailsSnapshot snapshot) {
+        for (Map.Entry<String, AppDetailsSnapshot> entry : sCache.snapshot().entrySet()) {
+            if (isExpired(entry.getValue())) {
+                sCache.remove(entry.getKey());
+            }
+        }
+        sCache.put(getCacheKey(snapshot.getPackageName(), snapshot.getUserId()), snapshot);
+        mListener.onAppDetailsSnapshotLoaded(snapshot);
+    }
+
+    /** Returns the "home" packages, tracing through any meta-data references. */
+    private static Set<String> getHomePackages(PackageManager pm,
+            List<ResolveInfo> homeActivities) {
+        Set<String> homePackages = new ArraySet<>();
+        for (int i = 0; i < homeActivities.size(); i++) {
+            ResolveInfo ri = homeActivities.get(i);
+            String activityPkg = ri.activityInfo.packageName;
+            homePackages.add(activityPkg);
+
+            // Also make sure to include anything proxying for the home app.
+            Bundle metadata = ri.activityInfo.metaData;
+            if (metadata != null) {
+                String metaPkg = metadata.getString(ActivityManager.META_HOME_ALTERNATE);
+                if (signaturesMatch(pm, metaPkg, activityPkg)) {
+                    homePackages.add(metaPkg);
+                }
+            }
+        }
+        return homePackages;
+    }
+
+    private static boolean signaturesMatch(PackageManager pm, String pkg1, String pkg2) {
+        if (pkg1 != null && pkg2 != null) {
+            try {
+                int match = pm.checkSignatures(pkg1, pkg2);
+                if (match >= PackageManager.SIGNATURE_MATCH) {
+                    return true;
+                }
+            } catch (Exception e) {
+                // e.g. package not found during lookup. Possibly bad input.
+                // Just return false as this isn't a reason to crash given the use case.
+            }
+        }
+        return false;
+    }
+
+    private static boolean isExpired(AppDetailsSnapshot snapshot) {
+        return SystemClock.elapsedRealtime() - snapshot.getCreatedElapsedRealtime() > CACHE_TTL_MS;
+    }
+
+    private static String getCacheKey(String packageName, int userId) {
+        return userId + "/" + packageName;
+    }
+}
@@ -18,12 +18,8 @@ package com.android.car.settings.applications;
 
 import static android.app.Activity.RESULT_OK;
 
-import static com.android.car.settings.applications.ApplicationsUtils.isKeepEnabledPackage;
-import static com.android.car.settings.applications.ApplicationsUtils.isProfileOrDeviceOwner;
-
 import android.app.Activity;
 import android.app.ActivityManager;
-import android.app.admin.DevicePolicyManager;
 import android.car.userlib.CarUserManagerHelper;
 import android.content.BroadcastReceiver;
 import android.content.ComponentName;
@@ -32,12 +28,10 @@ import android.content.Intent;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
-import android.content.pm.ResolveInfo;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.UserHandle;
 import android.os.UserManager;
-import android.util.ArraySet;
 
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
@@ -49,7 +43,6 @@ import com.android.car.settings.common.ConfirmationDialogFragment;
 import com.android.car.settings.common.Logger;
 import com.android.car.settings.common.SettingsFragment;
 import com.android.car.ui.toolbar.MenuItem;
-import com.android.settingslib.Utils;
 import com.android.settingslib.applications.ApplicationsState;
 
 import java.util.ArrayList;
@@ -76,7 +69,8 @@ import java.util.Set;
  * <p>For apps that cannot be uninstalled, a disable option is shown instead (or enable if the app
  * is already disabled).
  */
-public class ApplicationDetailsFragment extends SettingsFragment implements ActivityResultCallback {
+public class ApplicationDetailsFragment extends SettingsFragment implements ActivityResultCallback,
+        AppDetailsSnapshotLoader.AppDetailsSnapshotListener {
     private static final Logger LOG = new Logger(ApplicationDetailsFragment.class);
     public static final String EXTRA_PACKAGE_NAME = "extra_package_name";
 
@@ -89,7 +83,6 @@ public class ApplicationDetailsFragment extends SettingsFragment implements Acti
     @VisibleForTesting
     static final int UNINSTALL_REQUEST_CODE = 10;
 
-    private DevicePolicyManager mDpm;
     private PackageManager mPm;
     private CarUserManagerHelper mCarUserManagerHelper;
 
@@ -98,6 +91,10 @@ public class ApplicationDetailsFragment extends SettingsFragment implements Acti
     private ApplicationsState mAppState;
     private ApplicationsState.Session mSession;
     private ApplicationsState.AppEntry mAppEntry;
+    private AppDetailsSnapshot mSnapshot;
+    private AppDetailsSnapshotLoader mSnapshotLoader;
+    private StoragePreferenceController mStoragePreferenceController;
+    private VersionPreferenceController mVersionPreferenceController;
 
     // The function of this button depends on which app is shown and the app's current state.
     // It is an application enable/disable toggle for apps bundled with the system image.
@@ -127,7 +124,6 @@ public class ApplicationDetailsFragment extends SettingsFragment implements Acti
     @Override
     public void onAttach(Context context) {
         super.onAttach(context);
-        mDpm = (DevicePolicyManager) context.getSystemService(Context.DEVICE_POLICY_SERVICE);
         mPm = context.getPackageManager();
         mCarUserManagerHelper = new CarUserManagerHelper(context);
 
@@ -138,6 +134,17 @@ public class ApplicationDetailsFragment extends SettingsFragment implements Acti
         mSession = mAppState.newSession(mApplicationStateCallbacks, getLifecycle());
 
         retrieveAppEntry();
+        // Reuse a recently loaded snapshot so that returning to this page does not block on
+        // package manager queries. The controllers require package info before creation.
+        AppDetailsSnapshot cachedSnapshot = AppDetailsSnapshotLoader.getCachedSnapshot(
+                mPackageName, mCarUserManagerHelper.getCurrentProcessUserId());
+        if (mAppEntry == null) {
+            mPackageInfo = null;
+        } else if (cachedSnapshot != null && cachedSnapshot.getPackageInfo() != null) {
+            mPackageInfo = cachedSnapshot.getPackageInfo();
+        } else {
+            mPackageInfo = loadPackageInfo();
+        }
 
         use(ApplicationPreferenceController.class,
                 R.string.pk_application_details_app)
@@ -146,11 +153,12 @@ public class ApplicationDetailsFragment extends SettingsFragment implements Acti
                 R.string.pk_application_details_notifications).setPackageInfo(mPackageInfo);
         use(PermissionsPreferenceController.class,
                 R.string.pk_application_details_permissions).setPackageName(mPackageName);
-        use(StoragePreferenceController.class,
+        mStoragePreferenceController = use(StoragePreferenceController.class,
                 R.string.pk_application_details_storage)
                 .setAppEntry(mAppEntry).setPackageName(mPackageName);
-        use(VersionPreferenceController.class,
-                R.string.pk_application_details_version).setPackageInfo(mPackageInfo);
+        mVersionPreferenceController = use(VersionPreferenceController.class,
+                R.string.pk_application_details_version);
+        mVersionPreferenceController.setPackageInfo(mPackageInfo);
     }
 
     @Override
@@ -185,41 +193,87 @@ public class ApplicationDetailsFragment extends SettingsFragment implements Acti
         super.onStop();
         // Since we resume early in onStart, make sure we clean up even if we don't receive onPause.
         mSession.onPause();
+        cancelSnapshotLoad();
+    }
+
+    /**
+     * Applies the loaded snapshot to the toolbar buttons and the controllers which depend on the
+     * package state.
+     */
+    @Override
+    public void onAppDetailsSnapshotLoaded(AppDetailsSnapshot snapshot) {
+        mSnapshotLoader = null;
+        applySnapshot(snapshot, /* isFresh= */ true);
     }
 
     private void refresh() {
         retrieveAppEntry();
         if (mAppEntry == null) {
             goBack();
+            return;
+        }
+        int userId = mCarUserManagerHelper.getCurrentProcessUserId();
+        AppDetailsSnapshot cachedSnapshot = AppDetailsSnapshotLoader.getCachedSnapshot(
+                mPackageName, userId);
+        if (cachedSnapshot != null) {
+            applySnapshot(cachedSnapshot, /* isFresh= */ false);
+        }
+        cancelSnapshotLoad();
+        mSnapshotLoader = new AppDetailsSnapshotLoader(requireContext(), mPackageName, userId,
+                /* listener= */ this);
+        mSnapshotLoader.execute();
+    }
+
+    private void cancelSnapshotLoad() {
+        if (mSnapshotLoader != null) {
+            mSnapshotLoader.cancel();
+            mSnapshotLoader = null;
+        }
+    }
+
+    private void applySnapshot(AppDetailsSnapshot snapshot, boolean isFresh) {
+        if (mAppEntry == null) {
+            return;
         }
-        updateForceStopButton();
+        mSnapshot = snapshot;
+        PackageInfo packageInfo = snapshot.getPackageInfo();
+        if (packageInfo != null && packageInfo != mPackageInfo) {
+            mPackageInfo = packageInfo;
+            mVersionPreferenceController.setPackageInfo(packageInfo);
+            mVersionPreferenceController.refreshUi();
+        }
+        mStoragePreferenceController.setAppEntry(mAppEntry);
+        mStoragePreferenceController.refreshUi();
+
+        // Only query the restart state of an explicitly stopped package once it is known to be
+        // current, since the query is an ordered broadcast.
+        updateForceStopButton(isFresh);
         updateUninstallButton();
     }
 
     private void retrieveAppEntry() {
         mAppEntry = mAppState.getEntry(mPackageName,
                 mCarUserManagerHelper.getCurrentProcessUserId());
-        if (mAppEntry != null) {
-            try {
-                mPackageInfo = mPm.getPackageInfo(mPackageName,
-                        PackageManager.MATCH_DISABLED_COMPONENTS | PackageManager.MATCH_ANY_USER
-                                | PackageManager.GET_SIGNATURES | PackageManager.GET_PERMISSIONS);
-            } catch (PackageManager.NameNotFoundException e) {
-                LOG.e("Exception when retrieving package:" + mPackageName, e);
-                mPackageInfo = null;
-            }
-        } else {
-            mPackageInfo = null;
+    }
+
+    private PackageInfo loadPackageInfo() {
+        try {
+            return mPm.getPackageInfo(mPackageName,
+                    PackageManager.MATCH_DISABLED_COMPONENTS | PackageManager.MATCH_ANY_USER
+                            | PackageManager.GET_SIGNATURES | PackageManager.GET_PERMISSIONS);
+        } catch (PackageManager.NameNotFoundException e) {
+            LOG.e("Exception when retrieving package:" + mPackageName, e);
+            return null;
         }
     }
 
-    private void updateForceStopButton() {
-        if (mDpm.packageHasActiveAdmins(mPackageName)) {
+    private void updateForceStopButton(boolean queryRestartState) {
+        if (mSnapshot.hasActiveAdmins()) {
             updateForceStopButtonInner(/* enabled= */ false);
         } else if ((mAppEntry.info.flags & ApplicationInfo.FLAG_STOPPED) == 0) {
             // If the app isn't explicitly stopped, then always show the force stop button.
             updateForceStopButtonInner(/* enabled= */ true);
-        } else {
+        } else if (queryRestartState) {
             Intent intent = new Intent(Intent.ACTION_QUERY_PACKAGE_RESTART,
                     Uri.fromParts("package", mPackageName, /* fragment= */ null));
             intent.putExtra(Intent.EXTRA_PACKAGES, new String[]{mPackageName});
@@ -238,9 +292,7 @@ public class ApplicationDetailsFragment extends SettingsFragment implements Acti
     }
 
     private void updateForceStopButtonInner(boolean enabled) {
-        mForceStopButton.setEnabled(
-                enabled && !mCarUserManagerHelper.isCurrentProcessUserHasRestriction(
-                        UserManager.DISALLOW_APPS_CONTROL));
+        mForceStopButton.setEnabled(enabled && !mSnapshot.hasAppsControlRestriction());
     }
 
     private void updateUninstallButton() {
@@ -266,17 +318,17 @@ public class ApplicationDetailsFragment extends SettingsFragment implements Acti
             return true;
         }
 
-        if (isAppEnabled() && isKeepEnabledPackage(requireContext(), mPackageName)) {
+        if (isAppEnabled() && mSnapshot.isKeepEnabledPackage()) {
             LOG.d("Disable button disabled for keep enabled package");
             return true;
         }
 
-        if (Utils.isSystemPackage(getResources(), mPm, mPackageInfo)) {
+        if (mSnapshot.isSystemPackage()) {
             LOG.d("Uninstall disabled for system package");
             return true;
         }
 
-        if (mDpm.packageHasActiveAdmins(mPackageName)) {
+        if (mSnapshot.hasActiveAdmins()) {
             LOG.d("Uninstall disabled because package has active admins");
             return true;
         }
@@ -284,24 +336,22 @@ public class ApplicationDetailsFragment extends SettingsFragment implements Acti
         // We don't allow uninstalling profile/device owner on any user because if it's a system
         // app, "uninstall" is actually "downgrade to the system version + disable", and
         // "downgrade" will clear data on all users.
-        if (isProfileOrDeviceOwner(mPackageName, mDpm, mCarUserManagerHelper)) {
+        if (mSnapshot.isProfileOrDeviceOwner()) {
             LOG.d("Uninstall disabled because package is profile or device owner");
             return true;
         }
 
-        if (mDpm.isUninstallInQueue(mPackageName)) {
+        if (mSnapshot.isUninstallInQueue()) {
             LOG.d("Uninstall disabled because intent is already queued");
             return true;
         }
 
-        if (mCarUserManagerHelper.isCurrentProcessUserHasRestriction(
-                UserManager.DISALLOW_APPS_CONTROL)) {
+        if (mSnapshot.hasAppsControlRestriction()) {
             LOG.d("Uninstall disabled because user has DISALLOW_APPS_CONTROL restriction");
             return true;
         }
 
-        if (mCarUserManagerHelper.isCurrentProcessUserHasRestriction(
-                UserManager.DISALLOW_UNINSTALL_APPS)) {
+        if (mSnapshot.hasUninstallAppsRestriction()) {
             LOG.d("Uninstall disabled because user has DISALLOW_UNINSTALL_APPS restriction");
             return true;
         }
@@ -317,24 +367,8 @@ public class ApplicationDetailsFragment extends SettingsFragment implements Acti
      * after which we'll permit removal of the now-not-default app.
      */
     private boolean shouldDisableUninstallForHomeApp() {
-        Set<String> homePackages = new ArraySet<>();
-        // Get list of "home" apps and trace through any meta-data references.
-        List<ResolveInfo> homeActivities = new ArrayList<>();
-        ComponentName currentDefaultHome = mPm.getHomeActivities(homeActivities);
-        for (int i = 0; i < homeActivities.size(); i++) {
-            ResolveInfo ri = homeActivities.get(i);
-            String activityPkg = ri.activityInfo.packageName;
-            homePackages.add(activityPkg);
-
-            // Also make sure to include anything proxying for the home app.
-            Bundle metadata = ri.activityInfo.metaData;
-            if (metadata != null) {
-                String metaPkg = metadata.getString(ActivityManager.META_HOME_ALTERNATE);
-                if (signaturesMatch(metaPkg, activityPkg)) {
-                    homePackages.add(metaPkg);
-                }
-            }
-        }
+        Set<String> homePackages = mSnapshot.getHomePackages();
+        ComponentName currentDefaultHome = mSnapshot.getCurrentDefaultHome();
 
         if (homePackages.contains(mPackageName)) {
             boolean isBundledApp = (mAppEntry.info.flags & ApplicationInfo.FLAG_SYSTEM) != 0;
@@ -356,21 +390,6 @@ public class ApplicationDetailsFragment extends SettingsFragment implements Acti
         }
     }
 
-    private boolean signaturesMatch(String pkg1, String pkg2) {
-        if (pkg1 != null && pkg2 != null) {
-            try {
-                int match = mPm.checkSignatures(pkg1, pkg2);
-                if (match >= PackageManager.SIGNATURE_MATCH) {
-                    return true;
-                }
-            } catch (Exception e) {
-                // e.g. package not found during lookup. Possibly bad input.
-                // Just return false as this isn't a reason to crash given the use case.
-            }
-        }
-        return false;
-    }
-
     private boolean isBundledApp() {
         return (mAppEntry.info.flags & ApplicationInfo.FLAG_SYSTEM) != 0;
     }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.applications.defaultapps;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.function.Supplier;
+
+/**
+ * Process-wide, bounded cache of icons which have already been scaled down by {@link
+ * DefaultAppUtils#getSafeIcon(Drawable, int)}. Entries are keyed by candidate key (typically a
+ * flattened component name) and maximum dimension, and hold the {@link Drawable.ConstantState} so
+ * that each lookup returns a new drawable which shares the scaled bitmap.
+ *
+ * <p>Entries for a package are evicted when that package is added, changed or removed.
+ */
+public class DefaultAppIconCache {
+
+    @VisibleForTesting
+    static final int MAX_ENTRIES = 64;
+
+    private static DefaultAppIconCache sInstance;
+
+    private final Context mContext;
+    private final LruCache<String, Drawable.ConstantState> mCache = new LruCache<>(MAX_ENTRIES);
+
+    private final BroadcastReceiver mPackageChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            if (data != null) {
+                invalidatePackage(data.getSchemeSpecificPart());
+            }
+        }
+    };
+
+    /** Returns the process-wide instance of the cache. */
+    public static synchronized DefaultAppIconCache getInstance(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (sInstance == null || sInstance.mContext != appContext) {
+            sInstance = new DefaultAppIconCache(appContext);
+            sInstance.registerPackageChangeReceiver();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    DefaultAppIconCache(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Returns the scaled down icon for the given key and dimension. On a cache miss, the icon is
+     * loaded from {@code iconSupplier}, scaled and cached. May be called from any thread.
+     *
+     * @param key          key identifying the icon, either a package name or a flattened component
+     *                     name.
+     * @param maxDimension maximum width/height, in pixels.
+     * @param iconSupplier loads the original icon if it is not cached.
+     */
+    @Nullable
+    public Drawable getSafeIcon(String key, int maxDimension,
+            Supplier<Drawable> iconSupplier) {
+        String cacheKey = getCacheKey(key, maxDimension);
+        Drawable.ConstantState cached = mCache.get(cacheKey);
+        if (cached != null) {
+            return cached.newDrawable();
+        }
+
+        Drawable safeIcon = DefaultAppUtils.getSafeIcon(iconSupplier.get(), maxDimension);
+        if (safeIcon == null) {
+            return null;
+        }
+        Drawable.ConstantState state = safeIcon.getConstantState();
+        if (state == null) {
+            return safeIcon;
+        }
+        mCache.put(cacheKey, state);
+        // Hand out a new instance so that the cached state is never mutated through the caller.
+        return state.newDrawable();
+    }
+
+    /** Evicts all icons which belong to the given package. */
+    public void invalidatePackage(String packageName) {
+        String componentPrefix = packageName + "/";
+        String packagePrefix = packageName + "@";
+        for (String cacheKey : mCache.snapshot().keySet()) {
+            if (cacheKey.startsWith(componentPrefix) || cacheKey.startsWith(packagePrefix)) {
+                mCache.remove(cacheKey);
+            }
+        }
+    }
+
+    /** Evicts all icons. */
+    @VisibleForTesting
+    void clear() {
+        mCache.evictAll();
+    }
+
+    @VisibleForTesting
+    int size() {
+        return mCache.size();
+    }
+
+    private void registerPackageChangeReceiver() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        mContext.registerReceiver(mPackageChangeReceiver, filter);
+    }
+
+    private static String getCacheKey(String key, int maxDimension) {
+        return key + "@" + maxDimension;
+    }
+}
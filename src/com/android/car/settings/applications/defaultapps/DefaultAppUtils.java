@@ -34,11 +34,19 @@ public class DefaultAppUtils {
      * it's too big.
      */
     public static void setSafeIcon(Preference pref, Drawable icon, int maxDimension) {
+        pref.setIcon(getSafeIcon(icon, maxDimension));
+    }
+
+    /**
+     * Returns a drawable that is scaled down to avoid crashing Settings if it's too big. Vector
+     * drawables and icons which are already small enough are returned as is.
+     */
+    public static Drawable getSafeIcon(Drawable icon, int maxDimension) {
         Drawable safeIcon = icon;
         if ((icon != null) && !(icon instanceof VectorDrawable)) {
             safeIcon = getSafeDrawable(icon, maxDimension);
         }
-        pref.setIcon(safeIcon);
+        return safeIcon;
     }
 
     /**
@@ -18,10 +18,15 @@ package com.android.car.settings.applications.defaultapps;
 
 import android.car.drivingstate.CarUxRestrictions;
 import android.car.userlib.CarUserManagerHelper;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
 
@@ -30,16 +35,26 @@ import com.android.car.settings.common.ConfirmationDialogFragment;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.Logger;
 import com.android.car.settings.common.PreferenceController;
+import com.android.car.settings.common.SettingsExecutor;
 import com.android.car.ui.preference.CarUiPreference;
 import com.android.settingslib.applications.DefaultAppInfo;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-/** Defines the shared logic in picking a default application. */
+/**
+ * Defines the shared logic in picking a default application.
+ *
+ * <p>Candidates are loaded synchronously the first time the list is shown and cached afterwards.
+ * Package changes invalidate the cache and reload the candidates, along with their labels and
+ * scaled icons, in the background. Rows are reused across refreshes so that changing the default
+ * only updates the summaries, and are rebound whenever a new set of candidates is loaded so that
+ * changes to the label or enabled state of a candidate are shown.
+ */
 public abstract class DefaultAppsPickerBasePreferenceController extends
         PreferenceController<PreferenceGroup> implements Preference.OnPreferenceClickListener {
 
@@ -53,7 +68,23 @@ public abstract class DefaultAppsPickerBasePreferenceController extends
         setCurrentDefault(arguments.getString(DIALOG_KEY_ARG));
         refreshUi();
     };
+    private final Map<String, Preference> mCandidatePreferences = new HashMap<>();
+    private final Map<String, CharSequence> mLabels = new HashMap<>();
+    private final BroadcastReceiver mPackageChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            if (data != null) {
+                invalidatePackage(data.getSchemeSpecificPart());
+            }
+            loadCandidatesInBackground();
+        }
+    };
     private List<DefaultAppInfo> mCurrentCandidates;
+    private List<DefaultAppInfo> mLoadedCandidates;
+    private boolean mCandidatesLoaded;
+    private boolean mRevalidateOnStart;
+    private CandidateLoadTask mCandidateLoadTask;
 
     public DefaultAppsPickerBasePreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
@@ -75,27 +106,77 @@ public abstract class DefaultAppsPickerBasePreferenceController extends
                 /* rejectListener= */ null);
     }
 
+    @Override
+    protected void onStartInternal() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        getContext().registerReceiver(mPackageChangeReceiver, filter);
+
+        // Packages may have changed while stopped, so reload without blocking the cached list.
+        if (mRevalidateOnStart) {
+            mRevalidateOnStart = false;
+            loadCandidatesInBackground();
+        }
+    }
+
+    @Override
+    protected void onStopInternal() {
+        getContext().unregisterReceiver(mPackageChangeReceiver);
+        if (mCandidateLoadTask != null) {
+            mCandidateLoadTask.cancel();
+            mCandidateLoadTask = null;
+        }
+        mRevalidateOnStart = mCandidatesLoaded;
+    }
+
     @Override
     protected void updateState(PreferenceGroup preferenceGroup) {
-        List<DefaultAppInfo> defaultAppInfos = getCandidates();
+        if (!mCandidatesLoaded) {
+            mLoadedCandidates = getCandidates();
+            mCandidatesLoaded = true;
+        }
+        List<DefaultAppInfo> defaultAppInfos = mLoadedCandidates;
         if (!equalToCurrentCandidates(defaultAppInfos)) {
             mCurrentCandidates = defaultAppInfos;
             preferenceGroup.removeAll();
+            mDefaultAppInfoMap.clear();
+            int order = 0;
             if (includeNonePreference()) {
-                preferenceGroup.addPreference(createNonePreference());
+                Preference nonePreference = createNonePreference();
+                nonePreference.setOrder(order++);
+                preferenceGroup.addPreference(nonePreference);
             }
             if (mCurrentCandidates != null) {
+                Set<String> keys = new HashSet<>();
                 for (DefaultAppInfo info : mCurrentCandidates) {
                     mDefaultAppInfoMap.put(info.getKey(), info);
+                    keys.add(info.getKey());
 
-                    CarUiPreference preference = new CarUiPreference(getContext());
-                    preference.setShowChevron(false);
+                    Preference preference = mCandidatePreferences.get(info.getKey());
+                    if (preference == null) {
+                        CarUiPreference carUiPreference = new CarUiPreference(getContext());
+                        carUiPreference.setShowChevron(false);
+                        preference = carUiPreference;
+                        mCandidatePreferences.put(info.getKey(), preference);
+                    }
                     bindPreference(preference, info);
+                    preference.setOrder(order++);
                     getPreference().addPreference(preference);
                 }
+                mCandidatePreferences.keySet().retainAll(keys);
             } else {
                 LOG.i("no candidate provided");
             }
+        } else if (defaultAppInfos != mCurrentCandidates) {
+            // Same candidates, but their labels or enabled states may have changed.
+            mCurrentCandidates = defaultAppInfos;
+            for (DefaultAppInfo info : mCurrentCandidates) {
+                mDefaultAppInfoMap.put(info.getKey(), info);
+                bindPreference(mCandidatePreferences.get(info.getKey()), info);
+            }
         }
 
         // This is done separately from above, since the summary can change without changing the
@@ -135,15 +216,23 @@ public abstract class DefaultAppsPickerBasePreferenceController extends
 
     /** Modifies the preference based on the information provided. */
     protected void bindPreference(Preference preference, DefaultAppInfo info) {
-        preference.setTitle(info.loadLabel());
+        preference.setTitle(getLabel(info));
         preference.setKey(info.getKey());
         preference.setEnabled(info.enabled);
         preference.setOnPreferenceClickListener(this);
-        DefaultAppUtils.setSafeIcon(preference, info.loadIcon(),
-                getContext().getResources().getInteger(R.integer.default_app_safe_icon_size));
+        preference.setIcon(DefaultAppIconCache.getInstance(getContext()).getSafeIcon(
+                info.getKey(), getSafeIconSize(), info::loadIcon));
     }
 
-    /** Gets all of the candidates that should be considered when choosing a default application. */
+    /**
+     * Gets all of the candidates that should be considered when choosing a default application.
+     *
+     * <p>This is called on the main thread the first time the list is shown, and on a background
+     * thread when the candidates are reloaded after a package change. Implementations must
+     * therefore be thread safe: they may query system services such as the package manager, but
+     * must not access preferences or state which is modified on the main thread after the
+     * controller is created.
+     */
     @NonNull
     protected abstract List<DefaultAppInfo> getCandidates();
 
@@ -178,6 +267,54 @@ public abstract class DefaultAppsPickerBasePreferenceController extends
         return true;
     }
 
+    private CharSequence getLabel(DefaultAppInfo info) {
+        CharSequence label = mLabels.get(info.getKey());
+        if (label == null) {
+            label = info.loadLabel();
+            if (label != null) {
+                mLabels.put(info.getKey(), label);
+            }
+        }
+        return label;
+    }
+
+    private int getSafeIconSize() {
+        return getContext().getResources().getInteger(R.integer.default_app_safe_icon_size);
+    }
+
+    /**
+     * Drops cached rows and labels for the given package and forces the list to be rebuilt with
+     * the next set of candidates.
+     */
+    private void invalidatePackage(@Nullable String packageName) {
+        if (packageName == null) {
+            return;
+        }
+        DefaultAppIconCache.getInstance(getContext()).invalidatePackage(packageName);
+        removeKeysForPackage(mCandidatePreferences, packageName);
+        removeKeysForPackage(mLabels, packageName);
+        mCurrentCandidates = null;
+    }
+
+    private void loadCandidatesInBackground() {
+        if (mCandidateLoadTask != null) {
+            mCandidateLoadTask.cancel();
+        }
+        mCandidateLoadTask = new CandidateLoadTask(getSafeIconSize());
+        mCandidateLoadTask.execute();
+    }
+
+    private static void removeKeysForPackage(Map<String, ?> map, String packageName) {
+        String componentPrefix = packageName + "/";
+        Iterator<String> keys = map.keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (TextUtils.equals(key, packageName) || key.startsWith(componentPrefix)) {
+                keys.remove();
+            }
+        }
+    }
+
     private Preference createNonePreference() {
         CarUiPreference nonePreference = new CarUiPreference(getContext());
         nonePreference.setKey(NONE_PREFERENCE_KEY);
@@ -192,8 +329,8 @@ public abstract class DefaultAppsPickerBasePreferenceController extends
      * Check that the provided {@link DefaultAppInfo} list is equivalent to the current list of
      * candidates.
      */
-    private boolean equalToCurrentCandidates(@NonNull List<DefaultAppInfo> defaultAppInfos) {
-        if (mCurrentCandidates == null) {
+    private boolean equalToCurrentCandidates(@Nullable List<DefaultAppInfo> defaultAppInfos) {
+        if (mCurrentCandidates == null || defaultAppInfos == null) {
             return false;
         }
 
@@ -208,4 +345,62 @@ public abstract class DefaultAppsPickerBasePreferenceController extends
         }
         return keys.isEmpty();
     }
+
+    /**
+     * Loads the candidates along with their labels and scaled icons so that binding rows on the
+     * main thread does not need to touch the package manager.
+     */
+    private class CandidateLoadTask {
+
+        private final int mIconSize;
+        private final Map<String, CharSequence> mLoadedLabels = new HashMap<>();
+        private SettingsExecutor.Task mTask;
+        private volatile boolean mCancelled;
+
+        CandidateLoadTask(int iconSize) {
+            mIconSize = iconSize;
+        }
+
+        void execute() {
+            mTask = executeInBackground(SettingsExecutor.PRIORITY_VISIBLE, this::loadCandidates,
+                    this::onCandidatesLoaded);
+        }
+
+        void cancel() {
+            mCancelled = true;
+            if (mTask != null) {
+                mTask.cancel();
+            }
+        }
+
+        private List<DefaultAppInfo> loadCandidates() {
+            List<DefaultAppInfo> candidates = getCandidates();
+            if (candidates == null) {
+                return null;
+            }
+            DefaultAppIconCache iconCache = DefaultAppIconCache.getInstance(getContext());
+            for (DefaultAppInfo info : candidates) {
+                if (mCancelled) {
+                    break;
+                }
+                CharSequence label = info.loadLabel();
+                if (label != null) {
+                    mLoadedLabels.put(info.getKey(), label);
+                }
+                iconCache.getSafeIcon(info.getKey(), mIconSize, info::loadIcon);
+            }
+            return candidates;
+        }
+
+        private void onCandidatesLoaded(List<DefaultAppInfo> candidates) {
+            if (mCandidateLoadTask != this) {
+                return;
+            }
+            mCandidateLoadTask = null;
+            mLabels.putAll(mLoadedLabels);
+            mLoadedCandidates = candidates;
+            mCandidatesLoaded = true;
+            refreshUi();
+        }
+    }
 }
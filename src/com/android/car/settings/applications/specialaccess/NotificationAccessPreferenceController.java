@@ -25,7 +25,6 @@ import android.content.Context;
 import android.content.pm.PackageItemInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ServiceInfo;
-import android.os.AsyncTask;
 import android.os.UserHandle;
 import android.provider.Settings;
 import android.service.notification.NotificationListenerService;
@@ -40,6 +39,7 @@ import com.android.car.settings.common.ConfirmationDialogFragment;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.Logger;
 import com.android.car.settings.common.PreferenceController;
+import com.android.car.settings.common.SettingsExecutor;
 import com.android.settingslib.applications.ServiceListing;
 
 import java.util.List;
@@ -176,7 +176,7 @@ public class NotificationAccessPreferenceController extends PreferenceController
 
     private void revokeNotificationAccess(ComponentName service) {
         mNm.setNotificationListenerAccessGranted(service, /* granted= */ false);
-        AsyncTask.execute(() -> {
+        SettingsExecutor.getInstance().execute(SettingsExecutor.PRIORITY_INTERACTIVE, () -> {
             if (!mNm.isNotificationPolicyAccessGrantedForPackage(service.getPackageName())) {
                 mNm.removeAutomaticZenRules(service.getPackageName());
             }
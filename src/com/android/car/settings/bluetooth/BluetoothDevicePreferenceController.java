@@ -30,8 +30,9 @@ import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 /**
  * Encapsulates common functionality for all {@link BluetoothPreferenceController} instances
  * which display state of a specific {@link CachedBluetoothDevice}. The controller will refresh
- * the UI whenever the device properties change. The controller is not available to users with
- * the {@link UserManager#DISALLOW_CONFIG_BLUETOOTH} restriction.
+ * the UI whenever the device properties change, see {@link #onDeviceAttributesChanged()}. The
+ * controller is not available to users with the {@link UserManager#DISALLOW_CONFIG_BLUETOOTH}
+ * restriction.
  *
  * @param <V> the upper bound on the type of {@link Preference} on which the controller expects
  *         to operate.
@@ -39,7 +40,8 @@ import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 public abstract class BluetoothDevicePreferenceController<V extends Preference> extends
         BluetoothPreferenceController<V> {
 
-    private final CachedBluetoothDevice.Callback mDeviceCallback = this::refreshUi;
+    private final CachedBluetoothDevice.Callback mDeviceCallback =
+            this::onDeviceAttributesChanged;
     private CachedBluetoothDevice mCachedDevice;
 
     public BluetoothDevicePreferenceController(Context context, String preferenceKey,
@@ -63,6 +65,14 @@ public abstract class BluetoothDevicePreferenceController<V extends Preference>
         return mCachedDevice;
     }
 
+    /**
+     * Called on the main thread while started whenever the attributes of the device change.
+     * Refreshes the UI by default. Subclasses which are expensive to refresh may override this to
+     * coalesce bursts of changes.
+     */
+    protected void onDeviceAttributesChanged() {
+        refreshUi();
+    }
 
     @Override
     protected void checkInitialized() {
@@ -16,24 +16,22 @@
 
 package com.android.car.settings.bluetooth;
 
-import static android.bluetooth.BluetoothProfile.STATE_CONNECTED;
-
 import android.content.Context;
 
 import androidx.preference.SwitchPreference;
 
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 import com.android.settingslib.bluetooth.LocalBluetoothProfile;
-import com.android.settingslib.bluetooth.PanProfile;
 
 /**
  * Preference that represents a {@link LocalBluetoothProfile} for a {@link CachedBluetoothDevice}.
+ * The preference does not observe the device itself. Its state is kept up to date by {@link
+ * BluetoothDeviceProfilesPreferenceController}, which only updates profiles whose state changed.
  */
 public class BluetoothDeviceProfilePreference extends SwitchPreference {
 
     private final LocalBluetoothProfile mProfile;
     private final CachedBluetoothDevice mCachedDevice;
-    private final CachedBluetoothDevice.Callback mDeviceCallback = this::refreshUi;
 
     public BluetoothDeviceProfilePreference(Context context, LocalBluetoothProfile profile,
             CachedBluetoothDevice cachedDevice) {
@@ -57,27 +55,4 @@ public class BluetoothDeviceProfilePreference extends SwitchPreference {
     public CachedBluetoothDevice getCachedDevice() {
         return mCachedDevice;
     }
-
-    @Override
-    public void onAttached() {
-        super.onAttached();
-        mCachedDevice.registerCallback(mDeviceCallback);
-        refreshUi();
-    }
-
-    @Override
-    public void onDetached() {
-        super.onDetached();
-        mCachedDevice.unregisterCallback(mDeviceCallback);
-    }
-
-    private void refreshUi() {
-        setEnabled(!mCachedDevice.isBusy());
-        if (mProfile instanceof PanProfile) {
-            setChecked(
-                    mProfile.getConnectionStatus(mCachedDevice.getDevice()) == STATE_CONNECTED);
-        } else {
-            setChecked(mProfile.isPreferred(mCachedDevice.getDevice()));
-        }
-    }
 }
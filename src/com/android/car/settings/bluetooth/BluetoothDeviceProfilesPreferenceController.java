@@ -16,29 +16,57 @@
 
 package com.android.car.settings.bluetooth;
 
+import static android.bluetooth.BluetoothProfile.STATE_CONNECTED;
+
+import android.bluetooth.BluetoothDevice;
 import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
+import android.view.Choreographer;
 
 import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
 
 import com.android.car.settings.common.FragmentController;
 import com.android.settingslib.bluetooth.LocalBluetoothProfile;
+import com.android.settingslib.bluetooth.PanProfile;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * Displays toggles for Bluetooth profiles supported by a device. Toggling a profile on will set it
  * as preferred and attempt a connection. Toggling a profile off will disconnect the profile. If no
  * profiles are supported, the preference is hidden.
+ *
+ * <p>Device attributes change many times in quick succession while profiles connect, so changes
+ * are coalesced into a single refresh per frame. Each refresh only updates the preferences of
+ * profiles whose state changed since they were last updated.
  */
 public class BluetoothDeviceProfilesPreferenceController extends
         BluetoothDevicePreferenceController<PreferenceGroup> {
 
+    // Profiles are singletons owned by the profile manager, so rows are keyed by identity rather
+    // than by the name returned by toString().
+    private final Map<LocalBluetoothProfile, ProfileRow> mProfileRows = new IdentityHashMap<>();
+    private boolean mIsFrameCallbackPosted;
+
+    private final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> {
+        mIsFrameCallbackPosted = false;
+        refreshUi();
+    };
+
     private final Preference.OnPreferenceChangeListener mProfileChangeListener =
             (preference, newValue) -> {
                 boolean isChecked = (boolean) newValue;
                 BluetoothDeviceProfilePreference profilePref =
                         (BluetoothDeviceProfilePreference) preference;
                 LocalBluetoothProfile profile = profilePref.getProfile();
+                ProfileRow row = mProfileRows.get(profile);
+                if (row != null) {
+                    // The preference toggles itself, so a refresh which finds the profile in its
+                    // previous state must still revert it.
+                    row.mIsChecked = isChecked;
+                }
                 profile.setPreferred(profilePref.getCachedDevice().getDevice(), isChecked);
                 if (isChecked) {
                     getCachedDevice().connectProfile(profile);
@@ -58,23 +86,81 @@ public class BluetoothDeviceProfilesPreferenceController extends
         return PreferenceGroup.class;
     }
 
+    @Override
+    protected void onDeviceAttributesChanged() {
+        if (!mIsFrameCallbackPosted) {
+            mIsFrameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    @Override
+    protected void onStopInternal() {
+        super.onStopInternal();
+        if (mIsFrameCallbackPosted) {
+            // The UI is refreshed on the next start.
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            mIsFrameCallbackPosted = false;
+        }
+    }
+
     @Override
     protected void updateState(PreferenceGroup preferenceGroup) {
+        BluetoothDevice device = getCachedDevice().getDevice();
+        boolean isEnabled = !getCachedDevice().isBusy();
         for (LocalBluetoothProfile profile : getCachedDevice().getProfiles()) {
-            Preference profilePref = preferenceGroup.findPreference(profile.toString());
-            if (profilePref == null) {
-                profilePref = new BluetoothDeviceProfilePreference(getContext(), profile,
-                        getCachedDevice());
+            ProfileRow row = mProfileRows.get(profile);
+            if (row == null) {
+                BluetoothDeviceProfilePreference profilePref =
+                        new BluetoothDeviceProfilePreference(getContext(), profile,
+                                getCachedDevice());
                 profilePref.setOnPreferenceChangeListener(mProfileChangeListener);
+                row = new ProfileRow(profilePref);
+                mProfileRows.put(profile, row);
                 preferenceGroup.addPreference(profilePref);
             }
+            row.bind(isProfileChecked(profile, device), isEnabled);
         }
         for (LocalBluetoothProfile removedProfile : getCachedDevice().getRemovedProfiles()) {
-            Preference prefToRemove = preferenceGroup.findPreference(removedProfile.toString());
-            if (prefToRemove != null) {
-                preferenceGroup.removePreference(prefToRemove);
+            ProfileRow row = mProfileRows.remove(removedProfile);
+            if (row != null) {
+                preferenceGroup.removePreference(row.mPreference);
             }
         }
         preferenceGroup.setVisible(preferenceGroup.getPreferenceCount() > 0);
     }
+
+    private static boolean isProfileChecked(LocalBluetoothProfile profile,
+            BluetoothDevice device) {
+        // PAN is always reported as preferred, so its toggle reflects the connection state.
+        if (profile instanceof PanProfile) {
+            return profile.getConnectionStatus(device) == STATE_CONNECTED;
+        }
+        return profile.isPreferred(device);
+    }
+
+    /** The preference of a profile, along with the state last applied to it. */
+    private static final class ProfileRow {
+        final BluetoothDeviceProfilePreference mPreference;
+        boolean mIsBound;
+        boolean mIsChecked;
+        boolean mIsEnabled;
+
+        ProfileRow(BluetoothDeviceProfilePreference preference) {
+            mPreference = preference;
+        }
+
+        /** Applies the given state to the preference, if it differs from the last state. */
+        void bind(boolean isChecked, boolean isEnabled) {
+            if (!mIsBound || isChecked != mIsChecked) {
+                mPreference.setChecked(isChecked);
+                mIsChecked = isChecked;
+            }
+            if (!mIsBound || isEnabled != mIsEnabled) {
+                mPreference.setEnabled(isEnabled);
+                mIsEnabled = isEnabled;
+            }
+            mIsBound = true;
+        }
+    }
 }
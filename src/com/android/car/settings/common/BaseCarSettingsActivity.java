@@ -18,6 +18,7 @@ package com.android.car.settings.common;
 
 import android.car.drivingstate.CarUxRestrictions;
 import android.car.drivingstate.CarUxRestrictionsManager.OnUxRestrictionsChangedListener;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentSender;
@@ -27,16 +28,24 @@ import android.view.inputmethod.InputMethodManager;
 import android.widget.Toast;
 
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentManager.OnBackStackChangedListener;
+import androidx.fragment.app.FragmentTransaction;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceFragmentCompat;
 
 import com.android.car.apps.common.util.Themes;
 import com.android.car.settings.R;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 /**
  * Base activity class for car settings, provides a action bar with a back button that goes to
  * previous activity.
@@ -54,6 +63,10 @@ public abstract class BaseCarSettingsActivity extends FragmentActivity implement
             CarUxRestrictions.UX_RESTRICTIONS_BASELINE,
             /* timestamp= */ 0
     ).build();
+    // Restrictions last delivered to each fragment on the back stack.
+    private final Map<Fragment, CarUxRestrictions> mDeliveredUxRestrictions =
+            new WeakHashMap<>();
+    private WarmFragmentCache mWarmFragmentCache;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -64,6 +77,8 @@ public abstract class BaseCarSettingsActivity extends FragmentActivity implement
                     this);
         }
         mUxRestrictionsHelper.start();
+        mWarmFragmentCache = createWarmFragmentCache();
+        mWarmFragmentCache.restoreState(savedInstanceState);
         getSupportFragmentManager().addOnBackStackChangedListener(this);
         mRestrictedMessage = findViewById(R.id.restricted_message);
 
@@ -77,6 +92,37 @@ public abstract class BaseCarSettingsActivity extends FragmentActivity implement
         mUxRestrictionsHelper = null;
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        mWarmFragmentCache.saveState(outState);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // TRIM_MEMORY_UI_HIDDEN only means that the UI is no longer visible.
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                && level != ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            mWarmFragmentCache.evictAll();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        mWarmFragmentCache.evictAll();
+    }
+
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        SettingsTracer.dump(prefix, writer);
+        ControllerViolationDetector.dump(prefix, writer);
+        SettingsExecutor.getInstance().dump(prefix, writer);
+        mWarmFragmentCache.dump(prefix, writer);
+    }
+
     @Override
     public void onBackPressed() {
         super.onBackPressed();
@@ -94,7 +140,11 @@ public abstract class BaseCarSettingsActivity extends FragmentActivity implement
                     "cannot launch dialogs with launchFragment() - use showDialog() instead");
         }
 
-        getSupportFragmentManager()
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        String tag = Integer.toString(fragmentManager.getBackStackEntryCount());
+        Fragment currentFragment = getCurrentFragment();
+        Fragment newFragment = mWarmFragmentCache.obtain(fragment, R.id.fragment_container, tag);
+        FragmentTransaction transaction = fragmentManager
                 .beginTransaction()
                 .setCustomAnimations(
                         Themes.getAttrResourceId(/* context= */ this,
@@ -104,11 +154,25 @@ public abstract class BaseCarSettingsActivity extends FragmentActivity implement
                         Themes.getAttrResourceId(/* context= */ this,
                                 android.R.attr.fragmentCloseEnterAnimation),
                         Themes.getAttrResourceId(/* context= */ this,
-                                android.R.attr.fragmentCloseExitAnimation))
-                .replace(R.id.fragment_container, fragment,
-                        Integer.toString(getSupportFragmentManager().getBackStackEntryCount()))
-                .addToBackStack(null)
-                .commit();
+                                android.R.attr.fragmentCloseExitAnimation));
+
+        // Warm fragments are detached and attached rather than replaced, so that they are not
+        // destroyed when the back stack entry showing them is popped.
+        String backStackName = null;
+        boolean isCurrentFragmentWarm = mWarmFragmentCache.contains(currentFragment);
+        if (isCurrentFragmentWarm) {
+            transaction.detach(currentFragment);
+            backStackName = mWarmFragmentCache.getBackStackName(currentFragment);
+        }
+        if (mWarmFragmentCache.contains(newFragment)) {
+            if (currentFragment != null && !isCurrentFragmentWarm) {
+                transaction.remove(currentFragment);
+            }
+            transaction.attach(newFragment);
+        } else {
+            transaction.replace(R.id.fragment_container, newFragment, tag);
+        }
+        transaction.addToBackStack(backStackName).commit();
     }
 
     @Override
@@ -155,10 +219,7 @@ public abstract class BaseCarSettingsActivity extends FragmentActivity implement
     public void onUxRestrictionsChanged(CarUxRestrictions restrictionInfo) {
         mCarUxRestrictions = restrictionInfo;
         Fragment currentFragment = getCurrentFragment();
-        if (currentFragment instanceof OnUxRestrictionsChangedListener) {
-            ((OnUxRestrictionsChangedListener) currentFragment)
-                    .onUxRestrictionsChanged(restrictionInfo);
-        }
+        dispatchUxRestrictions(currentFragment);
         updateBlockingView(currentFragment);
     }
 
@@ -169,7 +230,22 @@ public abstract class BaseCarSettingsActivity extends FragmentActivity implement
 
     @Override
     public void onBackStackChanged() {
-        onUxRestrictionsChanged(getCarUxRestrictions());
+        // Only fragments which missed a change while in the back stack need to be notified.
+        Fragment currentFragment = getCurrentFragment();
+        CarUxRestrictions delivered = mDeliveredUxRestrictions.get(currentFragment);
+        if (delivered == null || !delivered.isSameRestrictions(mCarUxRestrictions)) {
+            dispatchUxRestrictions(currentFragment);
+        }
+        updateBlockingView(currentFragment);
+        mWarmFragmentCache.trimToSize();
+    }
+
+    private void dispatchUxRestrictions(@Nullable Fragment currentFragment) {
+        if (currentFragment instanceof OnUxRestrictionsChangedListener) {
+            ((OnUxRestrictionsChangedListener) currentFragment)
+                    .onUxRestrictionsChanged(mCarUxRestrictions);
+            mDeliveredUxRestrictions.put(currentFragment, mCarUxRestrictions);
+        }
     }
 
     @Override
@@ -199,7 +275,14 @@ public abstract class BaseCarSettingsActivity extends FragmentActivity implement
     }
 
     protected Fragment getCurrentFragment() {
-        return getSupportFragmentManager().findFragmentById(R.id.fragment_container);
+        Fragment fragment = getSupportFragmentManager().findFragmentById(R.id.fragment_container);
+        // Detached warm fragments can be found in the container, but are not shown.
+        return fragment != null && fragment.isDetached() ? null : fragment;
+    }
+
+    @VisibleForTesting
+    WarmFragmentCache createWarmFragmentCache() {
+        return new WarmFragmentCache(/* context= */ this, getSupportFragmentManager());
     }
 
     /**
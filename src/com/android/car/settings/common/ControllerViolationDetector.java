@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.os.Binder;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.StrictMode;
+import android.os.SystemProperties;
+import android.os.strictmode.CustomViolation;
+import android.os.strictmode.DiskReadViolation;
+import android.os.strictmode.DiskWriteViolation;
+import android.os.strictmode.NetworkViolation;
+import android.os.strictmode.Violation;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Detects binder transactions, disk access, network access and slow calls made on the main thread
+ * while a {@link PreferenceController} callback runs.
+ *
+ * <p>Detection is opt-in through the {@value #DETECTION_PROPERTY} system property. When enabled, a
+ * {@link StrictMode} thread policy detecting disk and network access and slow calls is applied
+ * for the duration of each controller callback, and main thread binder transactions are observed
+ * through a {@link Binder.ProxyTransactListener}. Each violation is attributed to the controller
+ * class and method found on its stack, and a report ranked by violation count can be printed with
+ * {@code adb shell dumpsys activity <settings activity>}.
+ */
+public final class ControllerViolationDetector {
+
+    private static final Logger LOG = new Logger(ControllerViolationDetector.class);
+
+    @VisibleForTesting
+    static final String DETECTION_PROPERTY = "debug.car.settings.detect_violations";
+    private static final int MAX_DUMPED_ENTRIES = 50;
+    private static final String CONTROLLER_BASE_CLASS = PreferenceController.class.getName();
+
+    /** Kinds of violations tracked by the detector. */
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({BINDER_TRANSACTION, DISK_READ, DISK_WRITE, NETWORK, SLOW_CALL, OTHER})
+    public @interface ViolationType {
+    }
+
+    public static final int BINDER_TRANSACTION = 0;
+    public static final int DISK_READ = 1;
+    public static final int DISK_WRITE = 2;
+    public static final int NETWORK = 3;
+    public static final int SLOW_CALL = 4;
+    public static final int OTHER = 5;
+    private static final String[] VIOLATION_TYPE_NAMES = {"binder", "diskRead", "diskWrite",
+            "network", "slowCall", "other"};
+
+    // Violations are reported after the offending message has been handled, and only if the
+    // thread policy in effect at that time still has a listener. The listener therefore stays
+    // installed between callbacks, and violations are attributed from their stack trace.
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+    private static final StrictMode.OnThreadViolationListener VIOLATION_LISTENER =
+            ControllerViolationDetector::onThreadViolation;
+
+    private static final Binder.ProxyTransactListener BINDER_LISTENER =
+            new Binder.ProxyTransactListener() {
+                @Override
+                public Object onTransactStarted(IBinder binder, int transactionCode) {
+                    if (sCallbackDepth > 0 && Looper.getMainLooper().isCurrentThread()) {
+                        onBinderTransaction();
+                    }
+                    return null;
+                }
+
+                @Override
+                public void onTransactEnded(Object session) {
+                }
+            };
+
+    private static final Map<String, Entry> sEntries = new HashMap<>();
+    private static boolean sEnabled;
+    private static int sCallbackDepth;
+    private static StrictMode.ThreadPolicy sPolicyOutsideCallbacks;
+
+    static {
+        if (SystemProperties.getBoolean(DETECTION_PROPERTY, /* def= */ false)) {
+            setEnabled(true);
+        }
+    }
+
+    private ControllerViolationDetector() {
+    }
+
+    /** Called by {@link PreferenceController} before dispatching a callback. */
+    static void onCallbackStarted() {
+        if (!sEnabled || !Looper.getMainLooper().isCurrentThread()) {
+            return;
+        }
+        if (sCallbackDepth++ == 0) {
+            sPolicyOutsideCallbacks = new StrictMode.ThreadPolicy.Builder(
+                    StrictMode.getThreadPolicy())
+                    .penaltyListener(DIRECT_EXECUTOR, VIOLATION_LISTENER)
+                    .build();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder(sPolicyOutsideCallbacks)
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .detectNetwork()
+                    .detectCustomSlowCalls()
+                    .build());
+        }
+    }
+
+    /** Called by {@link PreferenceController} after dispatching a callback. */
+    static void onCallbackFinished() {
+        if (!sEnabled || sCallbackDepth == 0 || !Looper.getMainLooper().isCurrentThread()) {
+            return;
+        }
+        if (--sCallbackDepth == 0) {
+            StrictMode.setThreadPolicy(sPolicyOutsideCallbacks);
+        }
+    }
+
+    /** Prints the controller methods with the most violations, along with their counts. */
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Controller violations (" + DETECTION_PROPERTY + "=" + sEnabled
+                + "):");
+        List<Entry> entries;
+        synchronized (sEntries) {
+            entries = new ArrayList<>(sEntries.values());
+        }
+        if (entries.isEmpty()) {
+            writer.println(prefix + "  No violations recorded");
+            return;
+        }
+        entries.sort((lhs, rhs) -> Integer.compare(rhs.getTotal(), lhs.getTotal()));
+        for (int i = 0; i < Math.min(entries.size(), MAX_DUMPED_ENTRIES); i++) {
+            Entry entry = entries.get(i);
+            StringBuilder line = new StringBuilder(prefix).append("  ")
+                    .append(entry.mControllerClassName).append('#').append(entry.mMethodName)
+                    .append(": total=").append(entry.getTotal());
+            for (int type = 0; type < VIOLATION_TYPE_NAMES.length; type++) {
+                if (entry.mCounts[type] > 0) {
+                    line.append(' ').append(VIOLATION_TYPE_NAMES[type]).append('=')
+                            .append(entry.mCounts[type]);
+                }
+            }
+            writer.println(line);
+        }
+        if (entries.size() > MAX_DUMPED_ENTRIES) {
+            writer.println(prefix + "  ... " + (entries.size() - MAX_DUMPED_ENTRIES) + " more");
+        }
+    }
+
+    /**
+     * Returns the number of violations of the given type recorded for a method of a controller
+     * class. {@code methodName} is the method on the controller's stack, such as {@code
+     * updateState} or {@code onStartInternal}.
+     */
+    @VisibleForTesting
+    static int getViolationCount(Class<?> controllerClass, String methodName,
+            @ViolationType int type) {
+        synchronized (sEntries) {
+            Entry entry = sEntries.get(controllerClass.getName() + "#" + methodName);
+            return entry == null ? 0 : entry.mCounts[type];
+        }
+    }
+
+    /** Returns the total number of violations of the given type recorded for any controller. */
+    @VisibleForTesting
+    static int getViolationCount(@ViolationType int type) {
+        int count = 0;
+        synchronized (sEntries) {
+            for (Entry entry : sEntries.values()) {
+                count += entry.mCounts[type];
+            }
+        }
+        return count;
+    }
+
+    @VisibleForTesting
+    @MainThread
+    static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+        sCallbackDepth = 0;
+        Binder.setProxyTransactListener(enabled ? BINDER_LISTENER : null);
+    }
+
+    @VisibleForTesting
+    static void reset() {
+        synchronized (sEntries) {
+            sEntries.clear();
+        }
+    }
+
+    /** Records a main thread binder transaction made from within a controller callback. */
+    @VisibleForTesting
+    static void onBinderTransaction() {
+        record(BINDER_TRANSACTION, new Throwable().getStackTrace());
+    }
+
+    @VisibleForTesting
+    static void onThreadViolation(Violation violation) {
+        record(getViolationType(violation), violation.getStackTrace());
+    }
+
+    private static void record(@ViolationType int type, StackTraceElement[] stack) {
+        StackTraceElement culprit = findCulprit(stack);
+        if (culprit == null) {
+            // Not raised by a controller callback, e.g. by a policy set elsewhere in the app.
+            return;
+        }
+        String key = culprit.getClassName() + "#" + culprit.getMethodName();
+        LOG.d("Main thread " + VIOLATION_TYPE_NAMES[type] + " violation in " + key);
+        synchronized (sEntries) {
+            Entry entry = sEntries.get(key);
+            if (entry == null) {
+                entry = new Entry(culprit.getClassName(), culprit.getMethodName());
+                sEntries.put(key, entry);
+            }
+            entry.mCounts[type]++;
+        }
+    }
+
+    /**
+     * Returns the frame of the controller method responsible for a violation, i.e. the method
+     * called by the innermost {@link PreferenceController} frame. If that method does not belong
+     * to a controller, e.g. when the violation is raised by the preference itself, the {@link
+     * PreferenceController} frame is returned. Returns {@code null} if the stack does not contain
+     * a controller callback.
+     */
+    private static StackTraceElement findCulprit(StackTraceElement[] stack) {
+        for (int i = 0; i < stack.length; i++) {
+            if (!CONTROLLER_BASE_CLASS.equals(stack[i].getClassName())) {
+                continue;
+            }
+            if (i > 0 && isControllerClass(stack[i - 1].getClassName())) {
+                return stack[i - 1];
+            }
+            return stack[i];
+        }
+        return null;
+    }
+
+    private static boolean isControllerClass(String className) {
+        // Attribute lambdas and anonymous classes to the controller enclosing them.
+        String name = className;
+        while (true) {
+            try {
+                if (PreferenceController.class.isAssignableFrom(Class.forName(name,
+                        /* initialize= */ false,
+                        ControllerViolationDetector.class.getClassLoader()))) {
+                    return true;
+                }
+            } catch (ClassNotFoundException e) {
+                // Fall through to the enclosing class.
+            }
+            int innerClassIndex = name.lastIndexOf('$');
+            if (innerClassIndex < 0) {
+                return false;
+            }
+            name = name.substring(0, innerClassIndex);
+        }
+    }
+
+    @ViolationType
+    private static int getViolationType(Violation violation) {
+        if (violation instanceof DiskReadViolation) {
+            return DISK_READ;
+        } else if (violation instanceof DiskWriteViolation) {
+            return DISK_WRITE;
+        } else if (violation instanceof NetworkViolation) {
+            return NETWORK;
+        } else if (violation instanceof CustomViolation) {
+            return SLOW_CALL;
+        }
+        return OTHER;
+    }
+
+    /** Violation counts of a controller method, indexed by {@link ViolationType}. */
+    private static final class Entry {
+        final String mControllerClassName;
+        final String mMethodName;
+        final int[] mCounts = new int[VIOLATION_TYPE_NAMES.length];
+
+        Entry(String controllerClassName, String methodName) {
+            mControllerClassName = controllerClassName;
+            mMethodName = methodName;
+        }
+
+        int getTotal() {
+            int total = 0;
+            for (int count : mCounts) {
+                total += count;
+            }
+            return total;
+        }
+    }
+}
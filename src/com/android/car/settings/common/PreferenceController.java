@@ -31,8 +31,12 @@ import com.android.car.settings.R;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Controller which encapsulates the business logic associated with a {@link Preference}. All car
@@ -137,13 +141,35 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     private final Set<String> mPreferencesIgnoringUxRestrictions;
 
+    // Phases traced by SettingsTracer, used as indices into mTraceSpans.
+    private static final String[] TRACE_PHASES = {"onCreate", "onStart", "onResume", "onPause",
+            "onStop", "onDestroy", "refreshUi", "getAvailabilityStatus"};
+    private static final int TRACE_ON_CREATE = 0;
+    private static final int TRACE_ON_START = 1;
+    private static final int TRACE_ON_RESUME = 2;
+    private static final int TRACE_ON_PAUSE = 3;
+    private static final int TRACE_ON_STOP = 4;
+    private static final int TRACE_ON_DESTROY = 5;
+    private static final int TRACE_REFRESH_UI = 6;
+    private static final int TRACE_GET_AVAILABILITY_STATUS = 7;
+
+    // Whether each controller class overrides onApplyUxRestrictions, keyed by class.
+    private static final Map<Class<?>, Boolean> sAppliesUxRestrictions = new HashMap<>();
+
     private final Context mContext;
     private final String mPreferenceKey;
     private final FragmentController mFragmentController;
+    // Created lazily so that untraced phases cost nothing.
+    private final SettingsTracer.Span[] mTraceSpans =
+            new SettingsTracer.Span[TRACE_PHASES.length];
 
     private CarUxRestrictions mUxRestrictions;
+    // Set once the subclass reads the restrictions, after which it is notified of every change.
+    private boolean mUxRestrictionsRead;
     private V mPreference;
     private boolean mIsCreated;
+    // Background tasks whose results are still pending, cancelled when the controller is destroyed.
+    private final Set<SettingsExecutor.Task> mBackgroundTasks = new HashSet<>();
 
     /**
      * Controllers should be instantiated from XML. To pass additional arguments see
@@ -188,6 +214,7 @@ public abstract class PreferenceController<V extends Preference> implements
      * this to limit which content is displayed in the associated preference. May be called anytime.
      */
     protected final CarUxRestrictions getUxRestrictions() {
+        mUxRestrictionsRead = true;
         return mUxRestrictions;
     }
 
@@ -199,6 +226,27 @@ public abstract class PreferenceController<V extends Preference> implements
         return mPreference;
     }
 
+    /**
+     * Runs {@code work} on the shared {@link SettingsExecutor} and delivers its result to {@code
+     * onResult} on the main thread. Tasks which have not delivered their result by the time the
+     * controller is destroyed are cancelled. Must be called on the main thread.
+     */
+    protected final <T> SettingsExecutor.Task executeInBackground(
+            @SettingsExecutor.Priority int priority, Supplier<T> work, Consumer<T> onResult) {
+        SettingsExecutor.Task[] task = new SettingsExecutor.Task[1];
+        // The result may be delivered before execute returns when running on direct executors.
+        boolean[] delivered = new boolean[1];
+        task[0] = SettingsExecutor.getInstance().execute(priority, work, result -> {
+            delivered[0] = true;
+            mBackgroundTasks.remove(task[0]);
+            onResult.accept(result);
+        });
+        if (!delivered[0]) {
+            mBackgroundTasks.add(task[0]);
+        }
+        return task[0];
+    }
+
     /**
      * Called by {@link SettingsFragment} to associate the controller with its preference after the
      * screen is created. This is guaranteed to be called before {@link #onCreateInternal()}.
@@ -221,13 +269,30 @@ public abstract class PreferenceController<V extends Preference> implements
 
     /**
      * Called by {@link SettingsFragment} to notify that the applied ux restrictions have changed.
-     * The controller will refresh its UI accordingly unless it is not yet created. In that case,
-     * the UI will refresh once created.
+     * The controller will refresh its UI accordingly unless it is not yet created, or none of the
+     * restrictions returned by {@link #getUxRestrictionsDependencies()} changed. If not yet
+     * created, the UI will refresh once created.
      */
     @Override
     public final void onUxRestrictionsChanged(CarUxRestrictions uxRestrictions) {
+        CarUxRestrictions previousUxRestrictions = mUxRestrictions;
         mUxRestrictions = uxRestrictions;
-        refreshUi();
+        if (isUxRestrictionsChangeRelevant(previousUxRestrictions, uxRestrictions)) {
+            refreshUi();
+        }
+    }
+
+    private boolean isUxRestrictionsChangeRelevant(CarUxRestrictions previous,
+            CarUxRestrictions current) {
+        if (previous == null || current == null) {
+            return previous != current;
+        }
+        int dependencies = getUxRestrictionsDependencies();
+        if (dependencies == CarUxRestrictions.UX_RESTRICTIONS_FULLY_RESTRICTED) {
+            return !previous.isSameRestrictions(current);
+        }
+        return ((previous.getActiveRestrictions() ^ current.getActiveRestrictions())
+                & dependencies) != 0;
     }
 
     /**
@@ -243,21 +308,58 @@ public abstract class PreferenceController<V extends Preference> implements
             return;
         }
 
-        if (isAvailable()) {
-            mPreference.setVisible(true);
-            mPreference.setEnabled(getAvailabilityStatus() != AVAILABLE_FOR_VIEWING);
-            updateState(mPreference);
-            onApplyUxRestrictions(mUxRestrictions);
-        } else {
-            mPreference.setVisible(false);
+        long token = beginTrace(TRACE_REFRESH_UI);
+        try {
+            if (isAvailable()) {
+                mPreference.setVisible(true);
+                mPreference.setEnabled(getTracedAvailabilityStatus() != AVAILABLE_FOR_VIEWING);
+                updateState(mPreference);
+                onApplyUxRestrictions(mUxRestrictions);
+            } else {
+                mPreference.setVisible(false);
+            }
+        } finally {
+            endTrace(TRACE_REFRESH_UI, token);
         }
     }
 
     private boolean isAvailable() {
-        int availabilityStatus = getAvailabilityStatus();
+        int availabilityStatus = getTracedAvailabilityStatus();
         return availabilityStatus == AVAILABLE || availabilityStatus == AVAILABLE_FOR_VIEWING;
     }
 
+    private boolean isUnsupportedOnDevice() {
+        return getTracedAvailabilityStatus() == UNSUPPORTED_ON_DEVICE;
+    }
+
+    @AvailabilityStatus
+    private int getTracedAvailabilityStatus() {
+        long token = beginTrace(TRACE_GET_AVAILABILITY_STATUS);
+        try {
+            return getAvailabilityStatus();
+        } finally {
+            endTrace(TRACE_GET_AVAILABILITY_STATUS, token);
+        }
+    }
+
+    private long beginTrace(int phase) {
+        SettingsTracer.Span span = mTraceSpans[phase];
+        if (span == null) {
+            String screen = mFragmentController == null ? "unknown"
+                    : mFragmentController.getClass().getSimpleName();
+            span = new SettingsTracer.Span(screen, getClass().getSimpleName(),
+                    TRACE_PHASES[phase]);
+            mTraceSpans[phase] = span;
+        }
+        ControllerViolationDetector.onCallbackStarted();
+        return SettingsTracer.begin(span);
+    }
+
+    private void endTrace(int phase, long token) {
+        SettingsTracer.end(mTraceSpans[phase], token);
+        ControllerViolationDetector.onCallbackFinished();
+    }
+
     // Controller lifecycle ========================================================================
 
     /**
@@ -267,13 +369,18 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     @Override
     public final void onCreate(@NonNull LifecycleOwner owner) {
-        if (getAvailabilityStatus() == UNSUPPORTED_ON_DEVICE) {
-            mPreference.setVisible(false);
-            return;
+        long token = beginTrace(TRACE_ON_CREATE);
+        try {
+            if (isUnsupportedOnDevice()) {
+                mPreference.setVisible(false);
+                return;
+            }
+            onCreateInternal();
+            mIsCreated = true;
+            refreshUi();
+        } finally {
+            endTrace(TRACE_ON_CREATE, token);
         }
-        onCreateInternal();
-        mIsCreated = true;
-        refreshUi();
     }
 
     /**
@@ -283,11 +390,16 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     @Override
     public final void onStart(@NonNull LifecycleOwner owner) {
-        if (getAvailabilityStatus() == UNSUPPORTED_ON_DEVICE) {
-            return;
+        long token = beginTrace(TRACE_ON_START);
+        try {
+            if (isUnsupportedOnDevice()) {
+                return;
+            }
+            onStartInternal();
+            refreshUi();
+        } finally {
+            endTrace(TRACE_ON_START, token);
         }
-        onStartInternal();
-        refreshUi();
     }
 
     /**
@@ -296,10 +408,15 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     @Override
     public final void onResume(@NonNull LifecycleOwner owner) {
-        if (getAvailabilityStatus() == UNSUPPORTED_ON_DEVICE) {
-            return;
+        long token = beginTrace(TRACE_ON_RESUME);
+        try {
+            if (isUnsupportedOnDevice()) {
+                return;
+            }
+            onResumeInternal();
+        } finally {
+            endTrace(TRACE_ON_RESUME, token);
         }
-        onResumeInternal();
     }
 
     /**
@@ -308,10 +425,15 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     @Override
     public final void onPause(@NonNull LifecycleOwner owner) {
-        if (getAvailabilityStatus() == UNSUPPORTED_ON_DEVICE) {
-            return;
+        long token = beginTrace(TRACE_ON_PAUSE);
+        try {
+            if (isUnsupportedOnDevice()) {
+                return;
+            }
+            onPauseInternal();
+        } finally {
+            endTrace(TRACE_ON_PAUSE, token);
         }
-        onPauseInternal();
     }
 
     /**
@@ -320,10 +442,15 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     @Override
     public final void onStop(@NonNull LifecycleOwner owner) {
-        if (getAvailabilityStatus() == UNSUPPORTED_ON_DEVICE) {
-            return;
+        long token = beginTrace(TRACE_ON_STOP);
+        try {
+            if (isUnsupportedOnDevice()) {
+                return;
+            }
+            onStopInternal();
+        } finally {
+            endTrace(TRACE_ON_STOP, token);
         }
-        onStopInternal();
     }
 
     /**
@@ -333,11 +460,20 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     @Override
     public final void onDestroy(@NonNull LifecycleOwner owner) {
-        if (getAvailabilityStatus() == UNSUPPORTED_ON_DEVICE) {
-            return;
+        long token = beginTrace(TRACE_ON_DESTROY);
+        try {
+            if (isUnsupportedOnDevice()) {
+                return;
+            }
+            mIsCreated = false;
+            for (SettingsExecutor.Task task : mBackgroundTasks) {
+                task.cancel();
+            }
+            mBackgroundTasks.clear();
+            onDestroyInternal();
+        } finally {
+            endTrace(TRACE_ON_DESTROY, token);
         }
-        mIsCreated = false;
-        onDestroyInternal();
     }
 
     // Methods for override ========================================================================
@@ -481,4 +617,47 @@ public abstract class PreferenceController<V extends Preference> implements
     protected boolean isUxRestrictionsIgnored(boolean allIgnores, Set prefsThatIgnore) {
         return allIgnores || prefsThatIgnore.contains(mPreferenceKey);
     }
+
+    /**
+     * Returns the {@link CarUxRestrictions} bits that affect the presentation of the preference.
+     * Changes to other restrictions do not refresh the UI. {@link
+     * CarUxRestrictions#UX_RESTRICTIONS_FULLY_RESTRICTED} means the controller depends on every
+     * restriction and its parameters, such as the maximum string length.
+     *
+     * <p>By default, controllers which override {@link #onApplyUxRestrictions(CarUxRestrictions)}
+     * or read {@link #getUxRestrictions()} depend on every restriction. Other controllers only
+     * depend on {@link CarUxRestrictions#UX_RESTRICTIONS_NO_SETUP}, unless their preference
+     * ignores ux restrictions. Subclasses may override this method to narrow their dependencies.
+     */
+    protected int getUxRestrictionsDependencies() {
+        if (mUxRestrictionsRead || appliesUxRestrictions(getClass())) {
+            return CarUxRestrictions.UX_RESTRICTIONS_FULLY_RESTRICTED;
+        }
+        if (isUxRestrictionsIgnored(mAlwaysIgnoreUxRestrictions,
+                mPreferencesIgnoringUxRestrictions)) {
+            return CarUxRestrictions.UX_RESTRICTIONS_BASELINE;
+        }
+        return CarUxRestrictions.UX_RESTRICTIONS_NO_SETUP;
+    }
+
+    private static boolean appliesUxRestrictions(Class<?> controllerClass) {
+        synchronized (sAppliesUxRestrictions) {
+            Boolean applies = sAppliesUxRestrictions.get(controllerClass);
+            if (applies == null) {
+                applies = false;
+                for (Class<?> c = controllerClass; c != PreferenceController.class;
+                        c = c.getSuperclass()) {
+                    try {
+                        c.getDeclaredMethod("onApplyUxRestrictions", CarUxRestrictions.class);
+                        applies = true;
+                        break;
+                    } catch (NoSuchMethodException e) {
+                        // Keep looking in the superclass.
+                    }
+                }
+                sAppliesUxRestrictions.put(controllerClass, applies);
+            }
+            return applies;
+        }
+    }
 }
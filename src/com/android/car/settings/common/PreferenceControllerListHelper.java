@@ -39,6 +39,14 @@ import java.util.List;
  * .settings.core.PreferenceControllerListHelper.
  */
 class PreferenceControllerListHelper {
+
+    // Aggregated across all screens; SettingsFragment traces the total per screen.
+    private static final String TRACE_SCREEN = "AllScreens";
+    private static final SettingsTracer.Span EXTRACT_METADATA_SPAN = new SettingsTracer.Span(
+            TRACE_SCREEN, "PreferenceXmlParser", "extractMetadata");
+    private static final SettingsTracer.Span CREATE_INSTANCE_SPAN = new SettingsTracer.Span(
+            TRACE_SCREEN, "PreferenceControllerListHelper", "createInstance");
+
     private PreferenceControllerListHelper() {
     }
 
@@ -60,7 +68,26 @@ class PreferenceControllerListHelper {
             @XmlRes int xmlResId, FragmentController fragmentController,
             CarUxRestrictions uxRestrictions) {
         List<PreferenceController> controllers = new ArrayList<>();
+        for (Bundle metadata : getPreferenceControllerMetadataFromXml(context, xmlResId)) {
+            controllers.add(createPreferenceController(context, metadata, fragmentController,
+                    uxRestrictions));
+        }
+        return controllers;
+    }
+
+    /**
+     * Returns the metadata of the preferences which declare a controller, in the order they are
+     * declared in. Each controller can later be created with {@link
+     * #createPreferenceController(Context, Bundle, FragmentController, CarUxRestrictions)}.
+     *
+     * @throws IllegalArgumentException if the XML resource cannot be parsed, or if the XML
+     *         resource contains elements which declare controllers without preference keys.
+     */
+    @NonNull
+    static List<Bundle> getPreferenceControllerMetadataFromXml(Context context,
+            @XmlRes int xmlResId) {
         List<Bundle> preferenceMetadata;
+        long token = SettingsTracer.begin(EXTRACT_METADATA_SPAN);
         try {
             preferenceMetadata = PreferenceXmlParser.extractMetadata(context, xmlResId,
                     PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY
@@ -68,8 +95,11 @@ class PreferenceControllerListHelper {
         } catch (IOException | XmlPullParserException e) {
             throw new IllegalArgumentException(
                     "Failed to parse preference XML for getting controllers", e);
+        } finally {
+            SettingsTracer.end(EXTRACT_METADATA_SPAN, token);
         }
 
+        List<Bundle> controllerMetadata = new ArrayList<>();
         for (Bundle metadata : preferenceMetadata) {
             String controllerName = metadata.getString(METADATA_CONTROLLER);
             if (TextUtils.isEmpty(controllerName)) {
@@ -79,11 +109,27 @@ class PreferenceControllerListHelper {
             if (TextUtils.isEmpty(key)) {
                 throw new IllegalArgumentException("Missing key for controller: " + controllerName);
             }
-            controllers.add(createInstance(controllerName, context, key, fragmentController,
-                    uxRestrictions));
+            controllerMetadata.add(metadata);
         }
+        return controllerMetadata;
+    }
 
-        return controllers;
+    /**
+     * Creates the {@link PreferenceController} declared by metadata returned from {@link
+     * #getPreferenceControllerMetadataFromXml(Context, int)}.
+     *
+     * @throws IllegalArgumentException if the controller cannot be instantiated successfully.
+     */
+    @NonNull
+    static PreferenceController createPreferenceController(Context context, Bundle metadata,
+            FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
+        long token = SettingsTracer.begin(CREATE_INSTANCE_SPAN);
+        try {
+            return createInstance(metadata.getString(METADATA_CONTROLLER), context,
+                    metadata.getString(METADATA_KEY), fragmentController, uxRestrictions);
+        } finally {
+            SettingsTracer.end(CREATE_INSTANCE_SPAN, token);
+        }
     }
 
     private static PreferenceController createInstance(String controllerName,
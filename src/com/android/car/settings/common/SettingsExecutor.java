@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.io.PrintWriter;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide executor for the background work of the settings app.
+ *
+ * <p>Tasks are queued in one of three priority lanes and run on a small pool of background
+ * threads, highest priority first. Bulk tasks never occupy every thread, so that interactive and
+ * visible screen work is picked up right away even during large loads.
+ *
+ * <p>Tasks may be tied to a {@link Lifecycle}, in which case they are cancelled when it is
+ * destroyed and their results are not delivered. Queue depths and wait times of each lane can be
+ * printed with {@code adb shell dumpsys activity <settings activity>}.
+ *
+ * <p>Tests may replace the process-wide instance with one built on direct executors through
+ * {@link #setInstanceForTesting(SettingsExecutor)}, so that tasks run deterministically.
+ */
+public final class SettingsExecutor {
+
+    private static final Logger LOG = new Logger(SettingsExecutor.class);
+
+    /** Priority lanes of the executor. Lower values run first. */
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({PRIORITY_INTERACTIVE, PRIORITY_VISIBLE, PRIORITY_BULK})
+    public @interface Priority {
+    }
+
+    /** Work the user is waiting on, e.g. applying a change they just confirmed. */
+    public static final int PRIORITY_INTERACTIVE = 0;
+    /** Content of the visible screen. */
+    public static final int PRIORITY_VISIBLE = 1;
+    /** Large loads which are not immediately visible, e.g. icons of a long list. */
+    public static final int PRIORITY_BULK = 2;
+    private static final String[] PRIORITY_NAMES = {"interactive", "visible", "bulk"};
+
+    private static final int MAX_WORKERS = Math.max(2,
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static SettingsExecutor sInstance;
+
+    private final Executor mWorkerExecutor;
+    private final Executor mMainExecutor;
+    private final int mMaxWorkers;
+    private final int mMaxBulkWorkers;
+
+    private final Object mLock = new Object();
+    // Guarded by mLock.
+    private final PriorityQueue<Task> mQueue = new PriorityQueue<>();
+    private final LaneStats[] mLaneStats = new LaneStats[PRIORITY_NAMES.length];
+    private int mWorkers;
+    private int mBulkWorkers;
+    private long mNextSequence;
+
+    // Only accessed on the main thread.
+    private final Map<Lifecycle, LifecycleTasks> mLifecycleTasks = new HashMap<>();
+
+    /** Returns the process-wide instance of the executor. */
+    public static synchronized SettingsExecutor getInstance() {
+        if (sInstance == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            Executor workerExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "SettingsExecutor-" + threadCount.incrementAndGet());
+                return thread;
+            });
+            Handler mainHandler = new Handler(Looper.getMainLooper());
+            sInstance = new SettingsExecutor(workerExecutor, MAX_WORKERS, mainHandler::post);
+        }
+        return sInstance;
+    }
+
+    /** Replaces the process-wide instance, or restores the default one if {@code null}. */
+    @VisibleForTesting
+    public static synchronized void setInstanceForTesting(SettingsExecutor executor) {
+        sInstance = executor;
+    }
+
+    /**
+     * Creates an executor which starts up to {@code maxWorkers} concurrent workers on {@code
+     * workerExecutor}, and delivers results on {@code mainExecutor}. Tests may pass direct
+     * executors to run tasks synchronously.
+     */
+    @VisibleForTesting
+    public SettingsExecutor(Executor workerExecutor, int maxWorkers, Executor mainExecutor) {
+        mWorkerExecutor = workerExecutor;
+        mMainExecutor = mainExecutor;
+        mMaxWorkers = maxWorkers;
+        mMaxBulkWorkers = Math.max(1, maxWorkers - 1);
+        for (int i = 0; i < mLaneStats.length; i++) {
+            mLaneStats[i] = new LaneStats();
+        }
+    }
+
+    /** A queued or running task, which may be cancelled. */
+    public static final class Task implements Comparable<Task> {
+        private final SettingsExecutor mExecutor;
+        @Priority
+        private final int mPriority;
+        private final long mSequence;
+        private final long mEnqueueTimeMs;
+        private Runnable mWork;
+        private volatile boolean mCancelled;
+
+        private Task(SettingsExecutor executor, @Priority int priority, long sequence) {
+            mExecutor = executor;
+            mPriority = priority;
+            mSequence = sequence;
+            mEnqueueTimeMs = SystemClock.elapsedRealtime();
+        }
+
+        /**
+         * Cancels the task. The task does not run if it has not started yet, and its result is
+         * not delivered.
+         */
+        public void cancel() {
+            if (!mCancelled) {
+                mCancelled = true;
+                mExecutor.onCancelled(this);
+            }
+        }
+
+        /** Returns whether the task was cancelled. */
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        @Override
+        public int compareTo(@NonNull Task other) {
+            if (mPriority != other.mPriority) {
+                return Integer.compare(mPriority, other.mPriority);
+            }
+            return Long.compare(mSequence, other.mSequence);
+        }
+    }
+
+    /** Runs {@code work} on a background thread. */
+    public Task execute(@Priority int priority, Runnable work) {
+        Task task = newTask(priority);
+        task.mWork = work;
+        enqueue(task);
+        return task;
+    }
+
+    /**
+     * Runs {@code work} on a background thread and delivers its result to {@code onResult} on the
+     * main thread, unless the task was cancelled in the meantime.
+     */
+    public <T> Task execute(@Priority int priority, Supplier<T> work, Consumer<T> onResult) {
+        Task task = newTask(priority);
+        setWork(task, work, onResult);
+        enqueue(task);
+        return task;
+    }
+
+    /**
+     * Same as {@link #execute(int, Supplier, Consumer)}, but the task is cancelled when {@code
+     * lifecycle} is destroyed.
+     */
+    @MainThread
+    public <T> Task execute(@Priority int priority, Lifecycle lifecycle, Supplier<T> work,
+            Consumer<T> onResult) {
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            Task task = newTask(priority);
+            task.mCancelled = true;
+            return task;
+        }
+        LifecycleTasks lifecycleTasks = mLifecycleTasks.get(lifecycle);
+        if (lifecycleTasks == null) {
+            lifecycleTasks = new LifecycleTasks(lifecycle);
+            mLifecycleTasks.put(lifecycle, lifecycleTasks);
+            lifecycle.addObserver(lifecycleTasks);
+        }
+        Set<Task> tasks = lifecycleTasks.mTasks;
+        Task task = newTask(priority);
+        setWork(task, work, result -> {
+            tasks.remove(task);
+            onResult.accept(result);
+        });
+        tasks.add(task);
+        enqueue(task);
+        return task;
+    }
+
+    /** Returns the number of tasks waiting to run in the given lane. */
+    public int getQueueDepth(@Priority int priority) {
+        synchronized (mLock) {
+            return mLaneStats[priority].mQueued;
+        }
+    }
+
+    /** Returns the longest time a task of the given lane waited before running, in ms. */
+    public long getMaxWaitTimeMs(@Priority int priority) {
+        synchronized (mLock) {
+            return mLaneStats[priority].mMaxWaitMs;
+        }
+    }
+
+    /** Prints the queue depth, throughput and wait times of each lane. */
+    public void dump(String prefix, PrintWriter writer) {
+        synchronized (mLock) {
+            writer.println(prefix + "Background executor (workers=" + mWorkers + "/"
+                    + mMaxWorkers + "):");
+            for (int i = 0; i < mLaneStats.length; i++) {
+                LaneStats stats = mLaneStats[i];
+                writer.println(String.format(Locale.US,
+                        "%s  %s: queued=%d maxQueued=%d run=%d cancelled=%d avgWait=%dms "
+                                + "maxWait=%dms", prefix, PRIORITY_NAMES[i], stats.mQueued,
+                        stats.mMaxQueued, stats.mRun, stats.mCancelled,
+                        stats.mRun == 0 ? 0 : stats.mTotalWaitMs / stats.mRun,
+                        stats.mMaxWaitMs));
+            }
+        }
+    }
+
+    private Task newTask(@Priority int priority) {
+        synchronized (mLock) {
+            return new Task(this, priority, mNextSequence++);
+        }
+    }
+
+    private <T> void setWork(Task task, Supplier<T> work, Consumer<T> onResult) {
+        task.mWork = () -> {
+            T result = work.get();
+            mMainExecutor.execute(() -> {
+                if (!task.isCancelled()) {
+                    onResult.accept(result);
+                }
+            });
+        };
+    }
+
+    private void enqueue(Task task) {
+        boolean startWorker;
+        synchronized (mLock) {
+            mQueue.add(task);
+            LaneStats stats = mLaneStats[task.mPriority];
+            stats.mQueued++;
+            stats.mMaxQueued = Math.max(stats.mMaxQueued, stats.mQueued);
+            startWorker = mWorkers < mMaxWorkers && canTakeLocked(mQueue.peek());
+            if (startWorker) {
+                mWorkers++;
+            }
+        }
+        if (startWorker) {
+            mWorkerExecutor.execute(this::runTasks);
+        }
+    }
+
+    private void onCancelled(Task task) {
+        synchronized (mLock) {
+            LaneStats stats = mLaneStats[task.mPriority];
+            stats.mCancelled++;
+            if (mQueue.remove(task)) {
+                stats.mQueued--;
+            }
+        }
+    }
+
+    private boolean canTakeLocked(Task task) {
+        return task != null && (task.mPriority != PRIORITY_BULK
+                || mBulkWorkers < mMaxBulkWorkers);
+    }
+
+    private void runTasks() {
+        try {
+            Task task;
+            while ((task = takeTask()) != null) {
+                try {
+                    task.mWork.run();
+                } finally {
+                    if (task.mPriority == PRIORITY_BULK) {
+                        synchronized (mLock) {
+                            mBulkWorkers--;
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            LOG.e("Background task failed", e);
+            synchronized (mLock) {
+                mWorkers--;
+            }
+            throw e;
+        }
+    }
+
+    /** Returns the next task to run, or {@code null} if the worker should exit. */
+    private Task takeTask() {
+        synchronized (mLock) {
+            Task task = mQueue.peek();
+            if (!canTakeLocked(task)) {
+                mWorkers--;
+                return null;
+            }
+            mQueue.poll();
+            LaneStats stats = mLaneStats[task.mPriority];
+            stats.mQueued--;
+            stats.mRun++;
+            long waitMs = SystemClock.elapsedRealtime() - task.mEnqueueTimeMs;
+            stats.mTotalWaitMs += waitMs;
+            stats.mMaxWaitMs = Math.max(stats.mMaxWaitMs, waitMs);
+            if (task.mPriority == PRIORITY_BULK) {
+                mBulkWorkers++;
+            }
+            return task;
+        }
+    }
+
+    /** Counters of a priority lane, guarded by mLock. */
+    private static final class LaneStats {
+        int mQueued;
+        int mMaxQueued;
+        int mRun;
+        int mCancelled;
+        long mTotalWaitMs;
+        long mMaxWaitMs;
+    }
+
+    /** Cancels the tasks tied to a lifecycle when it is destroyed. */
+    private final class LifecycleTasks implements DefaultLifecycleObserver {
+        private final Lifecycle mLifecycle;
+        private final Set<Task> mTasks = new HashSet<>();
+
+        LifecycleTasks(Lifecycle lifecycle) {
+            mLifecycle = lifecycle;
+        }
+
+        @Override
+        public void onDestroy(@NonNull LifecycleOwner owner) {
+            mLifecycle.removeObserver(this);
+            mLifecycleTasks.remove(mLifecycle);
+            for (Task task : mTasks) {
+                task.cancel();
+            }
+            mTasks.clear();
+        }
+    }
+}
@@ -22,10 +22,16 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentSender;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemProperties;
 import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.SparseArray;
 import android.util.TypedValue;
 import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.Toast;
 
 import androidx.annotation.Nullable;
@@ -37,7 +43,9 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.lifecycle.Lifecycle;
 import androidx.preference.Preference;
+import androidx.preference.PreferenceGroupAdapter;
 import androidx.preference.PreferenceScreen;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.car.settings.R;
 import com.android.car.ui.preference.PreferenceFragment;
@@ -45,8 +53,11 @@ import com.android.car.ui.toolbar.MenuItem;
 import com.android.car.ui.toolbar.Toolbar;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Base fragment for all settings. Subclasses must provide a resource id via
@@ -60,6 +71,12 @@ import java.util.Map;
  * {@link FragmentController} or an {@link IllegalStateException} will be thrown during
  * {@link #onAttach(Context)}. Changes to driving state restrictions are propagated to
  * controllers.
+ *
+ * <p>Long screens may opt in to deferring the controllers of preferences outside the initial
+ * viewport by overriding {@link #getAboveTheFoldPreferenceKeys()}. The time from {@link
+ * #onAttach(Context)} to the first frame is traced for every screen, as {@code firstFrame} or
+ * {@code firstFrameDeferred} depending on whether controllers were deferred. Deferral can be
+ * turned off with the {@value #DEFERRAL_PROPERTY} system property to compare both.
  */
 public abstract class SettingsFragment extends PreferenceFragment implements
         CarUxRestrictionsManager.OnUxRestrictionsChangedListener, FragmentController {
@@ -68,16 +85,45 @@ public abstract class SettingsFragment extends PreferenceFragment implements
     static final String DIALOG_FRAGMENT_TAG =
             "com.android.car.settings.common.SettingsFragment.DIALOG";
 
+    @VisibleForTesting
+    static final String DEFERRAL_PROPERTY = "debug.car.settings.defer_controllers";
+
     private static final int MAX_NUM_PENDING_ACTIVITY_RESULT_CALLBACKS = 0xff - 1;
+    // Deferred controllers are created a few at a time so that input is not blocked for long.
+    private static final int DEFERRED_CONTROLLERS_PER_MESSAGE = 4;
+
+    private static boolean sDeferralEnabled = SystemProperties.getBoolean(DEFERRAL_PROPERTY,
+            /* def= */ true);
 
     private final Map<Class, List<PreferenceController>> mPreferenceControllersLookup =
             new ArrayMap<>();
     private final List<PreferenceController> mPreferenceControllers = new ArrayList<>();
     private final SparseArray<ActivityResultCallback> mActivityResultCallbackMap =
             new SparseArray<>();
+    // Metadata of the controllers which have not been created yet, by preference key.
+    private final Map<String, Bundle> mDeferredControllerMetadata = new LinkedHashMap<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mCreateDeferredControllers = this::createNextDeferredControllers;
+    private final RecyclerView.OnChildAttachStateChangeListener mRowAttachListener =
+            new RecyclerView.OnChildAttachStateChangeListener() {
+                @Override
+                public void onChildViewAttachedToWindow(View view) {
+                    onRowAttached(view);
+                }
+
+                @Override
+                public void onChildViewDetachedFromWindow(View view) {
+                }
+            };
 
     private CarUxRestrictions mUxRestrictions;
     private int mCurrentRequestIndex = 0;
+    private SettingsTracer.Span mCreateControllersSpan;
+    private SettingsTracer.Span mCreatePreferencesSpan;
+    private SettingsTracer.Span mFirstFrameSpan;
+    private long mFirstFrameToken;
+    private boolean mIsFirstFrameDrawn;
+    private Context mStyledContext;
 
     /**
      * Returns the resource id for the preference XML of this fragment.
@@ -96,6 +142,25 @@ public abstract class SettingsFragment extends PreferenceFragment implements
         return null;
     }
 
+    /**
+     * Returns the keys of the preferences which are visible before the screen is scrolled, or
+     * {@code null} to create every controller with the fragment, which is the default.
+     *
+     * <p>When keys are returned, only the controllers of these preferences are created before the
+     * first frame. The controllers of other preferences are created and brought up to the state
+     * of the fragment after the first frame is drawn, or as soon as their preference is scrolled
+     * into view. {@link #use(Class, int)} creates a deferred controller on demand, so screens
+     * which configure most of their controllers in {@link #onAttach(Context)} gain little from
+     * deferral. Deferred preferences show in their default state until their controller is
+     * created, so preferences which may be hidden by their controller should be listed if they
+     * can fit in the initial viewport.
+     */
+    @Nullable
+    @StringRes
+    protected int[] getAboveTheFoldPreferenceKeys() {
+        return null;
+    }
+
     /**
      * Returns the controller of the given {@code clazz} for the given {@code
      * preferenceKeyResId}. Subclasses may use this method in {@link #onAttach(Context)} to call
@@ -116,15 +181,16 @@ public abstract class SettingsFragment extends PreferenceFragment implements
     protected <T extends PreferenceController> T use(Class<T> clazz,
             @StringRes int preferenceKeyResId) {
         List<PreferenceController> controllerList = mPreferenceControllersLookup.get(clazz);
+        String preferenceKey = getString(preferenceKeyResId);
         if (controllerList != null) {
-            String preferenceKey = getString(preferenceKeyResId);
             for (PreferenceController controller : controllerList) {
                 if (controller.getPreferenceKey().equals(preferenceKey)) {
                     return (T) controller;
                 }
             }
         }
-        return null;
+        PreferenceController controller = createDeferredController(preferenceKey);
+        return clazz.isInstance(controller) ? (T) controller : null;
     }
 
     @Override
@@ -147,19 +213,43 @@ public abstract class SettingsFragment extends PreferenceFragment implements
         // Construct a context with the theme as controllers may create new preferences.
         Context styledContext = new ContextThemeWrapper(getActivity(), theme);
 
+        mStyledContext = styledContext;
         mUxRestrictions = ((UxRestrictionsProvider) requireActivity()).getCarUxRestrictions();
         mPreferenceControllers.clear();
-        mPreferenceControllers.addAll(
-                PreferenceControllerListHelper.getPreferenceControllersFromXml(styledContext,
-                        getPreferenceScreenResId(), /* fragmentController= */ this,
-                        mUxRestrictions));
+        mDeferredControllerMetadata.clear();
+        Set<String> aboveTheFoldKeys = getAboveTheFoldKeySet();
+        beginFirstFrameTrace(/* isDeferring= */ aboveTheFoldKeys != null);
+        if (mCreateControllersSpan == null) {
+            mCreateControllersSpan = new SettingsTracer.Span(getClass().getSimpleName(),
+                    getClass().getSimpleName(), "createControllers");
+        }
+        long token = SettingsTracer.begin(mCreateControllersSpan);
+        try {
+            if (aboveTheFoldKeys == null) {
+                mPreferenceControllers.addAll(
+                        PreferenceControllerListHelper.getPreferenceControllersFromXml(
+                                styledContext, getPreferenceScreenResId(),
+                                /* fragmentController= */ this, mUxRestrictions));
+            } else {
+                for (Bundle metadata :
+                        PreferenceControllerListHelper.getPreferenceControllerMetadataFromXml(
+                                styledContext, getPreferenceScreenResId())) {
+                    String key = metadata.getString(PreferenceXmlParser.METADATA_KEY);
+                    if (aboveTheFoldKeys.contains(key)) {
+                        mPreferenceControllers.add(
+                                PreferenceControllerListHelper.createPreferenceController(
+                                        styledContext, metadata, /* fragmentController= */ this,
+                                        mUxRestrictions));
+                    } else {
+                        mDeferredControllerMetadata.put(key, metadata);
+                    }
+                }
+            }
+        } finally {
+            SettingsTracer.end(mCreateControllersSpan, token);
+        }
 
-        Lifecycle lifecycle = getLifecycle();
-        mPreferenceControllers.forEach(controller -> {
-            lifecycle.addObserver(controller);
-            mPreferenceControllersLookup.computeIfAbsent(controller.getClass(),
-                    k -> new ArrayList<>(/* initialCapacity= */ 1)).add(controller);
-        });
+        mPreferenceControllers.forEach(this::registerController);
     }
 
     /**
@@ -173,11 +263,40 @@ public abstract class SettingsFragment extends PreferenceFragment implements
             throw new IllegalStateException(
                     "Fragment must specify a preference screen resource ID");
         }
-        addPreferencesFromResource(resId);
-        PreferenceScreen screen = getPreferenceScreen();
-        for (PreferenceController controller : mPreferenceControllers) {
-            controller.setPreference(screen.findPreference(controller.getPreferenceKey()));
+        if (mCreatePreferencesSpan == null) {
+            mCreatePreferencesSpan = new SettingsTracer.Span(getClass().getSimpleName(),
+                    getClass().getSimpleName(), "onCreatePreferences");
+        }
+        long token = SettingsTracer.begin(mCreatePreferencesSpan);
+        try {
+            addPreferencesFromResource(resId);
+            PreferenceScreen screen = getPreferenceScreen();
+            for (PreferenceController controller : mPreferenceControllers) {
+                controller.setPreference(screen.findPreference(controller.getPreferenceKey()));
+            }
+        } finally {
+            SettingsTracer.end(mCreatePreferencesSpan, token);
+        }
+    }
+
+    @Override
+    public void onViewCreated(View view, Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        if (!mDeferredControllerMetadata.isEmpty()) {
+            getListView().addOnChildAttachStateChangeListener(mRowAttachListener);
+        }
+        if (mIsFirstFrameDrawn) {
+            return;
         }
+        view.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        view.getViewTreeObserver().removeOnPreDrawListener(this);
+                        onFirstFrame();
+                        return true;
+                    }
+                });
     }
 
     @Override
@@ -215,12 +334,26 @@ public abstract class SettingsFragment extends PreferenceFragment implements
         }
     }
 
+    @Override
+    public void onDestroyView() {
+        getListView().removeOnChildAttachStateChangeListener(mRowAttachListener);
+        super.onDestroyView();
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        cancelFirstFrameTrace();
+    }
+
     @Override
     public void onDetach() {
         super.onDetach();
         Lifecycle lifecycle = getLifecycle();
         mPreferenceControllers.forEach(lifecycle::removeObserver);
         mActivityResultCallbackMap.clear();
+        mDeferredControllerMetadata.clear();
+        mHandler.removeCallbacksAndMessages(/* token= */ null);
     }
 
     /**
@@ -325,6 +458,124 @@ public abstract class SettingsFragment extends PreferenceFragment implements
         }
     }
 
+    @VisibleForTesting
+    static void setDeferralEnabled(boolean enabled) {
+        sDeferralEnabled = enabled;
+    }
+
+    /** Returns the number of controllers which have not been created yet. */
+    @VisibleForTesting
+    int getDeferredControllerCount() {
+        return mDeferredControllerMetadata.size();
+    }
+
+    @Nullable
+    private Set<String> getAboveTheFoldKeySet() {
+        int[] keyResIds = getAboveTheFoldPreferenceKeys();
+        if (!sDeferralEnabled || keyResIds == null) {
+            return null;
+        }
+        Set<String> keys = new ArraySet<>(keyResIds.length);
+        for (int keyResId : keyResIds) {
+            keys.add(getString(keyResId));
+        }
+        return keys;
+    }
+
+    private void registerController(PreferenceController controller) {
+        getLifecycle().addObserver(controller);
+        mPreferenceControllersLookup.computeIfAbsent(controller.getClass(),
+                k -> new ArrayList<>(/* initialCapacity= */ 1)).add(controller);
+    }
+
+    /**
+     * Creates the deferred controller of the preference with the given key, and brings it up to
+     * the current state of the fragment. Returns {@code null} if the controller is not deferred.
+     */
+    @Nullable
+    private PreferenceController createDeferredController(String preferenceKey) {
+        Bundle metadata = mDeferredControllerMetadata.remove(preferenceKey);
+        if (metadata == null) {
+            return null;
+        }
+        PreferenceController controller = PreferenceControllerListHelper.createPreferenceController(
+                mStyledContext, metadata, /* fragmentController= */ this, mUxRestrictions);
+        PreferenceScreen screen = getPreferenceScreen();
+        if (screen != null) {
+            // Otherwise the preference is set in onCreatePreferences().
+            controller.setPreference(screen.findPreference(preferenceKey));
+        }
+        mPreferenceControllers.add(controller);
+        // The lifecycle dispatches the events the fragment has already gone through.
+        registerController(controller);
+        return controller;
+    }
+
+    private void createNextDeferredControllers() {
+        Iterator<String> keys = mDeferredControllerMetadata.keySet().iterator();
+        List<String> batch = new ArrayList<>(DEFERRED_CONTROLLERS_PER_MESSAGE);
+        while (keys.hasNext() && batch.size() < DEFERRED_CONTROLLERS_PER_MESSAGE) {
+            batch.add(keys.next());
+        }
+        batch.forEach(this::createDeferredController);
+        if (!mDeferredControllerMetadata.isEmpty()) {
+            mHandler.post(mCreateDeferredControllers);
+        }
+    }
+
+    private void onRowAttached(View view) {
+        if (mDeferredControllerMetadata.isEmpty()) {
+            return;
+        }
+        RecyclerView listView = getListView();
+        int position = listView.getChildAdapterPosition(view);
+        if (position == RecyclerView.NO_POSITION
+                || !(listView.getAdapter() instanceof PreferenceGroupAdapter)) {
+            return;
+        }
+        String key = ((PreferenceGroupAdapter) listView.getAdapter()).getItem(position).getKey();
+        if (key != null && mDeferredControllerMetadata.containsKey(key)) {
+            // Rows are attached during layout, which preference changes must not interrupt.
+            mHandler.post(() -> createDeferredController(key));
+        }
+    }
+
+    private void beginFirstFrameTrace(boolean isDeferring) {
+        if (mIsFirstFrameDrawn) {
+            return;
+        }
+        // A trace begun for an earlier attach which never drew is dropped.
+        cancelFirstFrameTrace();
+        String screen = getClass().getSimpleName();
+        mFirstFrameSpan = new SettingsTracer.Span(screen, screen,
+                isDeferring ? "firstFrameDeferred" : "firstFrame");
+        mFirstFrameToken = SettingsTracer.beginAsync(mFirstFrameSpan,
+                System.identityHashCode(this));
+    }
+
+    private void onFirstFrame() {
+        if (mIsFirstFrameDrawn) {
+            return;
+        }
+        mIsFirstFrameDrawn = true;
+        if (mFirstFrameSpan != null) {
+            SettingsTracer.endAsync(mFirstFrameSpan, System.identityHashCode(this),
+                    mFirstFrameToken);
+            mFirstFrameSpan = null;
+        }
+        if (!mDeferredControllerMetadata.isEmpty()) {
+            mHandler.post(mCreateDeferredControllers);
+        }
+    }
+
+    /** Closes the first frame span without recording it, if the screen was never drawn. */
+    private void cancelFirstFrameTrace() {
+        if (mFirstFrameSpan != null) {
+            SettingsTracer.cancelAsync(mFirstFrameSpan, System.identityHashCode(this));
+            mFirstFrameSpan = null;
+        }
+    }
+
     // Allocates the next available startActivityForResult request index.
     private int allocateRequestIndex(ActivityResultCallback callback) {
         // Sanity check that we haven't exhausted the request index space.
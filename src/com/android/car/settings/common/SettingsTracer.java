@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.os.SystemClock;
+import android.os.SystemProperties;
+import android.os.Trace;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Traces the phases of settings screens and their {@link PreferenceController} lifecycle calls.
+ *
+ * <p>Each span is emitted as a {@link Trace} section named {@code <component>#<phase>} so that it
+ * shows up in systrace/perfetto captures. When the {@value #AGGREGATION_PROPERTY} system property
+ * is set, span durations are additionally recorded in memory per screen, and percentiles of the
+ * slowest spans can be printed with {@code adb shell dumpsys activity <settings activity>}.
+ *
+ * <p>Spans nest, so the duration of a lifecycle call includes the {@link
+ * PreferenceController#refreshUi()} it dispatches.
+ */
+public final class SettingsTracer {
+
+    @VisibleForTesting
+    static final String AGGREGATION_PROPERTY = "debug.car.settings.trace_timings";
+    @VisibleForTesting
+    static final int MAX_SAMPLES_PER_SPAN = 64;
+    private static final int MAX_DUMPED_SPANS = 50;
+    // Trace section names longer than this are rejected.
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+    private static final long NOT_RECORDED = -1;
+
+    private static final Map<String, SpanStats> sStats = new HashMap<>();
+    private static boolean sAggregationEnabled = SystemProperties.getBoolean(AGGREGATION_PROPERTY,
+            /* def= */ false);
+
+    private SettingsTracer() {
+    }
+
+    /**
+     * A named phase of a component on a screen. Spans are meant to be created once and reused, so
+     * that tracing does not build strings on every call.
+     */
+    public static final class Span {
+        private final String mScreen;
+        private final String mName;
+        private final String mSectionName;
+
+        public Span(String screen, String component, String phase) {
+            mScreen = screen;
+            mName = component + "#" + phase;
+            mSectionName = mName.length() > MAX_SECTION_NAME_LENGTH
+                    ? mName.substring(0, MAX_SECTION_NAME_LENGTH) : mName;
+        }
+    }
+
+    /**
+     * Begins the given span. Must be paired with a call to {@link #end(Span, long)} on the same
+     * thread, passing the returned token.
+     */
+    public static long begin(Span span) {
+        // No-op if tracing is disabled.
+        Trace.beginSection(span.mSectionName);
+        return sAggregationEnabled ? SystemClock.elapsedRealtimeNanos() : NOT_RECORDED;
+    }
+
+    /** Ends a span started with {@link #begin(Span)}. */
+    public static void end(Span span, long token) {
+        Trace.endSection();
+        if (token != NOT_RECORDED && sAggregationEnabled) {
+            record(span.mScreen, span.mName, SystemClock.elapsedRealtimeNanos() - token);
+        }
+    }
+
+    /**
+     * Begins the given span as an asynchronous section, for phases which do not begin and end
+     * within the same call on one thread, such as background loads. Must be paired with a call to
+     * {@link #endAsync(Span, int, long)} with the same {@code cookie}, passing the returned token.
+     *
+     * @param cookie distinguishes concurrent instances of the same span.
+     */
+    public static long beginAsync(Span span, int cookie) {
+        Trace.beginAsyncSection(span.mSectionName, cookie);
+        return sAggregationEnabled ? SystemClock.elapsedRealtimeNanos() : NOT_RECORDED;
+    }
+
+    /** Ends a span started with {@link #beginAsync(Span, int)}. */
+    public static void endAsync(Span span, int cookie, long token) {
+        Trace.endAsyncSection(span.mSectionName, cookie);
+        if (token != NOT_RECORDED && sAggregationEnabled) {
+            record(span.mScreen, span.mName, SystemClock.elapsedRealtimeNanos() - token);
+        }
+    }
+
+    /**
+     * Ends a span started with {@link #beginAsync(Span, int)} without recording its duration, for
+     * phases which were abandoned before they completed.
+     */
+    public static void cancelAsync(Span span, int cookie) {
+        Trace.endAsyncSection(span.mSectionName, cookie);
+    }
+
+    /** Prints the slowest spans recorded so far, ordered by their 90th percentile. */
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Settings timings (" + AGGREGATION_PROPERTY + "="
+                + sAggregationEnabled + "):");
+        List<SpanSummary> summaries = getSummaries();
+        if (summaries.isEmpty()) {
+            writer.println(prefix + "  No spans recorded");
+            return;
+        }
+        summaries.sort((lhs, rhs) -> Long.compare(rhs.mP90Nanos, lhs.mP90Nanos));
+        for (int i = 0; i < Math.min(summaries.size(), MAX_DUMPED_SPANS); i++) {
+            SpanSummary summary = summaries.get(i);
+            writer.println(String.format(Locale.US,
+                    "%s  %s %s: count=%d p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms", prefix,
+                    summary.mScreen, summary.mSpan, summary.mCount, toMillis(summary.mP50Nanos),
+                    toMillis(summary.mP90Nanos), toMillis(summary.mP99Nanos),
+                    toMillis(summary.mMaxNanos)));
+        }
+        if (summaries.size() > MAX_DUMPED_SPANS) {
+            writer.println(prefix + "  ... " + (summaries.size() - MAX_DUMPED_SPANS) + " more");
+        }
+    }
+
+    /** Returns a summary of every span recorded so far. */
+    @VisibleForTesting
+    static List<SpanSummary> getSummaries() {
+        List<SpanSummary> summaries = new ArrayList<>();
+        synchronized (sStats) {
+            for (SpanStats stats : sStats.values()) {
+                summaries.add(stats.summarize());
+            }
+        }
+        return summaries;
+    }
+
+    @VisibleForTesting
+    static void setAggregationEnabled(boolean enabled) {
+        sAggregationEnabled = enabled;
+    }
+
+    @VisibleForTesting
+    static void reset() {
+        synchronized (sStats) {
+            sStats.clear();
+        }
+    }
+
+    private static void record(String screen, String span, long durationNanos) {
+        String key = screen + "/" + span;
+        synchronized (sStats) {
+            SpanStats stats = sStats.get(key);
+            if (stats == null) {
+                stats = new SpanStats(screen, span);
+                sStats.put(key, stats);
+            }
+            stats.add(durationNanos);
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /** Durations of a span, keeping the most recent samples for percentiles. */
+    private static final class SpanStats {
+        private final String mScreen;
+        private final String mSpan;
+        private final long[] mSamples = new long[MAX_SAMPLES_PER_SPAN];
+        private int mCount;
+        private long mMaxNanos;
+
+        SpanStats(String screen, String span) {
+            mScreen = screen;
+            mSpan = span;
+        }
+
+        void add(long durationNanos) {
+            mSamples[mCount % MAX_SAMPLES_PER_SPAN] = durationNanos;
+            mCount++;
+            mMaxNanos = Math.max(mMaxNanos, durationNanos);
+        }
+
+        SpanSummary summarize() {
+            long[] samples = Arrays.copyOf(mSamples, Math.min(mCount, MAX_SAMPLES_PER_SPAN));
+            Arrays.sort(samples);
+            return new SpanSummary(mScreen, mSpan, mCount, percentile(samples, 50),
+                    percentile(samples, 90), percentile(samples, 99), mMaxNanos);
+        }
+
+        private static long percentile(long[] sortedSamples, int percentile) {
+            if (sortedSamples.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sortedSamples.length) - 1;
+            return sortedSamples[Math.max(0, index)];
+        }
+    }
+
+    /** Percentiles of a span on a screen. Percentiles only cover the most recent samples. */
+    @VisibleForTesting
+    static final class SpanSummary {
+        final String mScreen;
+        final String mSpan;
+        final int mCount;
+        final long mP50Nanos;
+        final long mP90Nanos;
+        final long mP99Nanos;
+        final long mMaxNanos;
+
+        SpanSummary(String screen, String span, int count, long p50Nanos, long p90Nanos,
+                long p99Nanos, long maxNanos) {
+            mScreen = screen;
+            mSpan = span;
+            mCount = count;
+            mP50Nanos = p50Nanos;
+            mP90Nanos = p90Nanos;
+            mP99Nanos = p99Nanos;
+            mMaxNanos = maxNanos;
+        }
+    }
+}
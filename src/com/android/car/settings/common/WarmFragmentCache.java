@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import androidx.annotation.IdRes;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentTransaction;
+
+import com.android.car.settings.R;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps recently used fragments of a {@link BaseCarSettingsActivity} detached rather than
+ * destroyed while they are off screen, so that navigating back to them reattaches the existing
+ * instance instead of creating a new one along with its controllers.
+ *
+ * <p>Only fragments of the classes listed in {@code R.array.config_warm_fragments} which are
+ * launched without arguments are kept warm, and at most {@code
+ * R.integer.config_warm_fragment_cache_size} of them. The cache is disabled when the size is zero.
+ *
+ * <p>Warm fragments are added to the {@link FragmentManager} outside of the back stack, and back
+ * stack transactions only attach and detach them, so that popping the back stack never destroys
+ * them. A back stack entry which detached a warm fragment is named after it with {@link
+ * #getBackStackName(Fragment)}, as popping it reattaches the fragment. Such fragments are never
+ * evicted.
+ */
+final class WarmFragmentCache {
+
+    private static final Logger LOG = new Logger(WarmFragmentCache.class);
+
+    private static final String KEY_WARM_FRAGMENTS =
+            "com.android.car.settings.common.WarmFragmentCache.KEY_WARM_FRAGMENTS";
+    private static final String BACK_STACK_NAME_PREFIX = "warm:";
+
+    private final FragmentManager mFragmentManager;
+    private final int mMaxSize;
+    private final Set<String> mWarmClassNames;
+    // Keyed by class name, least recently used first.
+    private final LinkedHashMap<String, Fragment> mFragments = new LinkedHashMap<>(
+            /* initialCapacity= */ 16, /* loadFactor= */ 0.75f, /* accessOrder= */ true);
+
+    WarmFragmentCache(Context context, FragmentManager fragmentManager) {
+        this(fragmentManager,
+                context.getResources().getInteger(R.integer.config_warm_fragment_cache_size),
+                Arrays.asList(
+                        context.getResources().getStringArray(R.array.config_warm_fragments)));
+    }
+
+    @VisibleForTesting
+    WarmFragmentCache(FragmentManager fragmentManager, int maxSize,
+            Collection<String> warmClassNames) {
+        mFragmentManager = fragmentManager;
+        mMaxSize = maxSize;
+        mWarmClassNames = new HashSet<>(warmClassNames);
+    }
+
+    /**
+     * Returns the warm instance of the class of {@code fragment} if there is one. Otherwise, if
+     * {@code fragment} can be kept warm, adds it detached to the container and returns it, so
+     * that it can be shown by attaching it.
+     */
+    Fragment obtain(Fragment fragment, @IdRes int containerViewId, String tag) {
+        if (!canKeepWarm(fragment)) {
+            return fragment;
+        }
+        String className = fragment.getClass().getName();
+        Fragment warmFragment = mFragments.get(className);
+        if (warmFragment != null) {
+            // The warm instance cannot be shown twice.
+            return warmFragment.isDetached() ? warmFragment : fragment;
+        }
+        mFragmentManager.beginTransaction()
+                .add(containerViewId, fragment, tag)
+                .detach(fragment)
+                .commit();
+        mFragments.put(className, fragment);
+        return fragment;
+    }
+
+    /** Returns {@code true} if {@code fragment} is kept warm by this cache. */
+    boolean contains(@Nullable Fragment fragment) {
+        return fragment != null && mFragments.containsValue(fragment);
+    }
+
+    /**
+     * Returns the name of a back stack entry which detaches the warm {@code fragment}, marking it
+     * as in use until the entry is popped.
+     */
+    String getBackStackName(Fragment fragment) {
+        return BACK_STACK_NAME_PREFIX + fragment.getClass().getName();
+    }
+
+    /** Evicts the least recently used warm fragments which are not in use, down to the limit. */
+    void trimToSize() {
+        evict(mMaxSize);
+    }
+
+    /** Evicts every warm fragment which is not in use. */
+    void evictAll() {
+        // Pending transactions may attach a warm fragment.
+        mFragmentManager.executePendingTransactions();
+        evict(/* maxSize= */ 0);
+    }
+
+    /** Saves the warm fragments, which are restored by the fragment manager along with it. */
+    void saveState(Bundle outState) {
+        if (mFragments.isEmpty()) {
+            return;
+        }
+        Bundle state = new Bundle();
+        int index = 0;
+        for (Fragment fragment : mFragments.values()) {
+            mFragmentManager.putFragment(state, Integer.toString(index++), fragment);
+        }
+        outState.putBundle(KEY_WARM_FRAGMENTS, state);
+    }
+
+    /** Adopts the warm fragments restored by the fragment manager. */
+    void restoreState(@Nullable Bundle savedInstanceState) {
+        Bundle state = savedInstanceState == null ? null
+                : savedInstanceState.getBundle(KEY_WARM_FRAGMENTS);
+        if (state == null) {
+            return;
+        }
+        for (int i = 0; i < state.size(); i++) {
+            Fragment fragment = mFragmentManager.getFragment(state, Integer.toString(i));
+            if (fragment != null && canKeepWarm(fragment)) {
+                mFragments.put(fragment.getClass().getName(), fragment);
+            }
+        }
+    }
+
+    /** Prints the warm fragments, least recently used first. */
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Warm fragments (" + mFragments.size() + "/" + mMaxSize + "):");
+        Set<String> inUseClassNames = getInUseClassNames();
+        for (Map.Entry<String, Fragment> entry : mFragments.entrySet()) {
+            Fragment fragment = entry.getValue();
+            writer.println(prefix + "  " + entry.getKey() + ": "
+                    + (fragment.isDetached() ? "detached" : "attached")
+                    + (inUseClassNames.contains(entry.getKey()) ? ", in back stack" : ""));
+        }
+    }
+
+    private boolean canKeepWarm(Fragment fragment) {
+        Bundle args = fragment.getArguments();
+        return mMaxSize > 0 && mWarmClassNames.contains(fragment.getClass().getName())
+                && (args == null || args.isEmpty());
+    }
+
+    private void evict(int maxSize) {
+        if (mFragments.size() <= maxSize) {
+            return;
+        }
+        Set<String> inUseClassNames = getInUseClassNames();
+        FragmentTransaction transaction = null;
+        Iterator<Map.Entry<String, Fragment>> iterator = mFragments.entrySet().iterator();
+        while (mFragments.size() > maxSize && iterator.hasNext()) {
+            Map.Entry<String, Fragment> entry = iterator.next();
+            Fragment fragment = entry.getValue();
+            if (!fragment.isDetached() || inUseClassNames.contains(entry.getKey())) {
+                continue;
+            }
+            if (transaction == null) {
+                transaction = mFragmentManager.beginTransaction();
+            }
+            LOG.d("Evicting warm fragment " + entry.getKey());
+            transaction.remove(fragment);
+            iterator.remove();
+        }
+        if (transaction != null) {
+            // Memory pressure may be reported after the activity state is saved. If the activity
+            // is then recreated from that state, the evicted fragments are adopted again.
+            transaction.commitAllowingStateLoss();
+        }
+    }
+
+    /** Returns the class names of the warm fragments which popping the back stack reattaches. */
+    private Set<String> getInUseClassNames() {
+        Set<String> classNames = new HashSet<>();
+        for (int i = 0; i < mFragmentManager.getBackStackEntryCount(); i++) {
+            String name = mFragmentManager.getBackStackEntryAt(i).getName();
+            if (name != null && name.startsWith(BACK_STACK_NAME_PREFIX)) {
+                classNames.add(name.substring(BACK_STACK_NAME_PREFIX.length()));
+            }
+        }
+        return classNames;
+    }
+}
@@ -88,7 +88,7 @@ public class AppDataUsageFragment extends SettingsFragment {
             subId = DataUsageUtils.getDefaultSubscriptionId(subscriptionManager);
         }
         mNetworkTemplate = DataUsageUtils.getMobileNetworkTemplate(telephonyManager, subId);
-        mPolicyEditor = new NetworkPolicyEditor(NetworkPolicyManager.from(context));
+        mPolicyEditor = NetworkPolicyStore.getInstance(context).getEditor();
         mAppsNetworkStatsManager = new AppsNetworkStatsManager(getContext());
         mAppsNetworkStatsManager.registerListener(
                 use(AppDataUsagePreferenceController.class, R.string.pk_app_data_usage_detail));
@@ -33,10 +33,10 @@ import com.android.car.settings.R;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.PreferenceController;
 import com.android.car.settings.common.ProgressBarPreference;
+import com.android.car.settings.common.SettingsExecutor;
 import com.android.settingslib.AppItem;
 import com.android.settingslib.net.UidDetail;
 import com.android.settingslib.net.UidDetailProvider;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -238,10 +238,11 @@ public class AppDataUsagePreferenceController extends
             if (mDetail != null) {
                 setAppInfo();
             } else {
-                ThreadUtils.postOnBackgroundThread(() -> {
-                    mDetail = provider.getUidDetail(mItem.key, true /* blocking */);
-                    ThreadUtils.postOnMainThread(() -> setAppInfo());
-                });
+                executeInBackground(SettingsExecutor.PRIORITY_BULK,
+                        () -> provider.getUidDetail(mItem.key, true /* blocking */), detail -> {
+                            mDetail = detail;
+                            setAppInfo();
+                        });
             }
         }
 
@@ -16,6 +16,8 @@
 
 package com.android.car.settings.datausage;
 
+import android.os.Bundle;
+
 import androidx.annotation.XmlRes;
 
 import com.android.car.settings.R;
@@ -29,4 +31,11 @@ public class DataUsageFragment extends SettingsFragment {
     protected int getPreferenceScreenResId() {
         return R.xml.data_usage_fragment;
     }
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        // Policies are needed by the app data usage and the warning and limit screens.
+        NetworkPolicyStore.getInstance(requireContext()).preload();
+    }
 }
@@ -63,7 +63,7 @@ public class DataWarningAndLimitFragment extends SettingsFragment {
     public void onAttach(Context context) {
         super.onAttach(context);
 
-        mPolicyEditor = new NetworkPolicyEditor(NetworkPolicyManager.from(context));
+        mPolicyEditor = NetworkPolicyStore.getInstance(context).getEditor();
         mNetworkTemplate = getArguments().getParcelable(
                 NetworkPolicyManager.EXTRA_NETWORK_TEMPLATE);
         if (mNetworkTemplate == null) {
@@ -73,9 +73,6 @@ public class DataWarningAndLimitFragment extends SettingsFragment {
                     DataUsageUtils.getDefaultSubscriptionId(mSubscriptionManager));
         }
 
-        // Loads the current policies to the policy editor cache.
-        mPolicyEditor.read();
-
         List<DataWarningAndLimitBasePreferenceController> preferenceControllers =
                 Arrays.asList(
                         use(CycleResetDayOfMonthPickerPreferenceController.class,
@@ -89,4 +86,11 @@ public class DataWarningAndLimitFragment extends SettingsFragment {
             preferenceController.setNetworkTemplate(mNetworkTemplate);
         }
     }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        // Edits are written with a delay, make sure the last ones are not lost.
+        NetworkPolicyStore.getInstance(requireContext()).flush();
+    }
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import android.content.Context;
+import android.net.NetworkPolicy;
+import android.net.NetworkPolicyManager;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.SettingsExecutor;
+import com.android.settingslib.NetworkPolicyEditor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Process-wide store of the network policies edited by the data usage screens.
+ *
+ * <p>The store hands out a shared {@link NetworkPolicyEditor}, which is read on a background
+ * thread when {@link #preload()} is called ahead of time. Edits are applied to the in-memory
+ * policies of the editor right away, while writing the policies back to {@link
+ * NetworkPolicyManager} is debounced, so that a burst of edits results in a single background
+ * write of the merged policies. Screens which edit policies must call {@link #flush()} when
+ * stopped so that the last edits are written.
+ *
+ * <p>Policies may also be changed outside of the store, e.g. by a network reset. {@link
+ * #getEditor()} is called when an editing screen starts, and re-reads the policies of the shared
+ * editor unless they were just preloaded or have edits which are not written yet.
+ */
+public class NetworkPolicyStore {
+
+    private static final Logger LOG = new Logger(NetworkPolicyStore.class);
+
+    @VisibleForTesting
+    static final long WRITE_DEBOUNCE_MS = 500;
+
+    private static NetworkPolicyStore sInstance;
+
+    private final Context mContext;
+    private final NetworkPolicyManager mPolicyManager;
+    private final Executor mBackgroundExecutor;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    // Editors with edits which have not been written yet. Only accessed on the main thread.
+    private final Set<DebouncedEditor> mPendingEditors = new HashSet<>();
+
+    private DebouncedEditor mEditor;
+    // Whether mEditor was read after it was last returned by getEditor().
+    private boolean mEditorFresh;
+    // Number of background writes which have not completed yet. Only accessed on the main thread.
+    private int mWritesInFlight;
+    private FutureTask<DebouncedEditor> mLoadTask;
+
+    /** Returns the process-wide instance of the store. */
+    @MainThread
+    public static NetworkPolicyStore getInstance(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (sInstance == null || sInstance.mContext != appContext) {
+            sInstance = new NetworkPolicyStore(appContext, NetworkPolicyManager.from(appContext),
+                    runnable -> SettingsExecutor.getInstance().execute(
+                            SettingsExecutor.PRIORITY_VISIBLE, runnable));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    NetworkPolicyStore(Context context, NetworkPolicyManager policyManager,
+            Executor backgroundExecutor) {
+        mContext = context;
+        mPolicyManager = policyManager;
+        mBackgroundExecutor = backgroundExecutor;
+    }
+
+    /**
+     * Starts reading the policies in the background, so that a later {@link #getEditor()} does
+     * not block. The cached policies are only replaced if they have no unwritten edits.
+     */
+    @MainThread
+    public void preload() {
+        if (mLoadTask != null || !mPendingEditors.isEmpty() || mWritesInFlight > 0) {
+            return;
+        }
+        FutureTask<DebouncedEditor> loadTask = new FutureTask<>(this::readEditor);
+        mLoadTask = loadTask;
+        mBackgroundExecutor.execute(() -> {
+            loadTask.run();
+            mHandler.post(() -> {
+                if (mLoadTask == loadTask) {
+                    mLoadTask = null;
+                    setEditor(getLoadedEditor(loadTask));
+                }
+            });
+        });
+    }
+
+    /**
+     * Returns the shared editor. Waits for the policies being preloaded, or reads them
+     * synchronously if they were never loaded or may have changed since the last call.
+     */
+    @MainThread
+    public NetworkPolicyEditor getEditor() {
+        if (mLoadTask != null) {
+            FutureTask<DebouncedEditor> loadTask = mLoadTask;
+            mLoadTask = null;
+            // Runs the read on this thread if the background executor has not started it yet.
+            loadTask.run();
+            setEditor(getLoadedEditor(loadTask));
+        }
+        if (mEditor == null) {
+            mEditor = readEditor();
+        } else if (!mEditorFresh && !mPendingEditors.contains(mEditor) && mWritesInFlight == 0) {
+            // Reading while edits are not written yet would drop them.
+            mEditor.read();
+        }
+        mEditorFresh = false;
+        return mEditor;
+    }
+
+    /** Writes pending edits right away instead of waiting for the debounce delay. */
+    @MainThread
+    public void flush() {
+        for (DebouncedEditor editor : new ArrayList<>(mPendingEditors)) {
+            editor.flush();
+        }
+    }
+
+    private void setEditor(DebouncedEditor editor) {
+        // Keep the current policies if they have edits the loaded ones do not know about.
+        if (mEditor == null || !mPendingEditors.contains(mEditor)) {
+            mEditor = editor;
+            mEditorFresh = true;
+        }
+    }
+
+    private DebouncedEditor getLoadedEditor(FutureTask<DebouncedEditor> loadTask) {
+        try {
+            return loadTask.get();
+        } catch (ExecutionException e) {
+            LOG.w("Unable to preload network policies", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return readEditor();
+    }
+
+    private DebouncedEditor readEditor() {
+        DebouncedEditor editor = new DebouncedEditor(mPolicyManager);
+        editor.read();
+        return editor;
+    }
+
+    /** Editor which debounces the writes triggered by each edit. */
+    private final class DebouncedEditor extends NetworkPolicyEditor {
+
+        private final Runnable mWriteRunnable = this::flush;
+
+        DebouncedEditor(NetworkPolicyManager policyManager) {
+            super(policyManager);
+        }
+
+        @Override
+        public void writeAsync() {
+            // Also called on a background thread when policies are upgraded during a preload.
+            if (Looper.getMainLooper().isCurrentThread()) {
+                scheduleWrite();
+            } else {
+                mHandler.post(this::scheduleWrite);
+            }
+        }
+
+        private void scheduleWrite() {
+            mPendingEditors.add(this);
+            mHandler.removeCallbacks(mWriteRunnable);
+            mHandler.postDelayed(mWriteRunnable, WRITE_DEBOUNCE_MS);
+        }
+
+        void flush() {
+            if (mPendingEditors.remove(this)) {
+                mHandler.removeCallbacks(mWriteRunnable);
+                mWritesInFlight++;
+                // Copies the policies and writes them on a background thread.
+                super.writeAsync();
+            }
+        }
+
+        @Override
+        public void write(NetworkPolicy[] policies) {
+            try {
+                super.write(policies);
+            } finally {
+                mHandler.post(() -> mWritesInFlight--);
+            }
+        }
+    }
+}
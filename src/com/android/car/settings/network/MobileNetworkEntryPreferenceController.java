@@ -22,8 +22,6 @@ import android.content.Context;
 import android.net.ConnectivityManager;
 import android.os.UserManager;
 import android.telephony.SubscriptionInfo;
-import android.telephony.SubscriptionManager;
-import android.telephony.TelephonyManager;
 
 import androidx.preference.Preference;
 
@@ -36,22 +34,18 @@ import java.util.List;
 /** Controls the preference for accessing mobile network settings. */
 public class MobileNetworkEntryPreferenceController extends
         PreferenceController<Preference> implements
-        SubscriptionsChangeListener.SubscriptionsChangeAction {
+        SubscriptionStore.Listener {
 
     private final CarUserManagerHelper mCarUserManagerHelper;
-    private final SubscriptionsChangeListener mChangeListener;
-    private final SubscriptionManager mSubscriptionManager;
+    private final SubscriptionStore mSubscriptionStore;
     private final ConnectivityManager mConnectivityManager;
-    private final TelephonyManager mTelephonyManager;
 
     public MobileNetworkEntryPreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
         super(context, preferenceKey, fragmentController, uxRestrictions);
         mCarUserManagerHelper = new CarUserManagerHelper(context);
-        mChangeListener = new SubscriptionsChangeListener(context, /* action= */ this);
-        mSubscriptionManager = context.getSystemService(SubscriptionManager.class);
+        mSubscriptionStore = SubscriptionStore.getInstance(context);
         mConnectivityManager = context.getSystemService(ConnectivityManager.class);
-        mTelephonyManager = context.getSystemService(TelephonyManager.class);
     }
 
     @Override
@@ -61,12 +55,12 @@ public class MobileNetworkEntryPreferenceController extends
 
     @Override
     protected void onStartInternal() {
-        mChangeListener.start();
+        mSubscriptionStore.registerListener(this);
     }
 
     @Override
     protected void onStopInternal() {
-        mChangeListener.stop();
+        mSubscriptionStore.unregisterListener(this);
     }
 
     @Override
@@ -86,16 +80,16 @@ public class MobileNetworkEntryPreferenceController extends
 
     @Override
     protected void updateState(Preference preference) {
-        List<SubscriptionInfo> subs = SubscriptionUtils.getAvailableSubscriptions(
-                mSubscriptionManager, mTelephonyManager);
+        List<SubscriptionInfo> subs =
+                mSubscriptionStore.getSnapshot().getAvailableSubscriptions();
         preference.setEnabled(!subs.isEmpty());
         preference.setSummary(getSummary(subs));
     }
 
     @Override
     protected boolean handlePreferenceClicked(Preference preference) {
-        List<SubscriptionInfo> subs = SubscriptionUtils.getAvailableSubscriptions(
-                mSubscriptionManager, mTelephonyManager);
+        List<SubscriptionInfo> subs =
+                mSubscriptionStore.getSnapshot().getAvailableSubscriptions();
         if (subs.isEmpty()) {
             return true;
         }
@@ -110,7 +104,7 @@ public class MobileNetworkEntryPreferenceController extends
     }
 
     @Override
-    public void onSubscriptionsChanged() {
+    public void onSubscriptionsSnapshotChanged(SubscriptionStore.Snapshot snapshot) {
         refreshUi();
     }
 
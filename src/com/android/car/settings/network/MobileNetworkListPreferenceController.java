@@ -19,8 +19,6 @@ package com.android.car.settings.network;
 import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
 import android.telephony.SubscriptionInfo;
-import android.telephony.SubscriptionManager;
-import android.telephony.TelephonyManager;
 
 import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
@@ -29,24 +27,18 @@ import com.android.car.settings.R;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.PreferenceController;
 
-import java.util.List;
-
 /** Business logic to populate the list of available mobile networks. */
 public class MobileNetworkListPreferenceController extends
         PreferenceController<PreferenceGroup> implements
-        SubscriptionsChangeListener.SubscriptionsChangeAction {
+        SubscriptionStore.Listener {
 
-    private final SubscriptionsChangeListener mSubscriptionsChangeListener;
-    private final SubscriptionManager mSubscriptionManager;
-    private final TelephonyManager mTelephonyManager;
+    private final SubscriptionStore mSubscriptionStore;
 
     public MobileNetworkListPreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
         super(context, preferenceKey, fragmentController, uxRestrictions);
 
-        mSubscriptionsChangeListener = new SubscriptionsChangeListener(context, /* action= */ this);
-        mSubscriptionManager = context.getSystemService(SubscriptionManager.class);
-        mTelephonyManager = context.getSystemService(TelephonyManager.class);
+        mSubscriptionStore = SubscriptionStore.getInstance(context);
     }
 
     @Override
@@ -56,37 +48,37 @@ public class MobileNetworkListPreferenceController extends
 
     @Override
     protected void onStartInternal() {
-        mSubscriptionsChangeListener.start();
+        mSubscriptionStore.registerListener(this);
     }
 
     @Override
     protected void onStopInternal() {
-        mSubscriptionsChangeListener.stop();
+        mSubscriptionStore.unregisterListener(this);
     }
 
     @Override
     protected void updateState(PreferenceGroup preferenceGroup) {
         preferenceGroup.removeAll();
 
-        List<SubscriptionInfo> subscriptions = SubscriptionUtils.getAvailableSubscriptions(
-                mSubscriptionManager, mTelephonyManager);
-        for (SubscriptionInfo info : subscriptions) {
-            preferenceGroup.addPreference(createPreference(info));
+        SubscriptionStore.Snapshot snapshot = mSubscriptionStore.getSnapshot();
+        for (SubscriptionInfo info : snapshot.getAvailableSubscriptions()) {
+            preferenceGroup.addPreference(createPreference(info,
+                    snapshot.isActiveSubscriptionId(info.getSubscriptionId())));
         }
     }
 
     @Override
-    public void onSubscriptionsChanged() {
+    public void onSubscriptionsSnapshotChanged(SubscriptionStore.Snapshot snapshot) {
         refreshUi();
     }
 
-    private Preference createPreference(SubscriptionInfo info) {
+    private Preference createPreference(SubscriptionInfo info, boolean isActive) {
         Preference preference = new Preference(getContext());
         preference.setTitle(info.getDisplayName());
         preference.setKey(Integer.toString(info.getSubscriptionId()));
 
         boolean isEsim = info.isEmbedded();
-        if (mSubscriptionManager.isActiveSubscriptionId(info.getSubscriptionId())) {
+        if (isActive) {
             preference.setSummary(isEsim ? R.string.mobile_network_active_esim
                     : R.string.mobile_network_active_sim);
         } else {
@@ -48,25 +48,20 @@ public class MobileNetworkUpdateManager implements DefaultLifecycleObserver {
     private final List<MobileNetworkUpdateListener> mListeners = new ArrayList<>();
     private final PhoneChangeReceiver mPhoneChangeReceiver;
     private final SubscriptionManager mSubscriptionManager;
+    private final SubscriptionStore mSubscriptionStore;
     private List<SubscriptionInfo> mSubscriptionInfos;
     private int mCurSubscriptionId;
 
-    private final SubscriptionManager.OnSubscriptionsChangedListener
-            mOnSubscriptionsChangeListener =
-            new SubscriptionManager.OnSubscriptionsChangedListener() {
-                @Override
-                public void onSubscriptionsChanged() {
-                    if (!Objects.equals(mSubscriptionInfos,
-                            mSubscriptionManager.getActiveSubscriptionInfoList(
-                                    /* userVisibleOnly= */ true))) {
-                        updateSubscriptions(/* forceRefresh= */ false);
-                    }
-                }
-            };
+    private final SubscriptionStore.Listener mSubscriptionStoreListener = snapshot -> {
+        if (!Objects.equals(mSubscriptionInfos, snapshot.getActiveSubscriptions())) {
+            updateSubscriptions(/* forceRefresh= */ false);
+        }
+    };
 
     public MobileNetworkUpdateManager(Context context, int subId) {
         mCurSubscriptionId = subId;
         mSubscriptionManager = context.getSystemService(SubscriptionManager.class);
+        mSubscriptionStore = SubscriptionStore.getInstance(context);
         mSubscriptionInfos = mSubscriptionManager.getActiveSubscriptionInfoList();
 
         mPhoneChangeReceiver = new PhoneChangeReceiver(context, () -> {
@@ -105,13 +100,13 @@ public class MobileNetworkUpdateManager implements DefaultLifecycleObserver {
     @Override
     public final void onStart(@NonNull LifecycleOwner owner) {
         mPhoneChangeReceiver.register();
-        mSubscriptionManager.addOnSubscriptionsChangedListener(mOnSubscriptionsChangeListener);
+        mSubscriptionStore.registerListener(mSubscriptionStoreListener);
     }
 
     @Override
     public final void onStop(@NonNull LifecycleOwner owner) {
         mPhoneChangeReceiver.unregister();
-        mSubscriptionManager.removeOnSubscriptionsChangedListener(mOnSubscriptionsChangeListener);
+        mSubscriptionStore.unregisterListener(mSubscriptionStoreListener);
     }
 
     private void updateSubscriptions(boolean forceRefresh) {
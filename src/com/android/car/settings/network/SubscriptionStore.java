@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.network;
+
+import static com.android.internal.util.CollectionUtils.emptyIfNull;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+import android.telephony.TelephonyManager;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.settings.common.Logger;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Process-wide store of the telephony subscriptions shown by the network screens.
+ *
+ * <p>The store holds an immutable {@link Snapshot} of the available and active subscriptions.
+ * While at least one {@link Listener} is registered, the store listens for subscription and radio
+ * technology changes through a single {@link SubscriptionsChangeListener}. Bursts of changes are
+ * coalesced and the snapshot is recomputed once on a background thread. Listeners are only
+ * notified when the recomputed snapshot differs from the previous one.
+ *
+ * <p>When no listeners are registered the store cannot know whether its snapshot is current, so
+ * {@link #getSnapshot()} computes it synchronously. When the first listener is registered, the
+ * last snapshot is kept as a placeholder and refreshed on a background thread; only the very
+ * first snapshot is computed synchronously.
+ */
+public class SubscriptionStore {
+
+    private static final Logger LOG = new Logger(SubscriptionStore.class);
+
+    @VisibleForTesting
+    static final long CHANGE_DEBOUNCE_MS = 200;
+
+    /** Receives updates to the subscription snapshot on the main thread. */
+    public interface Listener {
+        /** Called when the subscription snapshot has changed. */
+        void onSubscriptionsSnapshotChanged(Snapshot snapshot);
+    }
+
+    /** Immutable view of the subscriptions at a point in time. */
+    public static final class Snapshot {
+        private final List<SubscriptionInfo> mAvailableSubscriptions;
+        private final List<SubscriptionInfo> mActiveSubscriptions;
+
+        Snapshot(List<SubscriptionInfo> availableSubscriptions,
+                List<SubscriptionInfo> activeSubscriptions) {
+            mAvailableSubscriptions = Collections.unmodifiableList(availableSubscriptions);
+            mActiveSubscriptions = Collections.unmodifiableList(activeSubscriptions);
+        }
+
+        /**
+         * Returns the available subscriptions as computed by {@link
+         * SubscriptionUtils#getAvailableSubscriptions(SubscriptionManager, TelephonyManager)}.
+         */
+        public List<SubscriptionInfo> getAvailableSubscriptions() {
+            return mAvailableSubscriptions;
+        }
+
+        /** Returns the active subscriptions, sorted by sim slot. */
+        public List<SubscriptionInfo> getActiveSubscriptions() {
+            return mActiveSubscriptions;
+        }
+
+        /** Returns whether the subscription with the given id is active. */
+        public boolean isActiveSubscriptionId(int subId) {
+            for (SubscriptionInfo info : mActiveSubscriptions) {
+                if (info.getSubscriptionId() == subId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Snapshot)) {
+                return false;
+            }
+            Snapshot snapshot = (Snapshot) o;
+            return mAvailableSubscriptions.equals(snapshot.mAvailableSubscriptions)
+                    && mActiveSubscriptions.equals(snapshot.mActiveSubscriptions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mAvailableSubscriptions, mActiveSubscriptions);
+        }
+    }
+
+    private static SubscriptionStore sInstance;
+
+    private final Context mContext;
+    private final SubscriptionManager mSubscriptionManager;
+    private final TelephonyManager mTelephonyManager;
+    private final SubscriptionsChangeListener mChangeListener;
+    private final Executor mBackgroundExecutor;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> mListeners = new ArrayList<>();
+    private final Runnable mRecomputeRunnable = this::recomputeInBackground;
+
+    private Snapshot mSnapshot;
+    private int mRequestedSequence;
+    private int mAppliedSequence;
+
+    /** Returns the process-wide instance of the store. */
+    @MainThread
+    public static SubscriptionStore getInstance(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (sInstance == null || sInstance.mContext != appContext) {
+            sInstance = new SubscriptionStore(appContext, ThreadUtils::postOnBackgroundThread);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    SubscriptionStore(Context context, Executor backgroundExecutor) {
+        mContext = context;
+        mSubscriptionManager = context.getSystemService(SubscriptionManager.class);
+        mTelephonyManager = context.getSystemService(TelephonyManager.class);
+        mChangeListener = new SubscriptionsChangeListener(context, this::onSubscriptionsChanged);
+        mBackgroundExecutor = backgroundExecutor;
+    }
+
+    /**
+     * Registers a listener for snapshot changes. The first listener starts tracking subscription
+     * changes.
+     */
+    @MainThread
+    public void registerListener(Listener listener) {
+        if (mListeners.contains(listener)) {
+            return;
+        }
+        mListeners.add(listener);
+        if (mListeners.size() == 1) {
+            mChangeListener.start();
+            if (mSnapshot != null) {
+                // The snapshot may have gone stale while nothing was listening.
+                recomputeInBackground();
+            }
+        }
+    }
+
+    /**
+     * Unregisters a listener added via {@link #registerListener(Listener)}. The last listener
+     * stops tracking subscription changes.
+     */
+    @MainThread
+    public void unregisterListener(Listener listener) {
+        if (!mListeners.remove(listener)) {
+            return;
+        }
+        if (mListeners.isEmpty()) {
+            mChangeListener.stop();
+            mHandler.removeCallbacks(mRecomputeRunnable);
+            mAppliedSequence = mRequestedSequence;
+        }
+    }
+
+    /**
+     * Returns the current subscription snapshot. This is computed synchronously if no listeners
+     * are registered or if no snapshot has been computed yet.
+     */
+    @MainThread
+    public Snapshot getSnapshot() {
+        if (mListeners.isEmpty() || mSnapshot == null) {
+            mSnapshot = computeSnapshot();
+        }
+        return mSnapshot;
+    }
+
+    private void onSubscriptionsChanged() {
+        mHandler.removeCallbacks(mRecomputeRunnable);
+        mHandler.postDelayed(mRecomputeRunnable, CHANGE_DEBOUNCE_MS);
+    }
+
+    private void recomputeInBackground() {
+        int sequence = ++mRequestedSequence;
+        mBackgroundExecutor.execute(() -> {
+            Snapshot snapshot = computeSnapshot();
+            mHandler.post(() -> applySnapshot(sequence, snapshot));
+        });
+    }
+
+    private void applySnapshot(int sequence, Snapshot snapshot) {
+        // Drop results which were overtaken by a newer computation or which completed after the
+        // last listener was removed.
+        if (mListeners.isEmpty() || sequence <= mAppliedSequence) {
+            return;
+        }
+        mAppliedSequence = sequence;
+        if (snapshot.equals(mSnapshot)) {
+            LOG.v("Subscriptions unchanged");
+            return;
+        }
+        mSnapshot = snapshot;
+        for (Listener listener : new ArrayList<>(mListeners)) {
+            listener.onSubscriptionsSnapshotChanged(snapshot);
+        }
+    }
+
+    private Snapshot computeSnapshot() {
+        return new Snapshot(
+                SubscriptionUtils.getAvailableSubscriptions(mSubscriptionManager,
+                        mTelephonyManager),
+                new ArrayList<>(emptyIfNull(mSubscriptionManager.getActiveSubscriptionInfoList())));
+    }
+}
@@ -27,8 +27,10 @@ import android.telephony.UiccSlotInfo;
 import android.text.TextUtils;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 /** Shared logic related to dealing with multiple subscriptions. */
 public final class SubscriptionUtils {
@@ -48,16 +50,19 @@ public final class SubscriptionUtils {
         // Look for inactive but present physical SIMs that are missing from the selectable list.
         List<UiccSlotInfo> missing = new ArrayList<>();
         UiccSlotInfo[] slotsInfo = telephonyManager.getUiccSlotsInfo();
+        Set<String> selectableSlotCards = null;
         for (int i = 0; slotsInfo != null && i < slotsInfo.length; i++) {
             UiccSlotInfo slotInfo = slotsInfo[i];
             if (isInactiveInsertedPSim(slotInfo)) {
-                int index = slotInfo.getLogicalSlotIdx();
-                String cardId = slotInfo.getCardId();
-
-                boolean found = subscriptions.stream().anyMatch(
-                        info -> index == info.getSimSlotIndex() && cardId.equals(
-                                info.getCardString()));
-                if (!found) {
+                if (selectableSlotCards == null) {
+                    selectableSlotCards = new HashSet<>();
+                    for (SubscriptionInfo info : subscriptions) {
+                        selectableSlotCards.add(
+                                getSlotCardKey(info.getSimSlotIndex(), info.getCardString()));
+                    }
+                }
+                if (!selectableSlotCards.contains(
+                        getSlotCardKey(slotInfo.getLogicalSlotIdx(), slotInfo.getCardId()))) {
                     missing.add(slotInfo);
                 }
             }
@@ -86,6 +91,10 @@ public final class SubscriptionUtils {
         return subscriptions;
     }
 
+    private static String getSlotCardKey(int slotIndex, String cardId) {
+        return slotIndex + ":" + cardId;
+    }
+
     private static boolean isInactiveInsertedPSim(UiccSlotInfo slotInfo) {
         return !slotInfo.getIsEuicc() && !slotInfo.getIsActive()
                 && slotInfo.getCardStateInfo() == CARD_STATE_INFO_PRESENT;
@@ -51,6 +51,13 @@ public class BluetoothTile implements QuickSettingGridAdapter.Tile {
 
     private State mState = State.OFF;
 
+    // Results of loadInitialState(), applied on the main thread.
+    private LocalBluetoothManager mLoadedLocalManager;
+    private boolean mLoadedEnabled;
+    // Set once a broadcast updated the tile, which is newer than the loaded state.
+    private boolean mHasLiveState;
+    private boolean mHasLiveIcon;
+
     private final BroadcastReceiver mBtStateReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
@@ -59,6 +66,8 @@ public class BluetoothTile implements QuickSettingGridAdapter.Tile {
             if (action.equals(BluetoothAdapter.ACTION_STATE_CHANGED)) {
                 int state = intent.getIntExtra(BluetoothAdapter.EXTRA_STATE,
                         BluetoothAdapter.ERROR);
+                mHasLiveState = true;
+                mHasLiveIcon = true;
                 switch (state) {
                     case BluetoothAdapter.STATE_TURNING_OFF:
                         // TODO show a different status icon?
@@ -74,6 +83,7 @@ public class BluetoothTile implements QuickSettingGridAdapter.Tile {
             } else if (action.equals(BluetoothAdapter.ACTION_CONNECTION_STATE_CHANGED)) {
                 int state = intent.getIntExtra(BluetoothAdapter.EXTRA_CONNECTION_STATE,
                         BluetoothAdapter.ERROR);
+                mHasLiveIcon = true;
                 switch (state) {
                     case BluetoothAdapter.STATE_CONNECTED:
                         mIconRes = R.drawable.ic_settings_bluetooth_connected;
@@ -93,25 +103,38 @@ public class BluetoothTile implements QuickSettingGridAdapter.Tile {
             FragmentController fragmentController) {
         mStateChangedListener = stateChangedListener;
         mContext = context;
-        mLocalManager = LocalBluetoothManager.getInstance(
+        mText = mContext.getString(R.string.bluetooth_settings_title);
+        mLaunchBluetoothSettings = v -> {
+            fragmentController.launchFragment(new BluetoothSettingsFragment());
+            return true;
+        };
+    }
+
+    @Override
+    public void loadInitialState() {
+        mLoadedLocalManager = LocalBluetoothManager.getInstance(
                 mContext, /* onInitCallback= */ null);
-        if (mLocalManager == null) {
+        if (mLoadedLocalManager == null) {
             LOG.e("Bluetooth is not supported on this device");
             return;
         }
-        mText = mContext.getString(R.string.bluetooth_settings_title);
+        mLoadedEnabled = mLoadedLocalManager.getBluetoothAdapter().isEnabled();
+    }
+
+    @Override
+    public void onInitialStateLoaded() {
+        mLocalManager = mLoadedLocalManager;
+        if (mLocalManager == null) {
+            return;
+        }
         mLocalAdapter = mLocalManager.getBluetoothAdapter();
-        if (mLocalAdapter.isEnabled()) {
-            mIconRes = R.drawable.ic_settings_bluetooth;
-            mState = State.ON;
-        } else {
-            mIconRes = R.drawable.ic_settings_bluetooth_disabled;
-            mState = State.OFF;
+        if (!mHasLiveState) {
+            mState = mLoadedEnabled ? State.ON : State.OFF;
+        }
+        if (!mHasLiveIcon) {
+            mIconRes = mLoadedEnabled ? R.drawable.ic_settings_bluetooth
+                    : R.drawable.ic_settings_bluetooth_disabled;
         }
-        mLaunchBluetoothSettings = v -> {
-            fragmentController.launchFragment(new BluetoothSettingsFragment());
-            return true;
-        };
     }
 
     @Nullable
@@ -31,23 +31,43 @@ import com.android.settingslib.net.DataUsageController;
 public class CelluarTile implements QuickSettingGridAdapter.Tile, DataUsageController.Callback {
     private final Context mContext;
     private final StateChangedListener mStateChangedListener;
-    private final DataUsageController mDataUsageController;
     @Nullable
-    private final String mCarrierName;
-    private final boolean mAvailable;
+    private DataUsageController mDataUsageController;
+    @Nullable
+    private String mCarrierName;
+    private boolean mAvailable;
 
     private State mState = State.ON;
 
+    // Results of loadInitialState(), applied on the main thread.
+    private DataUsageController mLoadedDataUsageController;
+    private String mLoadedCarrierName;
+    private boolean mLoadedAvailable;
+    private boolean mLoadedMobileDataEnabled;
+
     CelluarTile(Context context, StateChangedListener stateChangedListener) {
         mStateChangedListener = stateChangedListener;
         mContext = context;
+    }
+
+    @Override
+    public void loadInitialState() {
         TelephonyManager manager =
-                (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
-        mDataUsageController = new DataUsageController(mContext);
+                (TelephonyManager) mContext.getSystemService(Context.TELEPHONY_SERVICE);
+        mLoadedDataUsageController = new DataUsageController(mContext);
+        mLoadedAvailable = mLoadedDataUsageController.isMobileDataSupported();
+        mLoadedMobileDataEnabled = mLoadedAvailable
+                && mLoadedDataUsageController.isMobileDataEnabled();
+        mLoadedCarrierName = mLoadedAvailable ? manager.getNetworkOperatorName() : null;
+    }
+
+    @Override
+    public void onInitialStateLoaded() {
+        mDataUsageController = mLoadedDataUsageController;
         mDataUsageController.setCallback(this);
-        mAvailable = mDataUsageController.isMobileDataSupported();
-        mState = mAvailable && mDataUsageController.isMobileDataEnabled() ? State.ON : State.OFF;
-        mCarrierName = mAvailable ? manager.getNetworkOperatorName() : null;
+        mAvailable = mLoadedAvailable;
+        mState = mLoadedMobileDataEnabled ? State.ON : State.OFF;
+        mCarrierName = mLoadedCarrierName;
     }
 
     @Override
@@ -91,6 +111,9 @@ public class CelluarTile implements QuickSettingGridAdapter.Tile, DataUsageContr
 
     @Override
     public void onClick(View v) {
+        if (mDataUsageController == null) {
+            return;
+        }
         mDataUsageController.setMobileDataEnabled(!mDataUsageController.isMobileDataEnabled());
     }
 }
@@ -43,6 +43,9 @@ public class DayNightTile implements QuickSettingGridAdapter.Tile {
 
     private State mState = State.ON;
 
+    // Result of loadInitialState(), applied on the main thread.
+    private int mLoadedNightMode;
+
     DayNightTile(
             Context context,
             StateChangedListener stateChangedListener,
@@ -50,11 +53,6 @@ public class DayNightTile implements QuickSettingGridAdapter.Tile {
         mStateChangedListener = stateChangedListener;
         mContext = context;
         mUiModeManager = (UiModeManager) mContext.getSystemService(Context.UI_MODE_SERVICE);
-        if (mUiModeManager.getNightMode() == UiModeManager.MODE_NIGHT_YES) {
-            mState = State.ON;
-        } else {
-            mState = State.OFF;
-        }
         mText = mContext.getString(R.string.night_mode_tile_label);
         mLaunchDisplaySettings = v -> {
             fragmentController.launchFragment(new DisplaySettingsFragment());
@@ -62,6 +60,20 @@ public class DayNightTile implements QuickSettingGridAdapter.Tile {
         };
     }
 
+    @Override
+    public void loadInitialState() {
+        mLoadedNightMode = mUiModeManager.getNightMode();
+    }
+
+    @Override
+    public void onInitialStateLoaded() {
+        if (mLoadedNightMode == UiModeManager.MODE_NIGHT_YES) {
+            mState = State.ON;
+        } else {
+            mState = State.OFF;
+        }
+    }
+
     @Nullable
     public View.OnLongClickListener getOnLongClickListener() {
         return mLaunchDisplaySettings;
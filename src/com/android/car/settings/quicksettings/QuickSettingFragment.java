@@ -21,11 +21,11 @@ import android.car.drivingstate.CarUxRestrictions;
 import android.car.userlib.CarUserManagerHelper;
 import android.content.Context;
 import android.content.pm.UserInfo;
-import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.SystemProperties;
 import android.os.UserManager;
+import android.util.Pair;
 import android.view.View;
 import android.widget.TextView;
 
@@ -37,6 +37,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.car.settings.R;
 import com.android.car.settings.common.BaseFragment;
+import com.android.car.settings.common.SettingsExecutor;
 import com.android.car.settings.home.HomepageFragment;
 import com.android.car.settings.users.UserIconProvider;
 import com.android.car.settings.users.UserSwitcherFragment;
@@ -104,6 +105,7 @@ public class QuickSettingFragment extends BaseFragment {
                 .addTile(new DayNightTile(activity, mGridAdapter, getFragmentController()))
                 .addTile(new CelluarTile(activity, mGridAdapter))
                 .addSeekbarTile(new BrightnessTile(activity));
+        mGridAdapter.loadTiles(getViewLifecycleOwner().getLifecycle());
         mListView.setAdapter(mGridAdapter);
 
         mPreferencesIgnoringUxRestrictions = new HashSet<String>(Arrays.asList(
@@ -211,10 +213,17 @@ public class QuickSettingFragment extends BaseFragment {
     }
 
     private void setupUserButton(Context context) {
-        UserInfo currentUserInfo = mCarUserManagerHelper.getCurrentForegroundUserInfo();
-        Drawable userIcon = mUserIconProvider.getUserIcon(currentUserInfo, context);
-        mUserSwitcherBtn.setIcon(userIcon);
-        mUserSwitcherBtn.setTitle(currentUserInfo.name);
+        // Looking up the user and decoding their avatar is slow, so the button shows the generic
+        // user icon until done.
+        SettingsExecutor.getInstance().execute(SettingsExecutor.PRIORITY_VISIBLE,
+                getViewLifecycleOwner().getLifecycle(), () -> {
+                    UserInfo currentUserInfo = mCarUserManagerHelper.getCurrentForegroundUserInfo();
+                    return Pair.create(currentUserInfo.name,
+                            mUserIconProvider.getUserIcon(currentUserInfo, context));
+                }, nameAndIcon -> {
+                    mUserSwitcherBtn.setIcon(nameAndIcon.second);
+                    mUserSwitcherBtn.setTitle(nameAndIcon.first);
+                });
     }
 
     private boolean showUserSwitcher() {
@@ -27,27 +27,69 @@ import android.widget.ImageView;
 import android.widget.SeekBar;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.car.settings.R;
+import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.SettingsExecutor;
+import com.android.car.settings.common.SettingsTracer;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Controls the content in quick setting grid view.
+ *
+ * <p>Tiles load their initial state in parallel on background threads. Until a tile is loaded, it
+ * is rendered with the state it last had in this process, or hidden if it was never shown. Tiles
+ * which fail to load are hidden.
  */
 public class QuickSettingGridAdapter
         extends RecyclerView.Adapter<RecyclerView.ViewHolder> implements StateChangedListener {
+    private static final Logger LOG = new Logger(QuickSettingGridAdapter.class);
     private static final int SEEKBAR_VIEWTYPE = 0;
     private static final int TILE_VIEWTYPE = 1;
+    private static final String TRACE_SCREEN = QuickSettingFragment.class.getSimpleName();
+    private static final SettingsTracer.Span ALL_TILES_READY_SPAN = new SettingsTracer.Span(
+            TRACE_SCREEN, "Tiles", "allReady");
+
+    // Last known presentation of each tile class, to render tiles before they are loaded.
+    private static final Map<String, TileSnapshot> sLastKnownTiles = new HashMap<>();
+
     private final int mColumnCount;
     private final Context mContext;
     private final LayoutInflater mInflater;
+    // Every tile, whether shown or not, and the tiles currently shown.
+    private final List<Tile> mAllTiles = new ArrayList<>();
     private final List<Tile> mTiles = new ArrayList<>();
+    private final Set<Tile> mLoadedTiles = new HashSet<>();
+    private final Set<Tile> mFailedTiles = new HashSet<>();
+    private final Set<Tile> mStartedTiles = new HashSet<>();
     private final List<SeekbarTile> mSeekbarTiles = new ArrayList<>();
     private final QsSpanSizeLookup mQsSpanSizeLookup = new QsSpanSizeLookup();
+    private final Map<Tile, SettingsTracer.Span> mReadySpans = new HashMap<>();
+    // Trace tokens of the tiles still loading.
+    private final Map<Tile, Long> mPendingReadyTokens = new HashMap<>();
+    private long mAllTilesReadyToken;
+    private Lifecycle mLoadLifecycle;
+
+    private final DefaultLifecycleObserver mLoadLifecycleObserver =
+            new DefaultLifecycleObserver() {
+                @Override
+                public void onDestroy(@NonNull LifecycleOwner owner) {
+                    cancelPendingLoadSpans();
+                }
+            };
 
     public QuickSettingGridAdapter(Context context) {
         mContext = context;
@@ -76,7 +118,8 @@ public class QuickSettingGridAdapter
         }
 
         /**
-         * Called when activity owning this tile's onStart() gets called.
+         * Called when activity owning this tile's onStart() gets called. This may be called
+         * before the initial state is loaded.
          */
         void start();
 
@@ -85,6 +128,19 @@ public class QuickSettingGridAdapter
          */
         void stop();
 
+        /**
+         * Loads the state of the tile which is slow to query, such as through binder calls. Called
+         * once on a background thread after construction. Implementations should only store the
+         * results, and apply them in {@link #onInitialStateLoaded()}.
+         */
+        void loadInitialState();
+
+        /**
+         * Called on the main thread once {@link #loadInitialState()} completed. {@link
+         * #isAvailable()} and the presentation of the tile are only queried after this call.
+         */
+        void onInitialStateLoaded();
+
         Drawable getIcon();
 
         @Nullable
@@ -127,18 +183,51 @@ public class QuickSettingGridAdapter
     }
 
     QuickSettingGridAdapter addTile(Tile tile) {
-        if (tile.isAvailable()) {
-            mTiles.add(tile);
-        }
+        mAllTiles.add(tile);
+        mReadySpans.put(tile, new SettingsTracer.Span(TRACE_SCREEN, tile.getClass().getSimpleName(),
+                "ready"));
+        updateShownTiles();
         return this;
     }
 
+    /**
+     * Loads the initial state of every tile in parallel on background threads. Each tile is
+     * patched in once loaded, and the time it took is recorded by {@link SettingsTracer}. Loads
+     * still pending when {@code lifecycle} is destroyed are dropped, and their spans are closed
+     * without being recorded.
+     */
+    void loadTiles(Lifecycle lifecycle) {
+        if (mAllTiles.isEmpty() || lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+        mLoadLifecycle = lifecycle;
+        lifecycle.addObserver(mLoadLifecycleObserver);
+        mAllTilesReadyToken = SettingsTracer.beginAsync(ALL_TILES_READY_SPAN, hashCode());
+        // Every span is begun before any load is queued, as loads may complete right away.
+        for (Tile tile : mAllTiles) {
+            mPendingReadyTokens.put(tile,
+                    SettingsTracer.beginAsync(mReadySpans.get(tile), hashCode()));
+        }
+        for (Tile tile : mAllTiles) {
+            SettingsExecutor.getInstance().execute(SettingsExecutor.PRIORITY_VISIBLE, lifecycle,
+                    () -> loadInitialState(tile), loaded -> onTileLoadFinished(tile, loaded));
+        }
+    }
+
     void start() {
         for (SeekbarTile tile : mSeekbarTiles) {
             tile.start();
         }
-        for (Tile tile : mTiles) {
-            tile.start();
+        for (Tile tile : mAllTiles) {
+            // Tiles which may turn out to be available are started, so that they do not miss
+            // changes made while loading.
+            if (mFailedTiles.contains(tile)) {
+                continue;
+            }
+            if (!mLoadedTiles.contains(tile) || tile.isAvailable()) {
+                tile.start();
+                mStartedTiles.add(tile);
+            }
         }
     }
 
@@ -146,9 +235,104 @@ public class QuickSettingGridAdapter
         for (SeekbarTile tile : mSeekbarTiles) {
             tile.stop();
         }
-        for (Tile tile : mTiles) {
+        for (Tile tile : mStartedTiles) {
             tile.stop();
         }
+        mStartedTiles.clear();
+    }
+
+    /** Clears the last known presentation of every tile. */
+    @VisibleForTesting
+    static void clearLastKnownTiles() {
+        sLastKnownTiles.clear();
+    }
+
+    private static boolean loadInitialState(Tile tile) {
+        try {
+            tile.loadInitialState();
+            return true;
+        } catch (RuntimeException e) {
+            LOG.e("Failed to load " + tile.getClass().getSimpleName(), e);
+            return false;
+        }
+    }
+
+    private void onTileLoadFinished(Tile tile, boolean loaded) {
+        Long token = mPendingReadyTokens.remove(tile);
+        if (token == null) {
+            return;
+        }
+        if (loaded) {
+            SettingsTracer.endAsync(mReadySpans.get(tile), hashCode(), token);
+            onTileLoaded(tile);
+        } else {
+            SettingsTracer.cancelAsync(mReadySpans.get(tile), hashCode());
+            onTileFailed(tile);
+        }
+        if (mPendingReadyTokens.isEmpty()) {
+            SettingsTracer.endAsync(ALL_TILES_READY_SPAN, hashCode(), mAllTilesReadyToken);
+            stopObservingLoadLifecycle();
+        }
+    }
+
+    private void onTileFailed(Tile tile) {
+        mFailedTiles.add(tile);
+        if (mStartedTiles.remove(tile)) {
+            tile.stop();
+        }
+        updateShownTiles();
+        notifyDataSetChanged();
+    }
+
+    /** Closes the spans of the loads dropped by the lifecycle without recording them. */
+    private void cancelPendingLoadSpans() {
+        for (Tile tile : mPendingReadyTokens.keySet()) {
+            SettingsTracer.cancelAsync(mReadySpans.get(tile), hashCode());
+        }
+        if (!mPendingReadyTokens.isEmpty()) {
+            mPendingReadyTokens.clear();
+            SettingsTracer.cancelAsync(ALL_TILES_READY_SPAN, hashCode());
+        }
+        stopObservingLoadLifecycle();
+    }
+
+    private void stopObservingLoadLifecycle() {
+        if (mLoadLifecycle != null) {
+            mLoadLifecycle.removeObserver(mLoadLifecycleObserver);
+            mLoadLifecycle = null;
+        }
+    }
+
+    private void onTileLoaded(Tile tile) {
+        tile.onInitialStateLoaded();
+        mLoadedTiles.add(tile);
+        if (!tile.isAvailable()) {
+            sLastKnownTiles.put(tile.getClass().getName(), TileSnapshot.UNAVAILABLE);
+            if (mStartedTiles.remove(tile)) {
+                tile.stop();
+            }
+        }
+        updateShownTiles();
+        notifyDataSetChanged();
+    }
+
+    private void updateShownTiles() {
+        mTiles.clear();
+        for (Tile tile : mAllTiles) {
+            if (mFailedTiles.contains(tile)) {
+                continue;
+            }
+            if (mLoadedTiles.contains(tile)) {
+                if (tile.isAvailable()) {
+                    mTiles.add(tile);
+                }
+                continue;
+            }
+            TileSnapshot snapshot = sLastKnownTiles.get(tile.getClass().getName());
+            if (snapshot != null && snapshot.mAvailable) {
+                mTiles.add(tile);
+            }
+        }
     }
 
     @Override
@@ -185,8 +369,23 @@ public class QuickSettingGridAdapter
                 } else {
                     vh.itemView.setOnLongClickListener(null);
                 }
-                vh.mIcon.setImageDrawable(tile.getIcon());
-                switch (tile.getState()) {
+                Drawable icon;
+                Tile.State state;
+                String textString;
+                if (mLoadedTiles.contains(tile)) {
+                    icon = tile.getIcon();
+                    state = tile.getState();
+                    textString = tile.getText();
+                    sLastKnownTiles.put(tile.getClass().getName(),
+                            new TileSnapshot(icon, textString, state));
+                } else {
+                    TileSnapshot snapshot = sLastKnownTiles.get(tile.getClass().getName());
+                    icon = snapshot.newIcon(mContext);
+                    state = snapshot.mState;
+                    textString = snapshot.mText;
+                }
+                vh.mIcon.setImageDrawable(icon);
+                switch (state) {
                     case ON:
                         vh.mIcon.setEnabled(true);
                         vh.mIconBackground.setEnabled(true);
@@ -197,7 +396,6 @@ public class QuickSettingGridAdapter
                         break;
                     default:
                 }
-                String textString = tile.getText();
                 if (!TextUtils.isEmpty(textString)) {
                     vh.mText.setText(textString);
                 }
@@ -206,6 +404,37 @@ public class QuickSettingGridAdapter
         }
     }
 
+    /** Presentation of a tile, which does not hold on to its context. */
+    private static final class TileSnapshot {
+        static final TileSnapshot UNAVAILABLE = new TileSnapshot();
+
+        final boolean mAvailable;
+        @Nullable
+        final Drawable.ConstantState mIconState;
+        @Nullable
+        final String mText;
+        final Tile.State mState;
+
+        TileSnapshot(Drawable icon, @Nullable String text, Tile.State state) {
+            mAvailable = true;
+            mIconState = icon == null ? null : icon.getConstantState();
+            mText = text;
+            mState = state;
+        }
+
+        private TileSnapshot() {
+            mAvailable = false;
+            mIconState = null;
+            mText = null;
+            mState = Tile.State.OFF;
+        }
+
+        @Nullable
+        Drawable newIcon(Context context) {
+            return mIconState == null ? null : mIconState.newDrawable(context.getResources());
+        }
+    }
+
     private class BrightnessViewHolder extends RecyclerView.ViewHolder {
         private final SeekBar mSeekBar;
 
@@ -34,8 +34,11 @@ import com.android.settingslib.wifi.AccessPoint;
  */
 public class WifiTile implements QuickSettingGridAdapter.Tile, CarWifiManager.Listener {
     private final StateChangedListener mStateChangedListener;
-    private final CarWifiManager mCarWifiManager;
     private final Context mContext;
+    // Built in loadInitialState(), since creating the wifi tracker is slow. Null until loaded.
+    @Nullable
+    private CarWifiManager mCarWifiManager;
+    private boolean mStarted;
 
     private final View.OnLongClickListener mLaunchWifiSettings;
 
@@ -45,6 +48,14 @@ public class WifiTile implements QuickSettingGridAdapter.Tile, CarWifiManager.Li
     private String mText;
 
     private State mState = State.OFF;
+    private boolean mAvailable;
+
+    // Results of loadInitialState(), applied on the main thread.
+    private CarWifiManager mLoadedCarWifiManager;
+    private boolean mLoadedAvailable;
+    private int mLoadedWifiState;
+    // Set once a listener callback updated the state, which is newer than the loaded state.
+    private boolean mHasLiveWifiState;
 
     WifiTile(
             Context context,
@@ -55,11 +66,31 @@ public class WifiTile implements QuickSettingGridAdapter.Tile, CarWifiManager.Li
             fragmentController.launchFragment(new WifiSettingsFragment());
             return true;
         };
-        mCarWifiManager = new CarWifiManager(context);
         mStateChangedListener = stateChangedListener;
+    }
+
+    @Override
+    public void loadInitialState() {
+        mLoadedCarWifiManager = new CarWifiManager(mContext);
+        mLoadedAvailable = WifiUtil.isWifiAvailable(mContext);
+        mLoadedWifiState = mLoadedCarWifiManager.getWifiState();
+    }
+
+    @Override
+    public void onInitialStateLoaded() {
+        mCarWifiManager = mLoadedCarWifiManager;
+        if (mStarted) {
+            // The tile was started before the manager existed.
+            startCarWifiManager();
+        }
+        mAvailable = mLoadedAvailable;
+        if (mHasLiveWifiState) {
+            return;
+        }
         // init icon and text etc.
         updateAccessPointSsid();
-        onWifiStateChanged(mCarWifiManager.getWifiState());
+        updateWifiState(mLoadedWifiState);
+        mStateChangedListener.onStateChanged();
     }
 
     @Nullable
@@ -69,7 +100,7 @@ public class WifiTile implements QuickSettingGridAdapter.Tile, CarWifiManager.Li
 
     @Override
     public boolean isAvailable() {
-        return WifiUtil.isWifiAvailable(mContext);
+        return mAvailable;
     }
 
     @Override
@@ -90,12 +121,18 @@ public class WifiTile implements QuickSettingGridAdapter.Tile, CarWifiManager.Li
 
     @Override
     public void start() {
-        mCarWifiManager.addListener(this);
-        mCarWifiManager.start();
+        mStarted = true;
+        if (mCarWifiManager != null) {
+            startCarWifiManager();
+        }
     }
 
     @Override
     public void stop() {
+        mStarted = false;
+        if (mCarWifiManager == null) {
+            return;
+        }
         mCarWifiManager.removeListener(this);
         mCarWifiManager.stop();
         mCarWifiManager.destroy();
@@ -110,6 +147,26 @@ public class WifiTile implements QuickSettingGridAdapter.Tile, CarWifiManager.Li
 
     @Override
     public void onWifiStateChanged(int state) {
+        mHasLiveWifiState = true;
+        updateWifiState(state);
+        mStateChangedListener.onStateChanged();
+    }
+
+    @Override
+    public void onClick(View v) {
+        if (mCarWifiManager == null) {
+            // Shown with its last known state while loading.
+            return;
+        }
+        mCarWifiManager.setWifiEnabled(!mCarWifiManager.isWifiEnabled());
+    }
+
+    private void startCarWifiManager() {
+        mCarWifiManager.addListener(this);
+        mCarWifiManager.start();
+    }
+
+    private void updateWifiState(int state) {
         mIconRes = WifiUtil.getIconRes(state);
         int stringId = WifiUtil.getStateDesc(state);
         if (stringId != 0) {
@@ -120,16 +177,11 @@ public class WifiTile implements QuickSettingGridAdapter.Tile, CarWifiManager.Li
             }
         }
         mState = WifiUtil.isWifiOn(state) ? State.ON : State.OFF;
-        mStateChangedListener.onStateChanged();
-    }
-
-    @Override
-    public void onClick(View v) {
-        mCarWifiManager.setWifiEnabled(!mCarWifiManager.isWifiEnabled());
     }
 
     private boolean wifiEnabledNotConnected() {
-        return mCarWifiManager.isWifiEnabled() && mCarWifiManager.getConnectedAccessPoint() == null;
+        return mCarWifiManager != null && mCarWifiManager.isWifiEnabled()
+                && mCarWifiManager.getConnectedAccessPoint() == null;
     }
 
     /**
@@ -138,6 +190,9 @@ public class WifiTile implements QuickSettingGridAdapter.Tile, CarWifiManager.Li
      * @return {@code true} if the text is updated, {@code false} other wise.
      */
     private boolean updateAccessPointSsid() {
+        if (mCarWifiManager == null) {
+            return false;
+        }
         AccessPoint accessPoint = mCarWifiManager.getConnectedAccessPoint();
         if (accessPoint != null) {
             mText = accessPoint.getConfigName();
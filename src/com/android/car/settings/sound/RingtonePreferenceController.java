@@ -21,11 +21,14 @@ import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.database.ContentObserver;
 import android.media.AudioAttributes;
-import android.media.Ringtone;
 import android.media.RingtoneManager;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.UserHandle;
+import android.provider.Settings;
 
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
@@ -35,6 +38,8 @@ import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.Logger;
 import com.android.car.settings.common.PreferenceController;
 
+import java.util.Objects;
+
 /** Business logic for changing the default ringtone. */
 public class RingtonePreferenceController extends
         PreferenceController<RingtonePreference> implements ActivityResultCallback {
@@ -45,12 +50,32 @@ public class RingtonePreferenceController extends
 
     // We use a user context so that default ringtones can differ per user.
     private final Context mUserContext;
+    private final RingtoneTitleResolver mTitleResolver;
+
+    private final ContentObserver mDefaultRingtoneObserver = new ContentObserver(
+            new Handler(Looper.getMainLooper())) {
+        @Override
+        public void onChange(boolean selfChange) {
+            refreshUi();
+        }
+    };
+
+    private final RingtoneTitleResolver.Callback mTitleCallback = (uri, title) -> {
+        if (Objects.equals(uri, mDisplayedRingtoneUri)) {
+            getPreference().setSummary(title);
+        }
+    };
+
+    // The ringtone whose title is being shown, so that titles resolved for an earlier default are
+    // dropped.
+    private Uri mDisplayedRingtoneUri;
 
     public RingtonePreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController,
             CarUxRestrictions uxRestrictions) {
         super(context, preferenceKey, fragmentController, uxRestrictions);
         mUserContext = createPackageContextAsUser(getContext(), UserHandle.myUserId());
+        mTitleResolver = RingtoneTitleResolver.getInstance(context);
     }
 
     @Override
@@ -58,12 +83,32 @@ public class RingtonePreferenceController extends
         return RingtonePreference.class;
     }
 
+    @Override
+    protected void onStartInternal() {
+        Uri settingUri = getDefaultRingtoneSettingUri(getPreference().getRingtoneType());
+        if (settingUri != null) {
+            getContext().getContentResolver().registerContentObserver(settingUri,
+                    /* notifyForDescendants= */ false, mDefaultRingtoneObserver);
+        }
+    }
+
+    @Override
+    protected void onStopInternal() {
+        getContext().getContentResolver().unregisterContentObserver(mDefaultRingtoneObserver);
+        mTitleResolver.cancel(mTitleCallback);
+    }
+
     @Override
     protected void updateState(RingtonePreference preference) {
         Uri ringtoneUri = RingtoneManager.getActualDefaultRingtoneUri(getContext(),
                 getPreference().getRingtoneType());
-        preference.setSummary(Ringtone.getTitle(getContext(), ringtoneUri, /* followSettingsUri= */
-                false, /* allowRemote= */ true));
+        mDisplayedRingtoneUri = ringtoneUri;
+        // Show the last known title while the current one is resolved.
+        String cachedTitle = mTitleResolver.peekTitle(ringtoneUri);
+        if (cachedTitle != null) {
+            preference.setSummary(cachedTitle);
+        }
+        mTitleResolver.resolveTitle(ringtoneUri, mTitleCallback);
     }
 
     @Override
@@ -113,6 +158,24 @@ public class RingtonePreferenceController extends
                 AudioAttributes.FLAG_BYPASS_INTERRUPTION_POLICY);
     }
 
+    /**
+     * Returns the uri of the setting which holds the default ringtone of the given type, or
+     * {@code null} if the type has no such setting.
+     */
+    @Nullable
+    private static Uri getDefaultRingtoneSettingUri(int ringtoneType) {
+        switch (ringtoneType) {
+            case RingtoneManager.TYPE_RINGTONE:
+                return Settings.System.getUriFor(Settings.System.RINGTONE);
+            case RingtoneManager.TYPE_NOTIFICATION:
+                return Settings.System.getUriFor(Settings.System.NOTIFICATION_SOUND);
+            case RingtoneManager.TYPE_ALARM:
+                return Settings.System.getUriFor(Settings.System.ALARM_ALERT);
+            default:
+                return null;
+        }
+    }
+
     /**
      * Returns a context created from the given context for the given user, or null if it fails.
      */
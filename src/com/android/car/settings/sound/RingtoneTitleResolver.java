@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.sound;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.media.Ringtone;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.SettingsExecutor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Process-wide resolver of ringtone titles. Resolving a title queries the media provider, which
+ * can block for a long time while media is being scanned, so titles are resolved in the visible
+ * lane of the {@link SettingsExecutor} and cached.
+ *
+ * <p>Cached titles are tagged with the media generation they were resolved in. The generation is
+ * advanced whenever the media provider reports a change to audio content, after which cached
+ * titles are only used as placeholders until they have been resolved again.
+ */
+public class RingtoneTitleResolver {
+
+    private static final Logger LOG = new Logger(RingtoneTitleResolver.class);
+
+    @VisibleForTesting
+    static final int MAX_ENTRIES = 32;
+
+    /** Receives resolved titles on the main thread. */
+    public interface Callback {
+        /** Called with the title of the given ringtone uri. */
+        void onTitleResolved(@Nullable Uri ringtoneUri, @Nullable String title);
+    }
+
+    private static final class CachedTitle {
+        @Nullable
+        final String mTitle;
+        final int mGeneration;
+
+        CachedTitle(@Nullable String title, int generation) {
+            mTitle = title;
+            mGeneration = generation;
+        }
+    }
+
+    private static final class PendingQuery {
+        final int mGeneration;
+        // Callbacks to receive the title of this query.
+        final List<Callback> mCallbacks = new ArrayList<>();
+        // Callbacks which asked after the media changed, and need a query of their own.
+        final List<Callback> mLaterCallbacks = new ArrayList<>();
+
+        PendingQuery(int generation) {
+            mGeneration = generation;
+        }
+    }
+
+    private static RingtoneTitleResolver sInstance;
+
+    private final Context mContext;
+    private final Executor mBackgroundExecutor;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, CachedTitle> mCache = new LruCache<>(MAX_ENTRIES);
+    // In-flight queries, keyed by cache key.
+    private final Map<String, PendingQuery> mPendingQueries = new HashMap<>();
+    // Titles are resolved one at a time, since concurrent queries would only contend with each
+    // other in the media provider, and a query that blocks during a media scan should hold at
+    // most one background thread.
+    private final Queue<Runnable> mQueuedQueries = new ArrayDeque<>();
+    private boolean mQueryRunning;
+
+    private final ContentObserver mMediaObserver = new ContentObserver(mHandler) {
+        @Override
+        public void onChange(boolean selfChange) {
+            mGeneration++;
+            LOG.v("Media changed, generation " + mGeneration);
+        }
+    };
+
+    private int mGeneration;
+
+    /** Returns the process-wide instance of the resolver. */
+    @MainThread
+    public static RingtoneTitleResolver getInstance(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (sInstance == null || sInstance.mContext != appContext) {
+            sInstance = new RingtoneTitleResolver(appContext,
+                    runnable -> SettingsExecutor.getInstance().execute(
+                            SettingsExecutor.PRIORITY_VISIBLE, runnable));
+        }
+        return sInstance;
+    }
+
+    /** Replaces the process-wide instance, for use in tests only. */
+    @VisibleForTesting
+    static void setInstanceForTesting(@Nullable RingtoneTitleResolver resolver) {
+        sInstance = resolver;
+    }
+
+    @VisibleForTesting
+    RingtoneTitleResolver(Context context, Executor backgroundExecutor) {
+        mContext = context;
+        mBackgroundExecutor = backgroundExecutor;
+        registerMediaObserver();
+    }
+
+    /**
+     * Returns the last known title of the given ringtone uri, or {@code null} if it has not been
+     * resolved yet. The title may be outdated and should only be used as a placeholder until
+     * {@link #resolveTitle(Uri, Callback)} delivers the current one.
+     */
+    @MainThread
+    @Nullable
+    public String peekTitle(@Nullable Uri ringtoneUri) {
+        CachedTitle cached = mCache.get(getCacheKey(ringtoneUri));
+        return cached == null ? null : cached.mTitle;
+    }
+
+    /**
+     * Resolves the title of the given ringtone uri. If an up to date title is cached the callback
+     * is invoked immediately, otherwise it is invoked on the main thread once the title has been
+     * resolved in the background.
+     */
+    @MainThread
+    public void resolveTitle(@Nullable Uri ringtoneUri, Callback callback) {
+        String cacheKey = getCacheKey(ringtoneUri);
+        CachedTitle cached = mCache.get(cacheKey);
+        if (cached != null && cached.mGeneration == mGeneration) {
+            callback.onTitleResolved(ringtoneUri, cached.mTitle);
+            return;
+        }
+
+        PendingQuery pending = mPendingQueries.get(cacheKey);
+        if (pending == null) {
+            pending = new PendingQuery(mGeneration);
+            mPendingQueries.put(cacheKey, pending);
+            pending.mCallbacks.add(callback);
+            startQuery(ringtoneUri, cacheKey, pending.mGeneration);
+        } else if (pending.mGeneration == mGeneration) {
+            pending.mCallbacks.add(callback);
+        } else {
+            // The in-flight query started before the media changed, so its title may be stale.
+            pending.mLaterCallbacks.add(callback);
+        }
+    }
+
+    /**
+     * Drops the given callback from all pending queries, so that it is not invoked and not held
+     * on to after its caller has stopped.
+     */
+    @MainThread
+    public void cancel(Callback callback) {
+        for (PendingQuery pending : mPendingQueries.values()) {
+            pending.mCallbacks.remove(callback);
+            pending.mLaterCallbacks.remove(callback);
+        }
+    }
+
+    private void startQuery(@Nullable Uri ringtoneUri, String cacheKey, int generation) {
+        mQueuedQueries.add(() -> {
+            String title = Ringtone.getTitle(mContext, ringtoneUri, /* followSettingsUri= */
+                    false, /* allowRemote= */ true);
+            mHandler.post(() -> onTitleResolved(ringtoneUri, cacheKey, title, generation));
+        });
+        runNextQuery();
+    }
+
+    private void runNextQuery() {
+        if (!mQueryRunning && !mQueuedQueries.isEmpty()) {
+            mQueryRunning = true;
+            mBackgroundExecutor.execute(mQueuedQueries.poll());
+        }
+    }
+
+    private void onTitleResolved(@Nullable Uri ringtoneUri, String cacheKey,
+            @Nullable String title, int generation) {
+        mQueryRunning = false;
+        mCache.put(cacheKey, new CachedTitle(title, generation));
+        PendingQuery pending = mPendingQueries.remove(cacheKey);
+        if (pending == null) {
+            runNextQuery();
+            return;
+        }
+        for (Callback callback : pending.mCallbacks) {
+            callback.onTitleResolved(ringtoneUri, title);
+        }
+        if (!pending.mLaterCallbacks.isEmpty()) {
+            // Query again for the callbacks which asked after the media changed.
+            PendingQuery requery = new PendingQuery(mGeneration);
+            requery.mCallbacks.addAll(pending.mLaterCallbacks);
+            mPendingQueries.put(cacheKey, requery);
+            startQuery(ringtoneUri, cacheKey, requery.mGeneration);
+        }
+        runNextQuery();
+    }
+
+    private void registerMediaObserver() {
+        mContext.getContentResolver().registerContentObserver(
+                MediaStore.Audio.Media.INTERNAL_CONTENT_URI, /* notifyForDescendants= */ true,
+                mMediaObserver);
+        mContext.getContentResolver().registerContentObserver(
+                MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, /* notifyForDescendants= */ true,
+                mMediaObserver);
+    }
+
+    private static String getCacheKey(@Nullable Uri ringtoneUri) {
+        // LruCache does not accept null keys, and a null uri is the silent ringtone.
+        return String.valueOf(ringtoneUri);
+    }
+}
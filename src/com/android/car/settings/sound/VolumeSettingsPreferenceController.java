@@ -26,8 +26,13 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.ServiceConnection;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.util.SparseLongArray;
 
 import androidx.annotation.DrawableRes;
 import androidx.annotation.StringRes;
@@ -49,6 +54,10 @@ import java.util.List;
  * Business logic which parses car volume items into groups, creates a seek bar preference for each
  * group, and interfaces with the ringtone manager and audio manager.
  *
+ * <p>Volume writes are rate limited to one per {@link #VOLUME_WRITE_INTERVAL_MS} per group while
+ * a seek bar is being dragged, and the last value is always committed. Volume changes made outside
+ * of settings, e.g. from steering wheel controls, update the sliders in place.
+ *
  * @see VolumeSettingsRingtoneManager
  * @see android.car.media.CarAudioManager
  */
@@ -57,9 +66,28 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
     private static final String VOLUME_GROUP_KEY = "volume_group_key";
     private static final String VOLUME_USAGE_KEY = "volume_usage_key";
 
+    @VisibleForTesting
+    static final int VOLUME_WRITE_INTERVAL_MS = 50;
+    // Volume callbacks received this soon after a local write are echoes of the user's own changes.
+    @VisibleForTesting
+    static final int EXTERNAL_VOLUME_CHANGE_GRACE_MS = 500;
+
     private final SparseArray<VolumeItem> mVolumeItems;
     private final List<SeekBarPreference> mVolumePreferences = new ArrayList<>();
     private final VolumeSettingsRingtoneManager mRingtoneManager;
+    private final Handler mUiHandler = new Handler(Looper.getMainLooper());
+    // Latest volume per group which is waiting for the write interval to elapse.
+    private final SparseIntArray mPendingVolumes = new SparseIntArray();
+    private final SparseLongArray mLastVolumeWriteUptimeMillis = new SparseLongArray();
+
+    private final CarAudioManager.CarVolumeCallback mVolumeCallback =
+            new CarAudioManager.CarVolumeCallback() {
+                @Override
+                public void onGroupVolumeChanged(int zoneId, int groupId, int flags) {
+                    // Callbacks arrive on a binder thread.
+                    mUiHandler.post(() -> updateVolumeFromCar(groupId));
+                }
+            };
 
     private final ServiceConnection mServiceConnection = new ServiceConnection() {
         @Override
@@ -77,6 +105,7 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
                             volumeItem.getTitle());
                     mVolumePreferences.add(volumePreference);
                 }
+                mCarAudioManager.registerCarVolumeCallback(mVolumeCallback);
 
                 refreshUi();
             } catch (CarNotConnectedException e) {
@@ -117,6 +146,10 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
     /** Disconnect from car on destroy. */
     @Override
     protected void onDestroyInternal() {
+        commitPendingVolumes();
+        if (mCarAudioManager != null) {
+            mCarAudioManager.unregisterCarVolumeCallback(mVolumeCallback);
+        }
         mCar.disconnect();
     }
 
@@ -160,13 +193,84 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
             int prefGroup = pref.getExtras().getInt(VOLUME_GROUP_KEY);
             int prefUsage = pref.getExtras().getInt(VOLUME_USAGE_KEY);
             int newVolume = (Integer) newValue;
-            setGroupVolume(prefGroup, newVolume);
+            requestGroupVolume(prefGroup, newVolume);
             mRingtoneManager.playAudioFeedback(prefGroup, prefUsage);
             return true;
         });
         return preference;
     }
 
+    /**
+     * Writes the volume immediately if the group was not written to within the last
+     * {@link #VOLUME_WRITE_INTERVAL_MS}. Otherwise, the value is held and committed once the
+     * interval elapses, replacing any value which was held before.
+     */
+    private void requestGroupVolume(int volumeGroupId, int newVolume) {
+        if (mPendingVolumes.indexOfKey(volumeGroupId) >= 0) {
+            // A commit is already scheduled, which will pick up the latest value.
+            mPendingVolumes.put(volumeGroupId, newVolume);
+            return;
+        }
+        long sinceLastWrite = getMillisSinceLastWrite(volumeGroupId);
+        if (sinceLastWrite >= VOLUME_WRITE_INTERVAL_MS) {
+            writeGroupVolume(volumeGroupId, newVolume);
+            return;
+        }
+        mPendingVolumes.put(volumeGroupId, newVolume);
+        mUiHandler.postDelayed(() -> commitPendingVolume(volumeGroupId),
+                VOLUME_WRITE_INTERVAL_MS - sinceLastWrite);
+    }
+
+    private void commitPendingVolume(int volumeGroupId) {
+        int index = mPendingVolumes.indexOfKey(volumeGroupId);
+        if (index < 0) {
+            return;
+        }
+        int volume = mPendingVolumes.valueAt(index);
+        mPendingVolumes.removeAt(index);
+        writeGroupVolume(volumeGroupId, volume);
+    }
+
+    private void commitPendingVolumes() {
+        mUiHandler.removeCallbacksAndMessages(null);
+        while (mPendingVolumes.size() > 0) {
+            commitPendingVolume(mPendingVolumes.keyAt(0));
+        }
+    }
+
+    private void writeGroupVolume(int volumeGroupId, int newVolume) {
+        mLastVolumeWriteUptimeMillis.put(volumeGroupId, SystemClock.uptimeMillis());
+        if (mCarAudioManager != null) {
+            setGroupVolume(volumeGroupId, newVolume);
+        }
+    }
+
+    private long getMillisSinceLastWrite(int volumeGroupId) {
+        int index = mLastVolumeWriteUptimeMillis.indexOfKey(volumeGroupId);
+        if (index < 0) {
+            return Long.MAX_VALUE;
+        }
+        return SystemClock.uptimeMillis() - mLastVolumeWriteUptimeMillis.valueAt(index);
+    }
+
+    /** Updates the slider of the given group to the current volume, without a full refresh. */
+    private void updateVolumeFromCar(int volumeGroupId) {
+        if (mCarAudioManager == null || mPendingVolumes.indexOfKey(volumeGroupId) >= 0
+                || getMillisSinceLastWrite(volumeGroupId) < EXTERNAL_VOLUME_CHANGE_GRACE_MS) {
+            return;
+        }
+        for (SeekBarPreference preference : mVolumePreferences) {
+            if (preference.getExtras().getInt(VOLUME_GROUP_KEY) == volumeGroupId) {
+                try {
+                    preference.setValue(mCarAudioManager.getGroupVolume(volumeGroupId));
+                } catch (CarNotConnectedException e) {
+                    LOG.e("Car is not connected!", e);
+                }
+                return;
+            }
+        }
+    }
+
     private void setGroupVolume(int volumeGroupId, int newVolume) {
         try {
             mCarAudioManager.setGroupVolume(volumeGroupId, newVolume, /* flags= */ 0);
@@ -177,6 +281,8 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
 
     private void cleanupAudioManager() {
         cleanUpVolumePreferences();
+        mUiHandler.removeCallbacksAndMessages(null);
+        mPendingVolumes.clear();
         mCarAudioManager = null;
     }
 
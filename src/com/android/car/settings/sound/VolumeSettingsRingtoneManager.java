@@ -23,6 +23,7 @@ import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.Settings;
 
 import androidx.annotation.Nullable;
@@ -40,6 +41,9 @@ public class VolumeSettingsRingtoneManager {
     private static final Logger LOG = new Logger(VolumeSettingsRingtoneManager.class);
 
     private static final int AUDIO_FEEDBACK_DURATION_MS = 1000;
+    // While a seek bar is dragged, the same feedback is not restarted more often than this.
+    @VisibleForTesting
+    static final int AUDIO_FEEDBACK_RESTART_INTERVAL_MS = 250;
 
     private final Context mContext;
     private final Handler mUiHandler;
@@ -48,6 +52,7 @@ public class VolumeSettingsRingtoneManager {
 
     @Nullable
     private Ringtone mCurrentRingtone;
+    private long mCurrentRingtoneStartUptimeMillis;
 
     public VolumeSettingsRingtoneManager(Context context) {
         mContext = context;
@@ -82,18 +87,26 @@ public class VolumeSettingsRingtoneManager {
 
     /**
      * Play the audio defined by the current group and usage. Stop the current ringtone if it is a
-     * different ringtone than what is currently playing.
+     * different ringtone than what is currently playing. If the same ringtone was started within
+     * the last {@link #AUDIO_FEEDBACK_RESTART_INTERVAL_MS}, it keeps playing and only its timeout
+     * is extended.
      */
     public void playAudioFeedback(int group, int usage) {
         Ringtone nextRingtone = lazyLoadRingtone(group, usage);
-        if (mCurrentRingtone != null && mCurrentRingtone != nextRingtone
-                && mCurrentRingtone.isPlaying()) {
-            mCurrentRingtone.stop();
+        long now = SystemClock.uptimeMillis();
+        boolean recentlyStarted = mCurrentRingtone == nextRingtone && nextRingtone.isPlaying()
+                && now - mCurrentRingtoneStartUptimeMillis < AUDIO_FEEDBACK_RESTART_INTERVAL_MS;
+        if (!recentlyStarted) {
+            if (mCurrentRingtone != null && mCurrentRingtone != nextRingtone
+                    && mCurrentRingtone.isPlaying()) {
+                mCurrentRingtone.stop();
+            }
+            mCurrentRingtone = nextRingtone;
+            mCurrentRingtone.play();
+            mCurrentRingtoneStartUptimeMillis = now;
         }
 
         mUiHandler.removeCallbacksAndMessages(null);
-        mCurrentRingtone = nextRingtone;
-        mCurrentRingtone.play();
         mUiHandler.postDelayed(() -> {
             if (mCurrentRingtone.isPlaying()) {
                 mCurrentRingtone.stop();
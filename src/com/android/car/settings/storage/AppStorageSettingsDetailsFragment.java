@@ -26,7 +26,6 @@ import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
-import android.os.UserHandle;
 import android.os.UserManager;
 
 import androidx.annotation.VisibleForTesting;
@@ -88,6 +87,7 @@ public class AppStorageSettingsDetailsFragment extends SettingsFragment implemen
     private ApplicationsState mAppState;
     private ApplicationInfo mInfo;
     private AppsStorageStatsManager mAppsStorageStatsManager;
+    private AppStorageStatsCache mStatsCache;
 
     // User info
     private int mUserId;
@@ -140,16 +140,12 @@ public class AppStorageSettingsDetailsFragment extends SettingsFragment implemen
         mPackageName = getArguments().getString(EXTRA_PACKAGE_NAME);
         mAppState = ApplicationsState.getInstance(requireActivity().getApplication());
         mAppEntry = mAppState.getEntry(mPackageName, mUserId);
-        StorageStatsSource storageStatsSource = new StorageStatsSource(context);
-        StorageStatsSource.AppStorageStats stats = null;
         mPackageManager = context.getPackageManager();
-        try {
-            stats = storageStatsSource.getStatsForPackage(/* volumeUuid= */ null, mPackageName,
-                    UserHandle.of(mUserId));
-        } catch (Exception e) {
-            // This may happen if the package was removed during our calculation.
-            LOG.w("App unexpectedly not found", e);
-        }
+        mStatsCache = AppStorageStatsCache.getInstance();
+        // Show the stats computed by the storage screen right away, if any. Sizes are otherwise
+        // filled in once loaded in the background.
+        AppStorageStatsCache.Entry cached = mStatsCache.get(mUserId, mPackageName);
+        StorageStatsSource.AppStorageStats stats = cached == null ? null : cached.getStats();
         mAppsStorageStatsManager = new AppsStorageStatsManager(context);
         mAppsStorageStatsManager.registerListener(this);
         use(StorageApplicationPreferenceController.class,
@@ -341,6 +337,8 @@ public class AppStorageSettingsDetailsFragment extends SettingsFragment implemen
 
     private final Handler mHandler = new Handler() {
         public void handleMessage(Message msg) {
+            // Cached stats of the package are out of date, whether or not clearing succeeded.
+            mStatsCache.invalidate(mUserId, mPackageName);
             if (getView() == null) {
                 return;
             }
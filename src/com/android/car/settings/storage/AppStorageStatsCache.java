@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.android.car.settings.storage;
+
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.SparseArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.applications.StorageStatsSource;
+
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide cache of the storage stats of packages, per user and package. Stats cover the
+ * volume a package is installed on.
+ *
+ * <p>The cache is filled by {@link StorageAsyncLoader} while the storage screen computes its
+ * totals, and by {@link FetchPackageStorageAsyncLoader}. The storage details of an application
+ * are shown from the cache right away, and reloaded in the background if the cached stats are
+ * older than {@link #STALE_AFTER_MS}. Clearing the cache or the data of a package invalidates its
+ * entry.
+ */
+public final class AppStorageStatsCache {
+
+    @VisibleForTesting
+    static final long STALE_AFTER_MS = 60_000;
+
+    private static AppStorageStatsCache sInstance;
+
+    private final LongSupplier mClock;
+    // Guarded by this, since loaders fill the cache from background threads.
+    private final SparseArray<Map<String, Entry>> mEntriesByUser = new SparseArray<>();
+
+    /** Returns the process-wide instance of the cache. */
+    public static synchronized AppStorageStatsCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new AppStorageStatsCache(SystemClock::elapsedRealtime);
+        }
+        return sInstance;
+    }
+
+    /** Replaces the process-wide instance, or restores the default one if {@code null}. */
+    @VisibleForTesting
+    static synchronized void setInstanceForTesting(AppStorageStatsCache cache) {
+        sInstance = cache;
+    }
+
+    /** Creates a cache which reads timestamps in milliseconds from {@code clock}. */
+    @VisibleForTesting
+    AppStorageStatsCache(LongSupplier clock) {
+        mClock = clock;
+    }
+
+    /** Cached storage stats of a package, along with the time they were loaded. */
+    public static final class Entry {
+        private final StorageStatsSource.AppStorageStats mStats;
+        private final long mTimestampMs;
+
+        Entry(StorageStatsSource.AppStorageStats stats, long timestampMs) {
+            mStats = stats;
+            mTimestampMs = timestampMs;
+        }
+
+        /** Returns the cached storage stats. */
+        public StorageStatsSource.AppStorageStats getStats() {
+            return mStats;
+        }
+
+        /** Returns the {@link SystemClock#elapsedRealtime()} at which the stats were loaded. */
+        public long getTimestampMs() {
+            return mTimestampMs;
+        }
+    }
+
+    /** Returns the cached stats of a package, or {@code null} if none are cached. */
+    @Nullable
+    public synchronized Entry get(int userId, String packageName) {
+        Map<String, Entry> entries = mEntriesByUser.get(userId);
+        return entries == null ? null : entries.get(packageName);
+    }
+
+    /** Returns whether the given entry is old enough that it should be reloaded. */
+    public boolean isStale(Entry entry) {
+        return mClock.getAsLong() - entry.mTimestampMs >= STALE_AFTER_MS;
+    }
+
+    /** Caches the stats of a package, replacing any previously cached stats. */
+    public synchronized void put(int userId, String packageName,
+            StorageStatsSource.AppStorageStats stats) {
+        Map<String, Entry> entries = mEntriesByUser.get(userId);
+        if (entries == null) {
+            entries = new ArrayMap<>();
+            mEntriesByUser.put(userId, entries);
+        }
+        entries.put(packageName, new Entry(stats, mClock.getAsLong()));
+    }
+
+    /** Removes the cached stats of a package, e.g. after its cache or data were cleared. */
+    public synchronized void invalidate(int userId, String packageName) {
+        Map<String, Entry> entries = mEntriesByUser.get(userId);
+        if (entries != null) {
+            entries.remove(packageName);
+        }
+    }
+}
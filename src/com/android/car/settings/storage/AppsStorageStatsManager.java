@@ -23,6 +23,7 @@ import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
 import android.os.UserHandle;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.loader.app.LoaderManager;
 import androidx.loader.content.Loader;
 
@@ -33,6 +34,9 @@ import java.util.List;
 
 /**
  * Class to manage the callbacks needed to calculate storage stats for an application.
+ *
+ * <p>Stats cached in {@link AppStorageStatsCache} are delivered as soon as loading starts. They
+ * are then reloaded in the background only if stale.
  */
 public class AppsStorageStatsManager {
 
@@ -50,6 +54,7 @@ public class AppsStorageStatsManager {
     }
 
     private final Context mContext;
+    private final AppStorageStatsCache mStatsCache;
     private ApplicationInfo mInfo;
     private int mUserId;
     private boolean mCacheCleared;
@@ -57,7 +62,13 @@ public class AppsStorageStatsManager {
     private List<Callback> mAppsStorageStatsListeners = new ArrayList<>();
 
     AppsStorageStatsManager(Context context) {
+        this(context, AppStorageStatsCache.getInstance());
+    }
+
+    @VisibleForTesting
+    AppsStorageStatsManager(Context context, AppStorageStatsCache statsCache) {
         mContext = context;
+        mStatsCache = statsCache;
     }
 
     /**
@@ -77,7 +88,8 @@ public class AppsStorageStatsManager {
     }
 
     /**
-     * Start calculating the storage stats.
+     * Start calculating the storage stats. Cached stats are delivered to the listeners right away,
+     * and are only reloaded if they are stale.
      */
     public void startLoading(LoaderManager loaderManager, ApplicationInfo info, int userId,
             boolean cacheCleared, boolean dataCleared) {
@@ -85,6 +97,13 @@ public class AppsStorageStatsManager {
         mUserId = userId;
         mCacheCleared = cacheCleared;
         mDataCleared = dataCleared;
+        AppStorageStatsCache.Entry cached = mStatsCache.get(userId, info.packageName);
+        if (cached != null) {
+            onAppsStorageStatsLoaded(cached.getStats());
+            if (!mStatsCache.isStale(cached)) {
+                return;
+            }
+        }
         loaderManager.restartLoader(/* id= */ 1, Bundle.EMPTY, new AppsStorageStatsResult());
     }
 
@@ -41,6 +41,7 @@ public class FetchPackageStorageAsyncLoader extends AsyncLoader<AppStorageStats>
     private final StorageStatsSource mSource;
     private final ApplicationInfo mInfo;
     private final UserHandle mUser;
+    private final AppStorageStatsCache mStatsCache;
 
     public FetchPackageStorageAsyncLoader(Context context, @NonNull StorageStatsSource source,
             @NonNull ApplicationInfo info, @NonNull UserHandle user) {
@@ -48,6 +49,7 @@ public class FetchPackageStorageAsyncLoader extends AsyncLoader<AppStorageStats>
         mSource = Preconditions.checkNotNull(source);
         mInfo = info;
         mUser = user;
+        mStatsCache = AppStorageStatsCache.getInstance();
     }
 
     @Override
@@ -58,6 +60,11 @@ public class FetchPackageStorageAsyncLoader extends AsyncLoader<AppStorageStats>
         } catch (NameNotFoundException | IOException e) {
             Log.w(TAG, "Package may have been removed during query, failing gracefully", e);
         }
+        if (result != null) {
+            mStatsCache.put(mUser.getIdentifier(), mInfo.packageName, result);
+        } else {
+            mStatsCache.invalidate(mUser.getIdentifier(), mInfo.packageName);
+        }
         return result;
     }
 }
@@ -51,6 +51,7 @@ public class StorageAsyncLoader
     private final CarUserManagerHelper mCarUserManagerHelper;
     private final StorageStatsSource mStatsManager;
     private final PackageManager mPackageManager;
+    private final AppStorageStatsCache mStatsCache;
 
     public StorageAsyncLoader(Context context, CarUserManagerHelper carUserManagerHelper,
             StorageStatsSource source) {
@@ -58,6 +59,7 @@ public class StorageAsyncLoader
         mCarUserManagerHelper = carUserManagerHelper;
         mStatsManager = source;
         mPackageManager = context.getPackageManager();
+        mStatsCache = AppStorageStatsCache.getInstance();
     }
 
     @Override
@@ -92,8 +94,13 @@ public class StorageAsyncLoader
             } catch (NameNotFoundException | IOException e) {
                 // This may happen if the package was removed during our calculation.
                 LOG.w("App unexpectedly not found", e);
+                mStatsCache.invalidate(userId, app.packageName);
                 continue;
             }
+            if (app.volumeUuid == null) {
+                // Share the stats with the details screen, which loads them for the app's volume.
+                mStatsCache.put(userId, app.packageName, stats);
+            }
 
             long dataSize = stats.getDataBytes();
             long cacheQuota = mStatsManager.getCacheQuotaBytes(/* volumeUuid= */null, app.uid);
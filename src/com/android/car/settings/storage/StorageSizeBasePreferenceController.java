@@ -110,6 +110,9 @@ public abstract class StorageSizeBasePreferenceController extends
     @Override
     public void onDataLoaded(StorageStatsSource.AppStorageStats data, boolean cacheCleared,
             boolean dataCleared) {
+        if (data != null) {
+            mAppStorageStats = data;
+        }
         //  Sets if user have cleared the cache and should zero the cache bytes.
         //  When the cache is cleared, the cache directories are recreated. These directories have
         //  some size, but are empty. We zero this out to best match user expectations.
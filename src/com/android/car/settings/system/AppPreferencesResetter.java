@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.system;
+
+import android.app.INotificationManager;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.RemoteException;
+import android.os.SystemClock;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.SettingsTracer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Resets the per package app preferences, i.e. blocked notifications and apps disabled by the
+ * user.
+ *
+ * <p>The reset first reads the state of every installed app to find the packages which actually
+ * need changes, and then only applies changes to those. Both phases run in batches of {@link
+ * #BATCH_SIZE} packages, which are spread across the given executor so that the binder calls of
+ * several batches are in flight at once.
+ *
+ * <p>Every package counts for two units of progress, one for each phase. Packages which need no
+ * change complete their second unit as soon as they are read, so progress never goes backwards.
+ */
+public class AppPreferencesResetter {
+
+    private static final Logger LOG = new Logger(AppPreferencesResetter.class);
+
+    @VisibleForTesting
+    static final int BATCH_SIZE = 16;
+
+    private static final String TRACE_SCREEN = "ResetAppPrefFragment";
+    private static final SettingsTracer.Span PLAN_SPAN = new SettingsTracer.Span(TRACE_SCREEN,
+            "AppPreferencesResetter", "plan");
+    private static final SettingsTracer.Span APPLY_SPAN = new SettingsTracer.Span(TRACE_SCREEN,
+            "AppPreferencesResetter", "apply");
+
+    /** Receives progress updates of a reset. */
+    public interface ProgressListener {
+        /**
+         * Called after each batch with the number of completed units out of {@code total}. May be
+         * called concurrently from the threads of the batch executor.
+         */
+        void onProgress(int completed, int total);
+    }
+
+    /** Outcome and cost of a reset. */
+    public static final class Result {
+        /** Number of installed apps inspected. */
+        public final int mPackageCount;
+        /** Number of apps whose notifications were re-enabled. */
+        public final int mNotificationsResetCount;
+        /** Number of apps which were re-enabled. */
+        public final int mAppsEnabledCount;
+        /** Time spent finding the apps which need changes. */
+        public final long mPlanMillis;
+        /** Time spent applying the changes. */
+        public final long mApplyMillis;
+
+        Result(int packageCount, int notificationsResetCount, int appsEnabledCount,
+                long planMillis, long applyMillis) {
+            mPackageCount = packageCount;
+            mNotificationsResetCount = notificationsResetCount;
+            mAppsEnabledCount = appsEnabledCount;
+            mPlanMillis = planMillis;
+            mApplyMillis = applyMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{packages=" + mPackageCount + ", notificationsReset="
+                    + mNotificationsResetCount + ", appsEnabled=" + mAppsEnabledCount
+                    + ", planMillis=" + mPlanMillis + ", applyMillis=" + mApplyMillis + "}";
+        }
+    }
+
+    private final PackageManager mPackageManager;
+    private final INotificationManager mNotificationManager;
+    private final Executor mBatchExecutor;
+
+    /**
+     * @param batchExecutor runs the batches. Its number of threads bounds how many batches are
+     *                      in flight at once.
+     */
+    public AppPreferencesResetter(PackageManager packageManager,
+            INotificationManager notificationManager, Executor batchExecutor) {
+        mPackageManager = packageManager;
+        mNotificationManager = notificationManager;
+        mBatchExecutor = batchExecutor;
+    }
+
+    /** Resets the preferences of every installed app. Blocks until done. */
+    @WorkerThread
+    public Result reset(ProgressListener listener) {
+        List<ApplicationInfo> apps = mPackageManager.getInstalledApplications(
+                PackageManager.MATCH_DISABLED_COMPONENTS);
+        int total = apps.size() * 2;
+        AtomicInteger completed = new AtomicInteger();
+        listener.onProgress(0, total);
+
+        long planStart = SystemClock.elapsedRealtime();
+        long token = SettingsTracer.begin(PLAN_SPAN);
+        Set<ApplicationInfo> blockedNotifications = new HashSet<>();
+        Set<ApplicationInfo> disabledApps = new HashSet<>();
+        try {
+            runInBatches(apps, batch -> {
+                List<ApplicationInfo> batchBlocked = new ArrayList<>();
+                List<ApplicationInfo> batchDisabled = new ArrayList<>();
+                int unchanged = 0;
+                for (ApplicationInfo app : batch) {
+                    boolean blocked = !areNotificationsEnabled(app);
+                    boolean disabled = isDisabledByUser(app);
+                    if (blocked) {
+                        batchBlocked.add(app);
+                    }
+                    if (disabled) {
+                        batchDisabled.add(app);
+                    }
+                    if (!blocked && !disabled) {
+                        unchanged++;
+                    }
+                }
+                synchronized (blockedNotifications) {
+                    blockedNotifications.addAll(batchBlocked);
+                    disabledApps.addAll(batchDisabled);
+                }
+                listener.onProgress(completed.addAndGet(batch.size() + unchanged), total);
+            });
+        } finally {
+            SettingsTracer.end(PLAN_SPAN, token);
+        }
+        long planMillis = SystemClock.elapsedRealtime() - planStart;
+
+        long applyStart = SystemClock.elapsedRealtime();
+        token = SettingsTracer.begin(APPLY_SPAN);
+        try {
+            Set<ApplicationInfo> changedApps = new HashSet<>(blockedNotifications);
+            changedApps.addAll(disabledApps);
+            runInBatches(new ArrayList<>(changedApps), batch -> {
+                for (ApplicationInfo app : batch) {
+                    if (blockedNotifications.contains(app)) {
+                        enableNotifications(app);
+                    }
+                    if (disabledApps.contains(app)) {
+                        mPackageManager.setApplicationEnabledSetting(app.packageName,
+                                PackageManager.COMPONENT_ENABLED_STATE_DEFAULT,
+                                PackageManager.DONT_KILL_APP);
+                    }
+                }
+                listener.onProgress(completed.addAndGet(batch.size()), total);
+            });
+        } finally {
+            SettingsTracer.end(APPLY_SPAN, token);
+        }
+        long applyMillis = SystemClock.elapsedRealtime() - applyStart;
+
+        Result result = new Result(apps.size(), blockedNotifications.size(), disabledApps.size(),
+                planMillis, applyMillis);
+        LOG.d("Reset app preferences: " + result);
+        return result;
+    }
+
+    private boolean areNotificationsEnabled(ApplicationInfo app) {
+        try {
+            return mNotificationManager.areNotificationsEnabledForPackage(app.packageName,
+                    app.uid);
+        } catch (RemoteException e) {
+            LOG.w("Unable to read notification preferences for app: " + app.packageName, e);
+            // Reset anyway, as before the state was read.
+            return false;
+        }
+    }
+
+    private void enableNotifications(ApplicationInfo app) {
+        try {
+            mNotificationManager.setNotificationsEnabledForPackage(app.packageName, app.uid,
+                    /* enabled= */ true);
+        } catch (RemoteException e) {
+            LOG.w("Unable to reset notification preferences for app: " + app.packageName, e);
+        }
+    }
+
+    private boolean isDisabledByUser(ApplicationInfo app) {
+        return !app.enabled && mPackageManager.getApplicationEnabledSetting(app.packageName)
+                == PackageManager.COMPONENT_ENABLED_STATE_DISABLED_USER;
+    }
+
+    /** Runs {@code work} on batches of {@code apps} and waits for every batch to complete. */
+    private void runInBatches(List<ApplicationInfo> apps, Consumer<List<ApplicationInfo>> work) {
+        int batchCount = (apps.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+        CountDownLatch latch = new CountDownLatch(batchCount);
+        for (int i = 0; i < batchCount; i++) {
+            List<ApplicationInfo> batch = apps.subList(i * BATCH_SIZE,
+                    Math.min(apps.size(), (i + 1) * BATCH_SIZE));
+            mBatchExecutor.execute(() -> {
+                try {
+                    work.accept(batch);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.w("Interrupted while resetting app preferences", e);
+        }
+    }
+}
@@ -19,28 +19,48 @@ package com.android.car.settings.system;
 import android.text.TextUtils;
 import android.util.Xml;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
 import com.android.car.settings.common.Logger;
 
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.zip.GZIPInputStream;
 
 /**
  * The utility class that generate a license html file from xml files.
  * All the HTML snippets and logic are copied from build/make/tools/generate-notice-files.py.
+ *
+ * <p>License bodies are never held in memory all at once. The first pass streams each xml file
+ * once, spooling its deduplicated license bodies to a per-source file and building a compact index
+ * from content id to the body's offset in that file. The second pass writes the html, copying each
+ * license body from its spool file straight to the output.
+ *
+ * <p>Per-source indexes can be kept in a directory across runs, in which case only the xml files
+ * which changed since their index was built are parsed again.
  */
 class LicenseHtmlGeneratorFromXml {
     private static final Logger LOG = new Logger(LicenseHtmlGeneratorFromXml.class);
@@ -73,23 +93,10 @@ class LicenseHtmlGeneratorFromXml {
     private static final String HTML_REAR_STRING =
             "</table></body></html>";
 
-    private final List<File> mXmlFiles;
-
-    /*
-     * A map from a file name to a content id (MD5 sum of file content) for its license.
-     * For example, "/system/priv-app/TeleService/TeleService.apk" maps to
-     * "9645f39e9db895a4aa6e02cb57294595". Here "9645f39e9db895a4aa6e02cb57294595" is a MD5 sum
-     * of the content of packages/services/Telephony/MODULE_LICENSE_APACHE2.
-     */
-    private final Map<String, String> mFileNameToContentIdMap = new HashMap();
-
-    /*
-     * A map from a content id (MD5 sum of file content) to a license file content.
-     * For example, "9645f39e9db895a4aa6e02cb57294595" maps to the content string of
-     * packages/services/Telephony/MODULE_LICENSE_APACHE2. Here "9645f39e9db895a4aa6e02cb57294595"
-     * is a MD5 sum of the file content.
-     */
-    private final Map<String, String> mContentIdToFileContentMap = new HashMap();
+    private static final int INDEX_VERSION = 1;
+    private static final String INDEX_FILE_SUFFIX = ".idx";
+    private static final String BODIES_FILE_SUFFIX = ".bodies";
+    private static final int COPY_BUFFER_SIZE = 8192;
 
     static class ContentIdAndFileNames {
         final String mContentId;
@@ -100,74 +107,133 @@ class LicenseHtmlGeneratorFromXml {
         }
     }
 
-    private LicenseHtmlGeneratorFromXml(List<File> xmlFiles) {
-        mXmlFiles = xmlFiles;
-    }
+    /** Location of a license body within the bodies file of a {@link SourceIndex}. */
+    static class BodyRange {
+        final long mOffset;
+        final long mLength;
 
-    public static boolean generateHtml(List<File> xmlFiles, File outputFile) {
-        LicenseHtmlGeneratorFromXml genertor = new LicenseHtmlGeneratorFromXml(xmlFiles);
-        return genertor.generateHtml(outputFile);
+        BodyRange(long offset, long length) {
+            mOffset = offset;
+            mLength = length;
+        }
     }
 
-    private boolean generateHtml(File outputFile) {
-        for (File xmlFile : mXmlFiles) {
-            parse(xmlFile);
+    /** The result of the first pass over a single xml file. */
+    static class SourceIndex {
+        final File mBodiesFile;
+
+        /*
+         * A map from a file name to a content id (MD5 sum of file content) for its license.
+         * For example, "/system/priv-app/TeleService/TeleService.apk" maps to
+         * "9645f39e9db895a4aa6e02cb57294595". Here "9645f39e9db895a4aa6e02cb57294595" is a MD5 sum
+         * of the content of packages/services/Telephony/MODULE_LICENSE_APACHE2.
+         */
+        final Map<String, String> mFileNameToContentIdMap = new HashMap<>();
+
+        /*
+         * A map from a content id (MD5 sum of file content) to the location of the license file
+         * content in mBodiesFile.
+         */
+        final Map<String, BodyRange> mContentIdToBodyRangeMap = new HashMap<>();
+
+        SourceIndex(File bodiesFile) {
+            mBodiesFile = bodiesFile;
         }
+    }
 
-        if (mFileNameToContentIdMap.isEmpty() || mContentIdToFileContentMap.isEmpty()) {
-            return false;
-        }
+    private LicenseHtmlGeneratorFromXml() {
+    }
 
-        PrintWriter writer = null;
+    /** Generates the html from the given xml files, without keeping any index around. */
+    public static boolean generateHtml(List<File> xmlFiles, File outputFile) {
+        File indexDir = new File(outputFile.getParentFile(), outputFile.getName() + ".index");
         try {
-            writer = new PrintWriter(outputFile);
+            return generateHtml(xmlFiles, outputFile, indexDir);
+        } finally {
+            deleteIndexFiles(indexDir, Collections.emptySet());
+            indexDir.delete();
+        }
+    }
 
-            generateHtml(mFileNameToContentIdMap, mContentIdToFileContentMap, writer);
+    /**
+     * Generates the html from the given xml files. Per-source indexes are kept in {@code indexDir}
+     * and are only rebuilt for xml files which changed since the index was written.
+     */
+    public static boolean generateHtml(List<File> xmlFiles, File outputFile, File indexDir) {
+        if (!indexDir.isDirectory() && !indexDir.mkdirs()) {
+            LOG.e("Failed to create " + indexDir);
+            return false;
+        }
 
-            writer.flush();
-            writer.close();
-            return true;
-        } catch (FileNotFoundException | SecurityException e) {
-            LOG.e("Failed to generate " + outputFile, e);
+        Set<String> indexFileNames = new HashSet<>();
+        List<SourceIndex> sourceIndexes = new ArrayList<>();
+        for (File xmlFile : xmlFiles) {
+            if (xmlFile == null || !xmlFile.exists() || xmlFile.length() == 0) {
+                continue;
+            }
+            String baseName = getIndexBaseName(xmlFile);
+            indexFileNames.add(baseName + INDEX_FILE_SUFFIX);
+            indexFileNames.add(baseName + BODIES_FILE_SUFFIX);
 
-            if (writer != null) {
-                writer.close();
+            SourceIndex sourceIndex = getOrBuildIndex(xmlFile, indexDir, baseName);
+            if (sourceIndex != null) {
+                sourceIndexes.add(sourceIndex);
             }
-            return false;
         }
+        // Drop indexes of xml files which no longer exist.
+        deleteIndexFiles(indexDir, indexFileNames);
+
+        return writeHtml(sourceIndexes, outputFile);
     }
 
-    private void parse(File xmlFile) {
-        if (xmlFile == null || !xmlFile.exists() || xmlFile.length() == 0) {
-            return;
+    /**
+     * Returns the index for the given xml file, reusing the one stored in {@code indexDir} if it
+     * was built from the current version of the file.
+     */
+    @Nullable
+    private static SourceIndex getOrBuildIndex(File xmlFile, File indexDir, String baseName) {
+        File indexFile = new File(indexDir, baseName + INDEX_FILE_SUFFIX);
+        File bodiesFile = new File(indexDir, baseName + BODIES_FILE_SUFFIX);
+        SourceIndex sourceIndex = readIndex(xmlFile, indexFile, bodiesFile);
+        if (sourceIndex != null) {
+            return sourceIndex;
         }
 
-        InputStreamReader in = null;
-        try {
-            if (xmlFile.getName().endsWith(".gz")) {
-                in = new InputStreamReader(new GZIPInputStream(new FileInputStream(xmlFile)));
-            } else {
-                in = new FileReader(xmlFile);
-            }
-
-            parse(in, mFileNameToContentIdMap, mContentIdToFileContentMap);
+        LOG.d("Indexing " + xmlFile);
+        sourceIndex = buildIndex(xmlFile, bodiesFile);
+        if (sourceIndex == null || !writeIndex(xmlFile, sourceIndex, indexFile)) {
+            indexFile.delete();
+            bodiesFile.delete();
+        }
+        return sourceIndex;
+    }
 
-            in.close();
+    /** First pass: spools the license bodies of a single xml file and indexes them. */
+    @Nullable
+    private static SourceIndex buildIndex(File xmlFile, File bodiesFile) {
+        SourceIndex sourceIndex = new SourceIndex(bodiesFile);
+        try (InputStreamReader in = openXml(xmlFile);
+                OutputStream bodiesOut = new BufferedOutputStream(
+                        new FileOutputStream(bodiesFile))) {
+            parse(in, sourceIndex, bodiesOut);
+            return sourceIndex;
         } catch (XmlPullParserException | IOException e) {
             LOG.e("Failed to parse " + xmlFile, e);
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (IOException ie) {
-                    LOG.w("Failed to close " + xmlFile);
-                }
-            }
+            return null;
+        }
+    }
+
+    private static InputStreamReader openXml(File xmlFile) throws IOException {
+        if (xmlFile.getName().endsWith(".gz")) {
+            return new InputStreamReader(new GZIPInputStream(new FileInputStream(xmlFile)),
+                    StandardCharsets.UTF_8);
         }
+        return new InputStreamReader(new FileInputStream(xmlFile), StandardCharsets.UTF_8);
     }
 
     /*
-     * Parses an input stream and fills a map from a file name to a content id for its license
-     * and a map from a content id to a license file content.
+     * Parses an input stream, fills a map from a file name to a content id for its license and
+     * writes each distinct license file content to bodiesOut, recording where it was written.
      *
      * Following xml format is expected from the input stream.
      *
@@ -180,18 +246,15 @@ class LicenseHtmlGeneratorFromXml {
      *     ...
      *     </licenses>
      */
-    private static void parse(InputStreamReader in, Map<String, String> outFileNameToContentIdMap,
-            Map<String, String> outContentIdToFileContentMap)
-            throws XmlPullParserException, IOException {
-        Map<String, String> fileNameToContentIdMap = new HashMap<String, String>();
-        Map<String, String> contentIdToFileContentMap = new HashMap<String, String>();
-
+    private static void parse(InputStreamReader in, SourceIndex outSourceIndex,
+            OutputStream bodiesOut) throws XmlPullParserException, IOException {
         XmlPullParser parser = Xml.newPullParser();
         parser.setInput(in);
         parser.nextTag();
 
         parser.require(XmlPullParser.START_TAG, "", TAG_ROOT);
 
+        long offset = 0;
         int state = parser.getEventType();
         while (state != XmlPullParser.END_DOCUMENT) {
             if (state == XmlPullParser.START_TAG) {
@@ -200,17 +263,18 @@ class LicenseHtmlGeneratorFromXml {
                     if (!TextUtils.isEmpty(contentId)) {
                         String fileName = readText(parser).trim();
                         if (!TextUtils.isEmpty(fileName)) {
-                            fileNameToContentIdMap.put(fileName, contentId);
+                            outSourceIndex.mFileNameToContentIdMap.put(fileName, contentId);
                         }
                     }
                 } else if (TAG_FILE_CONTENT.equals(parser.getName())) {
                     String contentId = parser.getAttributeValue("", ATTR_CONTENT_ID);
                     if (!TextUtils.isEmpty(contentId)
-                            && !outContentIdToFileContentMap.containsKey(contentId)
-                            && !contentIdToFileContentMap.containsKey(contentId)) {
-                        String fileContent = readText(parser);
-                        if (!TextUtils.isEmpty(fileContent)) {
-                            contentIdToFileContentMap.put(contentId, fileContent);
+                            && !outSourceIndex.mContentIdToBodyRangeMap.containsKey(contentId)) {
+                        long length = writeText(parser, bodiesOut);
+                        if (length > 0) {
+                            outSourceIndex.mContentIdToBodyRangeMap.put(contentId,
+                                    new BodyRange(offset, length));
+                            offset += length;
                         }
                     }
                 }
@@ -218,13 +282,11 @@ class LicenseHtmlGeneratorFromXml {
 
             state = parser.next();
         }
-        outFileNameToContentIdMap.putAll(fileNameToContentIdMap);
-        outContentIdToFileContentMap.putAll(contentIdToFileContentMap);
     }
 
     private static String readText(XmlPullParser parser)
             throws IOException, XmlPullParserException {
-        StringBuffer result = new StringBuffer();
+        StringBuilder result = new StringBuilder();
         int state = parser.next();
         while (state == XmlPullParser.TEXT) {
             result.append(parser.getText());
@@ -233,8 +295,126 @@ class LicenseHtmlGeneratorFromXml {
         return result.toString();
     }
 
+    /** Streams the text of the current element to {@code out} and returns its length in bytes. */
+    private static long writeText(XmlPullParser parser, OutputStream out)
+            throws IOException, XmlPullParserException {
+        long length = 0;
+        int state = parser.next();
+        while (state == XmlPullParser.TEXT) {
+            byte[] bytes = parser.getText().getBytes(StandardCharsets.UTF_8);
+            out.write(bytes);
+            length += bytes.length;
+            state = parser.next();
+        }
+        return length;
+    }
+
+    /**
+     * Reads the index stored for the given xml file. Returns {@code null} if there is none, or if
+     * it was built from a different version of the file.
+     */
+    @Nullable
+    private static SourceIndex readIndex(File xmlFile, File indexFile, File bodiesFile) {
+        if (!indexFile.exists() || !bodiesFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_VERSION
+                    || !xmlFile.getAbsolutePath().equals(in.readUTF())
+                    || in.readLong() != xmlFile.lastModified()
+                    || in.readLong() != xmlFile.length()
+                    || in.readLong() != bodiesFile.length()) {
+                return null;
+            }
+            SourceIndex sourceIndex = new SourceIndex(bodiesFile);
+            int fileNameCount = in.readInt();
+            for (int i = 0; i < fileNameCount; i++) {
+                sourceIndex.mFileNameToContentIdMap.put(in.readUTF(), in.readUTF());
+            }
+            int contentCount = in.readInt();
+            for (int i = 0; i < contentCount; i++) {
+                sourceIndex.mContentIdToBodyRangeMap.put(in.readUTF(),
+                        new BodyRange(in.readLong(), in.readLong()));
+            }
+            return sourceIndex;
+        } catch (IOException e) {
+            LOG.w("Discarding unreadable index " + indexFile);
+            return null;
+        }
+    }
+
+    private static boolean writeIndex(File xmlFile, SourceIndex sourceIndex, File indexFile) {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+            out.writeInt(INDEX_VERSION);
+            out.writeUTF(xmlFile.getAbsolutePath());
+            out.writeLong(xmlFile.lastModified());
+            out.writeLong(xmlFile.length());
+            out.writeLong(sourceIndex.mBodiesFile.length());
+            out.writeInt(sourceIndex.mFileNameToContentIdMap.size());
+            for (Map.Entry<String, String> entry :
+                    sourceIndex.mFileNameToContentIdMap.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+            out.writeInt(sourceIndex.mContentIdToBodyRangeMap.size());
+            for (Map.Entry<String, BodyRange> entry :
+                    sourceIndex.mContentIdToBodyRangeMap.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().mOffset);
+                out.writeLong(entry.getValue().mLength);
+            }
+            return true;
+        } catch (IOException e) {
+            LOG.e("Failed to write " + indexFile, e);
+            return false;
+        }
+    }
+
+    /** Second pass: writes the html, streaming license bodies from the sources' bodies files. */
+    private static boolean writeHtml(List<SourceIndex> sourceIndexes, File outputFile) {
+        // As when the xml files are parsed in order, later file names override earlier ones while
+        // the first content seen for a content id wins.
+        Map<String, String> fileNameToContentIdMap = new HashMap<>();
+        Map<String, SourceIndex> contentIdToSourceMap = new HashMap<>();
+        for (SourceIndex sourceIndex : sourceIndexes) {
+            fileNameToContentIdMap.putAll(sourceIndex.mFileNameToContentIdMap);
+            for (String contentId : sourceIndex.mContentIdToBodyRangeMap.keySet()) {
+                contentIdToSourceMap.putIfAbsent(contentId, sourceIndex);
+            }
+        }
+
+        if (fileNameToContentIdMap.isEmpty() || contentIdToSourceMap.isEmpty()) {
+            return false;
+        }
+
+        Map<SourceIndex, RandomAccessFile> openBodiesFiles = new HashMap<>();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            PrintWriter writer = new PrintWriter(
+                    new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            generateHtml(fileNameToContentIdMap, contentIdToSourceMap, openBodiesFiles, writer,
+                    out);
+            writer.flush();
+            return !writer.checkError();
+        } catch (IOException | SecurityException e) {
+            LOG.e("Failed to generate " + outputFile, e);
+            return false;
+        } finally {
+            for (RandomAccessFile bodiesFile : openBodiesFiles.values()) {
+                try {
+                    bodiesFile.close();
+                } catch (IOException e) {
+                    LOG.w("Failed to close bodies file");
+                }
+            }
+        }
+    }
+
     private static void generateHtml(Map<String, String> fileNameToContentIdMap,
-            Map<String, String> contentIdToFileContentMap, PrintWriter writer) {
+            Map<String, SourceIndex> contentIdToSourceMap,
+            Map<SourceIndex, RandomAccessFile> openBodiesFiles, PrintWriter writer,
+            OutputStream out) throws IOException {
         List<String> fileNameList = new ArrayList();
         fileNameList.addAll(fileNameToContentIdMap.keySet());
         Collections.sort(fileNameList);
@@ -264,6 +444,7 @@ class LicenseHtmlGeneratorFromXml {
 
         writer.println(HTML_MIDDLE_STRING);
 
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
         count = 0;
         // Prints all contents of the license files in order of id.
         for (ContentIdAndFileNames contentIdAndFileNames : contentIdAndFileNamesList) {
@@ -275,8 +456,14 @@ class LicenseHtmlGeneratorFromXml {
             }
             writer.println("</div><!-- file-list -->");
             writer.println("<pre class=\"license-text\">");
-            writer.println(contentIdToFileContentMap.get(
-                    contentIdAndFileNames.mContentId));
+            SourceIndex sourceIndex = contentIdToSourceMap.get(contentIdAndFileNames.mContentId);
+            if (sourceIndex != null) {
+                // Bodies are written as raw bytes, so everything before must reach the stream.
+                writer.flush();
+                copyBody(sourceIndex, contentIdAndFileNames.mContentId, openBodiesFiles, out,
+                        buffer);
+            }
+            writer.println();
             writer.println("</pre><!-- license-text -->");
             writer.println("</td></tr><!-- same-license -->");
 
@@ -285,4 +472,42 @@ class LicenseHtmlGeneratorFromXml {
 
         writer.println(HTML_REAR_STRING);
     }
+
+    private static void copyBody(SourceIndex sourceIndex, String contentId,
+            Map<SourceIndex, RandomAccessFile> openBodiesFiles, OutputStream out, byte[] buffer)
+            throws IOException {
+        RandomAccessFile bodiesFile = openBodiesFiles.get(sourceIndex);
+        if (bodiesFile == null) {
+            bodiesFile = new RandomAccessFile(sourceIndex.mBodiesFile, "r");
+            openBodiesFiles.put(sourceIndex, bodiesFile);
+        }
+        BodyRange range = sourceIndex.mContentIdToBodyRangeMap.get(contentId);
+        bodiesFile.seek(range.mOffset);
+        long remaining = range.mLength;
+        while (remaining > 0) {
+            int read = bodiesFile.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new IOException("Unexpected end of " + sourceIndex.mBodiesFile);
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    @VisibleForTesting
+    static String getIndexBaseName(File xmlFile) {
+        return xmlFile.getAbsolutePath().replace(File.separatorChar, '_');
+    }
+
+    private static void deleteIndexFiles(File indexDir, Set<String> keepFileNames) {
+        File[] files = indexDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!keepFileNames.contains(file.getName())) {
+                file.delete();
+            }
+        }
+    }
 }
@@ -37,6 +37,8 @@ public class LicenseHtmlLoader extends AsyncLoader<File> {
             "/odm/etc/NOTICE.xml.gz",
             "/oem/etc/NOTICE.xml.gz"};
     private static final String NOTICE_HTML_FILE_NAME = "NOTICE.html";
+    // Per-source indexes kept so that only the changed xml files are parsed on regeneration.
+    private static final String NOTICE_INDEX_DIR_NAME = "notice_index";
 
     private final Context mContext;
 
@@ -96,7 +98,8 @@ public class LicenseHtmlLoader extends AsyncLoader<File> {
     }
 
     private boolean generateHtmlFile(List<File> xmlFiles, File htmlFile) {
-        return LicenseHtmlGeneratorFromXml.generateHtml(xmlFiles, htmlFile);
+        return LicenseHtmlGeneratorFromXml.generateHtml(xmlFiles, htmlFile,
+                new File(mContext.getCacheDir(), NOTICE_INDEX_DIR_NAME));
     }
 }
 
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.system;
+
+import android.os.SystemClock;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.StringRes;
+import androidx.annotation.WorkerThread;
+
+import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.SettingsExecutor;
+import com.android.car.settings.common.SettingsTracer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the subsystem resets of a network reset as timed steps on the {@link SettingsExecutor}.
+ *
+ * <p>Steps are grouped in stages. The steps of a stage are independent of each other and run
+ * concurrently, while stages run one after the other. A step fails if it returns {@code false} or
+ * throws, in which case the remaining steps still run. Progress is reported to the {@link
+ * Listener} on the main thread.
+ */
+public class NetworkResetPipeline {
+
+    private static final Logger LOG = new Logger(NetworkResetPipeline.class);
+    private static final String TRACE_SCREEN = "ResetNetworkConfirmFragment";
+
+    /** Receives the progress of a pipeline. Called on the main thread. */
+    public interface Listener {
+        /** Called when a step is started. */
+        void onStepStarted(Step step);
+
+        /** Called when a step is finished, whether it succeeded or not. */
+        void onStepFinished(StepResult result);
+
+        /** Called once every step is finished, with the results in order of completion. */
+        void onPipelineFinished(List<StepResult> results);
+    }
+
+    /** A subsystem reset. */
+    public static final class Step {
+        final String mName;
+        @StringRes
+        final int mTitle;
+        private final BooleanSupplier mAction;
+        private final SettingsTracer.Span mSpan;
+
+        /**
+         * @param name   identifies the step in logs and traces.
+         * @param title  shown to the user while the step runs.
+         * @param action performs the reset on a background thread and returns whether it
+         *               succeeded.
+         */
+        public Step(String name, @StringRes int title, BooleanSupplier action) {
+            mName = name;
+            mTitle = title;
+            mAction = action;
+            mSpan = new SettingsTracer.Span(TRACE_SCREEN, "NetworkReset", name);
+        }
+    }
+
+    /** Outcome of a step. */
+    public static final class StepResult {
+        public final Step mStep;
+        public final boolean mSucceeded;
+        public final long mDurationMillis;
+
+        StepResult(Step step, boolean succeeded, long durationMillis) {
+            mStep = step;
+            mSucceeded = succeeded;
+            mDurationMillis = durationMillis;
+        }
+    }
+
+    private final List<List<Step>> mStages = new ArrayList<>();
+    private final List<StepResult> mResults = new ArrayList<>();
+    private final Listener mListener;
+    private int mCurrentStage = -1;
+    private int mPendingSteps;
+
+    public NetworkResetPipeline(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Adds a stage of steps which may run concurrently, after the previously added stages. {@code
+     * null} steps, e.g. of subsystems missing on the device, are skipped.
+     */
+    public NetworkResetPipeline addStage(Step... steps) {
+        List<Step> stage = new ArrayList<>();
+        for (Step step : steps) {
+            if (step != null) {
+                stage.add(step);
+            }
+        }
+        mStages.add(stage);
+        return this;
+    }
+
+    /** Returns every step of the pipeline, in stage order. */
+    public List<Step> getSteps() {
+        List<Step> steps = new ArrayList<>();
+        for (List<Step> stage : mStages) {
+            steps.addAll(stage);
+        }
+        return steps;
+    }
+
+    /** Starts running the stages. Must be called once. */
+    @MainThread
+    public void start() {
+        if (mCurrentStage != -1) {
+            throw new IllegalStateException("Pipeline already started");
+        }
+        runNextStage();
+    }
+
+    @MainThread
+    private void runNextStage() {
+        // Skip empty stages.
+        do {
+            mCurrentStage++;
+        } while (mCurrentStage < mStages.size() && mStages.get(mCurrentStage).isEmpty());
+        if (mCurrentStage == mStages.size()) {
+            mListener.onPipelineFinished(Collections.unmodifiableList(mResults));
+            return;
+        }
+        List<Step> stage = mStages.get(mCurrentStage);
+        mPendingSteps = stage.size();
+        for (Step step : stage) {
+            mListener.onStepStarted(step);
+            SettingsExecutor.getInstance().execute(SettingsExecutor.PRIORITY_INTERACTIVE,
+                    () -> runStep(step), this::onStepFinished);
+        }
+    }
+
+    @MainThread
+    private void onStepFinished(StepResult result) {
+        mResults.add(result);
+        mListener.onStepFinished(result);
+        if (--mPendingSteps == 0) {
+            runNextStage();
+        }
+    }
+
+    @WorkerThread
+    private static StepResult runStep(Step step) {
+        long start = SystemClock.elapsedRealtime();
+        long token = SettingsTracer.begin(step.mSpan);
+        boolean succeeded;
+        try {
+            succeeded = step.mAction.getAsBoolean();
+        } catch (RuntimeException e) {
+            LOG.w("Network reset step " + step.mName + " failed", e);
+            succeeded = false;
+        } finally {
+            SettingsTracer.end(step.mSpan, token);
+        }
+        long durationMillis = SystemClock.elapsedRealtime() - start;
+        LOG.d("Network reset step " + step.mName + (succeeded ? " succeeded" : " failed")
+                + " in " + durationMillis + "ms");
+        return new StepResult(step, succeeded, durationMillis);
+    }
+}
@@ -20,26 +20,29 @@ import android.app.AppOpsManager;
 import android.app.INotificationManager;
 import android.car.userlib.CarUserManagerHelper;
 import android.content.Context;
-import android.content.pm.ApplicationInfo;
 import android.content.pm.IPackageManager;
-import android.content.pm.PackageManager;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.IBinder;
 import android.os.RemoteException;
 import android.os.ServiceManager;
 import android.widget.Toast;
 
+import androidx.annotation.WorkerThread;
 import androidx.annotation.XmlRes;
 
 import com.android.car.settings.R;
 import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.ProgressBarPreference;
+import com.android.car.settings.common.SettingsExecutor;
 import com.android.car.settings.common.SettingsFragment;
 import com.android.car.ui.toolbar.MenuItem;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.lang.ref.WeakReference;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Presents the user with information about resetting app preferences.
@@ -47,8 +50,11 @@ import java.util.List;
 public class ResetAppPrefFragment extends SettingsFragment {
 
     private static final Logger LOG = new Logger(ResetAppPrefFragment.class);
+    // Bounds the number of batches of package manager and notification manager calls in flight.
+    private static final int MAX_PARALLEL_BATCHES = 4;
 
     private MenuItem mResetButton;
+    private boolean mResetting;
 
     @Override
     @XmlRes
@@ -72,86 +78,80 @@ public class ResetAppPrefFragment extends SettingsFragment {
     }
 
     private void resetAppPreferences() {
-        new ResetTask(requireContext().getApplicationContext()).execute();
-    }
-
-    private static class ResetTask extends AsyncTask<Void, Void, Void> {
-
-        private final WeakReference<Context> mContext;
-
-        ResetTask(Context context) {
-            mContext = new WeakReference<>(context);
+        if (mResetting) {
+            return;
         }
-
-        @Override
-        protected Void doInBackground(Void... unused) {
-            Context context = mContext.get();
-            if (context == null) {
-                LOG.w("Unable to reset app preferences. Null context");
-                return null;
-            }
-            PackageManager packageManager = context.getPackageManager();
-            IBinder notificationManagerServiceBinder = ServiceManager.getService(
-                    Context.NOTIFICATION_SERVICE);
-            if (notificationManagerServiceBinder == null) {
-                LOG.w("Unable to reset app preferences. Null notification manager service");
-                return null;
-            }
-            INotificationManager notificationManagerService =
-                    INotificationManager.Stub.asInterface(notificationManagerServiceBinder);
-
-            // Reset app notifications.
-            // Reset disabled apps.
-            List<ApplicationInfo> apps = packageManager.getInstalledApplications(
-                    PackageManager.MATCH_DISABLED_COMPONENTS);
-            for (ApplicationInfo app : apps) {
-                try {
-                    notificationManagerService.setNotificationsEnabledForPackage(
-                            app.packageName,
-                            app.uid, true);
-                } catch (RemoteException e) {
-                    LOG.w("Unable to reset notification preferences for app: " + app.name, e);
-                }
-                if (!app.enabled) {
-                    if (packageManager.getApplicationEnabledSetting(app.packageName)
-                            == PackageManager.COMPONENT_ENABLED_STATE_DISABLED_USER) {
-                        packageManager.setApplicationEnabledSetting(app.packageName,
-                                PackageManager.COMPONENT_ENABLED_STATE_DEFAULT,
-                                PackageManager.DONT_KILL_APP);
+        mResetting = true;
+        ProgressBarPreference progressPreference = findPreference(
+                getString(R.string.pk_reset_app_pref_progress));
+        progressPreference.setProgress(0);
+        progressPreference.setVisible(true);
+
+        Context context = requireContext().getApplicationContext();
+        // Progress is reported from the batch threads and may outlive the fragment.
+        WeakReference<ProgressBarPreference> progressRef = new WeakReference<>(
+                progressPreference);
+        AppPreferencesResetter.ProgressListener listener = (completed, total) ->
+                ThreadUtils.postOnMainThread(() -> {
+                    ProgressBarPreference pref = progressRef.get();
+                    if (pref != null && total > 0) {
+                        pref.setMax(total);
+                        pref.setProgress(completed);
                     }
-                }
-            }
-
-            // Reset default applications for actions.
-            // Reset background data restrictions for apps.
-            // Reset permission restrictions.
-            try {
-                IBinder packageManagerServiceBinder = ServiceManager.getService("package");
-                if (packageManagerServiceBinder == null) {
-                    LOG.w("Unable to reset app preferences. Null package manager service");
-                    return null;
-                }
-                IPackageManager.Stub.asInterface(
-                        packageManagerServiceBinder).resetApplicationPreferences(
-                        new CarUserManagerHelper(context).getCurrentForegroundUserId());
-            } catch (RemoteException e) {
-                LOG.w("Unable to reset app preferences", e);
-            }
-
-            // Cleanup.
-            ((AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE)).resetAllModes();
+                });
+        SettingsExecutor.getInstance().execute(SettingsExecutor.PRIORITY_INTERACTIVE,
+                () -> resetAll(context, listener), unused -> {
+                    mResetting = false;
+                    ProgressBarPreference pref = progressRef.get();
+                    if (pref != null) {
+                        pref.setVisible(false);
+                    }
+                    Toast.makeText(context, R.string.reset_app_pref_complete_toast,
+                            Toast.LENGTH_SHORT).show();
+                });
+    }
 
+    @WorkerThread
+    private static Void resetAll(Context context,
+            AppPreferencesResetter.ProgressListener listener) {
+        IBinder notificationManagerServiceBinder = ServiceManager.getService(
+                Context.NOTIFICATION_SERVICE);
+        if (notificationManagerServiceBinder == null) {
+            LOG.w("Unable to reset app preferences. Null notification manager service");
             return null;
         }
+        INotificationManager notificationManagerService =
+                INotificationManager.Stub.asInterface(notificationManagerServiceBinder);
+
+        // Reset app notifications.
+        // Reset disabled apps.
+        ExecutorService batchExecutor = Executors.newFixedThreadPool(MAX_PARALLEL_BATCHES);
+        try {
+            new AppPreferencesResetter(context.getPackageManager(), notificationManagerService,
+                    batchExecutor).reset(listener);
+        } finally {
+            batchExecutor.shutdown();
+        }
 
-        @Override
-        protected void onPostExecute(Void unused) {
-            super.onPostExecute(unused);
-            Context context = mContext.get();
-            if (context != null) {
-                Toast.makeText(context, R.string.reset_app_pref_complete_toast,
-                        Toast.LENGTH_SHORT).show();
+        // Reset default applications for actions.
+        // Reset background data restrictions for apps.
+        // Reset permission restrictions.
+        try {
+            IBinder packageManagerServiceBinder = ServiceManager.getService("package");
+            if (packageManagerServiceBinder == null) {
+                LOG.w("Unable to reset app preferences. Null package manager service");
+                return null;
             }
+            IPackageManager.Stub.asInterface(
+                    packageManagerServiceBinder).resetApplicationPreferences(
+                    new CarUserManagerHelper(context).getCurrentForegroundUserId());
+        } catch (RemoteException e) {
+            LOG.w("Unable to reset app preferences", e);
         }
+
+        // Cleanup.
+        ((AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE)).resetAllModes();
+
+        return null;
     }
 }
@@ -26,7 +26,6 @@ import android.net.ConnectivityManager;
 import android.net.NetworkPolicyManager;
 import android.net.Uri;
 import android.net.wifi.WifiManager;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.RecoverySystem;
 import android.provider.Telephony;
@@ -35,18 +34,23 @@ import android.telephony.TelephonyManager;
 import android.text.TextUtils;
 import android.widget.Toast;
 
+import androidx.annotation.StringRes;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.XmlRes;
-import androidx.fragment.app.Fragment;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceCategory;
 import androidx.preference.PreferenceManager;
 
 import com.android.car.settings.R;
 import com.android.car.settings.common.ErrorDialog;
 import com.android.car.settings.common.SettingsFragment;
+import com.android.car.ui.preference.CarUiPreference;
 import com.android.car.ui.toolbar.MenuItem;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Final warning presented to user to confirm restoring network settings to the factory default.
@@ -57,8 +61,14 @@ public class ResetNetworkConfirmFragment extends SettingsFragment {
     // Copied from com.android.settings.network.ApnSettings.
     @VisibleForTesting
     static final String RESTORE_CARRIERS_URI = "content://telephony/carriers/restore";
+    private static final String ESIM_STEP_NAME = "esim";
 
+    private final Map<NetworkResetPipeline.Step, Preference> mStepPreferences = new HashMap<>();
     private MenuItem mResetButton;
+    private NetworkResetPipeline mPipeline;
+    // Title of an error dialog held back because the pipeline finished while not resumed.
+    @StringRes
+    private int mPendingErrorTitle;
 
     @Override
     @XmlRes
@@ -81,60 +91,167 @@ public class ResetNetworkConfirmFragment extends SettingsFragment {
                 .build();
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        if (mPendingErrorTitle != 0) {
+            ErrorDialog.show(this, mPendingErrorTitle);
+            mPendingErrorTitle = 0;
+        }
+    }
+
     private void resetNetwork() {
-        if (ActivityManager.isUserAMonkey()) {
+        if (ActivityManager.isUserAMonkey() || mPipeline != null) {
             return;
         }
 
         Context context = requireActivity().getApplicationContext();
+        int networkSubscriptionId = getNetworkSubscriptionId();
 
         ConnectivityManager connectivityManager = (ConnectivityManager)
                 context.getSystemService(Context.CONNECTIVITY_SERVICE);
-        if (connectivityManager != null) {
-            connectivityManager.factoryReset();
-        }
-
         WifiManager wifiManager = (WifiManager)
                 context.getSystemService(Context.WIFI_SERVICE);
-        if (wifiManager != null) {
-            wifiManager.factoryReset();
-        }
-
         BluetoothManager btManager = (BluetoothManager)
                 context.getSystemService(Context.BLUETOOTH_SERVICE);
-        if (btManager != null) {
-            BluetoothAdapter btAdapter = btManager.getAdapter();
-            if (btAdapter != null) {
-                btAdapter.factoryReset();
-            }
-        }
-
-        int networkSubscriptionId = getNetworkSubscriptionId();
         TelephonyManager telephonyManager = (TelephonyManager)
                 context.getSystemService(Context.TELEPHONY_SERVICE);
-        if (telephonyManager != null) {
-            telephonyManager.factoryReset(networkSubscriptionId);
-        }
-
         NetworkPolicyManager policyManager = (NetworkPolicyManager)
                 context.getSystemService(Context.NETWORK_POLICY_SERVICE);
-        if (policyManager != null) {
-            String subscriberId = telephonyManager.getSubscriberId(networkSubscriptionId);
-            policyManager.factoryReset(subscriberId);
+
+        mPipeline = new NetworkResetPipeline(createPipelineListener(context));
+        // The subsystem resets are not independent of each other, e.g. the connectivity reset
+        // untethers Wi-Fi and Bluetooth. Each one gets its own stage so that they keep running one
+        // after the other, in their original order.
+        mPipeline.addStage(connectivityManager == null ? null : new NetworkResetPipeline.Step(
+                "connectivity", R.string.reset_network_step_connectivity, () -> {
+                    connectivityManager.factoryReset();
+                    return true;
+                }));
+        mPipeline.addStage(wifiManager == null ? null : new NetworkResetPipeline.Step(
+                "wifi", R.string.reset_network_step_wifi, () -> {
+                    wifiManager.factoryReset();
+                    return true;
+                }));
+        mPipeline.addStage(btManager == null ? null : new NetworkResetPipeline.Step(
+                "bluetooth", R.string.reset_network_step_bluetooth, () -> {
+                    BluetoothAdapter btAdapter = btManager.getAdapter();
+                    return btAdapter == null || btAdapter.factoryReset();
+                }));
+        mPipeline.addStage(telephonyManager == null ? null : new NetworkResetPipeline.Step(
+                "telephony", R.string.reset_network_step_mobile, () -> {
+                    telephonyManager.factoryReset(networkSubscriptionId);
+                    return true;
+                }));
+        // Policies and APNs are restored once the mobile network has been reset. These steps
+        // write separate stores (the policy service, the carriers table and the raw SMS table)
+        // and none of them depends on another, so they run concurrently.
+        mPipeline.addStage(
+                policyManager == null ? null : new NetworkResetPipeline.Step(
+                        "networkPolicy", R.string.reset_network_step_data_usage, () -> {
+                            String subscriberId = telephonyManager == null ? null
+                                    : telephonyManager.getSubscriberId(networkSubscriptionId);
+                            policyManager.factoryReset(subscriberId);
+                            return true;
+                        }),
+                new NetworkResetPipeline.Step("apn", R.string.reset_network_step_apn, () -> {
+                    restoreDefaultApn(context, networkSubscriptionId);
+                    return true;
+                }),
+                // There has been issues when Sms raw table somehow stores orphan
+                // fragments. They lead to garbled message when new fragments come
+                // in and combined with those stale ones. In case this happens again,
+                // user can reset all network settings which will clean up this table.
+                new NetworkResetPipeline.Step("smsRawTable", R.string.reset_network_step_sms,
+                        () -> {
+                            cleanUpSmsRawTable(context);
+                            return true;
+                        }));
+        if (shouldResetEsim()) {
+            mPipeline.addStage(new NetworkResetPipeline.Step(ESIM_STEP_NAME,
+                    R.string.reset_network_step_esim,
+                    () -> RecoverySystem.wipeEuiccData(context, context.getPackageName())));
+        }
+
+        showSteps(mPipeline.getSteps());
+        mPipeline.start();
+    }
+
+    private void showSteps(List<NetworkResetPipeline.Step> steps) {
+        PreferenceCategory stepsCategory = findPreference(
+                getString(R.string.pk_reset_network_steps));
+        stepsCategory.removeAll();
+        mStepPreferences.clear();
+        for (NetworkResetPipeline.Step step : steps) {
+            CarUiPreference preference = new CarUiPreference(requireContext());
+            preference.setTitle(step.mTitle);
+            preference.setSummary(R.string.reset_network_step_pending);
+            preference.setSelectable(false);
+            stepsCategory.addPreference(preference);
+            mStepPreferences.put(step, preference);
         }
+        stepsCategory.setVisible(true);
+    }
+
+    private NetworkResetPipeline.Listener createPipelineListener(Context appContext) {
+        return new NetworkResetPipeline.Listener() {
+            @Override
+            public void onStepStarted(NetworkResetPipeline.Step step) {
+                Preference preference = mStepPreferences.get(step);
+                if (preference != null) {
+                    preference.setSummary(R.string.reset_network_step_running);
+                }
+            }
 
-        restoreDefaultApn(context, networkSubscriptionId);
+            @Override
+            public void onStepFinished(NetworkResetPipeline.StepResult result) {
+                Preference preference = mStepPreferences.get(result.mStep);
+                if (preference == null || !isAdded()) {
+                    return;
+                }
+                preference.setSummary(result.mSucceeded
+                        ? getString(R.string.reset_network_step_done,
+                                result.mDurationMillis)
+                        : getString(R.string.reset_network_step_failed));
+            }
 
-        // There has been issues when Sms raw table somehow stores orphan
-        // fragments. They lead to garbled message when new fragments come
-        // in and combined with those stale ones. In case this happens again,
-        // user can reset all network settings which will clean up this table.
-        cleanUpSmsRawTable(context);
+            @Override
+            public void onPipelineFinished(List<NetworkResetPipeline.StepResult> results) {
+                mPipeline = null;
+                boolean esimFailed = false;
+                boolean otherStepFailed = false;
+                for (NetworkResetPipeline.StepResult result : results) {
+                    if (result.mSucceeded) {
+                        continue;
+                    }
+                    if (ESIM_STEP_NAME.equals(result.mStep.mName)) {
+                        esimFailed = true;
+                    } else {
+                        otherStepFailed = true;
+                    }
+                }
+                if (!esimFailed && !otherStepFailed) {
+                    showCompletionToast(appContext);
+                } else {
+                    showError(appContext, otherStepFailed
+                            ? R.string.reset_network_error_title
+                            : R.string.reset_esim_error_title);
+                }
+            }
+        };
+    }
 
-        if (shouldResetEsim()) {
-            new EraseEsimAsyncTask(getContext(), context.getPackageName(), this).execute();
+    /**
+     * Shows the error dialog, or defers it to {@link #onResume()} if the fragment state may
+     * already be saved. Falls back to a toast once the fragment is gone.
+     */
+    private void showError(Context appContext, @StringRes int title) {
+        if (isResumed()) {
+            ErrorDialog.show(this, title);
+        } else if (isAdded() && !isRemoving()) {
+            mPendingErrorTitle = title;
         } else {
-            showCompletionToast(getContext());
+            Toast.makeText(appContext, title, Toast.LENGTH_LONG).show();
         }
     }
 
@@ -177,31 +294,4 @@ public class ResetNetworkConfirmFragment extends SettingsFragment {
         Toast.makeText(context, R.string.reset_network_complete_toast,
                 Toast.LENGTH_SHORT).show();
     }
-
-    private static class EraseEsimAsyncTask extends AsyncTask<Void, Void, Boolean> {
-
-        private final Context mContext;
-        private final String mPackageName;
-        private final Fragment mFragment;
-
-        EraseEsimAsyncTask(Context context, String packageName, Fragment parent) {
-            mContext = context;
-            mPackageName = packageName;
-            mFragment = parent;
-        }
-
-        @Override
-        protected Boolean doInBackground(Void... voids) {
-            return RecoverySystem.wipeEuiccData(mContext, mPackageName);
-        }
-
-        @Override
-        protected void onPostExecute(Boolean succeeded) {
-            if (succeeded) {
-                showCompletionToast(mContext);
-            } else {
-                ErrorDialog.show(mFragment, R.string.reset_esim_error_title);
-            }
-        }
-    }
 }
@@ -28,4 +28,18 @@ public class SystemSettingsFragment extends SettingsFragment {
     protected int getPreferenceScreenResId() {
         return R.xml.system_settings_fragment;
     }
+
+    @Override
+    protected int[] getAboveTheFoldPreferenceKeys() {
+        // Only the extra settings, which query other packages, are deferred. They are added to an
+        // empty group, so rows do not move when they load.
+        return new int[]{
+                R.string.pk_languages_and_input_settings,
+                R.string.pk_system_update_settings,
+                R.string.pk_about_settings_entry,
+                R.string.pk_legal_information_entry,
+                R.string.pk_reset_options_entry,
+                R.string.pk_developer_options_entry
+        };
+    }
 }
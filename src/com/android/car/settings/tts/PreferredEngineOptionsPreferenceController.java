@@ -16,11 +16,8 @@
 
 package com.android.car.settings.tts;
 
-import static android.provider.Settings.Secure.TTS_DEFAULT_SYNTH;
-
 import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
-import android.provider.Settings;
 import android.speech.tts.TextToSpeech;
 import android.speech.tts.TtsEngines;
 import android.text.TextUtils;
@@ -40,14 +37,14 @@ public class PreferredEngineOptionsPreferenceController extends
     private static final Logger LOG = new Logger(PreferredEngineOptionsPreferenceController.class);
 
     private final TtsEngines mEnginesHelper;
-    private String mPreviousEngine;
+    private final TtsSessionManager mSessionManager;
     private boolean mIsStarted;
-    private TextToSpeech mTts;
 
     public PreferredEngineOptionsPreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
         super(context, preferenceKey, fragmentController, uxRestrictions);
         mEnginesHelper = new TtsEngines(getContext());
+        mSessionManager = TtsSessionManager.getInstance(context);
         mIsStarted = false;
     }
 
@@ -57,12 +54,12 @@ public class PreferredEngineOptionsPreferenceController extends
     }
 
     /**
-     * Creates the initial TTS object and constructs the related preferences when underlying
+     * Acquires the shared TTS object and constructs the related preferences when underlying
      * fragment is created.
      */
     @Override
     protected void onCreateInternal() {
-        mTts = new TextToSpeech(getContext(), /* listener= */ null);
+        mSessionManager.acquire();
 
         for (TextToSpeech.EngineInfo engine : mEnginesHelper.getEngines()) {
             CarUiPreference preference = new CarUiPreference(getContext());
@@ -71,7 +68,7 @@ public class PreferredEngineOptionsPreferenceController extends
             preference.setShowChevron(false);
             preference.setOnPreferenceClickListener(pref -> {
                 TextToSpeech.EngineInfo current = mEnginesHelper.getEngineInfo(
-                        mTts.getCurrentEngine());
+                        getCurrentEngine());
                 if (TextUtils.equals(engine.label, current.label)) {
                     return false;
                 }
@@ -94,18 +91,15 @@ public class PreferredEngineOptionsPreferenceController extends
         mIsStarted = false;
     }
 
-    /** Cleans up the TTS object and clears the preferences representing the TTS engines. */
+    /** Releases the shared TTS object. */
     @Override
     protected void onDestroyInternal() {
-        if (mTts != null) {
-            mTts.shutdown();
-            mTts = null;
-        }
+        mSessionManager.release();
     }
 
     @Override
     protected void updateState(PreferenceGroup preference) {
-        TextToSpeech.EngineInfo current = mEnginesHelper.getEngineInfo(mTts.getCurrentEngine());
+        TextToSpeech.EngineInfo current = mEnginesHelper.getEngineInfo(getCurrentEngine());
         for (int i = 0; i < preference.getPreferenceCount(); i++) {
             CarUiPreference pref = (CarUiPreference) preference.getPreference(i);
             if (pref.getTitle().equals(current.label)) {
@@ -118,52 +112,14 @@ public class PreferredEngineOptionsPreferenceController extends
 
     private void updateDefaultEngine(String engineName) {
         LOG.d("Updating default synth to : " + engineName);
-
-        // Keep track of the previous engine that was being used. So that
-        // we can reuse the previous engine.
-        //
-        // Note that if TextToSpeech#getCurrentEngine is not null, it means at
-        // the very least that we successfully bound to the engine service.
-        mPreviousEngine = mTts.getCurrentEngine();
-
-        // Step 1: Shut down the existing TTS engine.
-        LOG.i("Shutting down current tts engine");
-        if (mTts != null) {
-            mTts.shutdown();
-        }
-
-        // Step 2: Connect to the new TTS engine.
-        // Step 3 is continued on #onUpdateEngine (below) which is called when
-        // the app binds successfully to the engine.
-        LOG.i("Updating engine : Attempting to connect to engine: " + engineName);
-        mTts = new TextToSpeech(getContext(), status -> {
+        mSessionManager.switchEngine(engineName, status -> {
             if (mIsStarted) {
-                onUpdateEngine(status);
                 refreshUi();
             }
-        }, engineName);
-        LOG.i("Success");
+        });
     }
 
-    /**
-     * We have now bound to the TTS engine the user requested. We will attempt to check voice data
-     * for the engine if we successfully bound to it, or revert to the previous engine if we
-     * didn't.
-     */
-    private void onUpdateEngine(int status) {
-        if (status == TextToSpeech.SUCCESS) {
-            LOG.d("Updating engine: Successfully bound to the engine: "
-                    + mTts.getCurrentEngine());
-            Settings.Secure.putString(getContext().getContentResolver(), TTS_DEFAULT_SYNTH,
-                    mTts.getCurrentEngine());
-        } else {
-            LOG.d("Updating engine: Failed to bind to engine, reverting.");
-            if (mPreviousEngine != null) {
-                // This is guaranteed to at least bind, since mPreviousEngine would be
-                // null if the previous bind to this engine failed.
-                mTts = new TextToSpeech(getContext(), /* listener= */ null, mPreviousEngine);
-            }
-            mPreviousEngine = null;
-        }
+    private String getCurrentEngine() {
+        return mSessionManager.getTextToSpeech().getCurrentEngine();
     }
 }
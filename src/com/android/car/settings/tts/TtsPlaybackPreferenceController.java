@@ -66,6 +66,7 @@ public class TtsPlaybackPreferenceController extends
     static final int GET_SAMPLE_TEXT = 2;
 
     private final TtsEngines mEnginesHelper;
+    private final TtsSessionManager mSessionManager;
     private TtsPlaybackSettingsManager mTtsPlaybackManager;
     private TextToSpeech mTts;
     private int mSelectedLocaleIndex;
@@ -77,11 +78,17 @@ public class TtsPlaybackPreferenceController extends
 
     private String mSampleText;
     private Locale mSampleTextLocale;
+    private String mSampleTextEngine;
 
     /** True if initialized with no errors. */
     private boolean mTtsInitialized = false;
 
     private final TextToSpeech.OnInitListener mOnInitListener = status -> {
+        TextToSpeech tts = mSessionManager.getTextToSpeech();
+        if (tts != null && tts != mTts) {
+            // The preferred engine was changed while this screen holds the shared instance.
+            onEngineChanged(tts);
+        }
         if (status == TextToSpeech.SUCCESS) {
             mTtsInitialized = true;
             refreshUi();
@@ -92,6 +99,7 @@ public class TtsPlaybackPreferenceController extends
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
         super(context, preferenceKey, fragmentController, uxRestrictions);
         mEnginesHelper = new TtsEngines(context);
+        mSessionManager = TtsSessionManager.getInstance(context);
     }
 
     @Override
@@ -106,19 +114,17 @@ public class TtsPlaybackPreferenceController extends
         mVoicePitchPreference = initVoicePitchPreference();
         mResetPreference = initResetTtsPlaybackPreference();
 
-        mTts = new TextToSpeech(getContext(), mOnInitListener);
-        mTtsPlaybackManager = new TtsPlaybackSettingsManager(getContext(), mTts, mEnginesHelper);
-        mTts.setSpeechRate(mTtsPlaybackManager.getCurrentSpeechRate()
-                / TtsPlaybackSettingsManager.SCALING_FACTOR);
-        mTts.setPitch(mTtsPlaybackManager.getCurrentVoicePitch()
-                / TtsPlaybackSettingsManager.SCALING_FACTOR);
+        mTts = mSessionManager.acquire();
+        initPlaybackManager();
+        mSessionManager.addOnInitListener(mOnInitListener);
         startEngineVoiceDataCheck(mTts.getCurrentEngine());
     }
 
     @Override
     protected void onDestroyInternal() {
         if (mTts != null) {
-            mTts.shutdown();
+            mSessionManager.removeOnInitListener(mOnInitListener);
+            mSessionManager.release();
             mTts = null;
             mTtsPlaybackManager = null;
         }
@@ -153,7 +159,9 @@ public class TtsPlaybackPreferenceController extends
     public void processActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         switch (requestCode) {
             case VOICE_DATA_CHECK:
-                onVoiceDataIntegrityCheckDone(resultCode, data);
+                if (onVoiceDataIntegrityCheckDone(resultCode, data)) {
+                    mSessionManager.cacheVoiceData(mTts.getCurrentEngine(), resultCode, data);
+                }
                 break;
             case GET_SAMPLE_TEXT:
                 onSampleTextReceived(resultCode, data);
@@ -163,7 +171,30 @@ public class TtsPlaybackPreferenceController extends
         }
     }
 
+    private void initPlaybackManager() {
+        mTtsPlaybackManager = new TtsPlaybackSettingsManager(getContext(), mTts, mEnginesHelper);
+        mTts.setSpeechRate(mTtsPlaybackManager.getCurrentSpeechRate()
+                / TtsPlaybackSettingsManager.SCALING_FACTOR);
+        mTts.setPitch(mTtsPlaybackManager.getCurrentVoicePitch()
+                / TtsPlaybackSettingsManager.SCALING_FACTOR);
+    }
+
+    private void onEngineChanged(TextToSpeech tts) {
+        mTts = tts;
+        initPlaybackManager();
+        mSampleText = null;
+        mSampleTextLocale = null;
+        startEngineVoiceDataCheck(mTts.getCurrentEngine());
+    }
+
     private void startEngineVoiceDataCheck(String engine) {
+        TtsSessionManager.VoiceDataCheckResult cached = mSessionManager.getCachedVoiceData(engine);
+        if (cached != null) {
+            LOG.d("Updating engine: Using cached voice data for " + engine);
+            onVoiceDataIntegrityCheckDone(cached.mResultCode, cached.mData);
+            return;
+        }
+
         Intent intent = new Intent(TextToSpeech.Engine.ACTION_CHECK_TTS_DATA);
         intent.setPackage(engine);
         try {
@@ -195,6 +226,15 @@ public class TtsPlaybackPreferenceController extends
         intent.putExtra(TextToSpeech.Engine.KEY_PARAM_VARIANT, mSampleTextLocale.getVariant());
         intent.setPackage(currentEngine);
 
+        String cachedSampleText = mSessionManager.getCachedSampleText(currentEngine,
+                mSampleTextLocale);
+        if (cachedSampleText != null) {
+            LOG.d("Using cached sample text: " + cachedSampleText);
+            mSampleText = cachedSampleText;
+            return;
+        }
+        mSampleTextEngine = currentEngine;
+
         try {
             LOG.d("Getting sample text: " + intent.toUri(0));
             getFragmentController().startActivityForResult(intent, GET_SAMPLE_TEXT, this);
@@ -203,18 +243,21 @@ public class TtsPlaybackPreferenceController extends
         }
     }
 
-    /** The voice data check is complete. */
-    private void onVoiceDataIntegrityCheckDone(int resultCode, Intent data) {
+    /**
+     * The voice data check is complete. Returns {@code true} if the engine passed the check, in
+     * which case the result may be reused for the same engine.
+     */
+    private boolean onVoiceDataIntegrityCheckDone(int resultCode, Intent data) {
         String engine = mTts.getCurrentEngine();
         if (engine == null) {
             LOG.e("Voice data check complete, but no engine bound");
-            return;
+            return false;
         }
 
         if (data == null || resultCode == TextToSpeech.Engine.CHECK_VOICE_DATA_FAIL) {
             LOG.e("Engine failed voice data integrity check (null return or invalid result code)"
                     + mTts.getCurrentEngine());
-            return;
+            return false;
         }
 
         Settings.Secure.putString(getContext().getContentResolver(),
@@ -224,7 +267,7 @@ public class TtsPlaybackPreferenceController extends
                 data.getStringArrayListExtra(TextToSpeech.Engine.EXTRA_AVAILABLE_VOICES);
         if (availableLangs == null || availableLangs.size() == 0) {
             refreshUi();
-            return;
+            return true;
         }
 
         updateDefaultLanguagePreference(availableLangs);
@@ -235,6 +278,7 @@ public class TtsPlaybackPreferenceController extends
         }
         startGetSampleText();
         refreshUi();
+        return true;
     }
 
     private void onSampleTextReceived(int resultCode, Intent data) {
@@ -251,6 +295,9 @@ public class TtsPlaybackPreferenceController extends
         }
 
         mSampleText = sample;
+        if (mSampleTextEngine != null && mSampleTextLocale != null) {
+            mSessionManager.cacheSampleText(mSampleTextEngine, mSampleTextLocale, sample);
+        }
     }
 
     private void updateLanguageTo(Locale locale) {
@@ -339,16 +386,17 @@ public class TtsPlaybackPreferenceController extends
     }
 
     private void updateDefaultLanguagePreference(@NonNull ArrayList<String> availableLangs) {
-        // Sort locales by display name.
-        ArrayList<Locale> locales = new ArrayList<>();
+        // Sort locales by display name. Display names are computed once up front since they are
+        // relatively expensive to look up.
+        ArrayList<LocaleEntry> locales = new ArrayList<>();
         for (int i = 0; i < availableLangs.size(); i++) {
             Locale locale = mEnginesHelper.parseLocaleString(availableLangs.get(i));
             if (locale != null) {
-                locales.add(locale);
+                locales.add(new LocaleEntry(locale));
             }
         }
         Collections.sort(locales,
-                (lhs, rhs) -> lhs.getDisplayName().compareToIgnoreCase(rhs.getDisplayName()));
+                (lhs, rhs) -> lhs.mDisplayName.compareToIgnoreCase(rhs.mDisplayName));
 
         // Separate pairs into two separate arrays.
         CharSequence[] entries = new CharSequence[availableLangs.size() + 1];
@@ -358,9 +406,9 @@ public class TtsPlaybackPreferenceController extends
         entryValues[0] = "";
 
         int i = 1;
-        for (Locale locale : locales) {
-            entries[i] = locale.getDisplayName();
-            entryValues[i++] = locale.toString();
+        for (LocaleEntry entry : locales) {
+            entries[i] = entry.mDisplayName;
+            entryValues[i++] = entry.mLocale.toString();
         }
 
         mDefaultLanguagePreference.setEntries(entries);
@@ -429,4 +477,15 @@ public class TtsPlaybackPreferenceController extends
         resetPreference.setEnabled(false);
         return resetPreference;
     }
+
+    /** A locale along with its display name. */
+    private static final class LocaleEntry {
+        final Locale mLocale;
+        final String mDisplayName;
+
+        LocaleEntry(Locale locale) {
+            mLocale = locale;
+            mDisplayName = locale.getDisplayName();
+        }
+    }
 }
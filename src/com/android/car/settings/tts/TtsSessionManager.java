@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.tts;
+
+import static android.provider.Settings.Secure.TTS_DEFAULT_SYNTH;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.provider.Settings;
+import android.speech.tts.TextToSpeech;
+import android.text.TextUtils;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.settings.common.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Shares a single bound {@link TextToSpeech} engine between the TTS screens, and caches the
+ * results of the voice data check and sample text requests made to each engine.
+ *
+ * <p>The engine is bound when the first holder calls {@link #acquire()} and shut down when the
+ * last holder calls {@link #release()}. Cached results are kept for the lifetime of the process
+ * and are keyed by engine package and version code, so that an engine update is checked again.
+ * They are also dropped whenever an engine reports that new voice data was installed.
+ */
+class TtsSessionManager {
+
+    private static final Logger LOG = new Logger(TtsSessionManager.class);
+
+    /** Result of an {@link TextToSpeech.Engine#ACTION_CHECK_TTS_DATA} request. */
+    static final class VoiceDataCheckResult {
+        final int mResultCode;
+        final Intent mData;
+
+        VoiceDataCheckResult(int resultCode, Intent data) {
+            mResultCode = resultCode;
+            mData = data;
+        }
+    }
+
+    private static TtsSessionManager sInstance;
+
+    private final Context mContext;
+    private final List<TextToSpeech.OnInitListener> mInitListeners = new ArrayList<>();
+    private final Map<String, VoiceDataCheckResult> mVoiceDataCache = new HashMap<>();
+    private final Map<String, String> mSampleTextCache = new HashMap<>();
+
+    private final BroadcastReceiver mVoiceDataInstalledReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            LOG.d("Voice data installed, clearing cached engine data");
+            clearCachedEngineData();
+        }
+    };
+
+    private TextToSpeech mTts;
+    private int mRefCount;
+    private boolean mInitialized;
+    private int mInitStatus;
+    private String mPreviousEngine;
+
+    /** Returns the process-wide instance of the session manager. */
+    @MainThread
+    static TtsSessionManager getInstance(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (sInstance == null || sInstance.mContext != appContext) {
+            sInstance = new TtsSessionManager(appContext);
+            sInstance.registerVoiceDataInstalledReceiver();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    TtsSessionManager(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Returns the shared {@link TextToSpeech} instance, binding to the default engine if this is
+     * the first holder. Each call must be balanced by a call to {@link #release()}.
+     */
+    @MainThread
+    TextToSpeech acquire() {
+        if (mRefCount++ == 0 || mTts == null) {
+            LOG.d("Binding shared tts engine");
+            mInitialized = false;
+            mTts = new TextToSpeech(mContext, this::onInit);
+        }
+        return mTts;
+    }
+
+    /** Releases a hold on the shared instance. The last release shuts down the engine. */
+    @MainThread
+    void release() {
+        if (mRefCount == 0) {
+            LOG.w("release called without a matching acquire");
+            return;
+        }
+        if (--mRefCount == 0 && mTts != null) {
+            LOG.d("Shutting down shared tts engine");
+            mTts.shutdown();
+            mTts = null;
+            mInitialized = false;
+        }
+    }
+
+    /** Returns the shared {@link TextToSpeech} instance, or {@code null} if nothing holds it. */
+    @Nullable
+    TextToSpeech getTextToSpeech() {
+        return mTts;
+    }
+
+    /**
+     * Registers a listener which is called whenever the shared engine finishes binding. If the
+     * engine is already bound, the listener is called immediately.
+     */
+    @MainThread
+    void addOnInitListener(TextToSpeech.OnInitListener listener) {
+        if (mInitListeners.contains(listener)) {
+            return;
+        }
+        mInitListeners.add(listener);
+        if (mInitialized) {
+            listener.onInit(mInitStatus);
+        }
+    }
+
+    /** Unregisters a listener added via {@link #addOnInitListener(TextToSpeech.OnInitListener)}. */
+    @MainThread
+    void removeOnInitListener(TextToSpeech.OnInitListener listener) {
+        mInitListeners.remove(listener);
+    }
+
+    /**
+     * Rebinds the shared instance to the given engine. On success the engine is stored as the
+     * default engine, otherwise the previous engine is bound again. {@code callback} is called
+     * with the result once the new engine has been bound.
+     */
+    @MainThread
+    void switchEngine(String engineName, TextToSpeech.OnInitListener callback) {
+        if (mTts == null) {
+            LOG.e("switchEngine called without holding the tts engine");
+            return;
+        }
+        // Keep track of the previous engine so that it can be restored if the new one fails to
+        // bind. Note that if TextToSpeech#getCurrentEngine is not null, it means at the very
+        // least that we successfully bound to that engine before.
+        mPreviousEngine = mTts.getCurrentEngine();
+
+        LOG.i("Shutting down current tts engine");
+        mTts.shutdown();
+        mInitialized = false;
+
+        LOG.i("Updating engine : Attempting to connect to engine: " + engineName);
+        mTts = new TextToSpeech(mContext, status -> onEngineSwitched(status, callback),
+                engineName);
+    }
+
+    /** Returns the cached voice data check result of the given engine, if any. */
+    @Nullable
+    VoiceDataCheckResult getCachedVoiceData(String engine) {
+        String key = getEngineKey(engine);
+        return key == null ? null : mVoiceDataCache.get(key);
+    }
+
+    /** Caches a successful voice data check result of the given engine. */
+    void cacheVoiceData(String engine, int resultCode, Intent data) {
+        String key = getEngineKey(engine);
+        if (key != null) {
+            mVoiceDataCache.put(key, new VoiceDataCheckResult(resultCode, new Intent(data)));
+        }
+    }
+
+    /** Returns the cached sample text of the given engine and locale, if any. */
+    @Nullable
+    String getCachedSampleText(String engine, Locale locale) {
+        String key = getEngineKey(engine);
+        return key == null ? null : mSampleTextCache.get(key + "/" + locale);
+    }
+
+    /** Caches the sample text of the given engine and locale. */
+    void cacheSampleText(String engine, Locale locale, String sampleText) {
+        String key = getEngineKey(engine);
+        if (key != null) {
+            mSampleTextCache.put(key + "/" + locale, sampleText);
+        }
+    }
+
+    @VisibleForTesting
+    void clearCachedEngineData() {
+        mVoiceDataCache.clear();
+        mSampleTextCache.clear();
+    }
+
+    @VisibleForTesting
+    int getRefCount() {
+        return mRefCount;
+    }
+
+    private void onInit(int status) {
+        mInitialized = true;
+        mInitStatus = status;
+        for (TextToSpeech.OnInitListener listener : new ArrayList<>(mInitListeners)) {
+            listener.onInit(status);
+        }
+    }
+
+    private void onEngineSwitched(int status, TextToSpeech.OnInitListener callback) {
+        if (status == TextToSpeech.SUCCESS) {
+            LOG.d("Updating engine: Successfully bound to the engine: "
+                    + mTts.getCurrentEngine());
+            Settings.Secure.putString(mContext.getContentResolver(), TTS_DEFAULT_SYNTH,
+                    mTts.getCurrentEngine());
+            mPreviousEngine = null;
+            onInit(status);
+        } else {
+            LOG.d("Updating engine: Failed to bind to engine, reverting.");
+            if (mPreviousEngine != null) {
+                // This is guaranteed to at least bind, since mPreviousEngine would be null if the
+                // previous bind to this engine failed.
+                mTts = new TextToSpeech(mContext, this::onInit, mPreviousEngine);
+            }
+            mPreviousEngine = null;
+        }
+        callback.onInit(status);
+    }
+
+    /** Returns a key identifying the given engine package and version, or {@code null}. */
+    @Nullable
+    private String getEngineKey(String engine) {
+        if (TextUtils.isEmpty(engine)) {
+            return null;
+        }
+        try {
+            PackageInfo packageInfo = mContext.getPackageManager().getPackageInfo(engine,
+                    /* flags= */ 0);
+            return engine + "@" + packageInfo.getLongVersionCode();
+        } catch (PackageManager.NameNotFoundException e) {
+            LOG.w("Engine not found, not caching: " + engine);
+            return null;
+        }
+    }
+
+    private void registerVoiceDataInstalledReceiver() {
+        mContext.registerReceiver(mVoiceDataInstalledReceiver,
+                new IntentFilter(TextToSpeech.Engine.ACTION_TTS_DATA_INSTALLED));
+    }
+}
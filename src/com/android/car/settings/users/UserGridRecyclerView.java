@@ -22,7 +22,11 @@ import android.content.pm.UserInfo;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.SparseIntArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -30,8 +34,8 @@ import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import androidx.core.graphics.drawable.RoundedBitmapDrawable;
-import androidx.core.graphics.drawable.RoundedBitmapDrawableFactory;
+import androidx.annotation.VisibleForTesting;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -39,10 +43,12 @@ import com.android.car.settings.R;
 import com.android.car.settings.common.BaseFragment;
 import com.android.car.settings.common.ConfirmationDialogFragment;
 import com.android.car.settings.common.ErrorDialog;
-import com.android.internal.util.UserIcons;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
 
 /**
  * Displays a GridLayout with icons for the users in the system to allow switching between users.
@@ -51,17 +57,40 @@ import java.util.List;
 public class UserGridRecyclerView extends RecyclerView implements
         CarUserManagerHelper.OnUsersUpdateListener {
 
+    // Payloads dispatched with item changes, combined as a bit mask.
+    @VisibleForTesting
+    static final int PAYLOAD_NAME = 1;
+    @VisibleForTesting
+    static final int PAYLOAD_ICON = 1 << 1;
+    @VisibleForTesting
+    static final int PAYLOAD_STATE = 1 << 2;
+
+    // Stable ids of the synthetic records. Real users use their (non-negative) user id.
+    private static final long ITEM_ID_START_GUEST_SESSION = -2;
+    private static final long ITEM_ID_ADD_USER = -3;
+
     private UserAdapter mAdapter;
     private CarUserManagerHelper mCarUserManagerHelper;
+    private final Executor mBackgroundExecutor;
     private Context mContext;
     private BaseFragment mBaseFragment;
     public AddNewUserTask mAddNewUserTask;
     public boolean mEnableAddUserButton;
+    // Incremented for each user update so that results of superseded updates are dropped.
+    private int mUsersUpdateGeneration;
 
     public UserGridRecyclerView(Context context, AttributeSet attrs) {
+        this(context, attrs, new CarUserManagerHelper(context),
+                ThreadUtils::postOnBackgroundThread);
+    }
+
+    @VisibleForTesting
+    UserGridRecyclerView(Context context, AttributeSet attrs,
+            CarUserManagerHelper carUserManagerHelper, Executor backgroundExecutor) {
         super(context, attrs);
         mContext = context;
-        mCarUserManagerHelper = new CarUserManagerHelper(mContext);
+        mCarUserManagerHelper = carUserManagerHelper;
+        mBackgroundExecutor = backgroundExecutor;
         mEnableAddUserButton = true;
 
         addItemDecoration(new ItemSpacingDecoration(context.getResources().getDimensionPixelSize(
@@ -181,14 +210,48 @@ public class UserGridRecyclerView extends RecyclerView implements
         mBaseFragment = fragment;
     }
 
+    /**
+     * Reloads the users in the background and dispatches only the changed items to the adapter,
+     * so that unchanged avatars are not rebound.
+     */
     @Override
     public void onUsersUpdate() {
+        if (mAdapter == null) {
+            return;
+        }
+        int generation = ++mUsersUpdateGeneration;
         // If you can show the add user button, there is no restriction
-        mAdapter.setAddUserRestricted(!mEnableAddUserButton);
-        mAdapter.clearUsers();
-        mAdapter.updateUsers(createUserRecords(mCarUserManagerHelper
-                .getAllUsers()));
-        mAdapter.notifyDataSetChanged();
+        boolean isAddUserRestricted = !mEnableAddUserButton;
+        List<UserRecord> oldUsers = new ArrayList<>(mAdapter.mUsers);
+        SparseIntArray oldIconVersions = mAdapter.mIconVersions.clone();
+        boolean wasAddUserRestricted = mAdapter.mIsAddUserRestricted;
+
+        mBackgroundExecutor.execute(() -> {
+            List<UserRecord> newUsers = createUserRecords(mCarUserManagerHelper.getAllUsers());
+            SparseIntArray newIconVersions = mAdapter.getIconVersions(newUsers);
+            DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new UserRecordDiffCallback(
+                    oldUsers, oldIconVersions, wasAddUserRestricted, newUsers, newIconVersions,
+                    isAddUserRestricted));
+            ThreadUtils.postOnMainThread(() -> {
+                if (generation != mUsersUpdateGeneration) {
+                    // A newer update was started from the current list and will replace it.
+                    return;
+                }
+                mAdapter.setAddUserRestricted(isAddUserRestricted);
+                mAdapter.updateUsers(newUsers);
+                diffResult.dispatchUpdatesTo(mAdapter);
+            });
+        });
+    }
+
+    private static long getStableId(UserRecord userRecord) {
+        if (userRecord.mIsStartGuestSession) {
+            return ITEM_ID_START_GUEST_SESSION;
+        }
+        if (userRecord.mIsAddUser) {
+            return ITEM_ID_ADD_USER;
+        }
+        return userRecord.mInfo.id;
     }
 
     /**
@@ -200,6 +263,10 @@ public class UserGridRecyclerView extends RecyclerView implements
         private final Context mContext;
         private final Resources mRes;
         private final String mGuestName;
+        private final int mAvatarSize;
+        private final UserIconCache mUserIconCache;
+        // Avatar versions of the users currently shown, see UserIconCache#getUserIconVersion.
+        private SparseIntArray mIconVersions = new SparseIntArray();
 
         private List<UserRecord> mUsers;
         private String mNewUserName;
@@ -225,6 +292,9 @@ public class UserGridRecyclerView extends RecyclerView implements
         public UserAdapter(Context context, List<UserRecord> users) {
             mRes = context.getResources();
             mContext = context;
+            mAvatarSize = mRes.getDimensionPixelSize(R.dimen.user_switcher_image_avatar_size);
+            mUserIconCache = UserIconCache.getInstance(context);
+            setHasStableIds(true);
             updateUsers(users);
             mGuestName = mRes.getString(R.string.user_guest);
             mNewUserName = mRes.getString(R.string.user_new_user_name);
@@ -244,6 +314,13 @@ public class UserGridRecyclerView extends RecyclerView implements
          */
         public void updateUsers(List<UserRecord> users) {
             mUsers = users;
+            mIconVersions = getIconVersions(users);
+            prefetchUserIcons();
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return getStableId(mUsers.get(position));
         }
 
         @Override
@@ -255,13 +332,31 @@ public class UserGridRecyclerView extends RecyclerView implements
             return new UserAdapterViewHolder(view);
         }
 
+        @Override
+        public void onBindViewHolder(UserAdapterViewHolder holder, int position,
+                List<Object> payloads) {
+            int changes = 0;
+            for (Object payload : payloads) {
+                changes |= (int) payload;
+            }
+            if (payloads.isEmpty() || (changes & PAYLOAD_STATE) != 0) {
+                onBindViewHolder(holder, position);
+                return;
+            }
+
+            UserRecord userRecord = mUsers.get(position);
+            if ((changes & PAYLOAD_ICON) != 0) {
+                holder.mUserAvatarImageView.setImageDrawable(getUserRecordIcon(userRecord));
+            }
+            if ((changes & PAYLOAD_NAME) != 0) {
+                holder.mUserNameTextView.setText(userRecord.mInfo.name);
+            }
+        }
+
         @Override
         public void onBindViewHolder(UserAdapterViewHolder holder, int position) {
             UserRecord userRecord = mUsers.get(position);
-            RoundedBitmapDrawable circleIcon = RoundedBitmapDrawableFactory.create(mRes,
-                    getUserRecordIcon(userRecord));
-            circleIcon.setCircular(true);
-            holder.mUserAvatarImageView.setImageDrawable(circleIcon);
+            holder.mUserAvatarImageView.setImageDrawable(getUserRecordIcon(userRecord));
             holder.mUserNameTextView.setText(userRecord.mInfo.name);
 
             // Defaults to 100% opacity and no circle around the icon.
@@ -349,16 +444,40 @@ public class UserGridRecyclerView extends RecyclerView implements
             dialogFragment.show(mBaseFragment.getFragmentManager(), ConfirmationDialogFragment.TAG);
         }
 
-        private Bitmap getUserRecordIcon(UserRecord userRecord) {
-            if (userRecord.mIsStartGuestSession) {
-                return mCarUserManagerHelper.getGuestDefaultIcon();
+        private Drawable getUserRecordIcon(UserRecord userRecord) {
+            if (userRecord.mIsAddUser) {
+                // Already circular, so no need to render it.
+                return mContext.getDrawable(R.drawable.user_add_circle);
             }
 
-            if (userRecord.mIsAddUser) {
-                return UserIcons.convertToBitmap(mContext.getDrawable(R.drawable.user_add_circle));
+            Bitmap icon = userRecord.mIsStartGuestSession
+                    ? mUserIconCache.getCircularGuestDefaultIcon(mAvatarSize,
+                    mCarUserManagerHelper)
+                    : mUserIconCache.getCircularUserIcon(userRecord.mInfo, mAvatarSize,
+                            mCarUserManagerHelper);
+            return icon == null ? null : new BitmapDrawable(mRes, icon);
+        }
+
+        private SparseIntArray getIconVersions(List<UserRecord> users) {
+            SparseIntArray iconVersions = new SparseIntArray();
+            for (UserRecord userRecord : users) {
+                if (!userRecord.mIsAddUser && !userRecord.mIsStartGuestSession) {
+                    iconVersions.put(userRecord.mInfo.id,
+                            mUserIconCache.getUserIconVersion(userRecord.mInfo.id));
+                }
             }
+            return iconVersions;
+        }
 
-            return mCarUserManagerHelper.getUserIcon(userRecord.mInfo);
+        /** Renders the avatars of the listed users off the main thread ahead of binding. */
+        private void prefetchUserIcons() {
+            List<UserInfo> users = new ArrayList<>();
+            for (UserRecord userRecord : mUsers) {
+                if (!userRecord.mIsAddUser && !userRecord.mIsStartGuestSession) {
+                    users.add(userRecord.mInfo);
+                }
+            }
+            mUserIconCache.prefetch(users, mAvatarSize, mCarUserManagerHelper);
         }
 
 
@@ -429,6 +548,75 @@ public class UserGridRecyclerView extends RecyclerView implements
         }
     }
 
+    /**
+     * Computes the changes between two lists of {@link UserRecord}s. Records are matched by stable
+     * id, and changed records carry a payload describing which parts of the item changed.
+     */
+    private static class UserRecordDiffCallback extends DiffUtil.Callback {
+        private final List<UserRecord> mOldUsers;
+        private final SparseIntArray mOldIconVersions;
+        private final boolean mWasAddUserRestricted;
+        private final List<UserRecord> mNewUsers;
+        private final SparseIntArray mNewIconVersions;
+        private final boolean mIsAddUserRestricted;
+
+        UserRecordDiffCallback(List<UserRecord> oldUsers, SparseIntArray oldIconVersions,
+                boolean wasAddUserRestricted, List<UserRecord> newUsers,
+                SparseIntArray newIconVersions, boolean isAddUserRestricted) {
+            mOldUsers = oldUsers;
+            mOldIconVersions = oldIconVersions;
+            mWasAddUserRestricted = wasAddUserRestricted;
+            mNewUsers = newUsers;
+            mNewIconVersions = newIconVersions;
+            mIsAddUserRestricted = isAddUserRestricted;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldUsers.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewUsers.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return getStableId(mOldUsers.get(oldItemPosition))
+                    == getStableId(mNewUsers.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return getChanges(oldItemPosition, newItemPosition) == 0;
+        }
+
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return getChanges(oldItemPosition, newItemPosition);
+        }
+
+        private int getChanges(int oldItemPosition, int newItemPosition) {
+            UserRecord oldUser = mOldUsers.get(oldItemPosition);
+            UserRecord newUser = mNewUsers.get(newItemPosition);
+            int changes = 0;
+            if (!TextUtils.equals(oldUser.mInfo.name, newUser.mInfo.name)) {
+                changes |= PAYLOAD_NAME;
+            }
+            if (!Objects.equals(oldUser.mInfo.iconPath, newUser.mInfo.iconPath)
+                    || mOldIconVersions.get(oldUser.mInfo.id)
+                    != mNewIconVersions.get(newUser.mInfo.id)) {
+                changes |= PAYLOAD_ICON;
+            }
+            if (oldUser.mIsForeground != newUser.mIsForeground
+                    || (newUser.mIsAddUser && mWasAddUserRestricted != mIsAddUserRestricted)) {
+                changes |= PAYLOAD_STATE;
+            }
+            return changes;
+        }
+    }
+
     /**
      * A {@link RecyclerView.ItemDecoration} that will add spacing between each item in the
      * RecyclerView that it is added to.
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.users;
+
+import android.car.userlib.CarUserManagerHelper;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.UserInfo;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.os.UserHandle;
+import android.util.LruCache;
+import android.util.SparseIntArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.settings.common.Logger;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of circular user avatars, keyed by user and size. Avatars are decoded, scaled
+ * and clipped to a circle once, after which binding an avatar is a map lookup.
+ *
+ * <p>Entries for a user are evicted when the user's info changes or the user is removed.
+ */
+public class UserIconCache {
+
+    private static final Logger LOG = new Logger(UserIconCache.class);
+
+    @VisibleForTesting
+    static final int MAX_CACHE_BYTES = 4 * 1024 * 1024;
+    private static final String GUEST_KEY = "guest";
+
+    private static UserIconCache sInstance;
+
+    /** Holds a cached avatar, which may be {@code null} for users without one. */
+    private static final class CachedIcon {
+        @Nullable
+        final Bitmap mBitmap;
+
+        CachedIcon(@Nullable Bitmap bitmap) {
+            mBitmap = bitmap;
+        }
+    }
+
+    private final Context mContext;
+    private final LruCache<String, CachedIcon> mCache = new LruCache<String, CachedIcon>(
+            MAX_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, CachedIcon value) {
+            // Count misses as a single byte so that they are still bounded.
+            return value.mBitmap == null ? 1 : value.mBitmap.getByteCount();
+        }
+    };
+
+    // Incremented whenever a user's avatars are evicted, so that views can tell when to rebind.
+    private final SparseIntArray mUserIconVersions = new SparseIntArray();
+
+    private final BroadcastReceiver mUserChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            int userId = intent.getIntExtra(Intent.EXTRA_USER_HANDLE, UserHandle.USER_NULL);
+            if (userId == UserHandle.USER_NULL) {
+                invalidateAll();
+            } else {
+                invalidateUser(userId);
+            }
+        }
+    };
+
+    /** Returns the process-wide instance of the cache. */
+    public static synchronized UserIconCache getInstance(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (sInstance == null || sInstance.mContext != appContext) {
+            sInstance = new UserIconCache(appContext);
+            sInstance.registerUserChangeReceiver();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    UserIconCache(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Returns the circular avatar of the given user at the given size, or {@code null} if the user
+     * has no avatar. May be called from any thread.
+     */
+    @Nullable
+    public Bitmap getCircularUserIcon(UserInfo userInfo, int size,
+            CarUserManagerHelper carUserManagerHelper) {
+        return getCircularIcon(getCacheKey(userInfo.id, size), size,
+                () -> carUserManagerHelper.getUserIcon(userInfo));
+    }
+
+    /** Returns the circular default guest avatar at the given size. */
+    @Nullable
+    public Bitmap getCircularGuestDefaultIcon(int size,
+            CarUserManagerHelper carUserManagerHelper) {
+        return getCircularIcon(getCacheKey(GUEST_KEY, size), size,
+                carUserManagerHelper::getGuestDefaultIcon);
+    }
+
+    /** Renders the avatars of the given users at the given size on a background thread. */
+    public void prefetch(List<UserInfo> users, int size,
+            CarUserManagerHelper carUserManagerHelper) {
+        List<UserInfo> toLoad = new ArrayList<>();
+        for (UserInfo userInfo : users) {
+            if (mCache.get(getCacheKey(userInfo.id, size)) == null) {
+                toLoad.add(userInfo);
+            }
+        }
+        if (toLoad.isEmpty()) {
+            return;
+        }
+        ThreadUtils.postOnBackgroundThread(() -> {
+            for (UserInfo userInfo : toLoad) {
+                getCircularUserIcon(userInfo, size, carUserManagerHelper);
+            }
+            LOG.d("Prefetched " + toLoad.size() + " avatars at " + size + "px");
+        });
+    }
+
+    /**
+     * Returns a number which changes whenever the avatars of the given user are invalidated. May
+     * be called from any thread.
+     */
+    public int getUserIconVersion(int userId) {
+        synchronized (mUserIconVersions) {
+            return mUserIconVersions.get(userId);
+        }
+    }
+
+    /** Evicts all avatars of the given user. */
+    public void invalidateUser(int userId) {
+        invalidateKeyPrefix(userId + "@");
+        synchronized (mUserIconVersions) {
+            mUserIconVersions.put(userId, mUserIconVersions.get(userId) + 1);
+        }
+    }
+
+    /** Evicts all avatars. */
+    public void invalidateAll() {
+        mCache.evictAll();
+        synchronized (mUserIconVersions) {
+            for (int i = 0; i < mUserIconVersions.size(); i++) {
+                mUserIconVersions.put(mUserIconVersions.keyAt(i),
+                        mUserIconVersions.valueAt(i) + 1);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int size() {
+        return mCache.snapshot().size();
+    }
+
+    @Nullable
+    private Bitmap getCircularIcon(String cacheKey, int size, Supplier<Bitmap> iconSupplier) {
+        CachedIcon cached = mCache.get(cacheKey);
+        if (cached != null) {
+            return cached.mBitmap;
+        }
+        Bitmap icon = iconSupplier.get();
+        Bitmap circularIcon = icon == null ? null : createCircularBitmap(icon, size);
+        mCache.put(cacheKey, new CachedIcon(circularIcon));
+        return circularIcon;
+    }
+
+    private void invalidateKeyPrefix(String prefix) {
+        for (String cacheKey : mCache.snapshot().keySet()) {
+            if (cacheKey.startsWith(prefix)) {
+                mCache.remove(cacheKey);
+            }
+        }
+    }
+
+    private void registerUserChangeReceiver() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_USER_INFO_CHANGED);
+        filter.addAction(Intent.ACTION_USER_REMOVED);
+        mContext.registerReceiver(mUserChangeReceiver, filter);
+    }
+
+    /** Scales the given bitmap to {@code size} and clips it to a circle. */
+    @VisibleForTesting
+    static Bitmap createCircularBitmap(Bitmap icon, int size) {
+        Bitmap scaled = Bitmap.createScaledBitmap(icon, size, size, /* filter= */ true);
+        Bitmap output = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(output);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        paint.setShader(new BitmapShader(scaled, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        float radius = size / 2f;
+        canvas.drawCircle(radius, radius, radius, paint);
+        return output;
+    }
+
+    private static String getCacheKey(Object owner, int size) {
+        return owner + "@" + size;
+    }
+}
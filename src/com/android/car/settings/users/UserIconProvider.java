@@ -24,13 +24,11 @@ import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 
-import androidx.core.graphics.drawable.RoundedBitmapDrawable;
-import androidx.core.graphics.drawable.RoundedBitmapDrawableFactory;
-
 import com.android.car.settings.R;
 
 /**
- * Simple class for providing icons for users in Settings.
+ * Simple class for providing icons for users in Settings. User avatars are served from the
+ * process-wide {@link UserIconCache}, so instances are cheap to create.
  */
 public class UserIconProvider {
     private final CarUserManagerHelper mCarUserManagerHelper;
@@ -47,20 +45,15 @@ public class UserIconProvider {
      * @return Drawable representing the icon for the user.
      */
     public Drawable getUserIcon(UserInfo userInfo, Context context) {
-        Bitmap icon = mCarUserManagerHelper.getUserIcon(userInfo);
+        Resources res = context.getResources();
+        // The cached icon is already scaled and clipped to a circle.
+        Bitmap icon = UserIconCache.getInstance(context).getCircularUserIcon(userInfo,
+                res.getDimensionPixelSize(R.dimen.icon_size), mCarUserManagerHelper);
         if (icon == null) {
             // Return default user icon.
             return context.getDrawable(R.drawable.ic_user);
         }
-        Resources res = context.getResources();
-        BitmapDrawable scaledIcon = (BitmapDrawable) mCarUserManagerHelper.scaleUserIcon(icon, res
-                .getDimensionPixelSize(R.dimen.icon_size));
-
-        // Enforce that the icon is circular
-        RoundedBitmapDrawable circleIcon = RoundedBitmapDrawableFactory
-                .create(res, scaledIcon.getBitmap());
-        circleIcon.setCircular(true);
-        return circleIcon;
+        return new BitmapDrawable(res, icon);
     }
 
     /**
@@ -18,12 +18,6 @@ package com.android.car.settings.wifi.details;
 
 import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
-import android.net.LinkProperties;
-import android.net.Network;
-import android.net.NetworkCapabilities;
-import android.net.NetworkInfo;
-import android.net.wifi.WifiConfiguration;
-import android.net.wifi.WifiInfo;
 
 import androidx.preference.Preference;
 
@@ -85,30 +79,31 @@ public abstract class WifiDetailsBasePreferenceController<V extends Preference>
     }
 
     @Override
-    public void onWifiConfigurationChanged(WifiConfiguration wifiConfiguration,
-            NetworkInfo networkInfo, WifiInfo wifiInfo) {
-        refreshUi();
-    }
-
-    @Override
-    public void onLinkPropertiesChanged(Network network, LinkProperties lp) {
-        refreshUi();
-    }
-
-    @Override
-    public void onCapabilitiesChanged(Network network, NetworkCapabilities nc) {
-    }
-
-    @Override
-    public void onWifiChanged(NetworkInfo networkInfo, WifiInfo wifiInfo) {
-        getPreference().setEnabled(true);
-        refreshUi();
+    public void onWifiInfoChanged(@WifiInfoProvider.ChangedFields int changedFields) {
+        if ((changedFields & WifiInfoProvider.CHANGED_NETWORK_LOST) != 0) {
+            getPreference().setEnabled(false);
+            refreshUi();
+            return;
+        }
+        if ((changedFields & (WifiInfoProvider.CHANGED_NETWORK_INFO
+                | WifiInfoProvider.CHANGED_WIFI_INFO)) != 0) {
+            getPreference().setEnabled(true);
+        }
+        // The network state may change whether the access point is active, and so availability.
+        if ((changedFields & (WifiInfoProvider.CHANGED_NETWORK_INFO
+                | getWifiInfoDependencies())) != 0) {
+            refreshUi();
+        }
     }
 
-    @Override
-    public void onLost(Network network) {
-        getPreference().setEnabled(false);
-        refreshUi();
+    /**
+     * Returns the {@link WifiInfoProvider} fields shown by the preference, as a combination of the
+     * {@code WifiInfoProvider.CHANGED_*} flags. The preference is only refreshed when one of them
+     * changes or the network state changes. Defaults to {@link WifiInfoProvider#CHANGED_ALL}.
+     */
+    @WifiInfoProvider.ChangedFields
+    protected int getWifiInfoDependencies() {
+        return WifiInfoProvider.CHANGED_ALL;
     }
 
     @Override
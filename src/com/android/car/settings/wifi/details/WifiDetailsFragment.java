@@ -17,12 +17,7 @@
 package com.android.car.settings.wifi.details;
 
 import android.content.Context;
-import android.net.LinkProperties;
-import android.net.Network;
-import android.net.NetworkCapabilities;
-import android.net.NetworkInfo;
 import android.net.wifi.WifiConfiguration;
-import android.net.wifi.WifiInfo;
 import android.net.wifi.WifiManager;
 import android.os.Bundle;
 import android.widget.Toast;
@@ -184,28 +179,7 @@ public class WifiDetailsFragment extends SettingsFragment
     }
 
     @Override
-    public void onWifiChanged(NetworkInfo networkInfo, WifiInfo wifiInfo) {
-        updateUi();
-    }
-
-    @Override
-    public void onLinkPropertiesChanged(Network network, LinkProperties linkProperties) {
-        updateUi();
-    }
-
-    @Override
-    public void onCapabilitiesChanged(Network network, NetworkCapabilities networkCapabilities) {
-        updateUi();
-    }
-
-    @Override
-    public void onLost(Network network) {
-        updateUi();
-    }
-
-    @Override
-    public void onWifiConfigurationChanged(WifiConfiguration wifiConfiguration,
-            NetworkInfo networkInfo, WifiInfo wifiInfo) {
+    public void onWifiInfoChanged(@WifiInfoProvider.ChangedFields int changedFields) {
         updateUi();
     }
 
@@ -39,6 +39,11 @@ public class WifiDnsPreferenceController extends
         return WifiDetailsPreference.class;
     }
 
+    @Override
+    protected int getWifiInfoDependencies() {
+        return WifiInfoProvider.CHANGED_LINK_PROPERTIES;
+    }
+
     @Override
     protected void updateState(WifiDetailsPreference preference) {
         String dnsServers = getWifiInfoProvider().getLinkProperties().getDnsServers().stream()
@@ -40,6 +40,11 @@ public class WifiFrequencyPreferenceController extends
         return WifiDetailsPreference.class;
     }
 
+    @Override
+    protected int getWifiInfoDependencies() {
+        return WifiInfoProvider.CHANGED_WIFI_INFO;
+    }
+
     @Override
     protected void updateState(WifiDetailsPreference preference) {
         int frequency = getWifiInfoProvider().getWifiInfo().getFrequency();
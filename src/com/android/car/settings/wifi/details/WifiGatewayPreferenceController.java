@@ -37,6 +37,11 @@ public class WifiGatewayPreferenceController extends
         return WifiDetailsPreference.class;
     }
 
+    @Override
+    protected int getWifiInfoDependencies() {
+        return WifiInfoProvider.CHANGED_LINK_PROPERTIES;
+    }
+
     @Override
     protected void updateState(WifiDetailsPreference preference) {
         String gateway = null;
@@ -23,41 +23,52 @@ import android.net.NetworkInfo;
 import android.net.wifi.WifiConfiguration;
 import android.net.wifi.WifiInfo;
 
+import androidx.annotation.IntDef;
 import androidx.lifecycle.LifecycleObserver;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
 /**
  * Provides Wifi related info.
  */
 public interface WifiInfoProvider extends LifecycleObserver {
+    /** Fields of the provider which can change, reported to {@link Listener}. */
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef(flag = true, value = {CHANGED_NETWORK_INFO, CHANGED_WIFI_INFO,
+            CHANGED_NETWORK_CAPABILITIES, CHANGED_NETWORK_CONFIGURATION,
+            CHANGED_LINK_PROPERTIES, CHANGED_NETWORK_LOST})
+    @interface ChangedFields {
+    }
+
+    /** {@link #getNetworkInfo()} changed. */
+    int CHANGED_NETWORK_INFO = 1 << 0;
+    /** {@link #getWifiInfo()} changed, e.g. the signal strength or link speed. */
+    int CHANGED_WIFI_INFO = 1 << 1;
+    /** {@link #getNetworkCapabilities()} changed. */
+    int CHANGED_NETWORK_CAPABILITIES = 1 << 2;
+    /** {@link #getNetworkConfiguration()} changed. */
+    int CHANGED_NETWORK_CONFIGURATION = 1 << 3;
+    /** {@link #getLinkProperties()} changed. */
+    int CHANGED_LINK_PROPERTIES = 1 << 4;
+    /** {@link #getNetwork()} was lost. */
+    int CHANGED_NETWORK_LOST = 1 << 5;
+    /** Every field. */
+    int CHANGED_ALL = CHANGED_NETWORK_INFO | CHANGED_WIFI_INFO | CHANGED_NETWORK_CAPABILITIES
+            | CHANGED_NETWORK_CONFIGURATION | CHANGED_LINK_PROPERTIES;
+
     /**
      * Observers of Wifi info changes.
      */
     public interface Listener {
         /**
-         * Called when NetworkInfo and/or WifiInfo is changed.
-         */
-        void onWifiChanged(NetworkInfo networkInfo, WifiInfo wifiInfo);
-
-        /**
-         * Called when network is lost.
-         */
-        void onLost(Network network);
-
-        /**
-         * Called when NetworkCapabilities changed.
-         */
-        void onCapabilitiesChanged(Network network, NetworkCapabilities nc);
-
-        /**
-         * Called when WifiConfiguration changed.
-         */
-        void onWifiConfigurationChanged(WifiConfiguration wifiConfiguration,
-                NetworkInfo networkInfo, WifiInfo wifiInfo);
-
-        /**
-         * Called when LinkProperties changed.
+         * Called when the Wifi info changed. Changes are coalesced, so this is called at most once
+         * per frame, and the getters of the provider return a consistent view of the info.
+         *
+         * @param changedFields the fields which changed since the previous call, as a combination
+         *                      of the {@code CHANGED_*} flags.
          */
-        void onLinkPropertiesChanged(Network network, LinkProperties lp);
+        void onWifiInfoChanged(@ChangedFields int changedFields);
     }
 
     /**
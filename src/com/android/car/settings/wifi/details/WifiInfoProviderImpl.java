@@ -36,6 +36,8 @@ import android.net.wifi.WifiInfo;
 import android.net.wifi.WifiManager;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.SparseArray;
+import android.view.Choreographer;
 
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.OnLifecycleEvent;
@@ -43,13 +45,17 @@ import androidx.lifecycle.OnLifecycleEvent;
 import com.android.car.settings.common.Logger;
 import com.android.settingslib.wifi.AccessPoint;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
  * Provides Wifi related info.
+ *
+ * <p>Broadcasts and network callbacks often arrive in bursts, e.g. an RSSI change along with a
+ * network state change. They are merged into an immutable {@link Snapshot} published once per
+ * frame, and listeners are told which fields changed so that they only refresh what they show.
  */
 public class WifiInfoProviderImpl implements WifiInfoProvider {
     private static final Logger LOG = new Logger(WifiInfoProviderImpl.class);
@@ -62,12 +68,25 @@ public class WifiInfoProviderImpl implements WifiInfoProvider {
     private final ConnectivityManager mConnectivityManager;
     private final Handler mHandler;
     private final Network mNetwork;
+    // Configured networks by network id, or null until first needed.
+    private SparseArray<WifiConfiguration> mConfiguredNetworks;
 
+    // Latest values, published to mSnapshot on the next frame.
     private LinkProperties mLinkProperties;
     private NetworkCapabilities mNetworkCapabilities;
     private WifiConfiguration mWifiConfig;
     private NetworkInfo mNetworkInfo;
     private WifiInfo mWifiInfo;
+    @ChangedFields
+    private int mPendingChanges;
+    private boolean mIsFrameCallbackPosted;
+
+    private Snapshot mSnapshot;
+
+    private final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> {
+        mIsFrameCallbackPosted = false;
+        publishChanges();
+    };
 
     private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
         @Override
@@ -75,31 +94,22 @@ public class WifiInfoProviderImpl implements WifiInfoProvider {
             switch (intent.getAction()) {
                 case WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION:
                     LOG.d("Wifi Config changed.");
-                    updateMatchingWifiConfig();
+                    updateConfiguredNetworks(intent);
                     updateInfo();
-                    for (Listener listener : getListenersCopy()) {
-                        listener.onWifiConfigurationChanged(mWifiConfig, mNetworkInfo, mWifiInfo);
-                    }
+                    updateMatchingWifiConfig();
+                    onChanged(CHANGED_NETWORK_CONFIGURATION | CHANGED_NETWORK_INFO
+                            | CHANGED_WIFI_INFO);
                     break;
                 case WifiManager.NETWORK_STATE_CHANGED_ACTION:
-                case WifiManager.RSSI_CHANGED_ACTION:
                     LOG.d("wifi changed.");
                     updateInfo();
-                    for (Listener listener : getListenersCopy()) {
-                        listener.onWifiChanged(mNetworkInfo, mWifiInfo);
-                    }
+                    onChanged(CHANGED_NETWORK_INFO | CHANGED_WIFI_INFO);
                     break;
-            }
-        }
-
-        private void updateMatchingWifiConfig() {
-            // use getPrivilegedConfiguredNetworks() to get Passpoint & other ephemeral networks
-            for (WifiConfiguration wifiConfiguration :
-                    mWifiManager.getPrivilegedConfiguredNetworks()) {
-                if (mAccessPoint.matches(wifiConfiguration)) {
-                    mWifiConfig = wifiConfiguration;
+                case WifiManager.RSSI_CHANGED_ACTION:
+                    LOG.d("wifi changed.");
+                    updateInfo();
+                    onChanged(CHANGED_WIFI_INFO);
                     break;
-                }
             }
         }
     };
@@ -113,9 +123,7 @@ public class WifiInfoProviderImpl implements WifiInfoProvider {
         public void onLinkPropertiesChanged(Network network, LinkProperties lp) {
             if (network.equals(mNetwork) && !lp.equals(mLinkProperties)) {
                 mLinkProperties = lp;
-                for (Listener listener : getListenersCopy()) {
-                    listener.onLinkPropertiesChanged(mNetwork, mLinkProperties);
-                }
+                onChanged(CHANGED_LINK_PROPERTIES);
             }
         }
 
@@ -136,18 +144,14 @@ public class WifiInfoProviderImpl implements WifiInfoProvider {
                     mAccessPoint.update(mWifiConfig, mWifiInfo, mNetworkInfo);
                 }
                 mNetworkCapabilities = nc;
-                for (Listener listener : getListenersCopy()) {
-                    listener.onCapabilitiesChanged(mNetwork, mNetworkCapabilities);
-                }
+                onChanged(CHANGED_NETWORK_CAPABILITIES);
             }
         }
 
         @Override
         public void onLost(Network network) {
             if (network.equals(mNetwork)) {
-                for (Listener listener : getListenersCopy()) {
-                    listener.onLost(mNetwork);
-                }
+                onChanged(CHANGED_NETWORK_LOST);
             }
         }
     };
@@ -164,6 +168,7 @@ public class WifiInfoProviderImpl implements WifiInfoProvider {
         mLinkProperties = mConnectivityManager.getLinkProperties(mNetwork);
         mNetworkCapabilities = mConnectivityManager.getNetworkCapabilities(mNetwork);
         updateInfo();
+        mSnapshot = new Snapshot(this);
         mFilter = new IntentFilter();
         mFilter.addAction(WifiManager.NETWORK_STATE_CHANGED_ACTION);
         mFilter.addAction(WifiManager.RSSI_CHANGED_ACTION);
@@ -194,9 +199,9 @@ public class WifiInfoProviderImpl implements WifiInfoProvider {
         mContext.registerReceiver(mReceiver, mFilter);
         mConnectivityManager.registerNetworkCallback(mNetworkRequest, mNetworkCallback,
                 mHandler);
-        for (Listener listener : getListenersCopy()) {
-            listener.onWifiChanged(mNetworkInfo, mWifiInfo);
-        }
+        // Listeners render the initial state right away rather than on the next frame.
+        mPendingChanges |= CHANGED_NETWORK_INFO | CHANGED_WIFI_INFO;
+        publishChanges();
         LOG.d("Done onStart");
     }
 
@@ -208,17 +213,26 @@ public class WifiInfoProviderImpl implements WifiInfoProvider {
         LOG.d("onStop");
         mContext.unregisterReceiver(mReceiver);
         mConnectivityManager.unregisterNetworkCallback(mNetworkCallback);
+        if (mIsFrameCallbackPosted) {
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            mIsFrameCallbackPosted = false;
+        }
+        // Listeners refresh on the next start, so pending changes only need to be published.
+        mSnapshot = new Snapshot(this);
+        mPendingChanges = 0;
+        // Configuration changes are not received while stopped.
+        mConfiguredNetworks = null;
         LOG.d("done onStop");
     }
 
     @Override
     public NetworkInfo getNetworkInfo() {
-        return mNetworkInfo;
+        return mSnapshot.mNetworkInfo;
     }
 
     @Override
     public WifiInfo getWifiInfo() {
-        return mWifiInfo;
+        return mSnapshot.mWifiInfo;
     }
 
     @Override
@@ -228,21 +242,39 @@ public class WifiInfoProviderImpl implements WifiInfoProvider {
 
     @Override
     public NetworkCapabilities getNetworkCapabilities() {
-        return mNetworkCapabilities;
+        return mSnapshot.mNetworkCapabilities;
     }
 
     @Override
     public WifiConfiguration getNetworkConfiguration() {
-        return mWifiConfig;
+        return mSnapshot.mWifiConfig;
     }
 
     @Override
     public LinkProperties getLinkProperties() {
-        return mLinkProperties;
+        return mSnapshot.mLinkProperties;
+    }
+
+    private void onChanged(@ChangedFields int changedFields) {
+        mPendingChanges |= changedFields;
+        if (!mIsFrameCallbackPosted) {
+            mIsFrameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
     }
 
-    private Collection<Listener> getListenersCopy() {
-        return Collections.unmodifiableCollection(mListeners);
+    private void publishChanges() {
+        int changedFields = mPendingChanges;
+        mPendingChanges = 0;
+        mSnapshot = new Snapshot(this);
+        if (changedFields == 0) {
+            return;
+        }
+        // Listeners may remove themselves while being notified.
+        List<Listener> listeners = new ArrayList<>(mListeners);
+        for (Listener listener : listeners) {
+            listener.onWifiInfoChanged(changedFields);
+        }
     }
 
     private void updateInfo() {
@@ -251,4 +283,64 @@ public class WifiInfoProviderImpl implements WifiInfoProvider {
         mNetworkInfo = mConnectivityManager.getNetworkInfo(mNetwork);
         mWifiInfo = mWifiManager.getConnectionInfo();
     }
+
+    private void updateConfiguredNetworks(Intent intent) {
+        WifiConfiguration changedConfig = intent.getParcelableExtra(
+                WifiManager.EXTRA_WIFI_CONFIGURATION);
+        if (mConfiguredNetworks == null || changedConfig == null
+                || intent.getBooleanExtra(WifiManager.EXTRA_MULTIPLE_NETWORKS_CHANGED, false)) {
+            // Reload everything on the next lookup.
+            mConfiguredNetworks = null;
+            return;
+        }
+        if (intent.getIntExtra(WifiManager.EXTRA_CHANGE_REASON, -1)
+                == WifiManager.CHANGE_REASON_REMOVED) {
+            mConfiguredNetworks.remove(changedConfig.networkId);
+        } else {
+            mConfiguredNetworks.put(changedConfig.networkId, changedConfig);
+        }
+    }
+
+    private void updateMatchingWifiConfig() {
+        if (mConfiguredNetworks == null) {
+            // use getPrivilegedConfiguredNetworks() to get Passpoint & other ephemeral networks
+            List<WifiConfiguration> configs = mWifiManager.getPrivilegedConfiguredNetworks();
+            mConfiguredNetworks = new SparseArray<>(configs.size());
+            for (WifiConfiguration config : configs) {
+                mConfiguredNetworks.put(config.networkId, config);
+            }
+        }
+        // The connected network is usually the one shown, so look it up first.
+        if (mWifiInfo != null) {
+            WifiConfiguration config = mConfiguredNetworks.get(mWifiInfo.getNetworkId());
+            if (config != null && mAccessPoint.matches(config)) {
+                mWifiConfig = config;
+                return;
+            }
+        }
+        for (int i = 0; i < mConfiguredNetworks.size(); i++) {
+            WifiConfiguration config = mConfiguredNetworks.valueAt(i);
+            if (mAccessPoint.matches(config)) {
+                mWifiConfig = config;
+                return;
+            }
+        }
+    }
+
+    /** Immutable view of the Wifi info, published once per frame. */
+    private static final class Snapshot {
+        final LinkProperties mLinkProperties;
+        final NetworkCapabilities mNetworkCapabilities;
+        final WifiConfiguration mWifiConfig;
+        final NetworkInfo mNetworkInfo;
+        final WifiInfo mWifiInfo;
+
+        Snapshot(WifiInfoProviderImpl provider) {
+            mLinkProperties = provider.mLinkProperties;
+            mNetworkCapabilities = provider.mNetworkCapabilities;
+            mWifiConfig = provider.mWifiConfig;
+            mNetworkInfo = provider.mNetworkInfo;
+            mWifiInfo = provider.mWifiInfo;
+        }
+    }
 }
@@ -39,6 +39,11 @@ public class WifiIpAddressPreferenceController extends
         return WifiDetailsPreference.class;
     }
 
+    @Override
+    protected int getWifiInfoDependencies() {
+        return WifiInfoProvider.CHANGED_LINK_PROPERTIES;
+    }
+
     @Override
     protected void updateState(WifiDetailsPreference preference) {
         String ipv4Address = null;
@@ -43,6 +43,11 @@ public class WifiIpv6AddressPreferenceController extends
         return Preference.class;
     }
 
+    @Override
+    protected int getWifiInfoDependencies() {
+        return WifiInfoProvider.CHANGED_LINK_PROPERTIES;
+    }
+
     @Override
     protected void updateState(Preference preference) {
         StringJoiner ipv6Addresses = new StringJoiner(System.lineSeparator());
@@ -37,6 +37,11 @@ public class WifiLinkSpeedPreferenceController extends
         return WifiDetailsPreference.class;
     }
 
+    @Override
+    protected int getWifiInfoDependencies() {
+        return WifiInfoProvider.CHANGED_WIFI_INFO;
+    }
+
     @Override
     protected void updateState(WifiDetailsPreference preference) {
         int linkSpeedMbps = getWifiInfoProvider().getWifiInfo().getLinkSpeed();
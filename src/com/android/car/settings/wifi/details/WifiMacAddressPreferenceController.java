@@ -36,6 +36,11 @@ public class WifiMacAddressPreferenceController extends
         return WifiDetailsPreference.class;
     }
 
+    @Override
+    protected int getWifiInfoDependencies() {
+        return WifiInfoProvider.CHANGED_WIFI_INFO;
+    }
+
     @Override
     protected void updateState(WifiDetailsPreference preference) {
         preference.setDetailText(getWifiInfoProvider().getWifiInfo().getMacAddress());
@@ -35,6 +35,12 @@ public class WifiSecurityPreferenceController extends
         return WifiDetailsPreference.class;
     }
 
+    @Override
+    protected int getWifiInfoDependencies() {
+        return WifiInfoProvider.CHANGED_NETWORK_CONFIGURATION
+                | WifiInfoProvider.CHANGED_NETWORK_CAPABILITIES;
+    }
+
     @Override
     protected void updateState(WifiDetailsPreference preference) {
         preference.setDetailText(getAccessPoint().getSecurityString(false /* concise */));
@@ -41,6 +41,12 @@ public class WifiSignalStrengthPreferenceController
         return WifiDetailsPreference.class;
     }
 
+    @Override
+    protected int getWifiInfoDependencies() {
+        // The access point level is updated along with the network capabilities.
+        return WifiInfoProvider.CHANGED_WIFI_INFO | WifiInfoProvider.CHANGED_NETWORK_CAPABILITIES;
+    }
+
     @Override
     protected void updateState(WifiDetailsPreference preference) {
         mRssiSignalLevel = getAccessPoint().getLevel();
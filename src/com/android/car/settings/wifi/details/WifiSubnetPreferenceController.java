@@ -42,6 +42,11 @@ public class WifiSubnetPreferenceController extends
         return WifiDetailsPreference.class;
     }
 
+    @Override
+    protected int getWifiInfoDependencies() {
+        return WifiInfoProvider.CHANGED_LINK_PROPERTIES;
+    }
+
     @Override
     protected void updateState(WifiDetailsPreference preference) {
         String subnet = null;
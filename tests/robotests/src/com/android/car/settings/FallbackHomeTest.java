@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.role.RoleManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ResolveInfo;
+import android.net.Uri;
+import android.os.Process;
+import android.os.UserManager;
+import android.util.Log;
+
+import com.android.car.settings.testutils.ShadowRoleManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLog;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowPackageManager;
+import org.robolectric.shadows.ShadowUserManager;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+@Config(shadows = {ShadowRoleManager.class})
+public class FallbackHomeTest {
+
+    private static final String LAUNCHER_PACKAGE = "com.android.car.settings.test.launcher";
+    private static final Intent HOME_INTENT =
+            new Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_HOME);
+
+    private Context mContext;
+    private ActivityController<FallbackHome> mActivityController;
+    private FallbackHome mActivity;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        getShadowUserManager().setUserUnlocked(true);
+        setHomePackage(mContext.getPackageName());
+
+        mActivityController = Robolectric.buildActivity(FallbackHome.class);
+        mActivity = mActivityController.get();
+    }
+
+    @After
+    public void tearDown() {
+        ShadowRoleManager.reset();
+    }
+
+    @Test
+    public void onCreate_realHomeAvailable_finishes() {
+        setHomePackage(LAUNCHER_PACKAGE);
+
+        mActivityController.create();
+
+        assertThat(mActivity.isFinishing()).isTrue();
+    }
+
+    @Test
+    public void onCreate_noRealHome_keepsWaiting() {
+        mActivityController.create();
+
+        assertThat(mActivity.isFinishing()).isFalse();
+        assertThat(ShadowRoleManager.getListenerCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void onCreate_userLocked_doesNotListenForHome() {
+        getShadowUserManager().setUserUnlocked(false);
+
+        mActivityController.create();
+
+        assertThat(mActivity.isFinishing()).isFalse();
+        assertThat(ShadowRoleManager.getListenerCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void packageChanged_realHomeAvailable_finishesWithoutPolling() {
+        mActivityController.create();
+
+        setHomePackage(LAUNCHER_PACKAGE);
+        sendPackageChanged();
+
+        assertThat(mActivity.isFinishing()).isTrue();
+        assertThat(ShadowRoleManager.getListenerCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void packageChanged_noRealHome_keepsWaiting() {
+        mActivityController.create();
+
+        sendPackageChanged();
+
+        assertThat(mActivity.isFinishing()).isFalse();
+    }
+
+    @Test
+    public void homeRoleChanged_realHomeAvailable_finishesWithoutPolling() {
+        mActivityController.create();
+
+        setHomePackage(LAUNCHER_PACKAGE);
+        ShadowRoleManager.notifyRoleHoldersChanged(RoleManager.ROLE_HOME,
+                Process.myUserHandle());
+        ShadowLooper.runUiThreadTasks();
+
+        assertThat(mActivity.isFinishing()).isTrue();
+        assertThat(mActivity.getHomePollCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void otherRoleChanged_realHomeAvailable_keepsWaiting() {
+        mActivityController.create();
+
+        setHomePackage(LAUNCHER_PACKAGE);
+        ShadowRoleManager.notifyRoleHoldersChanged(RoleManager.ROLE_DIALER,
+                Process.myUserHandle());
+        ShadowLooper.runUiThreadTasks();
+
+        assertThat(mActivity.isFinishing()).isFalse();
+    }
+
+    @Test
+    public void poll_realHomeAvailable_finishesAfterPollInterval() {
+        mActivityController.create();
+        setHomePackage(LAUNCHER_PACKAGE);
+
+        ShadowLooper.idleMainLooper(FallbackHome.HOME_POLL_INTERVAL_MS - 1,
+                TimeUnit.MILLISECONDS);
+        assertThat(mActivity.isFinishing()).isFalse();
+
+        ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+        assertThat(mActivity.isFinishing()).isTrue();
+    }
+
+    @Test
+    public void poll_noRealHome_stopsAfterMaxPolls() {
+        mActivityController.create();
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertThat(mActivity.getHomePollCount()).isEqualTo(FallbackHome.MAX_HOME_POLLS);
+        assertThat(mActivity.isFinishing()).isFalse();
+
+        ShadowLooper.idleMainLooper(FallbackHome.HOME_POLL_INTERVAL_MS * 2,
+                TimeUnit.MILLISECONDS);
+        assertThat(mActivity.getHomePollCount()).isEqualTo(FallbackHome.MAX_HOME_POLLS);
+    }
+
+    @Test
+    public void poll_afterMaxPolls_eventsStillFinish() {
+        mActivityController.create();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        setHomePackage(LAUNCHER_PACKAGE);
+        sendPackageChanged();
+
+        assertThat(mActivity.isFinishing()).isTrue();
+    }
+
+    @Test
+    public void homeHandoff_logsReasonAndWaitTime() {
+        mActivityController.create();
+        ShadowLooper.idleMainLooper(FallbackHome.HOME_POLL_INTERVAL_MS / 2,
+                TimeUnit.MILLISECONDS);
+
+        setHomePackage(LAUNCHER_PACKAGE);
+        sendPackageChanged();
+
+        assertThat(getHandoffLog()).contains("on package changed");
+        assertThat(getHandoffLog()).contains(
+                (FallbackHome.HOME_POLL_INTERVAL_MS / 2) + "ms waiting for home");
+        assertThat(getHandoffLog()).contains("1 fallback polls");
+    }
+
+    @Test
+    public void homeHandoff_realHomeOnCreate_logsNoWaitTime() {
+        setHomePackage(LAUNCHER_PACKAGE);
+
+        mActivityController.create();
+
+        assertThat(getHandoffLog()).contains("on create");
+        assertThat(getHandoffLog()).contains("0ms waiting for home, 0 fallback polls");
+    }
+
+    @Test
+    public void onDestroy_stopsListeningForHome() {
+        mActivityController.create();
+
+        mActivityController.destroy();
+
+        assertThat(ShadowRoleManager.getListenerCount()).isEqualTo(0);
+    }
+
+    private void setHomePackage(String packageName) {
+        ShadowPackageManager shadowPackageManager = Shadow.extract(mContext.getPackageManager());
+        shadowPackageManager.removeResolveInfosForIntent(HOME_INTENT, mContext.getPackageName());
+        shadowPackageManager.removeResolveInfosForIntent(HOME_INTENT, LAUNCHER_PACKAGE);
+
+        ResolveInfo resolveInfo = new ResolveInfo();
+        resolveInfo.activityInfo = new ActivityInfo();
+        resolveInfo.activityInfo.packageName = packageName;
+        resolveInfo.activityInfo.name = packageName + ".Home";
+        shadowPackageManager.addResolveInfoForIntent(HOME_INTENT, resolveInfo);
+    }
+
+    private void sendPackageChanged() {
+        mContext.sendBroadcast(new Intent(Intent.ACTION_PACKAGE_CHANGED,
+                Uri.fromParts("package", LAUNCHER_PACKAGE, /* fragment= */ null)));
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    private String getHandoffLog() {
+        for (ShadowLog.LogItem item : ShadowLog.getLogs()) {
+            if (item.type == Log.INFO && item.msg.contains("Home handoff")) {
+                return item.msg;
+            }
+        }
+        return null;
+    }
+
+    private ShadowUserManager getShadowUserManager() {
+        return Shadow.extract(mContext.getSystemService(UserManager.class));
+    }
+}
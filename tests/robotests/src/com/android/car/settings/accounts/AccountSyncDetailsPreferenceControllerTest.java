@@ -410,6 +410,28 @@ public class AccountSyncDetailsPreferenceControllerTest {
         assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(0);
     }
 
+    @Test
+    public void refreshUi_providerLabelChanged_keepsCachedTitle() {
+        setUpVisibleSyncAdapters(AUTHORITY);
+        mController.refreshUi();
+
+        setProviderLabel(AUTHORITY, "new label");
+        mController.refreshUi();
+
+        assertThat(mPreferenceGroup.getPreference(0).getTitle()).isEqualTo("label");
+    }
+
+    @Test
+    public void onAccountsUpdate_providerLabelChanged_updatesTitle() {
+        setUpVisibleSyncAdapters(AUTHORITY);
+        mController.refreshUi();
+
+        setProviderLabel(AUTHORITY, "new label");
+        mController.onAccountsUpdate(mUserHandle);
+
+        assertThat(mPreferenceGroup.getPreference(0).getTitle()).isEqualTo("new label");
+    }
+
     @Test
     public void onAccountsUpdate_incorrectUserId_shouldNotForceUpdatePreferences() {
         setUpVisibleSyncAdapters(AUTHORITY);
@@ -537,6 +559,18 @@ public class AccountSyncDetailsPreferenceControllerTest {
         ShadowContentResolver.setSyncAdapterTypes(syncAdapters);
     }
 
+    private void setProviderLabel(String authority, String label) {
+        ProviderInfo info = new ProviderInfo();
+        info.authority = authority;
+        info.name = label;
+        ProviderInfo[] providers = {info};
+
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = authority;
+        packageInfo.providers = providers;
+        getShadowApplicationManager().addPackage(packageInfo);
+    }
+
     private ShadowApplicationPackageManager getShadowApplicationManager() {
         return Shadow.extract(mContext.getPackageManager());
     }
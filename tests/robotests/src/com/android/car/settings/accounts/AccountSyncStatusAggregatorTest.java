@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.accounts;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.accounts.Account;
+import android.content.Context;
+import android.os.UserHandle;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.testutils.ShadowApplicationPackageManager;
+import com.android.car.settings.testutils.ShadowContentResolver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Unit test for {@link AccountSyncStatusAggregator}. */
+@RunWith(CarSettingsRobolectricTestRunner.class)
+@Config(shadows = {ShadowContentResolver.class, ShadowApplicationPackageManager.class})
+public class AccountSyncStatusAggregatorTest {
+    private static final int USER_ID = 3;
+
+    private final Account mAccount = new Account("acct1", "com.acct1");
+    private final UserHandle mUserHandle = new UserHandle(USER_ID);
+    private final List<Runnable> mBackgroundTasks = new ArrayList<>();
+
+    @Mock
+    private AccountSyncStatusAggregator.Callback mCallback;
+    private AccountSyncStatusAggregator mAggregator;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        Context context = RuntimeEnvironment.application;
+        // Run background work inline so that only the main looper needs to be advanced.
+        mAggregator = new AccountSyncStatusAggregator(context, mAccount, mUserHandle, mCallback,
+                Runnable::run);
+        mAggregator.start();
+    }
+
+    @After
+    public void tearDown() {
+        ShadowContentResolver.reset();
+    }
+
+    @Test
+    public void requestRefresh_burst_deliversOnce() {
+        mAggregator.requestRefresh();
+        mAggregator.requestRefresh();
+        mAggregator.requestRefresh();
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(mCallback, times(1)).onSyncStatesComputed(anyList());
+    }
+
+    @Test
+    public void requestRefresh_burst_countsSuppressedRefreshes() {
+        mAggregator.requestRefresh();
+        mAggregator.requestRefresh();
+        mAggregator.requestRefresh();
+
+        assertThat(mAggregator.getSuppressedRefreshCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void requestRefresh_afterDelivery_deliversAgain() {
+        mAggregator.requestRefresh();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        mAggregator.requestRefresh();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(mCallback, times(2)).onSyncStatesComputed(anyList());
+        assertThat(mAggregator.getSuppressedRefreshCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void requestRefresh_stopped_doesNotDeliver() {
+        mAggregator.requestRefresh();
+        mAggregator.stop();
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(mCallback, never()).onSyncStatesComputed(anyList());
+    }
+
+    @Test
+    public void computeSyncStatesNow_refreshInFlight_dropsOlderResult() {
+        Context context = RuntimeEnvironment.application;
+        AccountSyncStatusAggregator aggregator = new AccountSyncStatusAggregator(context,
+                mAccount, mUserHandle, mCallback, mBackgroundTasks::add);
+        aggregator.start();
+        aggregator.requestRefresh();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertThat(mBackgroundTasks).hasSize(1);
+
+        aggregator.computeSyncStatesNow();
+        mBackgroundTasks.get(0).run();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(mCallback, never()).onSyncStatesComputed(anyList());
+    }
+
+    @Test
+    public void computeSyncStatesNow_laterRefresh_isDelivered() {
+        mAggregator.computeSyncStatesNow();
+
+        mAggregator.requestRefresh();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(mCallback, times(1)).onSyncStatesComputed(anyList());
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.car.userlib.CarUserManagerHelper;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.os.SystemClock;
+import android.os.UserManager;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.common.SettingsExecutor;
+import com.android.car.settings.testutils.ShadowApplicationPackageManager;
+import com.android.car.settings.testutils.ShadowCarUserManagerHelper;
+import com.android.car.settings.testutils.ShadowDevicePolicyManager;
+import com.android.car.settings.testutils.ShadowSmsApplication;
+import com.android.car.settings.testutils.ShadowUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Unit test for {@link AppDetailsSnapshotLoader}. */
+@RunWith(CarSettingsRobolectricTestRunner.class)
+@Config(shadows = {
+        ShadowApplicationPackageManager.class,
+        ShadowCarUserManagerHelper.class,
+        ShadowDevicePolicyManager.class,
+        ShadowSmsApplication.class,
+        ShadowUtils.class})
+public class AppDetailsSnapshotLoaderTest {
+
+    private static final String PACKAGE_NAME = "com.android.car.settings.test";
+    private static final int USER_ID = 10;
+
+    private Context mContext;
+    @Mock
+    private CarUserManagerHelper mCarUserManagerHelper;
+    @Mock
+    private AppDetailsSnapshotLoader.AppDetailsSnapshotListener mListener;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ShadowCarUserManagerHelper.setMockInstance(mCarUserManagerHelper);
+        when(mCarUserManagerHelper.getAllUsers()).thenReturn(Collections.emptyList());
+        mContext = RuntimeEnvironment.application;
+        SettingsExecutor.setInstanceForTesting(
+                new SettingsExecutor(Runnable::run, /* maxWorkers= */ 1, Runnable::run));
+
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = PACKAGE_NAME;
+        packageInfo.applicationInfo = new ApplicationInfo();
+        packageInfo.applicationInfo.packageName = PACKAGE_NAME;
+        getShadowPackageManager().addPackage(packageInfo);
+    }
+
+    @After
+    public void tearDown() {
+        AppDetailsSnapshotLoader.clearCache();
+        SettingsExecutor.setInstanceForTesting(null);
+        ShadowApplicationPackageManager.reset();
+        ShadowCarUserManagerHelper.reset();
+        ShadowDevicePolicyManager.reset();
+        ShadowSmsApplication.reset();
+        ShadowUtils.reset();
+    }
+
+    @Test
+    public void load_deliversSnapshot() {
+        getShadowDevicePolicyManager().setPackageHasActiveAdmins(
+                PACKAGE_NAME, /* hasActiveAdmins= */ true);
+        when(mCarUserManagerHelper.isCurrentProcessUserHasRestriction(
+                UserManager.DISALLOW_UNINSTALL_APPS)).thenReturn(true);
+
+        load();
+
+        ArgumentCaptor<AppDetailsSnapshot> captor = ArgumentCaptor.forClass(
+                AppDetailsSnapshot.class);
+        verify(mListener).onAppDetailsSnapshotLoaded(captor.capture());
+        AppDetailsSnapshot snapshot = captor.getValue();
+        assertThat(snapshot.getPackageInfo().packageName).isEqualTo(PACKAGE_NAME);
+        assertThat(snapshot.hasActiveAdmins()).isTrue();
+        assertThat(snapshot.hasUninstallAppsRestriction()).isTrue();
+        assertThat(snapshot.hasAppsControlRestriction()).isFalse();
+    }
+
+    @Test
+    public void getCachedSnapshot_notLoaded_returnsNull() {
+        assertThat(AppDetailsSnapshotLoader.getCachedSnapshot(PACKAGE_NAME, USER_ID)).isNull();
+    }
+
+    @Test
+    public void getCachedSnapshot_afterLoad_returnsSnapshot() {
+        load();
+
+        AppDetailsSnapshot snapshot = AppDetailsSnapshotLoader.getCachedSnapshot(PACKAGE_NAME,
+                USER_ID);
+
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.getPackageName()).isEqualTo(PACKAGE_NAME);
+    }
+
+    @Test
+    public void getCachedSnapshot_differentUser_returnsNull() {
+        load();
+
+        assertThat(AppDetailsSnapshotLoader.getCachedSnapshot(PACKAGE_NAME, USER_ID + 1))
+                .isNull();
+    }
+
+    @Test
+    public void getCachedSnapshot_expired_returnsNull() {
+        load();
+
+        SystemClock.setCurrentTimeMillis(
+                SystemClock.elapsedRealtime() + AppDetailsSnapshotLoader.CACHE_TTL_MS + 1);
+
+        assertThat(AppDetailsSnapshotLoader.getCachedSnapshot(PACKAGE_NAME, USER_ID)).isNull();
+    }
+
+    @Test
+    public void load_expiredSnapshotCached_evictsExpiredSnapshot() {
+        load();
+        SystemClock.setCurrentTimeMillis(
+                SystemClock.elapsedRealtime() + AppDetailsSnapshotLoader.CACHE_TTL_MS + 1);
+
+        load(PACKAGE_NAME + ".other");
+
+        assertThat(AppDetailsSnapshotLoader.getCacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void load_morePackagesThanLimit_evictsLeastRecentlyUsed() {
+        for (int i = 0; i <= AppDetailsSnapshotLoader.MAX_CACHED_SNAPSHOTS; i++) {
+            load(PACKAGE_NAME + i);
+        }
+
+        assertThat(AppDetailsSnapshotLoader.getCacheSize())
+                .isEqualTo(AppDetailsSnapshotLoader.MAX_CACHED_SNAPSHOTS);
+        assertThat(AppDetailsSnapshotLoader.getCachedSnapshot(PACKAGE_NAME + 0, USER_ID))
+                .isNull();
+        assertThat(AppDetailsSnapshotLoader.getCachedSnapshot(
+                PACKAGE_NAME + AppDetailsSnapshotLoader.MAX_CACHED_SNAPSHOTS, USER_ID))
+                .isNotNull();
+    }
+
+    @Test
+    public void cancel_beforeLoaded_listenerNotCalled() {
+        List<Runnable> workers = new ArrayList<>();
+        SettingsExecutor.setInstanceForTesting(
+                new SettingsExecutor(workers::add, /* maxWorkers= */ 1, Runnable::run));
+        AppDetailsSnapshotLoader loader = new AppDetailsSnapshotLoader(mContext, PACKAGE_NAME,
+                USER_ID, mListener);
+        loader.execute();
+
+        loader.cancel();
+        for (Runnable worker : workers) {
+            worker.run();
+        }
+
+        verify(mListener, never()).onAppDetailsSnapshotLoaded(any());
+        assertThat(AppDetailsSnapshotLoader.getCachedSnapshot(PACKAGE_NAME, USER_ID)).isNull();
+    }
+
+    private void load() {
+        load(PACKAGE_NAME);
+    }
+
+    private void load(String packageName) {
+        new AppDetailsSnapshotLoader(mContext, packageName, USER_ID, mListener).execute();
+    }
+
+    private ShadowApplicationPackageManager getShadowPackageManager() {
+        return Shadow.extract(mContext.getPackageManager());
+    }
+
+    private ShadowDevicePolicyManager getShadowDevicePolicyManager() {
+        return Shadow.extract(mContext.getSystemService(Context.DEVICE_POLICY_SERVICE));
+    }
+}
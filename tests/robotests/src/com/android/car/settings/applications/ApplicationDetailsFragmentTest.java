@@ -43,6 +43,7 @@ import android.os.UserManager;
 import com.android.car.settings.CarSettingsRobolectricTestRunner;
 import com.android.car.settings.R;
 import com.android.car.settings.common.ConfirmationDialogFragment;
+import com.android.car.settings.common.SettingsExecutor;
 import com.android.car.settings.testutils.BaseTestActivity;
 import com.android.car.settings.testutils.ShadowActivityManager;
 import com.android.car.settings.testutils.ShadowApplicationPackageManager;
@@ -114,6 +115,8 @@ public class ApplicationDetailsFragmentTest {
         ShadowUserManager.setInstance(mockUserManager);
 
         mContext = RuntimeEnvironment.application;
+        SettingsExecutor.setInstanceForTesting(
+                new SettingsExecutor(Runnable::run, /* maxWorkers= */ 1, Runnable::run));
         getShadowUserManager().addProfile(userId, userId, "profileName", /* profileFlags= */ 0);
 
         mActivity = new TestActivity();
@@ -128,6 +131,8 @@ public class ApplicationDetailsFragmentTest {
         // Prevent caching from interfering across tests.
         ReflectionHelpers.setStaticField(ApplicationsState.class, "sInstance", null);
         ReflectionHelpers.setStaticField(Utils.class, "sSystemSignature", null);
+        AppDetailsSnapshotLoader.clearCache();
+        SettingsExecutor.setInstanceForTesting(null);
         ShadowApplicationPackageManager.reset();
         ShadowCarUserManagerHelper.reset();
         ShadowDevicePolicyManager.reset();
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.os.storage.VolumeInfo;
+
+import androidx.lifecycle.Lifecycle;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.benchmark.BenchmarkDatasets;
+import com.android.car.settings.benchmark.BenchmarkRule;
+import com.android.car.settings.common.LogicalPreferenceGroup;
+import com.android.car.settings.common.PreferenceControllerTestHelper;
+import com.android.settingslib.applications.ApplicationsState;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+
+/**
+ * Benchmark for {@link ApplicationListItemManager} delivering the app list to {@link
+ * ApplicationsSettingsPreferenceController}.
+ */
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class ApplicationListItemManagerBenchmarkTest {
+
+    private static final int MILLISECOND_UPDATE_INTERVAL = 500;
+    private static final int MILLISECOND_MAX_APP_LOAD_WAIT_INTERVAL = 5000;
+
+    @Rule
+    public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    @Mock
+    private VolumeInfo mVolumeInfo;
+    @Mock
+    private Lifecycle mLifecycle;
+    @Mock
+    private ApplicationsState mAppState;
+
+    private Context mContext;
+    private ArrayList<ApplicationsState.AppEntry> mApps;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mApps = BenchmarkDatasets.createAppEntries(mContext);
+    }
+
+    @Test
+    public void onRebuildComplete() {
+        LogicalPreferenceGroup preferenceGroup = new LogicalPreferenceGroup(mContext);
+        PreferenceControllerTestHelper<ApplicationsSettingsPreferenceController> controllerHelper =
+                new PreferenceControllerTestHelper<>(mContext,
+                        ApplicationsSettingsPreferenceController.class, preferenceGroup);
+        controllerHelper.markState(Lifecycle.State.STARTED);
+        ApplicationListItemManager applicationListItemManager = new ApplicationListItemManager(
+                mVolumeInfo, mLifecycle, mAppState, MILLISECOND_UPDATE_INTERVAL,
+                MILLISECOND_MAX_APP_LOAD_WAIT_INTERVAL);
+        applicationListItemManager.registerListener(controllerHelper.getController());
+
+        mBenchmark.measure("onRebuildComplete", () -> {
+            applicationListItemManager.onRebuildComplete(mApps);
+            // Lift the update throttling so that every iteration renders the list.
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        });
+
+        assertThat(preferenceGroup.getPreferenceCount()).isEqualTo(BenchmarkDatasets.APP_COUNT);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.applications.defaultapps;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class DefaultAppIconCacheTest {
+
+    private static final String TEST_KEY = "com.android.test/.TestService";
+    private static final String OTHER_KEY = "com.android.other/.OtherService";
+
+    private Context mContext;
+    private DefaultAppIconCache mIconCache;
+    private AtomicInteger mLoadCount;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mIconCache = new DefaultAppIconCache(mContext);
+        mLoadCount = new AtomicInteger();
+    }
+
+    @Test
+    public void getSafeIcon_largerThanLimit_returnsScaledIcon() {
+        int maxDimension = getTestMaxDimension();
+
+        Drawable icon = mIconCache.getSafeIcon(TEST_KEY, maxDimension, this::loadTestIcon);
+
+        assertThat(icon.getMinimumHeight()).isEqualTo(maxDimension);
+        assertThat(icon.getMinimumWidth()).isEqualTo(maxDimension);
+    }
+
+    @Test
+    public void getSafeIcon_cached_doesNotReloadIcon() {
+        int maxDimension = getTestMaxDimension();
+
+        mIconCache.getSafeIcon(TEST_KEY, maxDimension, this::loadTestIcon);
+        Drawable icon = mIconCache.getSafeIcon(TEST_KEY, maxDimension, this::loadTestIcon);
+
+        assertThat(mLoadCount.get()).isEqualTo(1);
+        assertThat(icon.getMinimumHeight()).isEqualTo(maxDimension);
+    }
+
+    @Test
+    public void getSafeIcon_differentSize_reloadsIcon() {
+        int maxDimension = getTestMaxDimension();
+
+        mIconCache.getSafeIcon(TEST_KEY, maxDimension, this::loadTestIcon);
+        mIconCache.getSafeIcon(TEST_KEY, maxDimension - 1, this::loadTestIcon);
+
+        assertThat(mLoadCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getSafeIcon_nullIcon_returnsNull() {
+        assertThat(mIconCache.getSafeIcon(TEST_KEY, getTestMaxDimension(), () -> null)).isNull();
+        assertThat(mIconCache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void invalidatePackage_evictsOnlyThatPackage() {
+        int maxDimension = getTestMaxDimension();
+        mIconCache.getSafeIcon(TEST_KEY, maxDimension, this::loadTestIcon);
+        mIconCache.getSafeIcon(OTHER_KEY, maxDimension, this::loadTestIcon);
+
+        mIconCache.invalidatePackage("com.android.test");
+
+        assertThat(mIconCache.size()).isEqualTo(1);
+        mIconCache.getSafeIcon(OTHER_KEY, maxDimension, this::loadTestIcon);
+        assertThat(mLoadCount.get()).isEqualTo(2);
+    }
+
+    private Drawable loadTestIcon() {
+        mLoadCount.incrementAndGet();
+        return mContext.getDrawable(R.drawable.test_icon);
+    }
+
+    private int getTestMaxDimension() {
+        Drawable drawable = mContext.getDrawable(R.drawable.test_icon);
+        // Smaller than the current height or width so that the icon is scaled.
+        return Math.min(drawable.getMinimumHeight(), drawable.getMinimumWidth()) - 1;
+    }
+}
@@ -25,7 +25,11 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.car.drivingstate.CarUxRestrictions;
+import android.content.ComponentName;
 import android.content.Context;
+import android.content.Intent;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.text.TextUtils;
 
 import androidx.lifecycle.Lifecycle;
@@ -38,13 +42,16 @@ import com.android.car.settings.common.ConfirmationDialogFragment;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.LogicalPreferenceGroup;
 import com.android.car.settings.common.PreferenceControllerTestHelper;
+import com.android.car.settings.common.SettingsExecutor;
 import com.android.settingslib.applications.DefaultAppInfo;
 
 import com.google.android.collect.Lists;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
 import org.robolectric.RuntimeEnvironment;
 
 import java.util.List;
@@ -103,6 +110,32 @@ public class DefaultAppsPickerBasePreferenceControllerTest {
         }
     }
 
+    private static class TestDefaultAppInfo extends DefaultAppInfo {
+
+        private final CharSequence mLabel;
+
+        TestDefaultAppInfo(Context context, String packageName, CharSequence label,
+                boolean enabled) {
+            super(context, context.getPackageManager(), /* uid= */ 0,
+                    new ComponentName(packageName, packageName + ".Service"), /* summary= */ null,
+                    enabled);
+            mLabel = label;
+        }
+
+        @Override
+        public CharSequence loadLabel() {
+            return mLabel;
+        }
+
+        @Override
+        public Drawable loadIcon() {
+            return null;
+        }
+    }
+
+    private static final String TEST_PACKAGE = "com.android.car.settings.test";
+    private static final String OTHER_TEST_PACKAGE = "com.android.car.settings.test.other";
+
     private Context mContext;
     private PreferenceGroup mPreferenceGroup;
     private PreferenceControllerTestHelper<TestDefaultAppsPickerBasePreferenceController>
@@ -112,12 +145,19 @@ public class DefaultAppsPickerBasePreferenceControllerTest {
     @Before
     public void setUp() {
         mContext = RuntimeEnvironment.application;
+        SettingsExecutor.setInstanceForTesting(
+                new SettingsExecutor(Runnable::run, /* maxWorkers= */ 1, Runnable::run));
         mPreferenceGroup = new LogicalPreferenceGroup(mContext);
         mControllerHelper = new PreferenceControllerTestHelper<>(mContext,
                 TestDefaultAppsPickerBasePreferenceController.class, mPreferenceGroup);
         mController = mControllerHelper.getController();
     }
 
+    @After
+    public void tearDown() {
+        SettingsExecutor.setInstanceForTesting(null);
+    }
+
     @Test
     public void refreshUi_noCandidates_hasSingleNoneElement() {
         mController.setCurrentDefault("");
@@ -271,4 +311,79 @@ public class DefaultAppsPickerBasePreferenceControllerTest {
         otherOption.performClick();
         assertThat(mController.getCurrentDefaultKey()).isEqualTo("");
     }
+
+    @Test
+    public void packageChanged_labelChanged_rebindsRow() {
+        DefaultAppInfo oldInfo = new TestDefaultAppInfo(mContext, TEST_PACKAGE, "Old label",
+                /* enabled= */ true);
+        mController.setTestCandidates(Lists.newArrayList(oldInfo));
+        mControllerHelper.markState(Lifecycle.State.STARTED);
+        assertThat(mPreferenceGroup.findPreference(oldInfo.getKey()).getTitle())
+                .isEqualTo("Old label");
+
+        mController.setTestCandidates(Lists.newArrayList(new TestDefaultAppInfo(mContext,
+                TEST_PACKAGE, "New label", /* enabled= */ true)));
+        sendPackageChanged(TEST_PACKAGE);
+
+        assertThat(mPreferenceGroup.findPreference(oldInfo.getKey()).getTitle())
+                .isEqualTo("New label");
+    }
+
+    @Test
+    public void packageChanged_otherPackage_rebindsReusedRowWithNewEnabledState() {
+        DefaultAppInfo oldInfo = new TestDefaultAppInfo(mContext, TEST_PACKAGE, "Label",
+                /* enabled= */ true);
+        mController.setTestCandidates(Lists.newArrayList(oldInfo));
+        mControllerHelper.markState(Lifecycle.State.STARTED);
+        Preference preference = mPreferenceGroup.findPreference(oldInfo.getKey());
+        assertThat(preference.isEnabled()).isTrue();
+
+        mController.setTestCandidates(Lists.newArrayList(new TestDefaultAppInfo(mContext,
+                TEST_PACKAGE, "Label", /* enabled= */ false)));
+        sendPackageChanged(OTHER_TEST_PACKAGE);
+
+        assertThat(mPreferenceGroup.findPreference(oldInfo.getKey())).isSameAs(preference);
+        assertThat(preference.isEnabled()).isFalse();
+    }
+
+    @Test
+    public void packageAdded_newCandidate_addsRow() {
+        DefaultAppInfo info = new TestDefaultAppInfo(mContext, TEST_PACKAGE, "Label",
+                /* enabled= */ true);
+        mController.setTestCandidates(Lists.newArrayList(info));
+        mControllerHelper.markState(Lifecycle.State.STARTED);
+
+        DefaultAppInfo otherInfo = new TestDefaultAppInfo(mContext, OTHER_TEST_PACKAGE,
+                "Other label", /* enabled= */ true);
+        mController.setTestCandidates(Lists.newArrayList(info, otherInfo));
+        sendPackageChanged(OTHER_TEST_PACKAGE);
+
+        // The "None" element and both candidates.
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(3);
+        assertThat(mPreferenceGroup.findPreference(otherInfo.getKey()).getTitle())
+                .isEqualTo("Other label");
+    }
+
+    @Test
+    public void restart_labelChangedWhileStopped_rebindsRow() {
+        DefaultAppInfo oldInfo = new TestDefaultAppInfo(mContext, TEST_PACKAGE, "Old label",
+                /* enabled= */ true);
+        mController.setTestCandidates(Lists.newArrayList(oldInfo));
+        mControllerHelper.markState(Lifecycle.State.STARTED);
+        mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_STOP);
+
+        mController.setTestCandidates(Lists.newArrayList(new TestDefaultAppInfo(mContext,
+                TEST_PACKAGE, "New label", /* enabled= */ true)));
+        mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_START);
+        Robolectric.flushForegroundThreadScheduler();
+
+        assertThat(mPreferenceGroup.findPreference(oldInfo.getKey()).getTitle())
+                .isEqualTo("New label");
+    }
+
+    private void sendPackageChanged(String packageName) {
+        mContext.sendBroadcast(new Intent(Intent.ACTION_PACKAGE_CHANGED,
+                Uri.fromParts("package", packageName, /* fragment= */ null)));
+        Robolectric.flushForegroundThreadScheduler();
+    }
 }
@@ -44,6 +44,7 @@ import com.android.car.settings.CarSettingsRobolectricTestRunner;
 import com.android.car.settings.common.ConfirmationDialogFragment;
 import com.android.car.settings.common.LogicalPreferenceGroup;
 import com.android.car.settings.common.PreferenceControllerTestHelper;
+import com.android.car.settings.common.SettingsExecutor;
 import com.android.car.settings.testutils.ShadowApplicationPackageManager;
 import com.android.car.settings.testutils.ShadowNotificationManager;
 
@@ -74,6 +75,8 @@ public class NotificationAccessPreferenceControllerTest {
     @Before
     public void setUp() {
         mContext = RuntimeEnvironment.application;
+        SettingsExecutor.setInstanceForTesting(
+                new SettingsExecutor(Runnable::run, /* maxWorkers= */ 1, Runnable::run));
         mPreferenceGroup = new LogicalPreferenceGroup(mContext);
         mControllerHelper = new PreferenceControllerTestHelper<>(mContext,
                 NotificationAccessPreferenceController.class, mPreferenceGroup);
@@ -95,6 +98,7 @@ public class NotificationAccessPreferenceControllerTest {
     @After
     public void tearDown() {
         ShadowApplicationPackageManager.reset();
+        SettingsExecutor.setInstanceForTesting(null);
     }
 
     @Test
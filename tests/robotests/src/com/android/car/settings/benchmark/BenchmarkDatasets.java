@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.benchmark;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.bluetooth.BluetoothDevice;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.UserInfo;
+import android.graphics.drawable.Drawable;
+import android.net.NetworkStats;
+
+import com.android.car.settings.R;
+import com.android.settingslib.applications.ApplicationsState;
+import com.android.settingslib.bluetooth.CachedBluetoothDevice;
+import com.android.settingslib.wifi.AccessPoint;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/** Synthetic datasets sized after a heavily used head unit, shared by the benchmarks. */
+public final class BenchmarkDatasets {
+
+    public static final int APP_COUNT = 1000;
+    public static final int ACCESS_POINT_COUNT = 300;
+    public static final int BLUETOOTH_DEVICE_COUNT = 200;
+    public static final int USER_COUNT = 50;
+    public static final int NOTICE_LICENSE_COUNT = 1000;
+    public static final int NOTICE_FILES_PER_LICENSE = 10;
+    public static final int NOTICE_LICENSE_SIZE = 16 * 1024;
+
+    private static final int FIRST_APP_UID = 10000;
+    private static final int FIRST_USER_ID = 10;
+
+    private BenchmarkDatasets() {
+    }
+
+    /** Returns the package name of the app at the given index. */
+    public static String getPackageName(int index) {
+        return String.format(Locale.US, "com.example.benchmark.app%04d", index);
+    }
+
+    /** Returns fully loaded app entries, as delivered by {@link ApplicationsState}. */
+    public static ArrayList<ApplicationsState.AppEntry> createAppEntries(Context context) {
+        Drawable icon = context.getDrawable(R.drawable.test_icon);
+        ArrayList<ApplicationsState.AppEntry> apps = new ArrayList<>(APP_COUNT);
+        for (int i = 0; i < APP_COUNT; i++) {
+            ApplicationInfo appInfo = createApplicationInfo(i);
+            ApplicationsState.AppEntry appEntry = new ApplicationsState.AppEntry(context,
+                    appInfo, /* id= */ i);
+            appEntry.label = "App " + i;
+            appEntry.sizeStr = (i % 100) + ".00 MB";
+            appEntry.icon = icon;
+            apps.add(appEntry);
+        }
+        return apps;
+    }
+
+    /** Returns application info of the app at the given index. */
+    public static ApplicationInfo createApplicationInfo(int index) {
+        ApplicationInfo appInfo = new ApplicationInfo();
+        appInfo.packageName = getPackageName(index);
+        appInfo.uid = FIRST_APP_UID + index;
+        appInfo.sourceDir = "/data/app/" + appInfo.packageName + "/base.apk";
+        appInfo.category = index % 10 == 0 ? ApplicationInfo.CATEGORY_GAME
+                : ApplicationInfo.CATEGORY_UNDEFINED;
+        return appInfo;
+    }
+
+    /** Returns scanned access points, every tenth of which is saved. */
+    public static List<AccessPoint> createAccessPoints() {
+        List<AccessPoint> accessPoints = new ArrayList<>(ACCESS_POINT_COUNT);
+        for (int i = 0; i < ACCESS_POINT_COUNT; i++) {
+            AccessPoint accessPoint = mock(AccessPoint.class);
+            String ssid = "Network " + i;
+            when(accessPoint.getKey()).thenReturn("AP:" + ssid);
+            when(accessPoint.getSsidStr()).thenReturn(ssid);
+            when(accessPoint.getSsid()).thenReturn(ssid);
+            when(accessPoint.getConfigName()).thenReturn(ssid);
+            when(accessPoint.getSummary()).thenReturn(i % 10 == 0 ? "Saved" : "");
+            when(accessPoint.getLevel()).thenReturn(i % 5);
+            when(accessPoint.getSecurity()).thenReturn(i % 3 == 0 ? AccessPoint.SECURITY_NONE
+                    : AccessPoint.SECURITY_PSK);
+            when(accessPoint.isSaved()).thenReturn(i % 10 == 0);
+            accessPoints.add(accessPoint);
+        }
+        return accessPoints;
+    }
+
+    /** Returns cached Bluetooth devices, all of which are bonded. */
+    public static List<CachedBluetoothDevice> createBondedDevices() {
+        List<CachedBluetoothDevice> cachedDevices = new ArrayList<>(BLUETOOTH_DEVICE_COUNT);
+        for (int i = 0; i < BLUETOOTH_DEVICE_COUNT; i++) {
+            BluetoothDevice device = mock(BluetoothDevice.class);
+            String address = String.format(Locale.US, "00:11:22:33:%02X:%02X", i / 256, i % 256);
+            when(device.getAddress()).thenReturn(address);
+            when(device.getBondState()).thenReturn(BluetoothDevice.BOND_BONDED);
+            CachedBluetoothDevice cachedDevice = mock(CachedBluetoothDevice.class);
+            when(cachedDevice.getDevice()).thenReturn(device);
+            when(cachedDevice.getAddress()).thenReturn(address);
+            when(cachedDevice.getName()).thenReturn("Device " + i);
+            cachedDevices.add(cachedDevice);
+        }
+        return cachedDevices;
+    }
+
+    /** Returns switchable users, excluding the current user. */
+    public static List<UserInfo> createUsers() {
+        List<UserInfo> users = new ArrayList<>(USER_COUNT);
+        for (int i = 0; i < USER_COUNT; i++) {
+            users.add(new UserInfo(FIRST_USER_ID + i + 1, "User " + i, /* flags= */ 0));
+        }
+        return users;
+    }
+
+    /** Returns the current user the datasets were generated for. */
+    public static UserInfo createCurrentUser() {
+        return new UserInfo(FIRST_USER_ID, "Current user", UserInfo.FLAG_ADMIN);
+    }
+
+    /** Returns per uid network usage for every app, with decreasing usage. */
+    public static NetworkStats createNetworkStats() {
+        NetworkStats networkStats = new NetworkStats(/* elapsedRealtime= */ 0, APP_COUNT);
+        for (int i = 0; i < APP_COUNT; i++) {
+            NetworkStats.Entry entry = new NetworkStats.Entry();
+            entry.uid = FIRST_APP_UID + i;
+            entry.rxBytes = (APP_COUNT - i) * 1024L;
+            entry.txBytes = (APP_COUNT - i) * 256L;
+            networkStats.addValues(entry);
+        }
+        return networkStats;
+    }
+
+    /**
+     * Writes a gzipped NOTICE xml file into {@code directory}, with {@link #NOTICE_LICENSE_COUNT}
+     * licenses shared by {@link #NOTICE_FILES_PER_LICENSE} files each.
+     */
+    public static File writeNoticeXml(File directory, String name) throws IOException {
+        File file = new File(directory, name);
+        char[] filler = new char[NOTICE_LICENSE_SIZE];
+        try (Writer writer = new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8)) {
+            writer.write("<licenses>\n");
+            for (int i = 0; i < NOTICE_LICENSE_COUNT; i++) {
+                for (int j = 0; j < NOTICE_FILES_PER_LICENSE; j++) {
+                    writer.write("<file-name contentId=\"" + i + "\">/system/lib/lib" + i + "_"
+                            + j + ".so</file-name>\n");
+                }
+            }
+            for (int i = 0; i < NOTICE_LICENSE_COUNT; i++) {
+                // Vary the text so that the file does not compress to almost nothing.
+                Arrays.fill(filler, (char) ('a' + (i % 26)));
+                writer.write("<file-content contentId=\"" + i + "\"><![CDATA[License " + i
+                        + "\n");
+                writer.write(filler);
+                writer.write("]]></file-content>\n");
+            }
+            writer.write("</licenses>");
+        }
+        return file;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.benchmark;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import org.junit.Assume;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Measures the time and the heap allocations per operation of a benchmark, and fails the test if
+ * either regresses past the configured threshold relative to the recorded baseline.
+ *
+ * <p>Benchmarks are skipped unless enabled. Each setting is read from a system property, falling
+ * back to the environment variable in parentheses:
+ * <ul>
+ *     <li>{@value #ENABLED_PROPERTY} ({@code CAR_SETTINGS_BENCHMARK}): set to {@code true} to run
+ *     the benchmarks.
+ *     <li>{@value #THRESHOLD_PROPERTY} ({@code CAR_SETTINGS_BENCHMARK_THRESHOLD}): the allowed
+ *     regression over the baseline as a fraction, {@value #DEFAULT_THRESHOLD} by default.
+ *     <li>{@value #ITERATIONS_PROPERTY} ({@code CAR_SETTINGS_BENCHMARK_ITERATIONS}): the number of
+ *     measured iterations, {@value #DEFAULT_ITERATIONS} by default.
+ *     <li>{@value #OUTPUT_PROPERTY} ({@code CAR_SETTINGS_BENCHMARK_OUTPUT}): a file the results
+ *     are appended to, in the format of the baselines file.
+ * </ul>
+ *
+ * <p>Baselines are read from the {@value #BASELINES_RESOURCE} resource. Benchmarks without a
+ * baseline are reported but never fail.
+ */
+public class BenchmarkRule implements TestRule {
+
+    static final String ENABLED_PROPERTY = "car.settings.benchmark";
+    static final String THRESHOLD_PROPERTY = "car.settings.benchmark.threshold";
+    static final String ITERATIONS_PROPERTY = "car.settings.benchmark.iterations";
+    static final String OUTPUT_PROPERTY = "car.settings.benchmark.output";
+    static final String BASELINES_RESOURCE = "/benchmark_baselines.properties";
+
+    private static final String DEFAULT_THRESHOLD = "0.2";
+    private static final String DEFAULT_ITERATIONS = "20";
+    private static final String NANOS_PER_OP_SUFFIX = ".nanos_per_op";
+    private static final String BYTES_PER_OP_SUFFIX = ".bytes_per_op";
+    private static final long UNKNOWN = -1;
+
+    private static Properties sBaselines;
+
+    private String mTestClassName;
+
+    /** Result of a benchmark. Values are medians over the measured iterations. */
+    public static final class Result {
+        public final String mName;
+        public final long mNanosPerOp;
+        public final long mBytesPerOp;
+
+        Result(String name, long nanosPerOp, long bytesPerOp) {
+            mName = name;
+            mNanosPerOp = nanosPerOp;
+            mBytesPerOp = bytesPerOp;
+        }
+    }
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                Assume.assumeTrue("Benchmarks are disabled, set " + ENABLED_PROPERTY
+                        + "=true to run them", Boolean.parseBoolean(getSetting(ENABLED_PROPERTY,
+                        "false")));
+                mTestClassName = description.getTestClass().getSimpleName();
+                base.evaluate();
+            }
+        };
+    }
+
+    /**
+     * Runs {@code op} for a few warm up iterations followed by the measured iterations, reports
+     * the median time and allocations per operation, and checks them against the baseline.
+     */
+    public Result measure(String name, Runnable op) {
+        int iterations = Integer.parseInt(getSetting(ITERATIONS_PROPERTY, DEFAULT_ITERATIONS));
+        int warmUpIterations = Math.max(1, iterations / 4);
+        for (int i = 0; i < warmUpIterations; i++) {
+            op.run();
+        }
+
+        long[] nanos = new long[iterations];
+        long[] bytes = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long startBytes = getAllocatedBytes();
+            long startNanos = System.nanoTime();
+            op.run();
+            nanos[i] = System.nanoTime() - startNanos;
+            bytes[i] = startBytes == UNKNOWN ? UNKNOWN : getAllocatedBytes() - startBytes;
+        }
+
+        Result result = new Result(mTestClassName + "." + name, median(nanos), median(bytes));
+        System.out.println(String.format(Locale.US,
+                "Benchmark %s: %.3f ms/op, %d KB/op allocated (%d iterations)", result.mName,
+                result.mNanosPerOp / 1_000_000.0, result.mBytesPerOp / 1024, iterations));
+        writeResult(result);
+        checkBaseline(result);
+        return result;
+    }
+
+    private void checkBaseline(Result result) {
+        double threshold = Double.parseDouble(getSetting(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD));
+        Properties baselines = getBaselines();
+        String nanosBaseline = baselines.getProperty(result.mName + NANOS_PER_OP_SUFFIX);
+        if (nanosBaseline != null) {
+            long limit = (long) (Long.parseLong(nanosBaseline) * (1 + threshold));
+            assertWithMessage(result.mName + " time per op regressed, baseline "
+                    + nanosBaseline + " ns").that(result.mNanosPerOp).isAtMost(limit);
+        }
+        String bytesBaseline = baselines.getProperty(result.mName + BYTES_PER_OP_SUFFIX);
+        if (bytesBaseline != null && result.mBytesPerOp != UNKNOWN) {
+            long limit = (long) (Long.parseLong(bytesBaseline) * (1 + threshold));
+            assertWithMessage(result.mName + " allocations per op regressed, baseline "
+                    + bytesBaseline + " bytes").that(result.mBytesPerOp).isAtMost(limit);
+        }
+    }
+
+    private static void writeResult(Result result) {
+        String output = getSetting(OUTPUT_PROPERTY, /* defaultValue= */ null);
+        if (output == null) {
+            return;
+        }
+        try (Writer writer = new FileWriter(output, /* append= */ true)) {
+            writer.write(result.mName + NANOS_PER_OP_SUFFIX + "=" + result.mNanosPerOp + "\n");
+            if (result.mBytesPerOp != UNKNOWN) {
+                writer.write(result.mName + BYTES_PER_OP_SUFFIX + "=" + result.mBytesPerOp + "\n");
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write benchmark results to " + output, e);
+        }
+    }
+
+    private static synchronized Properties getBaselines() {
+        if (sBaselines == null) {
+            sBaselines = new Properties();
+            try (InputStream in = BenchmarkRule.class.getResourceAsStream(BASELINES_RESOURCE)) {
+                if (in != null) {
+                    sBaselines.load(in);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read " + BASELINES_RESOURCE, e);
+            }
+        }
+        return sBaselines;
+    }
+
+    /** Returns the bytes allocated by the current thread so far, or {@link #UNKNOWN}. */
+    private static long getAllocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return UNKNOWN;
+        }
+        com.sun.management.ThreadMXBean allocationBean =
+                (com.sun.management.ThreadMXBean) threadBean;
+        if (!allocationBean.isThreadAllocatedMemorySupported()
+                || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+            return UNKNOWN;
+        }
+        return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static String getSetting(String property, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = System.getenv(property.toUpperCase(Locale.US).replace('.', '_'));
+        }
+        return value == null ? defaultValue : value;
+    }
+}
@@ -16,13 +16,10 @@
 
 package com.android.car.settings.bluetooth;
 
-import static android.bluetooth.BluetoothProfile.STATE_CONNECTED;
-import static android.bluetooth.BluetoothProfile.STATE_DISCONNECTED;
-
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,12 +31,10 @@ import com.android.car.settings.CarSettingsRobolectricTestRunner;
 import com.android.car.settings.R;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 import com.android.settingslib.bluetooth.LocalBluetoothProfile;
-import com.android.settingslib.bluetooth.PanProfile;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RuntimeEnvironment;
@@ -77,104 +72,23 @@ public class BluetoothDeviceProfilePreferenceTest {
     }
 
     @Test
-    public void onAttached_registersDeviceCallback() {
-        mPreference.onAttached();
-
-        verify(mCachedDevice).registerCallback(any(CachedBluetoothDevice.Callback.class));
-    }
-
-    @Test
-    public void onAttached_deviceNotBusy_setsEnabled() {
-        when(mCachedDevice.isBusy()).thenReturn(false);
-
-        mPreference.onAttached();
-
-        assertThat(mPreference.isEnabled()).isTrue();
-    }
-
-    @Test
-    public void onAttached_deviceBusy_setsNotEnabled() {
-        when(mCachedDevice.isBusy()).thenReturn(true);
-
-        mPreference.onAttached();
-
-        assertThat(mPreference.isEnabled()).isFalse();
+    public void getProfile_returnsProfile() {
+        assertThat(mPreference.getProfile()).isSameAs(mProfile);
     }
 
     @Test
-    public void onAttached_preferred_setsChecked() {
-        when(mProfile.isPreferred(mDevice)).thenReturn(true);
-
-        mPreference.onAttached();
-
-        assertThat(mPreference.isChecked()).isTrue();
+    public void getCachedDevice_returnsCachedDevice() {
+        assertThat(mPreference.getCachedDevice()).isSameAs(mCachedDevice);
     }
 
     @Test
-    public void onAttached_notPreferred_setsUnchecked() {
-        when(mProfile.isPreferred(mDevice)).thenReturn(false);
-
+    public void attachedAndDetached_doesNotObserveDevice() {
+        // The device is observed by BluetoothDeviceProfilesPreferenceController instead.
         mPreference.onAttached();
-
-        assertThat(mPreference.isChecked()).isFalse();
-    }
-
-    @Test
-    public void onAttached_panProfile_connected_setsChecked() {
-        mProfile = mock(PanProfile.class);
-        when(mProfile.getConnectionStatus(mDevice)).thenReturn(STATE_CONNECTED);
-        when(mProfile.toString()).thenReturn("key");
-        when(mProfile.getNameResource(mDevice)).thenReturn(R.string.bt_profile_name);
-        mPreference = new BluetoothDeviceProfilePreference(mContext, mProfile, mCachedDevice);
-
-        mPreference.onAttached();
-
-        assertThat(mPreference.isChecked()).isTrue();
-    }
-
-    @Test
-    public void onAttached_panProfile_notConnected_setsUnchecked() {
-        mProfile = mock(PanProfile.class);
-        when(mProfile.getConnectionStatus(mDevice)).thenReturn(STATE_DISCONNECTED);
-        when(mProfile.toString()).thenReturn("key");
-        when(mProfile.getNameResource(mDevice)).thenReturn(R.string.bt_profile_name);
-        mPreference = new BluetoothDeviceProfilePreference(mContext, mProfile, mCachedDevice);
-
-        mPreference.onAttached();
-
-        assertThat(mPreference.isChecked()).isFalse();
-    }
-
-    @Test
-    public void onDeviceAttributesChanged_refreshesUi() {
-        when(mProfile.isPreferred(mDevice)).thenReturn(false);
-        when(mCachedDevice.isBusy()).thenReturn(false);
-        ArgumentCaptor<CachedBluetoothDevice.Callback> callbackCaptor = ArgumentCaptor.forClass(
-                CachedBluetoothDevice.Callback.class);
-        mPreference.onAttached();
-        verify(mCachedDevice).registerCallback(callbackCaptor.capture());
-
-        assertThat(mPreference.isEnabled()).isTrue();
-        assertThat(mPreference.isChecked()).isFalse();
-
-        when(mProfile.isPreferred(mDevice)).thenReturn(true);
-        when(mCachedDevice.isBusy()).thenReturn(true);
-
-        callbackCaptor.getValue().onDeviceAttributesChanged();
-
-        assertThat(mPreference.isEnabled()).isFalse();
-        assertThat(mPreference.isChecked()).isTrue();
-    }
-
-    @Test
-    public void onDetached_unregistersDeviceCallback() {
-        ArgumentCaptor<CachedBluetoothDevice.Callback> callbackCaptor = ArgumentCaptor.forClass(
-                CachedBluetoothDevice.Callback.class);
-        mPreference.onAttached();
-        verify(mCachedDevice).registerCallback(callbackCaptor.capture());
-
         mPreference.onDetached();
 
-        verify(mCachedDevice).unregisterCallback(callbackCaptor.getValue());
+        verify(mCachedDevice, never()).registerCallback(any(CachedBluetoothDevice.Callback.class));
+        verify(mCachedDevice, never()).unregisterCallback(
+                any(CachedBluetoothDevice.Callback.class));
     }
 }
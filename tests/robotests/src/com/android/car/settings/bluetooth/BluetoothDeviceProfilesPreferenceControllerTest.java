@@ -16,11 +16,15 @@
 
 package com.android.car.settings.bluetooth;
 
+import static android.bluetooth.BluetoothProfile.STATE_CONNECTED;
+import static android.bluetooth.BluetoothProfile.STATE_DISCONNECTED;
 import static android.content.pm.PackageManager.FEATURE_BLUETOOTH;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -39,17 +43,20 @@ import com.android.car.settings.testutils.ShadowBluetoothAdapter;
 import com.android.car.settings.testutils.ShadowBluetoothPan;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 import com.android.settingslib.bluetooth.LocalBluetoothProfile;
+import com.android.settingslib.bluetooth.PanProfile;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.Shadows;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -63,6 +70,8 @@ public class BluetoothDeviceProfilesPreferenceControllerTest {
     private CachedBluetoothDevice mCachedDevice;
     private BluetoothDevice mDevice;
     private PreferenceGroup mPreferenceGroup;
+    private PreferenceControllerTestHelper<BluetoothDeviceProfilesPreferenceController>
+            mControllerHelper;
     private BluetoothDeviceProfilesPreferenceController mController;
 
     @Before
@@ -79,13 +88,12 @@ public class BluetoothDeviceProfilesPreferenceControllerTest {
         getShadowBluetoothAdapter().setState(BluetoothAdapter.STATE_ON);
 
         mPreferenceGroup = new PreferenceCategory(context);
-        PreferenceControllerTestHelper<BluetoothDeviceProfilesPreferenceController>
-                controllerHelper = new PreferenceControllerTestHelper<>(context,
+        mControllerHelper = new PreferenceControllerTestHelper<>(context,
                 BluetoothDeviceProfilesPreferenceController.class);
-        mController = controllerHelper.getController();
+        mController = mControllerHelper.getController();
         mController.setCachedDevice(mCachedDevice);
-        controllerHelper.setPreference(mPreferenceGroup);
-        controllerHelper.markState(Lifecycle.State.STARTED);
+        mControllerHelper.setPreference(mPreferenceGroup);
+        mControllerHelper.markState(Lifecycle.State.STARTED);
     }
 
     @After
@@ -220,6 +228,143 @@ public class BluetoothDeviceProfilesPreferenceControllerTest {
         verify(mCachedDevice).disconnect(profile);
     }
 
+    @Test
+    public void refreshUi_deviceNotBusy_setsProfilesEnabled() {
+        when(mCachedDevice.isBusy()).thenReturn(false);
+
+        assertThat(refreshWithProfile(createProfile()).isEnabled()).isTrue();
+    }
+
+    @Test
+    public void refreshUi_deviceBusy_setsProfilesNotEnabled() {
+        when(mCachedDevice.isBusy()).thenReturn(true);
+
+        assertThat(refreshWithProfile(createProfile()).isEnabled()).isFalse();
+    }
+
+    @Test
+    public void refreshUi_preferred_setsChecked() {
+        LocalBluetoothProfile profile = createProfile();
+        when(profile.isPreferred(mDevice)).thenReturn(true);
+
+        assertThat(refreshWithProfile(profile).isChecked()).isTrue();
+    }
+
+    @Test
+    public void refreshUi_notPreferred_setsUnchecked() {
+        LocalBluetoothProfile profile = createProfile();
+        when(profile.isPreferred(mDevice)).thenReturn(false);
+
+        assertThat(refreshWithProfile(profile).isChecked()).isFalse();
+    }
+
+    @Test
+    public void refreshUi_panProfile_connected_setsChecked() {
+        LocalBluetoothProfile profile = mock(PanProfile.class);
+        when(profile.getNameResource(mDevice)).thenReturn(R.string.bt_profile_name);
+        when(profile.getConnectionStatus(mDevice)).thenReturn(STATE_CONNECTED);
+
+        assertThat(refreshWithProfile(profile).isChecked()).isTrue();
+    }
+
+    @Test
+    public void refreshUi_panProfile_notConnected_setsUnchecked() {
+        LocalBluetoothProfile profile = mock(PanProfile.class);
+        when(profile.getNameResource(mDevice)).thenReturn(R.string.bt_profile_name);
+        when(profile.getConnectionStatus(mDevice)).thenReturn(STATE_DISCONNECTED);
+
+        assertThat(refreshWithProfile(profile).isChecked()).isFalse();
+    }
+
+    @Test
+    public void refreshUi_profileStateChanged_updatesPreference() {
+        LocalBluetoothProfile profile = createProfile();
+        BluetoothDeviceProfilePreference profilePreference = refreshWithProfile(profile);
+        assertThat(profilePreference.isChecked()).isFalse();
+
+        when(profile.isPreferred(mDevice)).thenReturn(true);
+        when(mCachedDevice.isBusy()).thenReturn(true);
+        mController.refreshUi();
+
+        assertThat(profilePreference.isChecked()).isTrue();
+        assertThat(profilePreference.isEnabled()).isFalse();
+    }
+
+    @Test
+    public void refreshUi_profileStateUnchanged_doesNotRebindPreference() {
+        LocalBluetoothProfile profile = createProfile();
+        BluetoothDeviceProfilePreference profilePreference = refreshWithProfile(profile);
+        // Diverge the preference from the last state applied by the controller.
+        profilePreference.setChecked(true);
+
+        mController.refreshUi();
+
+        assertThat(profilePreference.isChecked()).isTrue();
+    }
+
+    @Test
+    public void refreshUi_profileToggledButStateUnchanged_revertsPreference() {
+        LocalBluetoothProfile profile = createProfile();
+        BluetoothDeviceProfilePreference profilePreference = refreshWithProfile(profile);
+
+        profilePreference.performClick();
+        assertThat(profilePreference.isChecked()).isTrue();
+        // The profile failed to become preferred.
+        mController.refreshUi();
+
+        assertThat(profilePreference.isChecked()).isFalse();
+    }
+
+    @Test
+    public void onDeviceAttributesChanged_refreshesUiOncePerFrame() {
+        ArgumentCaptor<CachedBluetoothDevice.Callback> callbackCaptor = ArgumentCaptor.forClass(
+                CachedBluetoothDevice.Callback.class);
+        verify(mCachedDevice).registerCallback(callbackCaptor.capture());
+        LocalBluetoothProfile profile = createProfile();
+        BluetoothDeviceProfilePreference profilePreference = refreshWithProfile(profile);
+        clearInvocations(mCachedDevice);
+
+        when(profile.isPreferred(mDevice)).thenReturn(true);
+        ShadowLooper.pauseMainLooper();
+        callbackCaptor.getValue().onDeviceAttributesChanged();
+        callbackCaptor.getValue().onDeviceAttributesChanged();
+        callbackCaptor.getValue().onDeviceAttributesChanged();
+        assertThat(profilePreference.isChecked()).isFalse();
+        ShadowLooper.unPauseMainLooper();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertThat(profilePreference.isChecked()).isTrue();
+        verify(mCachedDevice).getProfiles();
+    }
+
+    @Test
+    public void onStop_pendingDeviceAttributesChange_doesNotRefreshUi() {
+        ArgumentCaptor<CachedBluetoothDevice.Callback> callbackCaptor = ArgumentCaptor.forClass(
+                CachedBluetoothDevice.Callback.class);
+        verify(mCachedDevice).registerCallback(callbackCaptor.capture());
+        ShadowLooper.pauseMainLooper();
+        callbackCaptor.getValue().onDeviceAttributesChanged();
+        mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_STOP);
+        clearInvocations(mCachedDevice);
+
+        ShadowLooper.unPauseMainLooper();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(mCachedDevice, never()).getProfiles();
+    }
+
+    private LocalBluetoothProfile createProfile() {
+        LocalBluetoothProfile profile = mock(LocalBluetoothProfile.class);
+        when(profile.getNameResource(mDevice)).thenReturn(R.string.bt_profile_name);
+        return profile;
+    }
+
+    private BluetoothDeviceProfilePreference refreshWithProfile(LocalBluetoothProfile profile) {
+        when(mCachedDevice.getProfiles()).thenReturn(Collections.singletonList(profile));
+        mController.refreshUi();
+        return (BluetoothDeviceProfilePreference) mPreferenceGroup.getPreference(0);
+    }
+
     private ShadowBluetoothAdapter getShadowBluetoothAdapter() {
         return (ShadowBluetoothAdapter) Shadow.extract(BluetoothAdapter.getDefaultAdapter());
     }
@@ -26,11 +26,14 @@ import static org.testng.Assert.assertThrows;
 import android.car.Car;
 import android.car.drivingstate.CarUxRestrictions;
 import android.car.drivingstate.CarUxRestrictionsManager;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.os.Bundle;
 
 import androidx.annotation.Nullable;
 import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Lifecycle;
 import androidx.preference.Preference;
 
 import com.android.car.settings.CarSettingsRobolectricTestRunner;
@@ -45,11 +48,14 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.android.controller.ActivityController;
 
+import java.util.Arrays;
+
 /** Unit test for {@link BaseCarSettingsActivity}. */
 @RunWith(CarSettingsRobolectricTestRunner.class)
 public class BaseCarSettingsActivityTest {
 
     private static final String TEST_TAG = "test_tag";
+    private static final int WARM_FRAGMENT_CACHE_SIZE = 1;
 
     private Context mContext;
     private ActivityController<TestBaseCarSettingsActivity> mActivityController;
@@ -178,6 +184,159 @@ public class BaseCarSettingsActivityTest {
                 .isEqualTo(newUxRestrictions.toString());
     }
 
+    @Test
+    public void onBackStackChanged_uxRestrictionsUnchanged_doesNotNotifyCurrentFragment() {
+        TestFragment fragmentA = new TestFragment();
+        TestFragment fragmentB = new TestFragment();
+
+        CarUxRestrictions uxRestrictions = new CarUxRestrictions.Builder(
+                /* reqOpt= */ true,
+                CarUxRestrictions.UX_RESTRICTIONS_NO_SETUP,
+                /* timestamp= */ 0
+        ).build();
+
+        mActivity.launchFragment(fragmentA);
+        mActivity.onUxRestrictionsChanged(uxRestrictions);
+        int changeCount = fragmentA.getUxRestrictionsChangeCount();
+        mActivity.launchFragment(fragmentB);
+        mActivity.goBack();
+
+        assertThat(fragmentA.getUxRestrictionsChangeCount()).isEqualTo(changeCount);
+    }
+
+    @Test
+    public void launchFragment_warmFragmentPopped_reattachesSameInstance() {
+        WarmBaseCarSettingsActivity activity = setUpWarmActivity();
+        WarmFragment warmFragment = new WarmFragment();
+        activity.launchFragment(warmFragment);
+        activity.goBack();
+
+        activity.launchFragment(new WarmFragment());
+
+        assertThat(activity.getCurrentFragment()).isSameAs(warmFragment);
+        assertThat(warmFragment.getCreateCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void goBack_fromWarmFragment_keepsFragmentCreated() {
+        WarmBaseCarSettingsActivity activity = setUpWarmActivity();
+        WarmFragment warmFragment = new WarmFragment();
+        activity.launchFragment(warmFragment);
+
+        activity.goBack();
+
+        assertThat(activity.getCurrentFragment()).isInstanceOf(TestFragment.class);
+        assertThat(warmFragment.isDetached()).isTrue();
+        assertThat(warmFragment.getLifecycle().getCurrentState())
+                .isEqualTo(Lifecycle.State.CREATED);
+    }
+
+    @Test
+    public void goBack_toWarmFragment_reattachesSameInstance() {
+        WarmBaseCarSettingsActivity activity = setUpWarmActivity();
+        WarmFragment warmFragment = new WarmFragment();
+        activity.launchFragment(warmFragment);
+        activity.launchFragment(new TestFragment());
+
+        activity.goBack();
+
+        assertThat(activity.getCurrentFragment()).isSameAs(warmFragment);
+        assertThat(warmFragment.getLifecycle().getCurrentState())
+                .isEqualTo(Lifecycle.State.RESUMED);
+        assertThat(warmFragment.getCreateCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void launchFragment_warmFragmentWithArguments_notKeptWarm() {
+        WarmBaseCarSettingsActivity activity = setUpWarmActivity();
+        WarmFragment warmFragment = new WarmFragment();
+        Bundle args = new Bundle();
+        args.putString(TEST_TAG, TEST_TAG);
+        warmFragment.setArguments(args);
+        activity.launchFragment(warmFragment);
+
+        activity.goBack();
+
+        assertThat(warmFragment.getLifecycle().getCurrentState())
+                .isEqualTo(Lifecycle.State.DESTROYED);
+    }
+
+    @Test
+    public void launchFragment_cacheFull_evictsLeastRecentlyUsedFragment() {
+        WarmBaseCarSettingsActivity activity = setUpWarmActivity();
+        WarmFragment warmFragment = new WarmFragment();
+        activity.launchFragment(warmFragment);
+        activity.goBack();
+        OtherWarmFragment otherWarmFragment = new OtherWarmFragment();
+
+        activity.launchFragment(otherWarmFragment);
+        activity.goBack();
+
+        assertThat(warmFragment.getLifecycle().getCurrentState())
+                .isEqualTo(Lifecycle.State.DESTROYED);
+        assertThat(otherWarmFragment.getLifecycle().getCurrentState())
+                .isEqualTo(Lifecycle.State.CREATED);
+    }
+
+    @Test
+    public void launchFragment_cacheFull_keepsFragmentInBackStack() {
+        WarmBaseCarSettingsActivity activity = setUpWarmActivity();
+        WarmFragment warmFragment = new WarmFragment();
+        activity.launchFragment(warmFragment);
+        activity.launchFragment(new OtherWarmFragment());
+        activity.launchFragment(new TestFragment());
+
+        activity.goBack();
+        activity.goBack();
+
+        assertThat(activity.getCurrentFragment()).isSameAs(warmFragment);
+        assertThat(warmFragment.getCreateCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void onTrimMemory_runningLow_evictsWarmFragments() {
+        WarmBaseCarSettingsActivity activity = setUpWarmActivity();
+        WarmFragment warmFragment = new WarmFragment();
+        activity.launchFragment(warmFragment);
+        activity.goBack();
+
+        activity.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        assertThat(warmFragment.getLifecycle().getCurrentState())
+                .isEqualTo(Lifecycle.State.DESTROYED);
+    }
+
+    @Test
+    public void onTrimMemory_uiHidden_keepsWarmFragments() {
+        WarmBaseCarSettingsActivity activity = setUpWarmActivity();
+        WarmFragment warmFragment = new WarmFragment();
+        activity.launchFragment(warmFragment);
+        activity.goBack();
+
+        activity.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        assertThat(warmFragment.getLifecycle().getCurrentState())
+                .isEqualTo(Lifecycle.State.CREATED);
+    }
+
+    @Test
+    public void onTrimMemory_warmFragmentInBackStack_keepsFragment() {
+        WarmBaseCarSettingsActivity activity = setUpWarmActivity();
+        WarmFragment warmFragment = new WarmFragment();
+        activity.launchFragment(warmFragment);
+        activity.launchFragment(new TestFragment());
+
+        activity.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        activity.goBack();
+
+        assertThat(activity.getCurrentFragment()).isSameAs(warmFragment);
+        assertThat(warmFragment.getCreateCount()).isEqualTo(1);
+    }
+
+    private WarmBaseCarSettingsActivity setUpWarmActivity() {
+        return ActivityController.of(new WarmBaseCarSettingsActivity()).setup().get();
+    }
+
     /** Simple instance of {@link BaseCarSettingsActivity}. */
     private static class TestBaseCarSettingsActivity extends BaseCarSettingsActivity {
 
@@ -188,18 +347,54 @@ public class BaseCarSettingsActivityTest {
         }
     }
 
+    /** Instance of {@link BaseCarSettingsActivity} which keeps {@link WarmFragment} warm. */
+    private static class WarmBaseCarSettingsActivity extends TestBaseCarSettingsActivity {
+
+        @Override
+        WarmFragmentCache createWarmFragmentCache() {
+            return new WarmFragmentCache(getSupportFragmentManager(), WARM_FRAGMENT_CACHE_SIZE,
+                    Arrays.asList(WarmFragment.class.getName(),
+                            OtherWarmFragment.class.getName()));
+        }
+    }
+
+    /** Fragment which is kept warm by {@link WarmBaseCarSettingsActivity}. */
+    public static class WarmFragment extends Fragment {
+        private int mCreateCount;
+
+        @Override
+        public void onCreate(Bundle savedInstanceState) {
+            super.onCreate(savedInstanceState);
+            mCreateCount++;
+        }
+
+        public int getCreateCount() {
+            return mCreateCount;
+        }
+    }
+
+    /** Another fragment which is kept warm by {@link WarmBaseCarSettingsActivity}. */
+    public static class OtherWarmFragment extends WarmFragment {
+    }
+
     /** Simple Fragment for testing use. */
     public static class TestFragment extends Fragment implements
             CarUxRestrictionsManager.OnUxRestrictionsChangedListener {
         private CarUxRestrictions mCarUxRestrictions;
+        private int mUxRestrictionsChangeCount;
 
         @Override
         public void onUxRestrictionsChanged(CarUxRestrictions restrictionInfo) {
             mCarUxRestrictions = restrictionInfo;
+            mUxRestrictionsChangeCount++;
         }
 
         public CarUxRestrictions getUxRestrictions() {
             return mCarUxRestrictions;
         }
+
+        public int getUxRestrictionsChangeCount() {
+            return mUxRestrictionsChangeCount;
+        }
     }
 }
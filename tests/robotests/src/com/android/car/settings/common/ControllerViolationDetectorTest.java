@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.Context;
+import android.os.strictmode.DiskReadViolation;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.preference.Preference;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class ControllerViolationDetectorTest {
+
+    /** Controller which reports violations from its callbacks. */
+    public static class ViolatingPreferenceController extends FakePreferenceController {
+
+        public ViolatingPreferenceController(Context context, String preferenceKey,
+                FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
+            super(context, preferenceKey, fragmentController, uxRestrictions);
+        }
+
+        @Override
+        protected int getAvailabilityStatus() {
+            ControllerViolationDetector.onThreadViolation(new DiskReadViolation());
+            return super.getAvailabilityStatus();
+        }
+
+        @Override
+        protected void updateState(Preference preference) {
+            super.updateState(preference);
+            ControllerViolationDetector.onBinderTransaction();
+        }
+    }
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        ControllerViolationDetector.reset();
+        ControllerViolationDetector.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        ControllerViolationDetector.setEnabled(false);
+        ControllerViolationDetector.reset();
+    }
+
+    @Test
+    public void controllerCallbacks_noViolations_nothingRecorded() {
+        PreferenceControllerTestHelper<FakePreferenceController> controllerHelper =
+                new PreferenceControllerTestHelper<>(mContext, FakePreferenceController.class,
+                        new Preference(mContext));
+
+        controllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        controllerHelper.getController().refreshUi();
+
+        assertThat(ControllerViolationDetector.getViolationCount(
+                ControllerViolationDetector.BINDER_TRANSACTION)).isEqualTo(0);
+        assertThat(ControllerViolationDetector.getViolationCount(
+                ControllerViolationDetector.DISK_READ)).isEqualTo(0);
+    }
+
+    @Test
+    public void binderTransaction_inUpdateState_attributedToUpdateState() {
+        PreferenceControllerTestHelper<ViolatingPreferenceController> controllerHelper =
+                new PreferenceControllerTestHelper<>(mContext,
+                        ViolatingPreferenceController.class, new Preference(mContext));
+
+        controllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_CREATE);
+
+        assertThat(ControllerViolationDetector.getViolationCount(
+                ViolatingPreferenceController.class, "updateState",
+                ControllerViolationDetector.BINDER_TRANSACTION)).isEqualTo(1);
+    }
+
+    @Test
+    public void diskRead_inGetAvailabilityStatus_attributedToGetAvailabilityStatus() {
+        PreferenceControllerTestHelper<ViolatingPreferenceController> controllerHelper =
+                new PreferenceControllerTestHelper<>(mContext,
+                        ViolatingPreferenceController.class, new Preference(mContext));
+        controllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_CREATE);
+        int createCount = ControllerViolationDetector.getViolationCount(
+                ViolatingPreferenceController.class, "getAvailabilityStatus",
+                ControllerViolationDetector.DISK_READ);
+
+        controllerHelper.getController().refreshUi();
+
+        assertThat(createCount).isGreaterThan(0);
+        assertThat(ControllerViolationDetector.getViolationCount(
+                ViolatingPreferenceController.class, "getAvailabilityStatus",
+                ControllerViolationDetector.DISK_READ)).isGreaterThan(createCount);
+        assertThat(ControllerViolationDetector.getViolationCount(
+                ViolatingPreferenceController.class, "updateState",
+                ControllerViolationDetector.DISK_READ)).isEqualTo(0);
+    }
+
+    @Test
+    public void violation_outsideControllerCallback_ignored() {
+        ControllerViolationDetector.onBinderTransaction();
+        ControllerViolationDetector.onThreadViolation(new DiskReadViolation());
+
+        assertThat(ControllerViolationDetector.getViolationCount(
+                ControllerViolationDetector.BINDER_TRANSACTION)).isEqualTo(0);
+        assertThat(ControllerViolationDetector.getViolationCount(
+                ControllerViolationDetector.DISK_READ)).isEqualTo(0);
+    }
+
+    @Test
+    public void dump_ranksMostViolatingMethodFirst() {
+        PreferenceControllerTestHelper<ViolatingPreferenceController> controllerHelper =
+                new PreferenceControllerTestHelper<>(mContext,
+                        ViolatingPreferenceController.class, new Preference(mContext));
+        controllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_CREATE);
+
+        StringWriter output = new StringWriter();
+        ControllerViolationDetector.dump(/* prefix= */ "", new PrintWriter(output));
+
+        // Availability is checked more often than the state is updated.
+        String dump = output.toString();
+        assertThat(dump).contains("diskRead=");
+        assertThat(dump).contains("binder=1");
+        assertThat(dump.indexOf("#getAvailabilityStatus")).isLessThan(
+                dump.indexOf("#updateState"));
+    }
+}
@@ -141,12 +141,45 @@ public class PreferenceControllerTest {
     public void onUxRestrictionsChanged_created_available_updatesState() {
         mControllerHelper.markState(Lifecycle.State.CREATED);
 
+        mController.onUxRestrictionsChanged(NO_SETUP_UX_RESTRICTIONS);
+
+        // onCreate, onUxRestrictionsChanged.
+        assertThat(mController.getUpdateStateCallCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void onUxRestrictionsChanged_created_unwatchedRestrictionChanged_doesNotUpdateState() {
+        mControllerHelper.markState(Lifecycle.State.CREATED);
+
+        mController.onUxRestrictionsChanged(LIMIT_STRINGS_UX_RESTRICTIONS);
+
+        // onCreate only.
+        assertThat(mController.getUpdateStateCallCount()).isEqualTo(1);
+        assertThat(mController.getUxRestrictions()).isEqualTo(LIMIT_STRINGS_UX_RESTRICTIONS);
+    }
+
+    @Test
+    public void onUxRestrictionsChanged_created_uxRestrictionsRead_updatesStateOnAnyChange() {
+        mControllerHelper.markState(Lifecycle.State.CREATED);
+        mController.getUxRestrictions();
+
         mController.onUxRestrictionsChanged(LIMIT_STRINGS_UX_RESTRICTIONS);
 
         // onCreate, onUxRestrictionsChanged.
         assertThat(mController.getUpdateStateCallCount()).isEqualTo(2);
     }
 
+    @Test
+    public void onUxRestrictionsChanged_created_sameRestrictions_doesNotUpdateState() {
+        mControllerHelper.markState(Lifecycle.State.CREATED);
+        mController.onUxRestrictionsChanged(NO_SETUP_UX_RESTRICTIONS);
+
+        mController.onUxRestrictionsChanged(NO_SETUP_UX_RESTRICTIONS);
+
+        // onCreate, first onUxRestrictionsChanged.
+        assertThat(mController.getUpdateStateCallCount()).isEqualTo(2);
+    }
+
     @Test
     public void onUxRestrictionsChanged_notCreated_available_doesNotUpdateState() {
         mController.onUxRestrictionsChanged(LIMIT_STRINGS_UX_RESTRICTIONS);
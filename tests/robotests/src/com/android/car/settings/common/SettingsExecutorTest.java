@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class SettingsExecutorTest {
+
+    private final List<Runnable> mPendingWorkers = new ArrayList<>();
+    private final List<Runnable> mPendingResults = new ArrayList<>();
+    private final List<String> mEvents = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mPendingWorkers.clear();
+        mPendingResults.clear();
+        mEvents.clear();
+    }
+
+    @Test
+    public void execute_runsHigherPriorityTasksFirst() {
+        SettingsExecutor executor = createExecutor(/* maxWorkers= */ 1);
+
+        executor.execute(SettingsExecutor.PRIORITY_BULK, () -> mEvents.add("bulk"));
+        executor.execute(SettingsExecutor.PRIORITY_VISIBLE, () -> mEvents.add("visible"));
+        executor.execute(SettingsExecutor.PRIORITY_INTERACTIVE, () -> mEvents.add("interactive"));
+        runPendingWorkers();
+
+        assertThat(mEvents).containsExactly("interactive", "visible", "bulk").inOrder();
+    }
+
+    @Test
+    public void execute_bulkTasksLeaveAWorkerForOtherLanes() {
+        SettingsExecutor executor = createExecutor(/* maxWorkers= */ 2);
+
+        executor.execute(SettingsExecutor.PRIORITY_BULK, () -> {
+            executor.execute(SettingsExecutor.PRIORITY_BULK, () -> mEvents.add("bulk"));
+            mEvents.add("workers after bulk=" + mPendingWorkers.size());
+            executor.execute(SettingsExecutor.PRIORITY_INTERACTIVE,
+                    () -> mEvents.add("interactive"));
+            mEvents.add("workers after interactive=" + mPendingWorkers.size());
+        });
+        mPendingWorkers.remove(0).run();
+
+        assertThat(mEvents).containsExactly("workers after bulk=0",
+                "workers after interactive=1", "interactive", "bulk").inOrder();
+    }
+
+    @Test
+    public void execute_deliversResultOnMainExecutor() {
+        SettingsExecutor executor = createExecutor(/* maxWorkers= */ 1);
+
+        executor.execute(SettingsExecutor.PRIORITY_VISIBLE, () -> "result", mEvents::add);
+        runPendingWorkers();
+
+        assertThat(mEvents).isEmpty();
+        runPendingResults();
+        assertThat(mEvents).containsExactly("result");
+    }
+
+    @Test
+    public void cancel_beforeRun_doesNotRunTask() {
+        SettingsExecutor executor = createExecutor(/* maxWorkers= */ 1);
+
+        SettingsExecutor.Task task = executor.execute(SettingsExecutor.PRIORITY_VISIBLE,
+                () -> mEvents.add("run"));
+        task.cancel();
+        runPendingWorkers();
+
+        assertThat(mEvents).isEmpty();
+        assertThat(executor.getQueueDepth(SettingsExecutor.PRIORITY_VISIBLE)).isEqualTo(0);
+    }
+
+    @Test
+    public void cancel_afterRun_doesNotDeliverResult() {
+        SettingsExecutor executor = createExecutor(/* maxWorkers= */ 1);
+
+        SettingsExecutor.Task task = executor.execute(SettingsExecutor.PRIORITY_VISIBLE,
+                () -> "result", mEvents::add);
+        runPendingWorkers();
+        task.cancel();
+        runPendingResults();
+
+        assertThat(mEvents).isEmpty();
+    }
+
+    @Test
+    public void lifecycleDestroyed_cancelsPendingTasks() {
+        SettingsExecutor executor = createExecutor(/* maxWorkers= */ 1);
+        Lifecycle lifecycle = mock(Lifecycle.class);
+        when(lifecycle.getCurrentState()).thenReturn(Lifecycle.State.CREATED);
+
+        SettingsExecutor.Task task = executor.execute(SettingsExecutor.PRIORITY_VISIBLE,
+                lifecycle, () -> "result", mEvents::add);
+        ArgumentCaptor<LifecycleObserver> observer =
+                ArgumentCaptor.forClass(LifecycleObserver.class);
+        verify(lifecycle).addObserver(observer.capture());
+        ((DefaultLifecycleObserver) observer.getValue()).onDestroy(mock(LifecycleOwner.class));
+        runPendingWorkers();
+        runPendingResults();
+
+        assertThat(task.isCancelled()).isTrue();
+        assertThat(mEvents).isEmpty();
+    }
+
+    @Test
+    public void execute_lifecycleAlreadyDestroyed_returnsCancelledTask() {
+        SettingsExecutor executor = createExecutor(/* maxWorkers= */ 1);
+        Lifecycle lifecycle = mock(Lifecycle.class);
+        when(lifecycle.getCurrentState()).thenReturn(Lifecycle.State.DESTROYED);
+
+        SettingsExecutor.Task task = executor.execute(SettingsExecutor.PRIORITY_VISIBLE,
+                lifecycle, () -> "result", mEvents::add);
+        runPendingWorkers();
+        runPendingResults();
+
+        assertThat(task.isCancelled()).isTrue();
+        assertThat(mEvents).isEmpty();
+    }
+
+    @Test
+    public void getQueueDepth_countsWaitingTasksPerLane() {
+        SettingsExecutor executor = createExecutor(/* maxWorkers= */ 1);
+
+        executor.execute(SettingsExecutor.PRIORITY_BULK, () -> { });
+        executor.execute(SettingsExecutor.PRIORITY_BULK, () -> { });
+        executor.execute(SettingsExecutor.PRIORITY_INTERACTIVE, () -> { });
+
+        assertThat(executor.getQueueDepth(SettingsExecutor.PRIORITY_BULK)).isEqualTo(2);
+        assertThat(executor.getQueueDepth(SettingsExecutor.PRIORITY_INTERACTIVE)).isEqualTo(1);
+        assertThat(executor.getQueueDepth(SettingsExecutor.PRIORITY_VISIBLE)).isEqualTo(0);
+        runPendingWorkers();
+        assertThat(executor.getQueueDepth(SettingsExecutor.PRIORITY_BULK)).isEqualTo(0);
+    }
+
+    @Test
+    public void dump_printsLaneStats() {
+        SettingsExecutor executor = createExecutor(/* maxWorkers= */ 1);
+        executor.execute(SettingsExecutor.PRIORITY_BULK, () -> { });
+        executor.execute(SettingsExecutor.PRIORITY_BULK, () -> { });
+        runPendingWorkers();
+
+        StringWriter output = new StringWriter();
+        executor.dump(/* prefix= */ "", new PrintWriter(output));
+
+        assertThat(output.toString()).contains("bulk: queued=0 maxQueued=2 run=2 cancelled=0");
+    }
+
+    private SettingsExecutor createExecutor(int maxWorkers) {
+        return new SettingsExecutor(mPendingWorkers::add, maxWorkers, mPendingResults::add);
+    }
+
+    private void runPendingWorkers() {
+        while (!mPendingWorkers.isEmpty()) {
+            mPendingWorkers.remove(0).run();
+        }
+    }
+
+    private void runPendingResults() {
+        while (!mPendingResults.isEmpty()) {
+            mPendingResults.remove(0).run();
+        }
+    }
+}
@@ -30,9 +30,11 @@ import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentSender;
+import android.view.View;
 
 import androidx.fragment.app.DialogFragment;
 import androidx.preference.Preference;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.car.settings.CarSettingsRobolectricTestRunner;
 import com.android.car.settings.R;
@@ -40,10 +42,12 @@ import com.android.car.settings.testutils.DummyFragment;
 import com.android.car.settings.testutils.FragmentController;
 import com.android.car.ui.toolbar.Toolbar;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
 
 /** Unit test for {@link SettingsFragment}. */
 @RunWith(CarSettingsRobolectricTestRunner.class)
@@ -62,6 +66,11 @@ public class SettingsFragmentTest {
         mFragment = mFragmentController.get();
     }
 
+    @After
+    public void tearDown() {
+        SettingsFragment.setDeferralEnabled(true);
+    }
+
     @Test
     public void use_returnsController() {
         mFragmentController.setup();
@@ -253,6 +262,95 @@ public class SettingsFragmentTest {
                 Toolbar.NavButtonMode.BACK);
     }
 
+    @Test
+    public void onAttach_aboveTheFoldKeys_defersOtherControllers() {
+        FragmentController<DeferringSettingsFragment> fragmentController =
+                FragmentController.of(new DeferringSettingsFragment());
+        fragmentController.create();
+        DeferringSettingsFragment fragment = fragmentController.get();
+
+        assertThat(fragment.getDeferredControllerCount()).isEqualTo(1);
+        FakePreferenceController controller = fragment.use(FakePreferenceController.class,
+                R.string.tpk_fake_controller);
+        assertThat(controller.getOnCreateInternalCallCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void onAttach_deferralDisabled_createsAllControllers() {
+        SettingsFragment.setDeferralEnabled(false);
+        FragmentController<DeferringSettingsFragment> fragmentController =
+                FragmentController.of(new DeferringSettingsFragment());
+        fragmentController.create();
+
+        assertThat(fragmentController.get().getDeferredControllerCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void use_deferredController_createsControllerInFragmentState() {
+        FragmentController<DeferringSettingsFragment> fragmentController =
+                FragmentController.of(new DeferringSettingsFragment());
+        fragmentController.create();
+        DeferringSettingsFragment fragment = fragmentController.get();
+
+        FakePreferenceController controller = fragment.use(FakePreferenceController.class,
+                R.string.tpk_deferred_fake_controller);
+
+        assertThat(controller).isNotNull();
+        assertThat(controller.getPreference()).isNotNull();
+        assertThat(controller.getOnCreateInternalCallCount()).isEqualTo(1);
+        assertThat(fragment.getDeferredControllerCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void firstFrame_createsDeferredControllersInFragmentState() {
+        FragmentController<DeferringSettingsFragment> fragmentController =
+                FragmentController.of(new DeferringSettingsFragment());
+        DeferringSettingsFragment fragment = fragmentController.setup();
+
+        fragment.requireView().getViewTreeObserver().dispatchOnPreDraw();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertThat(fragment.getDeferredControllerCount()).isEqualTo(0);
+        FakePreferenceController controller = fragment.use(FakePreferenceController.class,
+                R.string.tpk_deferred_fake_controller);
+        assertThat(controller.getOnResumeInternalCallCount()).isEqualTo(1);
+        assertThat(controller.getUpdateStateCallCount()).isAtLeast(1);
+    }
+
+    @Test
+    public void rowAttached_deferredController_createsController() {
+        FragmentController<DeferringSettingsFragment> fragmentController =
+                FragmentController.of(new DeferringSettingsFragment());
+        fragmentController.create();
+        DeferringSettingsFragment fragment = fragmentController.get();
+        assertThat(fragment.getDeferredControllerCount()).isEqualTo(1);
+
+        // Lay out the list so that its rows are attached, without drawing a frame.
+        RecyclerView listView = fragment.getListView();
+        int spec = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY);
+        listView.measure(spec, spec);
+        listView.layout(/* l= */ 0, /* t= */ 0, /* r= */ 1000, /* b= */ 1000);
+        ShadowLooper.runUiThreadTasks();
+
+        assertThat(fragment.getDeferredControllerCount()).isEqualTo(0);
+        FakePreferenceController controller = fragment.use(FakePreferenceController.class,
+                R.string.tpk_deferred_fake_controller);
+        assertThat(controller.getOnCreateInternalCallCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void onDestroy_deferredControllerCreated_destroysController() {
+        FragmentController<DeferringSettingsFragment> fragmentController =
+                FragmentController.of(new DeferringSettingsFragment());
+        fragmentController.create();
+        FakePreferenceController controller = fragmentController.get().use(
+                FakePreferenceController.class, R.string.tpk_deferred_fake_controller);
+
+        fragmentController.destroy();
+
+        assertThat(controller.getOnDestroyInternalCallCount()).isEqualTo(1);
+    }
+
     /** Concrete {@link SettingsFragment} for testing. */
     public static class TestSettingsFragment extends SettingsFragment {
         @Override
@@ -260,4 +358,17 @@ public class SettingsFragmentTest {
             return R.xml.settings_fragment;
         }
     }
+
+    /** {@link SettingsFragment} which defers the controllers of preferences below the fold. */
+    public static class DeferringSettingsFragment extends SettingsFragment {
+        @Override
+        protected int getPreferenceScreenResId() {
+            return R.xml.settings_fragment_deferred;
+        }
+
+        @Override
+        protected int[] getAboveTheFoldPreferenceKeys() {
+            return new int[]{R.string.tpk_fake_controller};
+        }
+    }
 }
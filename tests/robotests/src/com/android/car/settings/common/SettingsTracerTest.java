@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.preference.Preference;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class SettingsTracerTest {
+
+    private static final String SCREEN = "TestFragment";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        SettingsTracer.reset();
+        SettingsTracer.setAggregationEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        SettingsTracer.setAggregationEnabled(false);
+        SettingsTracer.reset();
+    }
+
+    @Test
+    public void end_aggregationDisabled_recordsNothing() {
+        SettingsTracer.setAggregationEnabled(false);
+        SettingsTracer.Span span = new SettingsTracer.Span(SCREEN, "Component", "phase");
+
+        SettingsTracer.end(span, SettingsTracer.begin(span));
+
+        assertThat(SettingsTracer.getSummaries()).isEmpty();
+    }
+
+    @Test
+    public void end_recordsDurationPerScreenAndSpan() {
+        SettingsTracer.Span span = new SettingsTracer.Span(SCREEN, "Component", "phase");
+
+        long token = SettingsTracer.begin(span);
+        SystemClock.sleep(5);
+        SettingsTracer.end(span, token);
+
+        List<SettingsTracer.SpanSummary> summaries = SettingsTracer.getSummaries();
+        assertThat(summaries).hasSize(1);
+        assertThat(summaries.get(0).mScreen).isEqualTo(SCREEN);
+        assertThat(summaries.get(0).mSpan).isEqualTo("Component#phase");
+        assertThat(summaries.get(0).mCount).isEqualTo(1);
+        assertThat(summaries.get(0).mMaxNanos).isAtLeast(5_000_000L);
+    }
+
+    @Test
+    public void endAsync_recordsDuration() {
+        SettingsTracer.Span span = new SettingsTracer.Span(SCREEN, "Component", "ready");
+
+        long token = SettingsTracer.beginAsync(span, /* cookie= */ 1);
+        SystemClock.sleep(5);
+        SettingsTracer.endAsync(span, /* cookie= */ 1, token);
+
+        List<SettingsTracer.SpanSummary> summaries = SettingsTracer.getSummaries();
+        assertThat(summaries).hasSize(1);
+        assertThat(summaries.get(0).mSpan).isEqualTo("Component#ready");
+        assertThat(summaries.get(0).mMaxNanos).isAtLeast(5_000_000L);
+    }
+
+    @Test
+    public void cancelAsync_recordsNothing() {
+        SettingsTracer.Span span = new SettingsTracer.Span(SCREEN, "Component", "ready");
+
+        SettingsTracer.beginAsync(span, /* cookie= */ 1);
+        SettingsTracer.cancelAsync(span, /* cookie= */ 1);
+
+        assertThat(SettingsTracer.getSummaries()).isEmpty();
+    }
+
+    @Test
+    public void getSummaries_computesPercentiles() {
+        SettingsTracer.Span span = new SettingsTracer.Span(SCREEN, "Component", "phase");
+
+        for (int i = 1; i <= 10; i++) {
+            long token = SettingsTracer.begin(span);
+            SystemClock.sleep(i);
+            SettingsTracer.end(span, token);
+        }
+
+        SettingsTracer.SpanSummary summary = SettingsTracer.getSummaries().get(0);
+        assertThat(summary.mCount).isEqualTo(10);
+        assertThat(summary.mP50Nanos).isAtLeast(5_000_000L);
+        assertThat(summary.mP90Nanos).isAtLeast(9_000_000L);
+        assertThat(summary.mP50Nanos).isAtMost(summary.mP90Nanos);
+        assertThat(summary.mP90Nanos).isAtMost(summary.mP99Nanos);
+    }
+
+    @Test
+    public void getSummaries_percentilesOnlyCoverRecentSamples() {
+        SettingsTracer.Span span = new SettingsTracer.Span(SCREEN, "Component", "phase");
+        long token = SettingsTracer.begin(span);
+        SystemClock.sleep(100);
+        SettingsTracer.end(span, token);
+
+        for (int i = 0; i < SettingsTracer.MAX_SAMPLES_PER_SPAN; i++) {
+            SettingsTracer.end(span, SettingsTracer.begin(span));
+        }
+
+        SettingsTracer.SpanSummary summary = SettingsTracer.getSummaries().get(0);
+        assertThat(summary.mCount).isEqualTo(SettingsTracer.MAX_SAMPLES_PER_SPAN + 1);
+        assertThat(summary.mP99Nanos).isLessThan(100_000_000L);
+        assertThat(summary.mMaxNanos).isAtLeast(100_000_000L);
+    }
+
+    @Test
+    public void controllerLifecycle_recordsEachPhase() {
+        PreferenceControllerTestHelper<FakePreferenceController> controllerHelper =
+                new PreferenceControllerTestHelper<>(mContext, FakePreferenceController.class,
+                        new Preference(mContext));
+
+        controllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_RESUME);
+        controllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+
+        StringWriter output = new StringWriter();
+        SettingsTracer.dump(/* prefix= */ "", new PrintWriter(output));
+        String dump = output.toString();
+        assertThat(dump).contains("FakePreferenceController#onCreate");
+        assertThat(dump).contains("FakePreferenceController#onStart");
+        assertThat(dump).contains("FakePreferenceController#onResume");
+        assertThat(dump).contains("FakePreferenceController#onPause");
+        assertThat(dump).contains("FakePreferenceController#onStop");
+        assertThat(dump).contains("FakePreferenceController#onDestroy");
+        assertThat(dump).contains("FakePreferenceController#refreshUi");
+        assertThat(dump).contains("FakePreferenceController#getAvailabilityStatus");
+    }
+
+    @Test
+    public void dump_ordersSlowestSpansFirst() {
+        SettingsTracer.Span fastSpan = new SettingsTracer.Span(SCREEN, "Fast", "phase");
+        SettingsTracer.Span slowSpan = new SettingsTracer.Span(SCREEN, "Slow", "phase");
+        SettingsTracer.end(fastSpan, SettingsTracer.begin(fastSpan));
+        long token = SettingsTracer.begin(slowSpan);
+        SystemClock.sleep(10);
+        SettingsTracer.end(slowSpan, token);
+
+        StringWriter output = new StringWriter();
+        SettingsTracer.dump(/* prefix= */ "", new PrintWriter(output));
+
+        String dump = output.toString();
+        assertThat(dump.indexOf("Slow#phase")).isLessThan(dump.indexOf("Fast#phase"));
+    }
+}
@@ -18,6 +18,8 @@ package com.android.car.settings.datausage;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.Mockito.when;
+
 import android.net.INetworkStatsService;
 import android.net.NetworkPolicy;
 import android.net.NetworkPolicyManager;
@@ -70,6 +72,7 @@ public class AppDataUsageFragmentTest {
         mFragment = new AppDataUsageFragment();
         mFragmentController = FragmentController.of(mFragment);
 
+        when(mNetworkPolicyManager.getNetworkPolicies()).thenReturn(new NetworkPolicy[0]);
         ShadowNetworkPolicyManager.setNetworkPolicyManager(mNetworkPolicyManager);
         ShadowINetworkStatsServiceStub.setINetworkStatsSession(mINetworkStatsService);
     }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.when;
+
+import android.car.userlib.CarUserManagerHelper;
+import android.content.Context;
+import android.content.pm.UserInfo;
+import android.net.NetworkStats;
+import android.os.UserHandle;
+
+import androidx.lifecycle.Lifecycle;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.benchmark.BenchmarkDatasets;
+import com.android.car.settings.benchmark.BenchmarkRule;
+import com.android.car.settings.common.LogicalPreferenceGroup;
+import com.android.car.settings.common.PreferenceControllerTestHelper;
+import com.android.car.settings.testutils.ShadowCarUserManagerHelper;
+import com.android.car.settings.testutils.ShadowUidDetailProvider;
+import com.android.settingslib.net.UidDetail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+
+/** Benchmark for {@link AppDataUsagePreferenceController}. */
+@RunWith(CarSettingsRobolectricTestRunner.class)
+@Config(shadows = {ShadowCarUserManagerHelper.class, ShadowUidDetailProvider.class})
+public class AppDataUsagePreferenceControllerBenchmarkTest {
+
+    @Rule
+    public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    @Mock
+    private CarUserManagerHelper mCarUserManagerHelper;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        ShadowCarUserManagerHelper.setMockInstance(mCarUserManagerHelper);
+        when(mCarUserManagerHelper.getCurrentProcessUserId()).thenReturn(UserHandle.USER_SYSTEM);
+        when(mCarUserManagerHelper.getAllUsers()).thenReturn(Collections.singletonList(
+                new UserInfo(UserHandle.USER_SYSTEM, "Driver", UserInfo.FLAG_PRIMARY)));
+
+        UidDetail uidDetail = new UidDetail();
+        uidDetail.label = "App";
+        ShadowUidDetailProvider.setUidDetail(uidDetail);
+    }
+
+    @After
+    public void tearDown() {
+        ShadowUidDetailProvider.reset();
+        ShadowCarUserManagerHelper.reset();
+    }
+
+    @Test
+    public void onDataLoaded() {
+        LogicalPreferenceGroup preferenceGroup = new LogicalPreferenceGroup(mContext);
+        PreferenceControllerTestHelper<AppDataUsagePreferenceController> controllerHelper =
+                new PreferenceControllerTestHelper<>(mContext,
+                        AppDataUsagePreferenceController.class, preferenceGroup);
+        controllerHelper.markState(Lifecycle.State.STARTED);
+        AppDataUsagePreferenceController controller = controllerHelper.getController();
+        NetworkStats networkStats = BenchmarkDatasets.createNetworkStats();
+
+        mBenchmark.measure("onDataLoaded", () -> {
+            preferenceGroup.removeAll();
+            controller.onDataLoaded(networkStats, new int[0]);
+        });
+
+        assertThat(preferenceGroup.getPreferenceCount()).isEqualTo(BenchmarkDatasets.APP_COUNT);
+    }
+}
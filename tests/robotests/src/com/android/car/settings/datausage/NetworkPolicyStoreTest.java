@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.net.NetworkPolicy;
+import android.net.NetworkPolicyManager;
+import android.net.NetworkTemplate;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.settingslib.NetworkPolicyEditor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class NetworkPolicyStoreTest {
+
+    private static final long BYTES_IN_GIGABYTE = 1024 * 1024 * 1024;
+
+    private final List<Runnable> mBackgroundTasks = new ArrayList<>();
+    private NetworkTemplate mTemplate;
+    private NetworkPolicyStore mStore;
+
+    @Mock
+    private NetworkPolicyManager mPolicyManager;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        Context context = RuntimeEnvironment.application;
+        when(mPolicyManager.getNetworkPolicies()).thenReturn(new NetworkPolicy[0]);
+        mTemplate = NetworkTemplate.buildTemplateMobileAll("subscriberId");
+        mStore = new NetworkPolicyStore(context, mPolicyManager, mBackgroundTasks::add);
+    }
+
+    @Test
+    public void getEditor_notPreloaded_readsPolicies() {
+        mStore.getEditor();
+
+        verify(mPolicyManager).getNetworkPolicies();
+    }
+
+    @Test
+    public void getEditor_returnsSharedEditor() {
+        assertThat(mStore.getEditor()).isSameAs(mStore.getEditor());
+    }
+
+    @Test
+    public void getEditor_policiesChangedOutsideStore_rereadsPolicies() {
+        NetworkPolicyEditor editor = mStore.getEditor();
+        assertThat(editor.getPolicy(mTemplate)).isNull();
+
+        when(mPolicyManager.getNetworkPolicies()).thenReturn(
+                new NetworkPolicy[]{createPolicy(BYTES_IN_GIGABYTE)});
+
+        assertThat(mStore.getEditor().getPolicyWarningBytes(mTemplate))
+                .isEqualTo(BYTES_IN_GIGABYTE);
+        verify(mPolicyManager, times(2)).getNetworkPolicies();
+    }
+
+    @Test
+    public void getEditor_pendingEdits_keepsEditedPolicies() {
+        mStore.getEditor().setPolicyWarningBytes(mTemplate, BYTES_IN_GIGABYTE);
+
+        NetworkPolicyEditor editor = mStore.getEditor();
+
+        assertThat(editor.getPolicyWarningBytes(mTemplate)).isEqualTo(BYTES_IN_GIGABYTE);
+        verify(mPolicyManager).getNetworkPolicies();
+    }
+
+    @Test
+    public void getEditor_writeInFlight_keepsEditedPolicies() {
+        mStore.getEditor().setPolicyWarningBytes(mTemplate, BYTES_IN_GIGABYTE);
+        mStore.flush();
+
+        NetworkPolicyEditor editor = mStore.getEditor();
+
+        assertThat(editor.getPolicyWarningBytes(mTemplate)).isEqualTo(BYTES_IN_GIGABYTE);
+        verify(mPolicyManager).getNetworkPolicies();
+    }
+
+    @Test
+    public void getEditor_afterWriteCompleted_rereadsPolicies() {
+        mStore.getEditor().setPolicyWarningBytes(mTemplate, BYTES_IN_GIGABYTE);
+        mStore.flush();
+        Robolectric.flushBackgroundThreadScheduler();
+        ShadowLooper.runUiThreadTasks();
+
+        mStore.getEditor();
+
+        verify(mPolicyManager, times(2)).getNetworkPolicies();
+    }
+
+    @Test
+    public void getEditor_afterPreload_doesNotRereadPolicies() {
+        mStore.getEditor();
+        mStore.preload();
+        mBackgroundTasks.remove(0).run();
+        ShadowLooper.runUiThreadTasks();
+
+        mStore.getEditor();
+
+        verify(mPolicyManager, times(2)).getNetworkPolicies();
+    }
+
+    @Test
+    public void preload_readsPoliciesInBackground() {
+        mStore.preload();
+        verify(mPolicyManager, never()).getNetworkPolicies();
+
+        mBackgroundTasks.remove(0).run();
+        ShadowLooper.runUiThreadTasks();
+        mStore.getEditor();
+
+        verify(mPolicyManager).getNetworkPolicies();
+    }
+
+    @Test
+    public void getEditor_preloadNotStarted_readsOnCallingThreadOnce() {
+        mStore.preload();
+
+        mStore.getEditor();
+        mBackgroundTasks.remove(0).run();
+        ShadowLooper.runUiThreadTasks();
+
+        verify(mPolicyManager).getNetworkPolicies();
+    }
+
+    @Test
+    public void edit_appliesToEditorImmediately() {
+        NetworkPolicyEditor editor = mStore.getEditor();
+
+        editor.setPolicyWarningBytes(mTemplate, BYTES_IN_GIGABYTE);
+
+        assertThat(editor.getPolicyWarningBytes(mTemplate)).isEqualTo(BYTES_IN_GIGABYTE);
+    }
+
+    @Test
+    public void edits_writtenOnceAfterDebounce() {
+        NetworkPolicyEditor editor = mStore.getEditor();
+
+        editor.setPolicyWarningBytes(mTemplate, BYTES_IN_GIGABYTE);
+        editor.setPolicyLimitBytes(mTemplate, 2 * BYTES_IN_GIGABYTE);
+        Robolectric.flushBackgroundThreadScheduler();
+        verify(mPolicyManager, never()).setNetworkPolicies(any());
+
+        ShadowLooper.idleMainLooper(NetworkPolicyStore.WRITE_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        Robolectric.flushBackgroundThreadScheduler();
+
+        verify(mPolicyManager, times(1)).setNetworkPolicies(any());
+    }
+
+    @Test
+    public void flush_writesPendingEditsImmediately() {
+        NetworkPolicyEditor editor = mStore.getEditor();
+        editor.setPolicyWarningBytes(mTemplate, BYTES_IN_GIGABYTE);
+
+        mStore.flush();
+        Robolectric.flushBackgroundThreadScheduler();
+        verify(mPolicyManager).setNetworkPolicies(any());
+
+        // The debounced write was cancelled.
+        ShadowLooper.idleMainLooper(NetworkPolicyStore.WRITE_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        Robolectric.flushBackgroundThreadScheduler();
+        verify(mPolicyManager, times(1)).setNetworkPolicies(any());
+    }
+
+    @Test
+    public void flush_noEdits_doesNotWrite() {
+        mStore.getEditor();
+
+        mStore.flush();
+        Robolectric.flushBackgroundThreadScheduler();
+
+        verify(mPolicyManager, never()).setNetworkPolicies(any());
+    }
+
+    @Test
+    public void preload_pendingEdits_keepsEditedPolicies() {
+        NetworkPolicyEditor editor = mStore.getEditor();
+        editor.setPolicyWarningBytes(mTemplate, BYTES_IN_GIGABYTE);
+
+        mStore.preload();
+
+        assertThat(mBackgroundTasks).isEmpty();
+        assertThat(mStore.getEditor()).isSameAs(editor);
+    }
+
+    private NetworkPolicy createPolicy(long warningBytes) {
+        return new NetworkPolicy(mTemplate, /* cycleDay= */ 1, /* cycleTimezone= */ "UTC",
+                warningBytes, NetworkPolicy.LIMIT_DISABLED, /* metered= */ true);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.network;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.testutils.ShadowSubscriptionManager;
+import com.android.car.settings.testutils.ShadowTelephonyManager;
+
+import com.google.android.collect.Lists;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+@Config(shadows = {ShadowSubscriptionManager.class, ShadowTelephonyManager.class})
+public class SubscriptionStoreTest {
+
+    private Context mContext;
+    private SubscriptionStore mSubscriptionStore;
+    @Mock
+    private SubscriptionStore.Listener mListener;
+    @Mock
+    private SubscriptionStore.Listener mOtherListener;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        // Run recomputation inline so that only the main looper needs to be advanced.
+        mSubscriptionStore = new SubscriptionStore(mContext, Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        ShadowSubscriptionManager.reset();
+        ShadowTelephonyManager.reset();
+    }
+
+    @Test
+    public void registerListener_registersSingleSubscriptionListener() {
+        mSubscriptionStore.registerListener(mListener);
+        mSubscriptionStore.registerListener(mOtherListener);
+
+        assertThat(getShadowSubscriptionManager().getOnSubscriptionChangedListeners()).hasSize(1);
+    }
+
+    @Test
+    public void unregisterListener_lastListener_unregistersSubscriptionListener() {
+        mSubscriptionStore.registerListener(mListener);
+        mSubscriptionStore.registerListener(mOtherListener);
+
+        mSubscriptionStore.unregisterListener(mListener);
+        assertThat(getShadowSubscriptionManager().getOnSubscriptionChangedListeners()).hasSize(1);
+
+        mSubscriptionStore.unregisterListener(mOtherListener);
+        assertThat(getShadowSubscriptionManager().getOnSubscriptionChangedListeners()).isEmpty();
+    }
+
+    @Test
+    public void getSnapshot_noListeners_reflectsLatestSubscriptions() {
+        assertThat(mSubscriptionStore.getSnapshot().getAvailableSubscriptions()).isEmpty();
+
+        getShadowSubscriptionManager().setSelectableSubscriptionInfoList(
+                Lists.newArrayList(createSubscriptionInfo(/* subId= */ 1)));
+
+        assertThat(mSubscriptionStore.getSnapshot().getAvailableSubscriptions()).hasSize(1);
+    }
+
+    @Test
+    public void subscriptionsChanged_snapshotDiffers_notifiesOnceAfterDebounce() {
+        mSubscriptionStore.registerListener(mListener);
+        mSubscriptionStore.getSnapshot();
+
+        getShadowSubscriptionManager().setSelectableSubscriptionInfoList(
+                Lists.newArrayList(createSubscriptionInfo(/* subId= */ 1)));
+        // Setting the active list triggers the change listeners on the shadow.
+        getShadowSubscriptionManager().setActiveSubscriptionInfoList(null);
+        getShadowSubscriptionManager().setActiveSubscriptionInfoList(null);
+        verify(mListener, never()).onSubscriptionsSnapshotChanged(any());
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(mListener, times(1)).onSubscriptionsSnapshotChanged(any());
+        assertThat(mSubscriptionStore.getSnapshot().getAvailableSubscriptions()).hasSize(1);
+    }
+
+    @Test
+    public void subscriptionsChanged_snapshotUnchanged_doesNotNotify() {
+        mSubscriptionStore.registerListener(mListener);
+        mSubscriptionStore.getSnapshot();
+
+        getShadowSubscriptionManager().setActiveSubscriptionInfoList(null);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(mListener, never()).onSubscriptionsSnapshotChanged(any());
+    }
+
+    @Test
+    public void registerListener_previousSnapshot_keptUntilRefreshed() {
+        List<Runnable> backgroundTasks = new ArrayList<>();
+        SubscriptionStore store = new SubscriptionStore(mContext, backgroundTasks::add);
+        store.getSnapshot();
+        getShadowSubscriptionManager().setSelectableSubscriptionInfoList(
+                Lists.newArrayList(createSubscriptionInfo(/* subId= */ 1)));
+
+        store.registerListener(mListener);
+
+        assertThat(store.getSnapshot().getAvailableSubscriptions()).isEmpty();
+        assertThat(backgroundTasks).hasSize(1);
+
+        backgroundTasks.get(0).run();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(mListener).onSubscriptionsSnapshotChanged(any());
+        assertThat(store.getSnapshot().getAvailableSubscriptions()).hasSize(1);
+    }
+
+    @Test
+    public void registerListener_noPreviousSnapshot_doesNotRefreshInBackground() {
+        List<Runnable> backgroundTasks = new ArrayList<>();
+        SubscriptionStore store = new SubscriptionStore(mContext, backgroundTasks::add);
+
+        store.registerListener(mListener);
+
+        assertThat(backgroundTasks).isEmpty();
+    }
+
+    private ShadowSubscriptionManager getShadowSubscriptionManager() {
+        return Shadow.extract(mContext.getSystemService(SubscriptionManager.class));
+    }
+
+    private SubscriptionInfo createSubscriptionInfo(int subId) {
+        return new SubscriptionInfo(subId, /* iccId= */ "",
+                /* simSlotIndex= */ 1, /* displayName= */ "", /* carrierName= */ "",
+                /* nameSource= */ 0, /* iconTint= */ 0, /* number= */ "",
+                /* roaming= */ 0, /* icon= */ null, /* mcc= */ "", /* mnc= */ "mncString",
+                /* countryIso= */ "", /* isEmbedded= */ false,
+                /* accessRules= */ null, /* cardString= */ "");
+    }
+}
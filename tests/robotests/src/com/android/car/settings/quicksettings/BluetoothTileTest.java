@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.quicksettings;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.bluetooth.BluetoothAdapter;
+import android.content.Context;
+import android.content.Intent;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.common.FragmentController;
+import com.android.car.settings.quicksettings.QuickSettingGridAdapter.Tile.State;
+import com.android.car.settings.testutils.ShadowBluetoothAdapter;
+import com.android.car.settings.testutils.ShadowBluetoothPan;
+import com.android.car.settings.testutils.ShadowLocalBluetoothAdapter;
+import com.android.settingslib.bluetooth.LocalBluetoothManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+@Config(shadows = {ShadowLocalBluetoothAdapter.class, ShadowBluetoothAdapter.class,
+        ShadowBluetoothPan.class})
+public class BluetoothTileTest {
+
+    private Context mContext;
+    private BluetoothTile mTile;
+    @Mock
+    private StateChangedListener mStateChangedListener;
+    @Mock
+    private FragmentController mFragmentController;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mTile = new BluetoothTile(mContext, mStateChangedListener, mFragmentController);
+        mTile.start();
+    }
+
+    @After
+    public void tearDown() {
+        mTile.stop();
+    }
+
+    @Test
+    public void onInitialStateLoaded_enabled_isOn() {
+        setBluetoothEnabled(true);
+
+        loadInitialState();
+
+        assertThat(mTile.isAvailable()).isTrue();
+        assertThat(mTile.getState()).isEqualTo(State.ON);
+    }
+
+    @Test
+    public void onInitialStateLoaded_disabled_isOff() {
+        setBluetoothEnabled(false);
+
+        loadInitialState();
+
+        assertThat(mTile.getState()).isEqualTo(State.OFF);
+    }
+
+    @Test
+    public void onInitialStateLoaded_stateChangedWhileLoading_keepsChangedState() {
+        setBluetoothEnabled(true);
+        mTile.loadInitialState();
+
+        sendStateChanged(BluetoothAdapter.STATE_OFF);
+        mTile.onInitialStateLoaded();
+
+        assertThat(mTile.isAvailable()).isTrue();
+        assertThat(mTile.getState()).isEqualTo(State.OFF);
+    }
+
+    @Test
+    public void onInitialStateLoaded_connectionChangedWhileLoading_appliesLoadedState() {
+        setBluetoothEnabled(false);
+        mTile.loadInitialState();
+
+        mContext.sendBroadcast(new Intent(BluetoothAdapter.ACTION_CONNECTION_STATE_CHANGED)
+                .putExtra(BluetoothAdapter.EXTRA_CONNECTION_STATE,
+                        BluetoothAdapter.STATE_DISCONNECTED));
+        ShadowLooper.runUiThreadTasks();
+        mTile.onInitialStateLoaded();
+
+        assertThat(mTile.getState()).isEqualTo(State.OFF);
+    }
+
+    @Test
+    public void stateChanged_afterLoad_updatesState() {
+        setBluetoothEnabled(false);
+        loadInitialState();
+
+        sendStateChanged(BluetoothAdapter.STATE_ON);
+
+        assertThat(mTile.getState()).isEqualTo(State.ON);
+    }
+
+    private void loadInitialState() {
+        mTile.loadInitialState();
+        mTile.onInitialStateLoaded();
+    }
+
+    private void sendStateChanged(int state) {
+        mContext.sendBroadcast(new Intent(BluetoothAdapter.ACTION_STATE_CHANGED)
+                .putExtra(BluetoothAdapter.EXTRA_STATE, state));
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    private void setBluetoothEnabled(boolean enabled) {
+        ShadowLocalBluetoothAdapter shadowAdapter = Shadow.extract(
+                LocalBluetoothManager.getInstance(mContext, /* onInitCallback= */ null)
+                        .getBluetoothAdapter());
+        if (enabled) {
+            shadowAdapter.enable();
+        } else {
+            shadowAdapter.disable();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.android.car.settings.quicksettings;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.R;
+import com.android.car.settings.common.SettingsExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class QuickSettingGridAdapterTest {
+
+    private static final String LOADED_TEXT = "Loaded";
+
+    private Context mContext;
+    private List<Runnable> mWorkers;
+    private LifecycleOwner mLifecycleOwner;
+    private LifecycleRegistry mLifecycle;
+    private QuickSettingGridAdapter mAdapter;
+    private TestTile mTile;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mWorkers = new ArrayList<>();
+        SettingsExecutor.setInstanceForTesting(
+                new SettingsExecutor(mWorkers::add, /* maxWorkers= */ 1, Runnable::run));
+        mLifecycleOwner = () -> mLifecycle;
+        mLifecycle = new LifecycleRegistry(mLifecycleOwner);
+        mLifecycle.handleLifecycleEvent(Lifecycle.Event.ON_CREATE);
+        mTile = new TestTile();
+        mAdapter = new QuickSettingGridAdapter(mContext).addTile(mTile);
+    }
+
+    @After
+    public void tearDown() {
+        SettingsExecutor.setInstanceForTesting(null);
+        QuickSettingGridAdapter.clearLastKnownTiles();
+    }
+
+    @Test
+    public void loadTiles_beforeLoaded_neverShownTileHidden() {
+        mAdapter.loadTiles(mLifecycle);
+
+        assertThat(mAdapter.getItemCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void loadTiles_afterLoaded_tileStatePatchedIn() {
+        mAdapter.loadTiles(mLifecycle);
+
+        runWorkers();
+
+        assertThat(mTile.mInitialStateLoaded).isTrue();
+        assertThat(mAdapter.getItemCount()).isEqualTo(1);
+        assertThat(getBoundText(/* position= */ 0)).isEqualTo(LOADED_TEXT);
+    }
+
+    @Test
+    public void loadTiles_loadFails_tileHidden() {
+        mTile.mFailLoad = true;
+        mAdapter.loadTiles(mLifecycle);
+
+        runWorkers();
+
+        assertThat(mTile.mInitialStateLoaded).isFalse();
+        assertThat(mAdapter.getItemCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void loadTiles_lifecycleDestroyedBeforeLoaded_stateNotPatchedIn() {
+        mAdapter.loadTiles(mLifecycle);
+
+        mLifecycle.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        runWorkers();
+
+        assertThat(mTile.mInitialStateLoaded).isFalse();
+        assertThat(mAdapter.getItemCount()).isEqualTo(0);
+    }
+
+    private void runWorkers() {
+        List<Runnable> workers = new ArrayList<>(mWorkers);
+        mWorkers.clear();
+        for (Runnable worker : workers) {
+            worker.run();
+        }
+    }
+
+    private CharSequence getBoundText(int position) {
+        RecyclerView.ViewHolder holder = mAdapter.onCreateViewHolder(new FrameLayout(mContext),
+                mAdapter.getItemViewType(position));
+        mAdapter.onBindViewHolder(holder, position);
+        return ((TextView) holder.itemView.findViewById(R.id.tile_text)).getText();
+    }
+
+    private static class TestTile implements QuickSettingGridAdapter.Tile {
+        private boolean mFailLoad;
+        private boolean mInitialStateLoaded;
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public void loadInitialState() {
+            if (mFailLoad) {
+                throw new IllegalStateException("Load failed");
+            }
+        }
+
+        @Override
+        public void onInitialStateLoaded() {
+            mInitialStateLoaded = true;
+        }
+
+        @Override
+        public Drawable getIcon() {
+            return null;
+        }
+
+        @Override
+        @Nullable
+        public String getText() {
+            return mInitialStateLoaded ? LOADED_TEXT : null;
+        }
+
+        @Override
+        public State getState() {
+            return State.ON;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return mInitialStateLoaded;
+        }
+
+        @Override
+        @Nullable
+        public View.OnLongClickListener getOnLongClickListener() {
+            return null;
+        }
+
+        @Override
+        public void onClick(View v) {
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.quicksettings;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.net.wifi.WifiManager;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.R;
+import com.android.car.settings.common.FragmentController;
+import com.android.car.settings.quicksettings.QuickSettingGridAdapter.Tile.State;
+import com.android.car.settings.testutils.ShadowCarWifiManager;
+import com.android.car.settings.wifi.CarWifiManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+@Config(shadows = {ShadowCarWifiManager.class})
+public class WifiTileTest {
+
+    private Context mContext;
+    private WifiTile mTile;
+    @Mock
+    private CarWifiManager mCarWifiManager;
+    @Mock
+    private StateChangedListener mStateChangedListener;
+    @Mock
+    private FragmentController mFragmentController;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        Shadows.shadowOf(mContext.getPackageManager()).setSystemFeature(
+                PackageManager.FEATURE_WIFI, /* supported= */ true);
+        when(mCarWifiManager.getAllAccessPoints()).thenReturn(Collections.emptyList());
+        ShadowCarWifiManager.setInstance(mCarWifiManager);
+        mTile = new WifiTile(mContext, mStateChangedListener, mFragmentController);
+    }
+
+    @After
+    public void tearDown() {
+        ShadowCarWifiManager.reset();
+    }
+
+    @Test
+    public void onInitialStateLoaded_disabled_isOff() {
+        ShadowCarWifiManager.setWifiState(WifiManager.WIFI_STATE_DISABLED);
+
+        mTile.loadInitialState();
+        mTile.onInitialStateLoaded();
+
+        assertThat(mTile.isAvailable()).isTrue();
+        assertThat(mTile.getState()).isEqualTo(State.OFF);
+        assertThat(mTile.getText()).isEqualTo(mContext.getString(R.string.wifi_disabled));
+    }
+
+    @Test
+    public void onInitialStateLoaded_stateChangedWhileLoading_keepsChangedState() {
+        ShadowCarWifiManager.setWifiState(WifiManager.WIFI_STATE_DISABLED);
+        mTile.loadInitialState();
+
+        mTile.onWifiStateChanged(WifiManager.WIFI_STATE_DISABLING);
+        mTile.onInitialStateLoaded();
+
+        assertThat(mTile.isAvailable()).isTrue();
+        assertThat(mTile.getText()).isEqualTo(mContext.getString(R.string.wifi_stopping));
+    }
+
+    @Test
+    public void onWifiStateChanged_afterLoad_updatesState() {
+        ShadowCarWifiManager.setWifiState(WifiManager.WIFI_STATE_ENABLED);
+        mTile.loadInitialState();
+        mTile.onInitialStateLoaded();
+
+        mTile.onWifiStateChanged(WifiManager.WIFI_STATE_DISABLED);
+
+        assertThat(mTile.getState()).isEqualTo(State.OFF);
+    }
+
+    @Test
+    public void onClick_beforeLoaded_doesNothing() {
+        mTile.onClick(/* v= */ null);
+
+        verify(mCarWifiManager, never()).setWifiEnabled(anyBoolean());
+    }
+}
@@ -26,6 +26,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.media.RingtoneManager;
 import android.net.Uri;
+import android.provider.Settings;
 
 import androidx.lifecycle.Lifecycle;
 
@@ -43,6 +44,10 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @RunWith(CarSettingsRobolectricTestRunner.class)
 @Config(shadows = {ShadowRingtoneManager.class, ShadowRingtone.class})
@@ -53,6 +58,8 @@ public class RingtonePreferenceControllerTest {
     private static final Uri TEST_URI = new Uri.Builder().appendPath(TEST_PATH).build();
     private static final String TEST_TITLE = "Test Preference Title";
     private static final String TEST_RINGTONE_TITLE = "Test Ringtone Title";
+    private static final Uri OTHER_URI = new Uri.Builder().appendPath("/other/path/uri").build();
+    private static final String OTHER_RINGTONE_TITLE = "Other Ringtone Title";
 
     // These are copied from android.app.Activity. That class is not accessible from this test
     // because there is another test Activity with the same package.
@@ -64,11 +71,15 @@ public class RingtonePreferenceControllerTest {
             mPreferenceControllerHelper;
     private RingtonePreferenceController mController;
     private RingtonePreference mRingtonePreference;
+    private List<Runnable> mBackgroundTasks;
 
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
         mContext = RuntimeEnvironment.application;
+        mBackgroundTasks = new ArrayList<>();
+        RingtoneTitleResolver.setInstanceForTesting(
+                new RingtoneTitleResolver(mContext, mBackgroundTasks::add));
         mRingtonePreference = new RingtonePreference(mContext, null);
         mRingtonePreference.setTitle(TEST_TITLE);
         mRingtonePreference.setRingtoneType(TEST_RINGTONE_TYPE);
@@ -87,6 +98,7 @@ public class RingtonePreferenceControllerTest {
     public void tearDown() {
         ShadowRingtoneManager.reset();
         ShadowRingtone.reset();
+        RingtoneTitleResolver.setInstanceForTesting(null);
     }
 
     @Test
@@ -94,9 +106,90 @@ public class RingtonePreferenceControllerTest {
         ShadowRingtoneManager.setActualDefaultRingtoneUri(mContext, TEST_RINGTONE_TYPE, TEST_URI);
         ShadowRingtone.setExpectedTitleForUri(TEST_URI, TEST_RINGTONE_TITLE);
         mController.refreshUi();
+        runBackgroundTasks();
+        assertThat(mRingtonePreference.getSummary()).isEqualTo(TEST_RINGTONE_TITLE);
+    }
+
+    @Test
+    public void testRefreshUi_titleResolvedInBackground() {
+        ShadowRingtoneManager.setActualDefaultRingtoneUri(mContext, TEST_RINGTONE_TYPE, TEST_URI);
+        ShadowRingtone.setExpectedTitleForUri(TEST_URI, TEST_RINGTONE_TITLE);
+        mController.refreshUi();
+
+        assertThat(mRingtonePreference.getSummary()).isNotEqualTo(TEST_RINGTONE_TITLE);
+        runBackgroundTasks();
         assertThat(mRingtonePreference.getSummary()).isEqualTo(TEST_RINGTONE_TITLE);
     }
 
+    @Test
+    public void testRefreshUi_cachedTitle_setImmediately() {
+        ShadowRingtoneManager.setActualDefaultRingtoneUri(mContext, TEST_RINGTONE_TYPE, TEST_URI);
+        ShadowRingtone.setExpectedTitleForUri(TEST_URI, TEST_RINGTONE_TITLE);
+        mController.refreshUi();
+        runBackgroundTasks();
+        mRingtonePreference.setSummary(null);
+
+        mController.refreshUi();
+
+        assertThat(mRingtonePreference.getSummary()).isEqualTo(TEST_RINGTONE_TITLE);
+    }
+
+    @Test
+    public void testRefreshUi_defaultChangedBeforeResolved_keepsNewestTitle() {
+        ShadowRingtoneManager.setActualDefaultRingtoneUri(mContext, TEST_RINGTONE_TYPE, TEST_URI);
+        ShadowRingtone.setExpectedTitleForUri(TEST_URI, TEST_RINGTONE_TITLE);
+        ShadowRingtone.setExpectedTitleForUri(OTHER_URI, OTHER_RINGTONE_TITLE);
+        mController.refreshUi();
+        ShadowRingtoneManager.setActualDefaultRingtoneUri(mContext, TEST_RINGTONE_TYPE, OTHER_URI);
+        mController.refreshUi();
+
+        runBackgroundTasks();
+
+        assertThat(mRingtonePreference.getSummary()).isEqualTo(OTHER_RINGTONE_TITLE);
+    }
+
+    @Test
+    public void testDefaultRingtoneSettingChanged_whileStarted_updatesSummary() {
+        mPreferenceControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_START);
+        ShadowRingtoneManager.setActualDefaultRingtoneUri(mContext, TEST_RINGTONE_TYPE, TEST_URI);
+        ShadowRingtone.setExpectedTitleForUri(TEST_URI, TEST_RINGTONE_TITLE);
+
+        mContext.getContentResolver().notifyChange(
+                Settings.System.getUriFor(Settings.System.RINGTONE), /* observer= */ null);
+        runBackgroundTasks();
+
+        assertThat(mRingtonePreference.getSummary()).isEqualTo(TEST_RINGTONE_TITLE);
+    }
+
+    @Test
+    public void testDefaultRingtoneSettingChanged_afterStop_summaryNotUpdated() {
+        mPreferenceControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_START);
+        runBackgroundTasks();
+        mPreferenceControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_STOP);
+        ShadowRingtoneManager.setActualDefaultRingtoneUri(mContext, TEST_RINGTONE_TYPE, TEST_URI);
+        ShadowRingtone.setExpectedTitleForUri(TEST_URI, TEST_RINGTONE_TITLE);
+
+        mContext.getContentResolver().notifyChange(
+                Settings.System.getUriFor(Settings.System.RINGTONE), /* observer= */ null);
+        runBackgroundTasks();
+
+        assertThat(mRingtonePreference.getSummary()).isNotEqualTo(TEST_RINGTONE_TITLE);
+    }
+
+    @Test
+    public void testStop_pendingTitleNotShown() {
+        mPreferenceControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_START);
+        runBackgroundTasks();
+        ShadowRingtoneManager.setActualDefaultRingtoneUri(mContext, TEST_RINGTONE_TYPE, TEST_URI);
+        ShadowRingtone.setExpectedTitleForUri(TEST_URI, TEST_RINGTONE_TITLE);
+        mController.refreshUi();
+
+        mPreferenceControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_STOP);
+        runBackgroundTasks();
+
+        assertThat(mRingtonePreference.getSummary()).isNotEqualTo(TEST_RINGTONE_TITLE);
+    }
+
     @Test
     public void testHandlePreferenceClicked_listenerTriggered() {
         mRingtonePreference.performClick();
@@ -172,4 +265,13 @@ public class RingtonePreferenceControllerTest {
         assertThat(ShadowRingtoneManager.getActualDefaultRingtoneUri(mContext,
                 TEST_RINGTONE_TYPE)).isEqualTo(TEST_URI);
     }
+
+    private void runBackgroundTasks() {
+        List<Runnable> tasks = new ArrayList<>(mBackgroundTasks);
+        mBackgroundTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        ShadowLooper.runUiThreadTasks();
+    }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.sound;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.net.Uri;
+import android.provider.MediaStore;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.testutils.ShadowRingtone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+@Config(shadows = {ShadowRingtone.class})
+public class RingtoneTitleResolverTest {
+
+    private static final Uri TEST_URI = new Uri.Builder().appendPath("/test/path/uri").build();
+    private static final String TEST_TITLE = "Test Ringtone Title";
+    private static final String UPDATED_TITLE = "Updated Ringtone Title";
+
+    private Context mContext;
+    private RingtoneTitleResolver mResolver;
+    private List<Runnable> mBackgroundTasks;
+    private List<String> mResolvedTitles;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mBackgroundTasks = new ArrayList<>();
+        mResolver = new RingtoneTitleResolver(mContext, mBackgroundTasks::add);
+        mResolvedTitles = new ArrayList<>();
+        ShadowRingtone.setExpectedTitleForUri(TEST_URI, TEST_TITLE);
+    }
+
+    @After
+    public void tearDown() {
+        ShadowRingtone.reset();
+    }
+
+    @Test
+    public void resolveTitle_notCached_deliversTitleAfterBackgroundWork() {
+        mResolver.resolveTitle(TEST_URI, (uri, title) -> mResolvedTitles.add(title));
+
+        assertThat(mResolvedTitles).isEmpty();
+        runBackgroundTasks();
+        assertThat(mResolvedTitles).containsExactly(TEST_TITLE);
+    }
+
+    @Test
+    public void resolveTitle_cached_deliversTitleImmediately() {
+        mResolver.resolveTitle(TEST_URI, (uri, title) -> { });
+        runBackgroundTasks();
+        // The cached title is expected to be returned without querying again.
+        ShadowRingtone.setExpectedTitleForUri(TEST_URI, UPDATED_TITLE);
+
+        mResolver.resolveTitle(TEST_URI, (uri, title) -> mResolvedTitles.add(title));
+
+        assertThat(mResolvedTitles).containsExactly(TEST_TITLE);
+    }
+
+    @Test
+    public void resolveTitle_concurrentRequests_deliveredToAllCallbacks() {
+        mResolver.resolveTitle(TEST_URI, (uri, title) -> mResolvedTitles.add(title));
+        mResolver.resolveTitle(TEST_URI, (uri, title) -> mResolvedTitles.add(title));
+
+        runBackgroundTasks();
+
+        assertThat(mResolvedTitles).containsExactly(TEST_TITLE, TEST_TITLE);
+    }
+
+    @Test
+    public void resolveTitle_nullUri_resolvesTitle() {
+        mResolver.resolveTitle(/* ringtoneUri= */ null, (uri, title) -> mResolvedTitles.add(title));
+
+        runBackgroundTasks();
+
+        assertThat(mResolvedTitles).hasSize(1);
+    }
+
+    @Test
+    public void mediaChanged_cachedTitleIsPlaceholderUntilResolvedAgain() {
+        mResolver.resolveTitle(TEST_URI, (uri, title) -> { });
+        runBackgroundTasks();
+        ShadowRingtone.setExpectedTitleForUri(TEST_URI, UPDATED_TITLE);
+
+        mContext.getContentResolver().notifyChange(MediaStore.Audio.Media.INTERNAL_CONTENT_URI,
+                /* observer= */ null);
+        mResolver.resolveTitle(TEST_URI, (uri, title) -> mResolvedTitles.add(title));
+
+        assertThat(mResolvedTitles).isEmpty();
+        assertThat(mResolver.peekTitle(TEST_URI)).isEqualTo(TEST_TITLE);
+        runBackgroundTasks();
+        assertThat(mResolvedTitles).containsExactly(UPDATED_TITLE);
+        assertThat(mResolver.peekTitle(TEST_URI)).isEqualTo(UPDATED_TITLE);
+    }
+
+    @Test
+    public void resolveTitle_afterMediaChangedDuringQuery_queriesAgain() {
+        mResolver.resolveTitle(TEST_URI, (uri, title) -> mResolvedTitles.add("early:" + title));
+        mContext.getContentResolver().notifyChange(MediaStore.Audio.Media.INTERNAL_CONTENT_URI,
+                /* observer= */ null);
+        mResolver.resolveTitle(TEST_URI, (uri, title) -> mResolvedTitles.add("late:" + title));
+        // The first query completes with the title from before the media change.
+        runBackgroundTasks();
+        assertThat(mResolvedTitles).containsExactly("early:" + TEST_TITLE);
+
+        ShadowRingtone.setExpectedTitleForUri(TEST_URI, UPDATED_TITLE);
+        runBackgroundTasks();
+
+        assertThat(mResolvedTitles).containsExactly("early:" + TEST_TITLE,
+                "late:" + UPDATED_TITLE).inOrder();
+    }
+
+    @Test
+    public void cancel_pendingCallbackNotInvoked() {
+        RingtoneTitleResolver.Callback callback = (uri, title) -> mResolvedTitles.add(title);
+        mResolver.resolveTitle(TEST_URI, callback);
+
+        mResolver.cancel(callback);
+        runBackgroundTasks();
+
+        assertThat(mResolvedTitles).isEmpty();
+        assertThat(mResolver.peekTitle(TEST_URI)).isEqualTo(TEST_TITLE);
+    }
+
+    @Test
+    public void resolveTitle_differentUris_resolvedOneAtATime() {
+        Uri otherUri = new Uri.Builder().appendPath("/other/path/uri").build();
+        ShadowRingtone.setExpectedTitleForUri(otherUri, UPDATED_TITLE);
+        mResolver.resolveTitle(TEST_URI, (uri, title) -> mResolvedTitles.add(title));
+        mResolver.resolveTitle(otherUri, (uri, title) -> mResolvedTitles.add(title));
+
+        assertThat(mBackgroundTasks).hasSize(1);
+        runBackgroundTasks();
+        assertThat(mResolvedTitles).containsExactly(TEST_TITLE);
+        runBackgroundTasks();
+        assertThat(mResolvedTitles).containsExactly(TEST_TITLE, UPDATED_TITLE).inOrder();
+    }
+
+    private void runBackgroundTasks() {
+        List<Runnable> tasks = new ArrayList<>(mBackgroundTasks);
+        mBackgroundTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        ShadowLooper.runUiThreadTasks();
+    }
+}
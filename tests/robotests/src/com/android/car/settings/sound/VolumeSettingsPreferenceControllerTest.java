@@ -18,6 +18,9 @@ package com.android.car.settings.sound;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -44,10 +47,14 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
 
 @RunWith(CarSettingsRobolectricTestRunner.class)
 @Config(shadows = {ShadowRingtoneManager.class})
@@ -158,4 +165,53 @@ public class VolumeSettingsPreferenceControllerTest {
         preference.getOnPreferenceChangeListener().onPreferenceChange(preference, TEST_NEW_VOLUME);
         verify(mCarAudioManager).setGroupVolume(GROUP_ID, TEST_NEW_VOLUME, 0);
     }
+
+    @Test
+    public void testOnPreferenceChange_rapidChanges_writesFirstAndLastValue()
+            throws CarNotConnectedException {
+        mPreferenceControllerHelper.markState(Lifecycle.State.CREATED);
+        mController.refreshUi();
+        SeekBarPreference preference = (SeekBarPreference) mPreferenceGroup.getPreference(0);
+
+        preference.getOnPreferenceChangeListener().onPreferenceChange(preference, TEST_VOLUME + 1);
+        preference.getOnPreferenceChangeListener().onPreferenceChange(preference, TEST_VOLUME + 2);
+        preference.getOnPreferenceChangeListener().onPreferenceChange(preference, TEST_NEW_VOLUME);
+        verify(mCarAudioManager).setGroupVolume(GROUP_ID, TEST_VOLUME + 1, 0);
+        verify(mCarAudioManager, never()).setGroupVolume(GROUP_ID, TEST_NEW_VOLUME, 0);
+
+        ShadowLooper.idleMainLooper(VolumeSettingsPreferenceController.VOLUME_WRITE_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+
+        verify(mCarAudioManager).setGroupVolume(GROUP_ID, TEST_NEW_VOLUME, 0);
+        verify(mCarAudioManager, times(2)).setGroupVolume(anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testOnDestroy_pendingVolume_committed() throws CarNotConnectedException {
+        mPreferenceControllerHelper.markState(Lifecycle.State.CREATED);
+        mController.refreshUi();
+        SeekBarPreference preference = (SeekBarPreference) mPreferenceGroup.getPreference(0);
+        preference.getOnPreferenceChangeListener().onPreferenceChange(preference, TEST_VOLUME + 1);
+        preference.getOnPreferenceChangeListener().onPreferenceChange(preference, TEST_NEW_VOLUME);
+
+        mPreferenceControllerHelper.markState(Lifecycle.State.DESTROYED);
+
+        verify(mCarAudioManager).setGroupVolume(GROUP_ID, TEST_NEW_VOLUME, 0);
+    }
+
+    @Test
+    public void testGroupVolumeChangedExternally_updatesSlider() throws CarNotConnectedException {
+        mPreferenceControllerHelper.markState(Lifecycle.State.CREATED);
+        mController.refreshUi();
+        SeekBarPreference preference = (SeekBarPreference) mPreferenceGroup.getPreference(0);
+        ArgumentCaptor<CarAudioManager.CarVolumeCallback> captor = ArgumentCaptor.forClass(
+                CarAudioManager.CarVolumeCallback.class);
+        verify(mCarAudioManager).registerCarVolumeCallback(captor.capture());
+
+        when(mCarAudioManager.getGroupVolume(GROUP_ID)).thenReturn(TEST_NEW_VOLUME);
+        captor.getValue().onGroupVolumeChanged(/* zoneId= */ 0, GROUP_ID, /* flags= */ 0);
+        ShadowLooper.runUiThreadTasks();
+
+        assertThat(preference.getValue()).isEqualTo(TEST_NEW_VOLUME);
+    }
 }
@@ -23,6 +23,7 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -47,6 +48,8 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadows.ShadowLooper;
 
+import java.util.concurrent.TimeUnit;
+
 @RunWith(CarSettingsRobolectricTestRunner.class)
 @Config(shadows = {ShadowRingtoneManager.class})
 public class VolumeSettingsRingtoneManagerTest {
@@ -125,6 +128,29 @@ public class VolumeSettingsRingtoneManagerTest {
         verify(mRingtone, never()).stop();
     }
 
+    @Test
+    public void testPlayAudioFeedback_playingRecently_notRestarted() {
+        mRingtoneManager.playAudioFeedback(TEST_GROUP_ID, TEST_USAGE_ID);
+        when(mRingtone.isPlaying()).thenReturn(true);
+
+        mRingtoneManager.playAudioFeedback(TEST_GROUP_ID, TEST_USAGE_ID);
+
+        verify(mRingtone, times(1)).play();
+    }
+
+    @Test
+    public void testPlayAudioFeedback_playingSinceRestartInterval_restarted() {
+        mRingtoneManager.playAudioFeedback(TEST_GROUP_ID, TEST_USAGE_ID);
+        when(mRingtone.isPlaying()).thenReturn(true);
+        ShadowLooper.idleMainLooper(
+                VolumeSettingsRingtoneManager.AUDIO_FEEDBACK_RESTART_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+
+        mRingtoneManager.playAudioFeedback(TEST_GROUP_ID, TEST_USAGE_ID);
+
+        verify(mRingtone, times(2)).play();
+    }
+
     @Test
     public void testStopCurrentRingtone_stop() {
         mRingtoneManager.playAudioFeedback(TEST_GROUP_ID, TEST_USAGE_ID);
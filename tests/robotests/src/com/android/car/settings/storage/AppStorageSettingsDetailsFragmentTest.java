@@ -36,6 +36,7 @@ import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.text.format.Formatter;
 
 import com.android.car.settings.CarSettingsRobolectricTestRunner;
 import com.android.car.settings.R;
@@ -75,6 +76,7 @@ public class AppStorageSettingsDetailsFragmentTest {
     private static final int TEST_USER_ID = 10;
 
     private Context mContext;
+    private AppStorageStatsCache mStatsCache;
     private AppStorageSettingsDetailsFragment mFragment;
     private FragmentController<AppStorageSettingsDetailsFragment> mFragmentController;
 
@@ -115,6 +117,8 @@ public class AppStorageSettingsDetailsFragmentTest {
         when(mCarUserManagerHelper.getCurrentProcessUserId()).thenReturn(TEST_USER_ID);
         ShadowCarUserManagerHelper.setMockInstance(mCarUserManagerHelper);
         ShadowApplicationsState.setInstance(mApplicationsState);
+        mStatsCache = new AppStorageStatsCache(() -> 0L);
+        AppStorageStatsCache.setInstanceForTesting(mStatsCache);
         mFragmentController.setup();
     }
 
@@ -125,6 +129,44 @@ public class AppStorageSettingsDetailsFragmentTest {
         ShadowRestrictedLockUtilsInternal.reset();
         ShadowApplicationPackageManager.reset();
         ShadowActivityManager.reset();
+        AppStorageStatsCache.setInstanceForTesting(null);
+    }
+
+    @Test
+    public void onAttach_cachedStats_showsCachedSizes() {
+        StorageStats stats = new StorageStats();
+        stats.codeBytes = 100;
+        mStatsCache.put(TEST_USER_ID, PACKAGE_NAME,
+                new StorageStatsSource.AppStorageStatsImpl(stats));
+
+        AppStorageSettingsDetailsFragment fragment = FragmentController.of(
+                AppStorageSettingsDetailsFragment.getInstance(PACKAGE_NAME)).setup();
+
+        StorageAppDetailPreference preference = fragment.findPreference(
+                mContext.getString(R.string.pk_storage_application_size));
+        assertThat(preference.getDetailText()).isEqualTo(
+                Formatter.formatFileSize(mContext, 100));
+    }
+
+    @Test
+    public void clearCacheCompleted_invalidatesCachedStats() {
+        mStatsCache.put(TEST_USER_ID, PACKAGE_NAME,
+                new StorageStatsSource.AppStorageStatsImpl(new StorageStats()));
+
+        mFragment.new ClearCacheObserver().onRemoveCompleted(PACKAGE_NAME, /* succeeded= */ true);
+
+        assertThat(mStatsCache.get(TEST_USER_ID, PACKAGE_NAME)).isNull();
+    }
+
+    @Test
+    public void clearDataCompleted_invalidatesCachedStats() {
+        mStatsCache.put(TEST_USER_ID, PACKAGE_NAME,
+                new StorageStatsSource.AppStorageStatsImpl(new StorageStats()));
+
+        mFragment.new ClearUserDataObserver().onRemoveCompleted(PACKAGE_NAME,
+                /* succeeded= */ true);
+
+        assertThat(mStatsCache.get(TEST_USER_ID, PACKAGE_NAME)).isNull();
     }
 
     @Test
@@ -16,7 +16,11 @@
 
 package com.android.car.settings.storage;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
@@ -44,8 +48,11 @@ import org.robolectric.RuntimeEnvironment;
 public class AppsStorageStatsManagerTest {
 
     private static final int USER_ID = 10;
+    private static final String PACKAGE_NAME = "com.android.test.package";
 
     private Context mContext;
+    private long mNowMs;
+    private AppStorageStatsCache mStatsCache;
     private AppsStorageStatsManager mAppsStorageStatsManager;
 
     @Captor
@@ -68,7 +75,9 @@ public class AppsStorageStatsManagerTest {
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
         mContext = RuntimeEnvironment.application;
-        mAppsStorageStatsManager = new AppsStorageStatsManager(mContext);
+        mStatsCache = new AppStorageStatsCache(() -> mNowMs);
+        mApplicationInfo.packageName = PACKAGE_NAME;
+        mAppsStorageStatsManager = new AppsStorageStatsManager(mContext, mStatsCache);
         mAppsStorageStatsManager.startLoading(mLoaderManager, mApplicationInfo, USER_ID, false,
                 false);
         verify(mLoaderManager).restartLoader(eq(1), eq(Bundle.EMPTY),
@@ -151,4 +160,51 @@ public class AppsStorageStatsManagerTest {
         verify(mCallback1, never()).onDataLoaded(storageStats, false, true);
         verify(mCallback2, never()).onDataLoaded(storageStats, false, true);
     }
+
+    @Test
+    public void startLoading_freshCachedStats_deliversCachedStatsWithoutLoading() {
+        StorageStatsSource.AppStorageStats storageStats =
+                new StorageStatsSource.AppStorageStatsImpl(new StorageStats());
+        mStatsCache.put(USER_ID, PACKAGE_NAME, storageStats);
+        LoaderManager loaderManager = mock(LoaderManager.class);
+        mAppsStorageStatsManager.registerListener(mCallback1);
+
+        mNowMs += AppStorageStatsCache.STALE_AFTER_MS - 1;
+        mAppsStorageStatsManager.startLoading(loaderManager, mApplicationInfo, USER_ID, false,
+                false);
+
+        verify(mCallback1).onDataLoaded(storageStats, false, false);
+        verify(loaderManager, never()).restartLoader(anyInt(), any(), any());
+    }
+
+    @Test
+    public void startLoading_staleCachedStats_deliversCachedStatsAndReloads() {
+        StorageStatsSource.AppStorageStats storageStats =
+                new StorageStatsSource.AppStorageStatsImpl(new StorageStats());
+        mStatsCache.put(USER_ID, PACKAGE_NAME, storageStats);
+        LoaderManager loaderManager = mock(LoaderManager.class);
+        mAppsStorageStatsManager.registerListener(mCallback1);
+
+        mNowMs += AppStorageStatsCache.STALE_AFTER_MS;
+        mAppsStorageStatsManager.startLoading(loaderManager, mApplicationInfo, USER_ID, false,
+                false);
+
+        verify(mCallback1).onDataLoaded(storageStats, false, false);
+        verify(loaderManager).restartLoader(eq(1), eq(Bundle.EMPTY), any());
+    }
+
+    @Test
+    public void startLoading_invalidatedStats_loads() {
+        mStatsCache.put(USER_ID, PACKAGE_NAME,
+                new StorageStatsSource.AppStorageStatsImpl(new StorageStats()));
+        mStatsCache.invalidate(USER_ID, PACKAGE_NAME);
+        LoaderManager loaderManager = mock(LoaderManager.class);
+        mAppsStorageStatsManager.registerListener(mCallback1);
+
+        mAppsStorageStatsManager.startLoading(loaderManager, mApplicationInfo, USER_ID, true,
+                false);
+
+        verify(mCallback1, never()).onDataLoaded(any(), anyBoolean(), anyBoolean());
+        verify(loaderManager).restartLoader(eq(1), eq(Bundle.EMPTY), any());
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.storage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import android.app.usage.StorageStats;
+import android.car.userlib.CarUserManagerHelper;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.UserInfo;
+import android.net.TrafficStats;
+import android.os.UserHandle;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.benchmark.BenchmarkDatasets;
+import com.android.car.settings.benchmark.BenchmarkRule;
+import com.android.car.settings.testutils.ShadowApplicationPackageManager;
+import com.android.settingslib.applications.StorageStatsSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
+
+import java.util.Collections;
+
+/** Benchmark for {@link StorageAsyncLoader}. */
+@RunWith(CarSettingsRobolectricTestRunner.class)
+@Config(shadows = {ShadowApplicationPackageManager.class})
+public class StorageAsyncLoaderBenchmarkTest {
+
+    private static final String DEFAULT_PACKAGE_NAME = "com.android.car.settings";
+    private static final long DEFAULT_QUOTA = 64 * TrafficStats.MB_IN_BYTES;
+
+    @Rule
+    public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    @Mock
+    private StorageStatsSource mSource;
+    @Mock
+    private CarUserManagerHelper mCarUserManagerHelper;
+
+    private StorageAsyncLoader mLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        Context context = RuntimeEnvironment.application;
+        mLoader = new StorageAsyncLoader(context, mCarUserManagerHelper, mSource);
+        when(mCarUserManagerHelper.getAllUsers()).thenReturn(
+                Collections.singletonList(new UserInfo()));
+        when(mSource.getCacheQuotaBytes(any(), anyInt())).thenReturn(DEFAULT_QUOTA);
+
+        StorageStats stats = new StorageStats();
+        stats.codeBytes = 10 * TrafficStats.MB_IN_BYTES;
+        stats.dataBytes = 20 * TrafficStats.MB_IN_BYTES;
+        stats.cacheBytes = 5 * TrafficStats.MB_IN_BYTES;
+        when(mSource.getStatsForPackage(any(), anyString(), any(UserHandle.class))).thenReturn(
+                new StorageStatsSource.AppStorageStatsImpl(stats));
+
+        ShadowApplicationPackageManager packageManager = Shadow.extract(
+                context.getPackageManager());
+        packageManager.removePackage(DEFAULT_PACKAGE_NAME);
+        for (int i = 0; i < BenchmarkDatasets.APP_COUNT; i++) {
+            ApplicationInfo appInfo = BenchmarkDatasets.createApplicationInfo(i);
+            PackageInfo packageInfo = new PackageInfo();
+            packageInfo.packageName = appInfo.packageName;
+            packageInfo.applicationInfo = appInfo;
+            packageManager.addPackage(packageInfo);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        ShadowApplicationPackageManager.reset();
+    }
+
+    @Test
+    public void loadInBackground() {
+        mBenchmark.measure("loadInBackground", mLoader::loadInBackground);
+
+        assertThat(mLoader.loadInBackground().size()).isEqualTo(1);
+    }
+}
@@ -71,6 +71,7 @@ public class StorageAsyncLoaderTest {
     private CarUserManagerHelper mCarUserManagerHelper;
     private List<ApplicationInfo> mInfo = new ArrayList<>();
     private List<UserInfo> mUsers;
+    private AppStorageStatsCache mStatsCache;
 
     private StorageAsyncLoader mLoader;
 
@@ -79,6 +80,8 @@ public class StorageAsyncLoaderTest {
         MockitoAnnotations.initMocks(this);
         mContext = RuntimeEnvironment.application;
         mInfo = new ArrayList<>();
+        mStatsCache = new AppStorageStatsCache(() -> 0L);
+        AppStorageStatsCache.setInstanceForTesting(mStatsCache);
         mLoader = new StorageAsyncLoader(mContext, mCarUserManagerHelper, mSource);
         UserInfo info = new UserInfo();
         mUsers = new ArrayList<>();
@@ -93,6 +96,7 @@ public class StorageAsyncLoaderTest {
     @After
     public void tearDown() {
         ShadowApplicationPackageManager.reset();
+        AppStorageStatsCache.setInstanceForTesting(null);
     }
 
     @Test
@@ -228,6 +232,18 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(PRIMARY_USER_ID).getOtherAppsSize()).isEqualTo(DEFAULT_QUOTA + 11);
     }
 
+    @Test
+    public void loadInBackground_cachesPackageStats() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+
+        mLoader.loadInBackground();
+
+        AppStorageStatsCache.Entry entry = mStatsCache.get(PRIMARY_USER_ID, PACKAGE_NAME_1);
+        assertThat(entry).isNotNull();
+        assertThat(entry.getStats().getCodeBytes()).isEqualTo(1L);
+        assertThat(entry.getStats().getDataBytes()).isEqualTo(10L);
+    }
+
     private ApplicationInfo addPackage(String packageName, long cacheSize, long codeSize,
             long dataSize, int category) throws Exception {
         StorageStats stats = new StorageStats();
@@ -119,4 +119,18 @@ public class StorageSizeBasePreferenceControllerTest {
         assertThat(mController.getAppStorageStats()).isNotNull();
         assertThat(mStorageAppDetailPreference.getDetailText()).isEqualTo("1.00 GB");
     }
+
+    @Test
+    public void onDataLoaded_newStats_replacesAppStorageStats() {
+        mPreferenceControllerHelper.markState(Lifecycle.State.CREATED);
+        mController.setAppStorageStats(
+                new StorageStatsSource.AppStorageStatsImpl(new StorageStats()));
+        StorageStatsSource.AppStorageStats loadedStats =
+                new StorageStatsSource.AppStorageStatsImpl(new StorageStats());
+
+        mController.onDataLoaded(loadedStats, false, false);
+
+        assertThat(mController.getAppStorageStats()).isEqualTo(loadedStats);
+        assertThat(mStorageAppDetailPreference.getDetailText()).isEqualTo("1.00 GB");
+    }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.system;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.INotificationManager;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.RemoteException;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class AppPreferencesResetterTest {
+
+    private static final int APP_COUNT = 100;
+    private static final int FIRST_UID = 10000;
+
+    @Mock
+    private PackageManager mPackageManager;
+    @Mock
+    private INotificationManager mNotificationManager;
+
+    private final List<Runnable> mBatches = new ArrayList<>();
+    private final List<int[]> mProgress = new ArrayList<>();
+    private List<ApplicationInfo> mApps;
+    private AppPreferencesResetter mResetter;
+
+    @Before
+    public void setUp() throws RemoteException {
+        MockitoAnnotations.initMocks(this);
+        mApps = new ArrayList<>();
+        for (int i = 0; i < APP_COUNT; i++) {
+            ApplicationInfo app = new ApplicationInfo();
+            app.packageName = "com.example.app" + i;
+            app.uid = FIRST_UID + i;
+            app.enabled = true;
+            mApps.add(app);
+        }
+        when(mPackageManager.getInstalledApplications(PackageManager.MATCH_DISABLED_COMPONENTS))
+                .thenReturn(mApps);
+        when(mNotificationManager.areNotificationsEnabledForPackage(anyString(), anyInt()))
+                .thenReturn(true);
+        mResetter = new AppPreferencesResetter(mPackageManager, mNotificationManager,
+                Runnable::run);
+    }
+
+    @Test
+    public void reset_nothingToReset_makesNoChanges() throws RemoteException {
+        AppPreferencesResetter.Result result = mResetter.reset(this::onProgress);
+
+        verify(mNotificationManager, never()).setNotificationsEnabledForPackage(anyString(),
+                anyInt(), anyBoolean());
+        verify(mPackageManager, never()).setApplicationEnabledSetting(anyString(), anyInt(),
+                anyInt());
+        assertThat(result.mPackageCount).isEqualTo(APP_COUNT);
+        assertThat(result.mNotificationsResetCount).isEqualTo(0);
+        assertThat(result.mAppsEnabledCount).isEqualTo(0);
+    }
+
+    @Test
+    public void reset_blockedNotifications_onlyEnablesBlockedPackages() throws RemoteException {
+        ApplicationInfo blockedApp = mApps.get(42);
+        when(mNotificationManager.areNotificationsEnabledForPackage(blockedApp.packageName,
+                blockedApp.uid)).thenReturn(false);
+
+        AppPreferencesResetter.Result result = mResetter.reset(this::onProgress);
+
+        verify(mNotificationManager).setNotificationsEnabledForPackage(blockedApp.packageName,
+                blockedApp.uid, true);
+        verify(mNotificationManager).setNotificationsEnabledForPackage(anyString(), anyInt(),
+                anyBoolean());
+        assertThat(result.mNotificationsResetCount).isEqualTo(1);
+    }
+
+    @Test
+    public void reset_appDisabledByUser_enablesApp() {
+        ApplicationInfo disabledApp = mApps.get(7);
+        disabledApp.enabled = false;
+        when(mPackageManager.getApplicationEnabledSetting(disabledApp.packageName)).thenReturn(
+                PackageManager.COMPONENT_ENABLED_STATE_DISABLED_USER);
+
+        AppPreferencesResetter.Result result = mResetter.reset(this::onProgress);
+
+        verify(mPackageManager).setApplicationEnabledSetting(disabledApp.packageName,
+                PackageManager.COMPONENT_ENABLED_STATE_DEFAULT, PackageManager.DONT_KILL_APP);
+        assertThat(result.mAppsEnabledCount).isEqualTo(1);
+    }
+
+    @Test
+    public void reset_appDisabledBySystem_leavesAppDisabled() {
+        ApplicationInfo disabledApp = mApps.get(7);
+        disabledApp.enabled = false;
+        when(mPackageManager.getApplicationEnabledSetting(disabledApp.packageName)).thenReturn(
+                PackageManager.COMPONENT_ENABLED_STATE_DISABLED);
+
+        mResetter.reset(this::onProgress);
+
+        verify(mPackageManager, never()).setApplicationEnabledSetting(anyString(), anyInt(),
+                anyInt());
+    }
+
+    @Test
+    public void reset_enabledApps_doesNotReadEnabledSetting() {
+        mResetter.reset(this::onProgress);
+
+        verify(mPackageManager, never()).getApplicationEnabledSetting(anyString());
+    }
+
+    @Test
+    public void reset_runsWorkInBatches() throws RemoteException {
+        mResetter = new AppPreferencesResetter(mPackageManager, mNotificationManager,
+                batch -> {
+                    mBatches.add(batch);
+                    batch.run();
+                });
+        ApplicationInfo blockedApp = mApps.get(0);
+        when(mNotificationManager.areNotificationsEnabledForPackage(blockedApp.packageName,
+                blockedApp.uid)).thenReturn(false);
+
+        mResetter.reset(this::onProgress);
+
+        int planBatches = (APP_COUNT + AppPreferencesResetter.BATCH_SIZE - 1)
+                / AppPreferencesResetter.BATCH_SIZE;
+        assertThat(mBatches).hasSize(planBatches + 1);
+    }
+
+    @Test
+    public void reset_reportsMonotonicProgressToCompletion() throws RemoteException {
+        ApplicationInfo blockedApp = mApps.get(3);
+        when(mNotificationManager.areNotificationsEnabledForPackage(blockedApp.packageName,
+                blockedApp.uid)).thenReturn(false);
+
+        mResetter.reset(this::onProgress);
+
+        int previous = 0;
+        for (int[] progress : mProgress) {
+            assertThat(progress[1]).isEqualTo(APP_COUNT * 2);
+            assertThat(progress[0]).isAtLeast(previous);
+            previous = progress[0];
+        }
+        assertThat(previous).isEqualTo(APP_COUNT * 2);
+    }
+
+    private void onProgress(int completed, int total) {
+        mProgress.add(new int[]{completed, total});
+    }
+}
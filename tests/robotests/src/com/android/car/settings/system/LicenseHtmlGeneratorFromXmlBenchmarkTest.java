@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.system;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.benchmark.BenchmarkDatasets;
+import com.android.car.settings.benchmark.BenchmarkRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Benchmark for {@link LicenseHtmlGeneratorFromXml} on a large NOTICE file. */
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class LicenseHtmlGeneratorFromXmlBenchmarkTest {
+
+    @Rule
+    public BenchmarkRule mBenchmark = new BenchmarkRule();
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private List<File> mXmlFiles;
+    private File mHtmlFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mXmlFiles = Collections.singletonList(
+                BenchmarkDatasets.writeNoticeXml(mTemporaryFolder.getRoot(), "NOTICE.xml.gz"));
+        mHtmlFile = mTemporaryFolder.newFile("NOTICE.html");
+    }
+
+    @Test
+    public void generateHtml() {
+        mBenchmark.measure("generateHtml",
+                () -> LicenseHtmlGeneratorFromXml.generateHtml(mXmlFiles, mHtmlFile));
+
+        assertThat(mHtmlFile.length()).isGreaterThan(
+                (long) BenchmarkDatasets.NOTICE_LICENSE_COUNT
+                        * BenchmarkDatasets.NOTICE_LICENSE_SIZE);
+    }
+
+    @Test
+    public void generateHtml_withIndexDir() throws IOException {
+        File indexDir = mTemporaryFolder.newFolder("index");
+
+        mBenchmark.measure("generateHtml_withIndexDir",
+                () -> LicenseHtmlGeneratorFromXml.generateHtml(mXmlFiles, mHtmlFile, indexDir));
+
+        assertThat(mHtmlFile.length()).isGreaterThan(
+                (long) BenchmarkDatasets.NOTICE_LICENSE_COUNT
+                        * BenchmarkDatasets.NOTICE_LICENSE_SIZE);
+    }
+
+    /**
+     * Reports the peak heap growth while generating, since the per op allocations measured by
+     * {@link BenchmarkRule} do not show how much of the corpus is held in memory at once.
+     */
+    @Test
+    public void generateHtml_peakHeapGrowth() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long baselineHeap = runtime.totalMemory() - runtime.freeMemory();
+        AtomicLong peakHeap = new AtomicLong(baselineHeap);
+        AtomicBoolean sampling = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (sampling.get()) {
+                peakHeap.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(),
+                        Math::max);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        sampler.start();
+        boolean generated = LicenseHtmlGeneratorFromXml.generateHtml(mXmlFiles, mHtmlFile);
+        sampling.set(false);
+        sampler.join();
+
+        System.out.println(String.format(Locale.US,
+                "Benchmark %s.generateHtml_peakHeapGrowth: %d KB peak heap growth",
+                getClass().getSimpleName(), Math.max(0, peakHeap.get() - baselineHeap) / 1024));
+        assertThat(generated).isTrue();
+    }
+}
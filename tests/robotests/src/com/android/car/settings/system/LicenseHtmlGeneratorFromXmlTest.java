@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.system;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class LicenseHtmlGeneratorFromXmlTest {
+
+    private static final String XML_1 = "<licenses>\n"
+            + "<file-name contentId=\"0\">/file0</file-name>\n"
+            + "<file-name contentId=\"0\">/file1</file-name>\n"
+            + "<file-name contentId=\"1\">/file2</file-name>\n"
+            + "<file-content contentId=\"0\"><![CDATA[license0]]></file-content>\n"
+            + "<file-content contentId=\"1\"><![CDATA[license1]]></file-content>\n"
+            + "</licenses>";
+    private static final String XML_2 = "<licenses>\n"
+            + "<file-name contentId=\"1\">/file3</file-name>\n"
+            + "<file-name contentId=\"2\">/file4</file-name>\n"
+            + "<file-content contentId=\"1\"><![CDATA[other license1]]></file-content>\n"
+            + "<file-content contentId=\"2\"><![CDATA[license2]]></file-content>\n"
+            + "</licenses>";
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void generateHtml_sameContentId_writesLicenseOnce() throws IOException {
+        File xmlFile = writeXml("notice1.xml", XML_1);
+        File htmlFile = mTemporaryFolder.newFile("notice.html");
+
+        assertThat(LicenseHtmlGeneratorFromXml.generateHtml(
+                Collections.singletonList(xmlFile), htmlFile)).isTrue();
+
+        String html = read(htmlFile);
+        assertThat(html).contains("<li><a href=\"#id0\">/file0</a></li>");
+        assertThat(html).contains("<li><a href=\"#id0\">/file1</a></li>");
+        assertThat(html).contains("<li><a href=\"#id1\">/file2</a></li>");
+        assertThat(countOccurrences(html, "license0")).isEqualTo(1);
+        assertThat(countOccurrences(html, "license1")).isEqualTo(1);
+    }
+
+    @Test
+    public void generateHtml_multipleSources_firstContentWins() throws IOException {
+        File xmlFile1 = writeXml("notice1.xml", XML_1);
+        File xmlFile2 = writeXml("notice2.xml", XML_2);
+        File htmlFile = mTemporaryFolder.newFile("notice.html");
+
+        assertThat(LicenseHtmlGeneratorFromXml.generateHtml(Arrays.asList(xmlFile1, xmlFile2),
+                htmlFile)).isTrue();
+
+        String html = read(htmlFile);
+        assertThat(html).contains("/file3");
+        assertThat(html).contains("license2");
+        assertThat(html).doesNotContain("other license1");
+    }
+
+    @Test
+    public void generateHtml_gzippedSource_generatesHtml() throws IOException {
+        File xmlFile = writeGzippedXml("notice1.xml.gz", XML_1);
+        File htmlFile = mTemporaryFolder.newFile("notice.html");
+
+        assertThat(LicenseHtmlGeneratorFromXml.generateHtml(
+                Collections.singletonList(xmlFile), htmlFile)).isTrue();
+
+        assertThat(read(htmlFile)).contains("license0");
+    }
+
+    @Test
+    public void generateHtml_noContent_returnsFalse() throws IOException {
+        File xmlFile = writeXml("notice1.xml", "<licenses></licenses>");
+        File htmlFile = mTemporaryFolder.newFile("notice.html");
+
+        assertThat(LicenseHtmlGeneratorFromXml.generateHtml(
+                Collections.singletonList(xmlFile), htmlFile)).isFalse();
+    }
+
+    @Test
+    public void generateHtml_withIndexDir_onlyChangedSourceIsParsed() throws IOException {
+        File xmlFile1 = writeXml("notice1.xml", XML_1);
+        File xmlFile2 = writeXml("notice2.xml", XML_2);
+        File htmlFile = mTemporaryFolder.newFile("notice.html");
+        File indexDir = mTemporaryFolder.newFolder("index");
+        LicenseHtmlGeneratorFromXml.generateHtml(Arrays.asList(xmlFile1, xmlFile2), htmlFile,
+                indexDir);
+
+        // Same length and timestamp: the stored index is expected to be reused.
+        long lastModified = xmlFile1.lastModified();
+        writeXml("notice1.xml", XML_1.replace("license0", "LICENSE0"));
+        xmlFile1.setLastModified(lastModified);
+        writeXml("notice2.xml", XML_2.replace("license2", "new license2"));
+
+        assertThat(LicenseHtmlGeneratorFromXml.generateHtml(Arrays.asList(xmlFile1, xmlFile2),
+                htmlFile, indexDir)).isTrue();
+
+        String html = read(htmlFile);
+        assertThat(html).contains("license0");
+        assertThat(html).doesNotContain("LICENSE0");
+        assertThat(html).contains("new license2");
+    }
+
+    @Test
+    public void generateHtml_withIndexDir_removedSource_deletesItsIndex() throws IOException {
+        File xmlFile1 = writeXml("notice1.xml", XML_1);
+        File xmlFile2 = writeXml("notice2.xml", XML_2);
+        File htmlFile = mTemporaryFolder.newFile("notice.html");
+        File indexDir = mTemporaryFolder.newFolder("index");
+        LicenseHtmlGeneratorFromXml.generateHtml(Arrays.asList(xmlFile1, xmlFile2), htmlFile,
+                indexDir);
+
+        LicenseHtmlGeneratorFromXml.generateHtml(Collections.singletonList(xmlFile1), htmlFile,
+                indexDir);
+
+        String removedBaseName = LicenseHtmlGeneratorFromXml.getIndexBaseName(xmlFile2);
+        for (String fileName : indexDir.list()) {
+            assertThat(fileName).doesNotContain(removedBaseName);
+        }
+    }
+
+    private File writeXml(String name, String content) throws IOException {
+        File file = new File(mTemporaryFolder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private File writeGzippedXml(String name, String content) throws IOException {
+        File file = new File(mTemporaryFolder.getRoot(), name);
+        try (Writer writer = new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static int countOccurrences(String text, String substring) {
+        int count = 0;
+        int index = text.indexOf(substring);
+        while (index >= 0) {
+            count++;
+            index = text.indexOf(substring, index + substring.length());
+        }
+        return count;
+    }
+}
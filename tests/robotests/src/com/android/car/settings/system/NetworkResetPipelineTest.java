@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.system;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.SystemClock;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.R;
+import com.android.car.settings.common.SettingsExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class NetworkResetPipelineTest {
+
+    private final List<Runnable> mPendingWorkers = new ArrayList<>();
+    private final List<String> mEvents = new ArrayList<>();
+    private List<NetworkResetPipeline.StepResult> mResults;
+    private NetworkResetPipeline mPipeline;
+
+    @Before
+    public void setUp() {
+        SettingsExecutor.setInstanceForTesting(
+                new SettingsExecutor(mPendingWorkers::add, /* maxWorkers= */ 4, Runnable::run));
+        mPipeline = new NetworkResetPipeline(new NetworkResetPipeline.Listener() {
+            @Override
+            public void onStepStarted(NetworkResetPipeline.Step step) {
+                mEvents.add("started " + step.mName);
+            }
+
+            @Override
+            public void onStepFinished(NetworkResetPipeline.StepResult result) {
+                mEvents.add("finished " + result.mStep.mName);
+            }
+
+            @Override
+            public void onPipelineFinished(List<NetworkResetPipeline.StepResult> results) {
+                mResults = results;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        SettingsExecutor.setInstanceForTesting(null);
+    }
+
+    @Test
+    public void start_startsStepsOfAStageTogether() {
+        mPipeline.addStage(createStep("a", true), createStep("b", true));
+
+        mPipeline.start();
+
+        assertThat(mEvents).containsExactly("started a", "started b").inOrder();
+        assertThat(mPendingWorkers).hasSize(2);
+    }
+
+    @Test
+    public void start_startsNextStageOnceStageFinishes() {
+        mPipeline.addStage(createStep("a", true), createStep("b", true))
+                .addStage(createStep("c", true));
+
+        mPipeline.start();
+        runPendingWorkers();
+
+        assertThat(mEvents).containsExactly("started a", "started b", "finished a",
+                "finished b", "started c", "finished c").inOrder();
+        assertThat(mResults).hasSize(3);
+    }
+
+    @Test
+    public void start_failedSteps_reportsFailuresAndRunsRemainingSteps() {
+        NetworkResetPipeline.Step throwingStep = new NetworkResetPipeline.Step("throws",
+                R.string.reset_network_step_wifi, () -> {
+                    throw new IllegalStateException();
+                });
+        mPipeline.addStage(createStep("fails", false), throwingStep)
+                .addStage(createStep("succeeds", true));
+
+        mPipeline.start();
+        runPendingWorkers();
+
+        assertThat(mResults).hasSize(3);
+        assertThat(mResults.get(0).mSucceeded).isFalse();
+        assertThat(mResults.get(1).mSucceeded).isFalse();
+        assertThat(mResults.get(2).mStep.mName).isEqualTo("succeeds");
+        assertThat(mResults.get(2).mSucceeded).isTrue();
+    }
+
+    @Test
+    public void start_recordsStepDuration() {
+        mPipeline.addStage(new NetworkResetPipeline.Step("slow",
+                R.string.reset_network_step_wifi, () -> {
+                    SystemClock.sleep(20);
+                    return true;
+                }));
+
+        mPipeline.start();
+        runPendingWorkers();
+
+        assertThat(mResults.get(0).mDurationMillis).isAtLeast(20L);
+    }
+
+    @Test
+    public void start_nullAndEmptyStages_areSkipped() {
+        mPipeline.addStage(/* steps= */ (NetworkResetPipeline.Step) null)
+                .addStage(createStep("a", true));
+
+        mPipeline.start();
+        runPendingWorkers();
+
+        assertThat(mPipeline.getSteps()).hasSize(1);
+        assertThat(mResults).hasSize(1);
+    }
+
+    private NetworkResetPipeline.Step createStep(String name, boolean succeeds) {
+        return new NetworkResetPipeline.Step(name, R.string.reset_network_step_wifi,
+                () -> succeeds);
+    }
+
+    private void runPendingWorkers() {
+        while (!mPendingWorkers.isEmpty()) {
+            mPendingWorkers.remove(0).run();
+        }
+    }
+}
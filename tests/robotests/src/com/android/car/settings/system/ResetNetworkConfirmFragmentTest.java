@@ -29,10 +29,14 @@ import android.net.Uri;
 import android.provider.Telephony;
 import android.telephony.SubscriptionManager;
 
+import androidx.fragment.app.Fragment;
+import androidx.preference.PreferenceCategory;
 import androidx.preference.PreferenceManager;
 
 import com.android.car.settings.CarSettingsRobolectricTestRunner;
 import com.android.car.settings.R;
+import com.android.car.settings.common.ErrorDialog;
+import com.android.car.settings.common.SettingsExecutor;
 import com.android.car.settings.testutils.FragmentController;
 import com.android.car.settings.testutils.ShadowBluetoothAdapter;
 import com.android.car.settings.testutils.ShadowConnectivityManager;
@@ -54,7 +58,9 @@ import org.robolectric.annotation.Config;
 import org.robolectric.shadow.api.Shadow;
 import org.robolectric.shadows.ShadowContentResolver;
 import org.robolectric.shadows.ShadowContextImpl;
+import org.robolectric.shadows.ShadowToast;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @RunWith(CarSettingsRobolectricTestRunner.class)
@@ -78,6 +84,8 @@ public class ResetNetworkConfirmFragmentTest {
     public void setUp() {
         MockitoAnnotations.initMocks(this);
         mContext = RuntimeEnvironment.application;
+        SettingsExecutor.setInstanceForTesting(
+                new SettingsExecutor(Runnable::run, /* maxWorkers= */ 1, Runnable::run));
 
         final NetworkPolicyManager npm = new NetworkPolicyManager(mContext, new Default());
         ShadowContextImpl shadowContext =
@@ -109,6 +117,7 @@ public class ResetNetworkConfirmFragmentTest {
         ShadowTelephonyManager.reset();
         ShadowNetworkPolicyManager.reset();
         ShadowContentResolver.reset();
+        SettingsExecutor.setInstanceForTesting(null);
     }
 
     @Test
@@ -207,6 +216,86 @@ public class ResetNetworkConfirmFragmentTest {
         assertThat(uri.toString().contains("subId/123")).isTrue();
     }
 
+    @Test
+    public void testResetButtonClick_subsystemResetsRunOneAfterTheOther() {
+        List<Runnable> workers = new ArrayList<>();
+        SettingsExecutor.setInstanceForTesting(
+                new SettingsExecutor(workers::add, /* maxWorkers= */ 4, Runnable::run));
+
+        mResetButton.performClick();
+
+        PreferenceCategory steps = mFragmentController.get().findPreference(
+                mContext.getString(R.string.pk_reset_network_steps));
+        assertThat(workers).hasSize(1);
+        assertThat(steps.getPreference(0).getSummary()).isEqualTo(
+                mContext.getString(R.string.reset_network_step_running));
+        for (int i = 1; i < steps.getPreferenceCount(); i++) {
+            assertThat(steps.getPreference(i).getSummary()).isEqualTo(
+                    mContext.getString(R.string.reset_network_step_pending));
+        }
+    }
+
+    @Test
+    public void testResetButtonClick_esimResetFailed_showsErrorDialog() {
+        setEuiccResetCheckbox(true);
+        ShadowRecoverySystem.setWipeEuiccDataResult(false);
+
+        mResetButton.performClick();
+        Robolectric.flushForegroundThreadScheduler();
+
+        assertThat(isErrorDialogShown()).isTrue();
+    }
+
+    @Test
+    public void testResetButtonClick_esimResetFailedWhileStopped_showsErrorDialogOnResume() {
+        List<Runnable> workers = new ArrayList<>();
+        SettingsExecutor.setInstanceForTesting(
+                new SettingsExecutor(workers::add, /* maxWorkers= */ 1, Runnable::run));
+        setEuiccResetCheckbox(true);
+        ShadowRecoverySystem.setWipeEuiccDataResult(false);
+        mResetButton.performClick();
+
+        mFragmentController.pause().stop();
+        runAll(workers);
+        Robolectric.flushForegroundThreadScheduler();
+        assertThat(isErrorDialogShown()).isFalse();
+
+        mFragmentController.start().resume();
+        Robolectric.flushForegroundThreadScheduler();
+        assertThat(isErrorDialogShown()).isTrue();
+    }
+
+    @Test
+    public void testResetButtonClick_esimResetFailedAfterDestroy_showsErrorToast() {
+        List<Runnable> workers = new ArrayList<>();
+        SettingsExecutor.setInstanceForTesting(
+                new SettingsExecutor(workers::add, /* maxWorkers= */ 1, Runnable::run));
+        setEuiccResetCheckbox(true);
+        ShadowRecoverySystem.setWipeEuiccDataResult(false);
+        mResetButton.performClick();
+
+        mFragmentController.pause().stop().destroy();
+        runAll(workers);
+
+        assertThat(ShadowToast.getTextOfLatestToast()).isEqualTo(
+                mContext.getString(R.string.reset_esim_error_title));
+    }
+
+    private boolean isErrorDialogShown() {
+        for (Fragment fragment : mFragmentController.get().getFragmentManager().getFragments()) {
+            if (fragment instanceof ErrorDialog) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void runAll(List<Runnable> tasks) {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
     private Uri getUriWithGivenPrefix(List<Uri> uris, String prefix) {
         for (Uri uri : uris) {
             if (uri.toString().startsWith(prefix)) return uri;
@@ -27,6 +27,7 @@ import org.robolectric.annotation.Resetter;
 public class ShadowRecoverySystem {
 
     private static int sWipeEuiccDataCalledCount = 0;
+    private static boolean sWipeEuiccDataResult = true;
 
     public static boolean verifyWipeEuiccDataCalled(int numTimes) {
         return sWipeEuiccDataCalledCount == numTimes;
@@ -35,11 +36,16 @@ public class ShadowRecoverySystem {
     @Implementation
     protected static boolean wipeEuiccData(Context context, final String packageName) {
         sWipeEuiccDataCalledCount++;
-        return true;
+        return sWipeEuiccDataResult;
+    }
+
+    public static void setWipeEuiccDataResult(boolean result) {
+        sWipeEuiccDataResult = result;
     }
 
     @Resetter
     public static void reset() {
         sWipeEuiccDataCalledCount = 0;
+        sWipeEuiccDataResult = true;
     }
 }
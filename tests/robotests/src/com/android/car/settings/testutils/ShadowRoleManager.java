@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.testutils;
+
+import android.app.role.OnRoleHoldersChangedListener;
+import android.app.role.RoleManager;
+import android.content.Context;
+import android.os.UserHandle;
+import android.util.ArrayMap;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.Resetter;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps role holder change listeners in memory so tests can notify them directly.
+ */
+@Implements(RoleManager.class)
+public class ShadowRoleManager {
+    private static Map<OnRoleHoldersChangedListener, Executor> sListeners = new ArrayMap<>();
+
+    @Implementation
+    protected void __constructor__(Context context) {
+        // do nothing, everything is shadowed
+    }
+
+    @Implementation
+    protected void addOnRoleHoldersChangedListenerAsUser(Executor executor,
+            OnRoleHoldersChangedListener listener, UserHandle user) {
+        sListeners.put(listener, executor);
+    }
+
+    @Implementation
+    protected void removeOnRoleHoldersChangedListenerAsUser(
+            OnRoleHoldersChangedListener listener, UserHandle user) {
+        sListeners.remove(listener);
+    }
+
+    /** Notifies all registered listeners that the holders of {@code roleName} changed. */
+    public static void notifyRoleHoldersChanged(String roleName, UserHandle user) {
+        for (Map.Entry<OnRoleHoldersChangedListener, Executor> entry :
+                new ArrayList<>(sListeners.entrySet())) {
+            entry.getValue().execute(
+                    () -> entry.getKey().onRoleHoldersChanged(roleName, user));
+        }
+    }
+
+    /** Returns the number of registered role holder change listeners. */
+    public static int getListenerCount() {
+        return sListeners.size();
+    }
+
+    @Resetter
+    public static void reset() {
+        sListeners.clear();
+    }
+}
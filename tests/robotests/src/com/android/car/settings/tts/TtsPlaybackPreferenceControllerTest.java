@@ -21,11 +21,13 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.PackageInfo;
 import android.provider.Settings;
 import android.speech.tts.TextToSpeech;
 import android.speech.tts.TtsEngines;
@@ -57,6 +59,8 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowPackageManager;
 
 import java.util.Locale;
 
@@ -152,6 +156,67 @@ public class TtsPlaybackPreferenceControllerTest {
         assertThat(intent.getValue().getPackage()).isEqualTo(ENGINE_INFO.name);
     }
 
+    @Test
+    public void onCreate_voiceDataCheckedBefore_usesCachedResult() {
+        installEngine();
+        mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_CREATE);
+        mController.processActivityResult(TtsPlaybackPreferenceController.VOICE_DATA_CHECK,
+                TextToSpeech.Engine.CHECK_VOICE_DATA_PASS, createVoiceData());
+        mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+
+        PreferenceControllerTestHelper<TtsPlaybackPreferenceController> reopenedHelper =
+                createReopenedControllerHelper();
+        reopenedHelper.sendLifecycleEvent(Lifecycle.Event.ON_CREATE);
+
+        verify(reopenedHelper.getMockFragmentController(), never()).startActivityForResult(
+                any(Intent.class), eq(TtsPlaybackPreferenceController.VOICE_DATA_CHECK),
+                any(ActivityResultCallback.class));
+        // Length is 3 languages + default language.
+        assertThat(mDefaultLanguagePreference.getEntries().length).isEqualTo(4);
+    }
+
+    @Test
+    public void onCreate_sampleTextReceivedBefore_usesCachedSampleText() {
+        String testData = "Test sample text";
+        installEngine();
+        mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_CREATE);
+        mController.processActivityResult(TtsPlaybackPreferenceController.VOICE_DATA_CHECK,
+                TextToSpeech.Engine.CHECK_VOICE_DATA_PASS, createVoiceData());
+        Intent sampleData = new Intent();
+        sampleData.putExtra(TextToSpeech.Engine.EXTRA_SAMPLE_TEXT, testData);
+        mController.processActivityResult(TtsPlaybackPreferenceController.GET_SAMPLE_TEXT,
+                TextToSpeech.LANG_AVAILABLE, sampleData);
+        mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+
+        PreferenceControllerTestHelper<TtsPlaybackPreferenceController> reopenedHelper =
+                createReopenedControllerHelper();
+        reopenedHelper.sendLifecycleEvent(Lifecycle.Event.ON_CREATE);
+
+        verify(reopenedHelper.getMockFragmentController(), never()).startActivityForResult(
+                any(Intent.class), eq(TtsPlaybackPreferenceController.GET_SAMPLE_TEXT),
+                any(ActivityResultCallback.class));
+        assertThat(reopenedHelper.getController().getSampleText()).isEqualTo(testData);
+    }
+
+    @Test
+    public void onDestroy_otherScreenHoldsEngine_doesNotShutDownEngine() {
+        TtsSessionManager.getInstance(mContext).acquire();
+        mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_CREATE);
+
+        mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+
+        verify(mTextToSpeech, never()).shutdown();
+    }
+
+    @Test
+    public void onDestroy_lastHolder_shutsDownEngine() {
+        mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_CREATE);
+
+        mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+
+        verify(mTextToSpeech).shutdown();
+    }
+
     @Test
     public void voiceDataCheck_processActivityResult_dataIsNull_defaultSynthRemainsUnchanged() {
         mControllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_CREATE);
@@ -446,4 +511,49 @@ public class TtsPlaybackPreferenceControllerTest {
         assertThat(mVoicePitchPreference.isEnabled()).isTrue();
         assertThat(mResetPreference.isEnabled()).isTrue();
     }
+
+    private void installEngine() {
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = ENGINE_INFO.name;
+        packageInfo.setLongVersionCode(1);
+        ShadowPackageManager shadowPackageManager = Shadow.extract(mContext.getPackageManager());
+        shadowPackageManager.installPackage(packageInfo);
+    }
+
+    private Intent createVoiceData() {
+        Intent data = new Intent();
+        data.putStringArrayListExtra(TextToSpeech.Engine.EXTRA_AVAILABLE_VOICES,
+                Lists.newArrayList(
+                        Locale.ENGLISH.toString(),
+                        Locale.CANADA.toString(),
+                        Locale.KOREA.toString()
+                ));
+        return data;
+    }
+
+    /**
+     * Returns a helper for a new controller with new preferences, as if the screen was reopened.
+     * The default language preference is replaced by the new one.
+     */
+    private PreferenceControllerTestHelper<TtsPlaybackPreferenceController>
+            createReopenedControllerHelper() {
+        PreferenceGroup preferenceGroup = new LogicalPreferenceGroup(mContext);
+        PreferenceControllerTestHelper<TtsPlaybackPreferenceController> helper =
+                new PreferenceControllerTestHelper<>(mContext,
+                        TtsPlaybackPreferenceController.class, preferenceGroup);
+
+        mDefaultLanguagePreference = new ListPreference(mContext);
+        mDefaultLanguagePreference.setKey(mContext.getString(R.string.pk_tts_default_language));
+        preferenceGroup.addPreference(mDefaultLanguagePreference);
+        Preference speechRatePreference = new SeekBarPreference(mContext);
+        speechRatePreference.setKey(mContext.getString(R.string.pk_tts_speech_rate));
+        preferenceGroup.addPreference(speechRatePreference);
+        Preference voicePitchPreference = new SeekBarPreference(mContext);
+        voicePitchPreference.setKey(mContext.getString(R.string.pk_tts_pitch));
+        preferenceGroup.addPreference(voicePitchPreference);
+        Preference resetPreference = new Preference(mContext);
+        resetPreference.setKey(mContext.getString(R.string.pk_tts_reset));
+        preferenceGroup.addPreference(resetPreference);
+        return helper;
+    }
 }
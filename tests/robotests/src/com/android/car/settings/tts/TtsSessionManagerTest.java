@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.tts;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.speech.tts.TextToSpeech;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.testutils.ShadowTextToSpeech;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowPackageManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+@Config(shadows = {ShadowTextToSpeech.class})
+public class TtsSessionManagerTest {
+
+    private static final String ENGINE_NAME = "com.android.car.settings.tts.test";
+    private static final String SAMPLE_TEXT = "Sample text";
+
+    private Context mContext;
+    private TtsSessionManager mSessionManager;
+    private List<Integer> mInitStatuses;
+    @Mock
+    private TextToSpeech mTextToSpeech;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ShadowTextToSpeech.setInstance(mTextToSpeech);
+
+        mContext = RuntimeEnvironment.application;
+        mSessionManager = TtsSessionManager.getInstance(mContext);
+        mInitStatuses = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        ShadowTextToSpeech.reset();
+    }
+
+    @Test
+    public void acquire_twice_sharesInstance() {
+        TextToSpeech first = mSessionManager.acquire();
+        TextToSpeech second = mSessionManager.acquire();
+
+        assertThat(second).isSameAs(first);
+        assertThat(mSessionManager.getRefCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void release_notLastHolder_doesNotShutDown() {
+        mSessionManager.acquire();
+        mSessionManager.acquire();
+
+        mSessionManager.release();
+
+        verify(mTextToSpeech, never()).shutdown();
+        assertThat(mSessionManager.getTextToSpeech()).isNotNull();
+    }
+
+    @Test
+    public void release_lastHolder_shutsDown() {
+        mSessionManager.acquire();
+        mSessionManager.acquire();
+
+        mSessionManager.release();
+        mSessionManager.release();
+
+        verify(mTextToSpeech, times(1)).shutdown();
+        assertThat(mSessionManager.getTextToSpeech()).isNull();
+    }
+
+    @Test
+    public void addOnInitListener_alreadyInitialized_calledImmediately() {
+        mSessionManager.acquire();
+        ShadowTextToSpeech.callInitializationCallbackWithStatus(TextToSpeech.SUCCESS);
+
+        mSessionManager.addOnInitListener(mInitStatuses::add);
+
+        assertThat(mInitStatuses).containsExactly(TextToSpeech.SUCCESS);
+    }
+
+    @Test
+    public void addOnInitListener_notInitialized_calledOnInit() {
+        mSessionManager.acquire();
+        mSessionManager.addOnInitListener(mInitStatuses::add);
+        assertThat(mInitStatuses).isEmpty();
+
+        ShadowTextToSpeech.callInitializationCallbackWithStatus(TextToSpeech.SUCCESS);
+
+        assertThat(mInitStatuses).containsExactly(TextToSpeech.SUCCESS);
+    }
+
+    @Test
+    public void cachedEngineData_sameVersion_returned() {
+        installEngine(/* versionCode= */ 1);
+        mSessionManager.cacheVoiceData(ENGINE_NAME, TextToSpeech.Engine.CHECK_VOICE_DATA_PASS,
+                new Intent());
+        mSessionManager.cacheSampleText(ENGINE_NAME, Locale.ENGLISH, SAMPLE_TEXT);
+
+        assertThat(mSessionManager.getCachedVoiceData(ENGINE_NAME).mResultCode).isEqualTo(
+                TextToSpeech.Engine.CHECK_VOICE_DATA_PASS);
+        assertThat(mSessionManager.getCachedSampleText(ENGINE_NAME, Locale.ENGLISH)).isEqualTo(
+                SAMPLE_TEXT);
+        assertThat(mSessionManager.getCachedSampleText(ENGINE_NAME, Locale.KOREA)).isNull();
+    }
+
+    @Test
+    public void cachedEngineData_engineUpdated_notReturned() {
+        installEngine(/* versionCode= */ 1);
+        mSessionManager.cacheVoiceData(ENGINE_NAME, TextToSpeech.Engine.CHECK_VOICE_DATA_PASS,
+                new Intent());
+        mSessionManager.cacheSampleText(ENGINE_NAME, Locale.ENGLISH, SAMPLE_TEXT);
+
+        installEngine(/* versionCode= */ 2);
+
+        assertThat(mSessionManager.getCachedVoiceData(ENGINE_NAME)).isNull();
+        assertThat(mSessionManager.getCachedSampleText(ENGINE_NAME, Locale.ENGLISH)).isNull();
+    }
+
+    @Test
+    public void cachedEngineData_voiceDataInstalled_cleared() {
+        installEngine(/* versionCode= */ 1);
+        mSessionManager.cacheVoiceData(ENGINE_NAME, TextToSpeech.Engine.CHECK_VOICE_DATA_PASS,
+                new Intent());
+
+        mContext.sendBroadcast(new Intent(TextToSpeech.Engine.ACTION_TTS_DATA_INSTALLED));
+
+        assertThat(mSessionManager.getCachedVoiceData(ENGINE_NAME)).isNull();
+    }
+
+    private void installEngine(long versionCode) {
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = ENGINE_NAME;
+        packageInfo.setLongVersionCode(versionCode);
+        ShadowPackageManager shadowPackageManager = Shadow.extract(mContext.getPackageManager());
+        shadowPackageManager.installPackage(packageInfo);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.users;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.when;
+
+import android.car.userlib.CarUserManagerHelper;
+import android.content.Context;
+import android.content.pm.UserInfo;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class UserGridRecyclerViewTest {
+
+    private static final UserInfo FIRST_USER = new UserInfo(/* id= */ 10, "First User",
+            /* flags= */ 0);
+    private static final UserInfo SECOND_USER = new UserInfo(/* id= */ 11, "Second User",
+            /* flags= */ 0);
+    private static final UserInfo THIRD_USER = new UserInfo(/* id= */ 12, "Third User",
+            /* flags= */ 0);
+
+    // Positions of the records built for FIRST_USER and SECOND_USER, followed by the start guest
+    // session and add user records.
+    private static final int FIRST_USER_POSITION = 0;
+    private static final int SECOND_USER_POSITION = 1;
+    private static final int ADD_USER_POSITION = 3;
+
+    private Context mContext;
+    private UserGridRecyclerView mUserGridRecyclerView;
+    private List<Runnable> mBackgroundTasks = new ArrayList<>();
+    private List<String> mAdapterEvents = new ArrayList<>();
+    @Mock
+    private CarUserManagerHelper mCarUserManagerHelper;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        when(mCarUserManagerHelper.canForegroundUserSwitchUsers()).thenReturn(true);
+        when(mCarUserManagerHelper.canForegroundUserAddUsers()).thenReturn(true);
+        when(mCarUserManagerHelper.isForegroundUserGuest()).thenReturn(false);
+        when(mCarUserManagerHelper.getCurrentForegroundUserId()).thenReturn(FIRST_USER.id);
+        setUsers(FIRST_USER, SECOND_USER);
+
+        mUserGridRecyclerView = new UserGridRecyclerView(mContext, /* attrs= */ null,
+                mCarUserManagerHelper, mBackgroundTasks::add);
+        mUserGridRecyclerView.buildAdapter();
+        mUserGridRecyclerView.getAdapter().registerAdapterDataObserver(
+                new RecordingAdapterDataObserver());
+    }
+
+    @Test
+    public void onUsersUpdate_noChanges_dispatchesNothing() {
+        updateUsers();
+
+        assertThat(mAdapterEvents).isEmpty();
+    }
+
+    @Test
+    public void onUsersUpdate_userAdded_insertsOnlyNewUser() {
+        setUsers(FIRST_USER, SECOND_USER, THIRD_USER);
+
+        updateUsers();
+
+        assertThat(mAdapterEvents).containsExactly("inserted 2");
+        assertThat(mUserGridRecyclerView.getAdapter().getItemCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void onUsersUpdate_userRemoved_removesOnlyThatUser() {
+        setUsers(FIRST_USER);
+
+        updateUsers();
+
+        assertThat(mAdapterEvents).containsExactly("removed " + SECOND_USER_POSITION);
+        assertThat(mUserGridRecyclerView.getAdapter().getItemCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void onUsersUpdate_userRenamed_dispatchesNamePayload() {
+        UserInfo renamedUser = new UserInfo(SECOND_USER.id, "Renamed User", /* flags= */ 0);
+        setUsers(FIRST_USER, renamedUser);
+
+        updateUsers();
+
+        assertThat(mAdapterEvents).containsExactly(
+                "changed " + SECOND_USER_POSITION + " " + UserGridRecyclerView.PAYLOAD_NAME);
+    }
+
+    @Test
+    public void onUsersUpdate_iconVersionBumped_dispatchesIconPayload() {
+        UserIconCache.getInstance(mContext).invalidateUser(SECOND_USER.id);
+
+        updateUsers();
+
+        assertThat(mAdapterEvents).containsExactly(
+                "changed " + SECOND_USER_POSITION + " " + UserGridRecyclerView.PAYLOAD_ICON);
+    }
+
+    @Test
+    public void onUsersUpdate_foregroundSwitched_dispatchesStatePayloads() {
+        when(mCarUserManagerHelper.getCurrentForegroundUserId()).thenReturn(SECOND_USER.id);
+
+        updateUsers();
+
+        assertThat(mAdapterEvents).containsExactly(
+                "changed " + FIRST_USER_POSITION + " " + UserGridRecyclerView.PAYLOAD_STATE,
+                "changed " + SECOND_USER_POSITION + " " + UserGridRecyclerView.PAYLOAD_STATE);
+    }
+
+    @Test
+    public void disableAddUser_dispatchesStatePayloadForAddUserOnly() {
+        mUserGridRecyclerView.disableAddUser();
+        runBackgroundTasks();
+
+        assertThat(mAdapterEvents).containsExactly(
+                "changed " + ADD_USER_POSITION + " " + UserGridRecyclerView.PAYLOAD_STATE);
+    }
+
+    @Test
+    public void onUsersUpdate_superseded_dropsOlderResult() {
+        setUsers(FIRST_USER);
+        mUserGridRecyclerView.onUsersUpdate();
+        setUsers(FIRST_USER, SECOND_USER, THIRD_USER);
+        mUserGridRecyclerView.onUsersUpdate();
+
+        runBackgroundTasks();
+
+        assertThat(mAdapterEvents).containsExactly("inserted 2");
+        assertThat(mUserGridRecyclerView.getAdapter().getItemCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void onUsersUpdate_supersededResultArrivesLast_isStillDropped() {
+        setUsers(FIRST_USER);
+        mUserGridRecyclerView.onUsersUpdate();
+        setUsers(FIRST_USER, SECOND_USER, THIRD_USER);
+        mUserGridRecyclerView.onUsersUpdate();
+
+        mBackgroundTasks.get(1).run();
+        mBackgroundTasks.get(0).run();
+        mBackgroundTasks.clear();
+        ShadowLooper.runUiThreadTasks();
+
+        assertThat(mAdapterEvents).containsExactly("inserted 2");
+        assertThat(mUserGridRecyclerView.getAdapter().getItemCount()).isEqualTo(5);
+    }
+
+    private void setUsers(UserInfo... users) {
+        when(mCarUserManagerHelper.getAllUsers()).thenReturn(Arrays.asList(users));
+    }
+
+    private void updateUsers() {
+        mUserGridRecyclerView.onUsersUpdate();
+        runBackgroundTasks();
+    }
+
+    private void runBackgroundTasks() {
+        for (Runnable task : mBackgroundTasks) {
+            task.run();
+        }
+        mBackgroundTasks.clear();
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    /** Records adapter notifications, with range changes split into one event per position. */
+    private class RecordingAdapterDataObserver extends RecyclerView.AdapterDataObserver {
+        @Override
+        public void onChanged() {
+            mAdapterEvents.add("dataset changed");
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            onItemRangeChanged(positionStart, itemCount, /* payload= */ null);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                mAdapterEvents.add("changed " + i + " " + payload);
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                mAdapterEvents.add("inserted " + i);
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            for (int i = positionStart; i < positionStart + itemCount; i++) {
+                mAdapterEvents.add("removed " + i);
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mAdapterEvents.add("moved " + fromPosition + " " + toPosition);
+        }
+    }
+}
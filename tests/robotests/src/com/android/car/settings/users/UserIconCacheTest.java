@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.users;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.car.userlib.CarUserManagerHelper;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.UserInfo;
+import android.graphics.Bitmap;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(CarSettingsRobolectricTestRunner.class)
+public class UserIconCacheTest {
+
+    private static final int ICON_SIZE = 48;
+    private static final UserInfo TEST_USER = new UserInfo(/* id= */ 10, "Test User",
+            /* flags= */ 0);
+    private static final UserInfo OTHER_USER = new UserInfo(/* id= */ 11, "Other User",
+            /* flags= */ 0);
+
+    private Context mContext;
+    private UserIconCache mUserIconCache;
+    @Mock
+    private CarUserManagerHelper mCarUserManagerHelper;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mUserIconCache = UserIconCache.getInstance(mContext);
+        when(mCarUserManagerHelper.getUserIcon(TEST_USER)).thenReturn(createBitmap());
+        when(mCarUserManagerHelper.getUserIcon(OTHER_USER)).thenReturn(createBitmap());
+    }
+
+    @Test
+    public void getCircularUserIcon_returnsIconAtRequestedSize() {
+        Bitmap icon = mUserIconCache.getCircularUserIcon(TEST_USER, ICON_SIZE,
+                mCarUserManagerHelper);
+
+        assertThat(icon.getWidth()).isEqualTo(ICON_SIZE);
+        assertThat(icon.getHeight()).isEqualTo(ICON_SIZE);
+    }
+
+    @Test
+    public void getCircularUserIcon_cached_doesNotReload() {
+        Bitmap first = mUserIconCache.getCircularUserIcon(TEST_USER, ICON_SIZE,
+                mCarUserManagerHelper);
+        Bitmap second = mUserIconCache.getCircularUserIcon(TEST_USER, ICON_SIZE,
+                mCarUserManagerHelper);
+
+        assertThat(second).isSameAs(first);
+        verify(mCarUserManagerHelper, times(1)).getUserIcon(TEST_USER);
+    }
+
+    @Test
+    public void getCircularUserIcon_differentSize_reloads() {
+        mUserIconCache.getCircularUserIcon(TEST_USER, ICON_SIZE, mCarUserManagerHelper);
+        mUserIconCache.getCircularUserIcon(TEST_USER, ICON_SIZE * 2, mCarUserManagerHelper);
+
+        verify(mCarUserManagerHelper, times(2)).getUserIcon(TEST_USER);
+    }
+
+    @Test
+    public void getCircularUserIcon_noIcon_cachesMiss() {
+        UserInfo userWithoutIcon = new UserInfo(/* id= */ 12, "No Icon", /* flags= */ 0);
+
+        assertThat(mUserIconCache.getCircularUserIcon(userWithoutIcon, ICON_SIZE,
+                mCarUserManagerHelper)).isNull();
+        assertThat(mUserIconCache.getCircularUserIcon(userWithoutIcon, ICON_SIZE,
+                mCarUserManagerHelper)).isNull();
+
+        verify(mCarUserManagerHelper, times(1)).getUserIcon(userWithoutIcon);
+    }
+
+    @Test
+    public void userInfoChanged_evictsOnlyThatUser() {
+        mUserIconCache.getCircularUserIcon(TEST_USER, ICON_SIZE, mCarUserManagerHelper);
+        mUserIconCache.getCircularUserIcon(OTHER_USER, ICON_SIZE, mCarUserManagerHelper);
+
+        mContext.sendBroadcast(new Intent(Intent.ACTION_USER_INFO_CHANGED)
+                .putExtra(Intent.EXTRA_USER_HANDLE, TEST_USER.id));
+        mUserIconCache.getCircularUserIcon(TEST_USER, ICON_SIZE, mCarUserManagerHelper);
+        mUserIconCache.getCircularUserIcon(OTHER_USER, ICON_SIZE, mCarUserManagerHelper);
+
+        verify(mCarUserManagerHelper, times(2)).getUserIcon(TEST_USER);
+        verify(mCarUserManagerHelper, times(1)).getUserIcon(OTHER_USER);
+    }
+
+    @Test
+    public void userRemoved_evictsUser() {
+        mUserIconCache.getCircularUserIcon(TEST_USER, ICON_SIZE, mCarUserManagerHelper);
+
+        mContext.sendBroadcast(new Intent(Intent.ACTION_USER_REMOVED)
+                .putExtra(Intent.EXTRA_USER_HANDLE, TEST_USER.id));
+
+        assertThat(mUserIconCache.size()).isEqualTo(0);
+    }
+
+    private static Bitmap createBitmap() {
+        return Bitmap.createBitmap(ICON_SIZE * 4, ICON_SIZE * 4, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.users;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.when;
+
+import android.car.userlib.CarUserManagerHelper;
+import android.content.Context;
+import android.content.pm.UserInfo;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.preference.PreferenceGroup;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.benchmark.BenchmarkDatasets;
+import com.android.car.settings.benchmark.BenchmarkRule;
+import com.android.car.settings.common.LogicalPreferenceGroup;
+import com.android.car.settings.common.PreferenceControllerTestHelper;
+import com.android.car.settings.testutils.ShadowCarUserManagerHelper;
+import com.android.car.settings.testutils.ShadowUserIconProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/** Benchmark for {@link UsersListPreferenceController}. */
+@RunWith(CarSettingsRobolectricTestRunner.class)
+@Config(shadows = {ShadowCarUserManagerHelper.class, ShadowUserIconProvider.class})
+public class UsersListPreferenceControllerBenchmarkTest {
+
+    @Rule
+    public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    @Mock
+    private CarUserManagerHelper mCarUserManagerHelper;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        ShadowCarUserManagerHelper.setMockInstance(mCarUserManagerHelper);
+        UserInfo currentUser = BenchmarkDatasets.createCurrentUser();
+        when(mCarUserManagerHelper.getCurrentProcessUserInfo()).thenReturn(currentUser);
+        when(mCarUserManagerHelper.isCurrentProcessUser(currentUser)).thenReturn(true);
+        when(mCarUserManagerHelper.isCurrentProcessAdminUser()).thenReturn(true);
+        when(mCarUserManagerHelper.getAllSwitchableUsers()).thenReturn(
+                BenchmarkDatasets.createUsers());
+    }
+
+    @After
+    public void tearDown() {
+        ShadowCarUserManagerHelper.reset();
+    }
+
+    @Test
+    public void lifecycle() {
+        mBenchmark.measure("lifecycle", () -> {
+            PreferenceGroup preferenceGroup = new LogicalPreferenceGroup(mContext);
+            PreferenceControllerTestHelper<UsersListPreferenceController> controllerHelper =
+                    new PreferenceControllerTestHelper<>(mContext,
+                            UsersListPreferenceController.class, preferenceGroup);
+            controllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_START);
+            controllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        });
+    }
+
+    @Test
+    public void refreshUi() {
+        PreferenceGroup preferenceGroup = new LogicalPreferenceGroup(mContext);
+        PreferenceControllerTestHelper<UsersListPreferenceController> controllerHelper =
+                new PreferenceControllerTestHelper<>(mContext,
+                        UsersListPreferenceController.class, preferenceGroup);
+        controllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_START);
+        UsersListPreferenceController controller = controllerHelper.getController();
+
+        mBenchmark.measure("refreshUi", controller::refreshUi);
+
+        // Current user, switchable users and the guest user.
+        assertThat(preferenceGroup.getPreferenceCount()).isEqualTo(
+                BenchmarkDatasets.USER_COUNT + 2);
+    }
+}
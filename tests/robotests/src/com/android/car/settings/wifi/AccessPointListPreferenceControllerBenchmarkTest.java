@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.wifi;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.preference.PreferenceGroup;
+
+import com.android.car.settings.CarSettingsRobolectricTestRunner;
+import com.android.car.settings.benchmark.BenchmarkDatasets;
+import com.android.car.settings.benchmark.BenchmarkRule;
+import com.android.car.settings.common.LogicalPreferenceGroup;
+import com.android.car.settings.common.PreferenceControllerTestHelper;
+import com.android.car.settings.testutils.ShadowCarWifiManager;
+import com.android.car.settings.testutils.ShadowWifiManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+
+/** Benchmark for {@link AccessPointListPreferenceController}. */
+@RunWith(CarSettingsRobolectricTestRunner.class)
+@Config(shadows = {ShadowCarWifiManager.class, ShadowWifiManager.class})
+public class AccessPointListPreferenceControllerBenchmarkTest {
+
+    @Rule
+    public BenchmarkRule mBenchmark = new BenchmarkRule();
+
+    @Mock
+    private CarWifiManager mCarWifiManager;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ShadowCarWifiManager.setInstance(mCarWifiManager);
+        mContext = RuntimeEnvironment.application;
+        Shadows.shadowOf(mContext.getPackageManager()).setSystemFeature(PackageManager.FEATURE_WIFI,
+                true);
+        when(mCarWifiManager.getAllAccessPoints()).thenReturn(
+                BenchmarkDatasets.createAccessPoints());
+    }
+
+    @After
+    public void tearDown() {
+        ShadowCarWifiManager.reset();
+    }
+
+    @Test
+    public void lifecycle() {
+        mBenchmark.measure("lifecycle", () -> {
+            PreferenceGroup preferenceGroup = new LogicalPreferenceGroup(mContext);
+            PreferenceControllerTestHelper<AccessPointListPreferenceController> controllerHelper =
+                    new PreferenceControllerTestHelper<>(mContext,
+                            AccessPointListPreferenceController.class, preferenceGroup);
+            controllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_START);
+            controllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_STOP);
+        });
+    }
+
+    @Test
+    public void refreshUi() {
+        PreferenceGroup preferenceGroup = new LogicalPreferenceGroup(mContext);
+        PreferenceControllerTestHelper<AccessPointListPreferenceController> controllerHelper =
+                new PreferenceControllerTestHelper<>(mContext,
+                        AccessPointListPreferenceController.class, preferenceGroup);
+        controllerHelper.sendLifecycleEvent(Lifecycle.Event.ON_START);
+        AccessPointListPreferenceController controller = controllerHelper.getController();
+
+        mBenchmark.measure("refreshUi", controller::refreshUi);
+
+        assertThat(preferenceGroup.getPreferenceCount()).isEqualTo(
+                BenchmarkDatasets.ACCESS_POINT_COUNT);
+    }
+}
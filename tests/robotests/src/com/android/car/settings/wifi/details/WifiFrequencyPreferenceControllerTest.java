@@ -23,7 +23,6 @@ import static org.robolectric.Shadows.shadowOf;
 
 import android.content.Context;
 import android.content.pm.PackageManager;
-import android.net.NetworkInfo;
 import android.net.wifi.WifiInfo;
 
 import androidx.lifecycle.Lifecycle;
@@ -48,8 +47,6 @@ public class WifiFrequencyPreferenceControllerTest {
     @Mock
     private WifiInfoProvider mMockWifiInfoProvider;
     @Mock
-    private NetworkInfo mMockNetworkInfo;
-    @Mock
     private WifiInfo mMockWifiInfo;
 
     private WifiDetailsPreference mPreference;
@@ -81,7 +78,7 @@ public class WifiFrequencyPreferenceControllerTest {
         when(mMockWifiInfo.getFrequency()).thenReturn(AccessPoint.LOWER_FREQ_5GHZ);
 
         String expected = mContext.getResources().getString(R.string.wifi_band_5ghz);
-        mController.onWifiChanged(mMockNetworkInfo, mMockWifiInfo);
+        mController.onWifiInfoChanged(WifiInfoProvider.CHANGED_WIFI_INFO);
         assertThat(mPreference.getDetailText()).isEqualTo(expected);
     }
 
@@ -89,7 +86,7 @@ public class WifiFrequencyPreferenceControllerTest {
     public void onWifiChanged_isNotActive_noUpdate() {
         when(mMockAccessPoint.isActive()).thenReturn(false);
 
-        mController.onWifiChanged(mMockNetworkInfo, mMockWifiInfo);
+        mController.onWifiInfoChanged(WifiInfoProvider.CHANGED_WIFI_INFO);
         assertThat(mPreference.getDetailText()).isNull();
     }
 }
\ No newline at end of file
@@ -24,7 +24,6 @@ import static org.robolectric.Shadows.shadowOf;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.net.LinkProperties;
-import android.net.Network;
 import android.net.RouteInfo;
 
 import androidx.lifecycle.Lifecycle;
@@ -53,8 +52,6 @@ public class WifiGatewayPreferenceControllerTest {
     @Mock
     private WifiInfoProvider mMockWifiInfoProvider;
     @Mock
-    private Network mMockNetwork;
-    @Mock
     private LinkProperties mMockLinkProperties;
     @Mock
     private RouteInfo mMockRouteInfo;
@@ -91,15 +88,28 @@ public class WifiGatewayPreferenceControllerTest {
         when(mMockRouteInfo.getGateway()).thenReturn(mMockInetAddress);
         when(mMockInetAddress.getHostAddress()).thenReturn(GATE_WAY);
 
-        mController.onLinkPropertiesChanged(mMockNetwork, mMockLinkProperties);
+        mController.onWifiInfoChanged(WifiInfoProvider.CHANGED_LINK_PROPERTIES);
         assertThat(mPreference.getDetailText()).isEqualTo(GATE_WAY);
     }
 
+    @Test
+    public void onWifiInfoChanged_linkPropertiesUnchanged_noUpdate() {
+        when(mMockAccessPoint.isActive()).thenReturn(true);
+        when(mMockLinkProperties.getRoutes()).thenReturn(Arrays.asList(mMockRouteInfo));
+        when(mMockRouteInfo.isIPv4Default()).thenReturn(true);
+        when(mMockRouteInfo.hasGateway()).thenReturn(true);
+        when(mMockRouteInfo.getGateway()).thenReturn(mMockInetAddress);
+        when(mMockInetAddress.getHostAddress()).thenReturn(GATE_WAY);
+
+        mController.onWifiInfoChanged(WifiInfoProvider.CHANGED_WIFI_INFO);
+        assertThat(mPreference.getDetailText()).isNull();
+    }
+
     @Test
     public void onWifiChanged_isNotActive_noUpdate() {
         when(mMockAccessPoint.isActive()).thenReturn(false);
 
-        mController.onLinkPropertiesChanged(mMockNetwork, mMockLinkProperties);
+        mController.onWifiInfoChanged(WifiInfoProvider.CHANGED_LINK_PROPERTIES);
         assertThat(mPreference.getDetailText()).isNull();
     }
 }
\ No newline at end of file
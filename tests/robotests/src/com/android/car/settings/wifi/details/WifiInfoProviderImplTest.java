@@ -19,10 +19,11 @@ package com.android.car.settings.wifi.details;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -52,6 +53,9 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Collections;
 
 @RunWith(CarSettingsRobolectricTestRunner.class)
 public class WifiInfoProviderImplTest {
@@ -60,6 +64,7 @@ public class WifiInfoProviderImplTest {
     private static final int LINK_SPEED = 123;
     private static final String MAC_ADDRESS = WifiInfo.DEFAULT_MAC_ADDRESS;
     private static final String SECURITY = "None";
+    private static final int NETWORK_ID = 1;
 
     @Mock
     private AccessPoint mMockAccessPoint;
@@ -141,7 +146,8 @@ public class WifiInfoProviderImplTest {
     @Test
     public void onStart_listenerCallback() {
         mWifiInfoProviderImpl.onStart();
-        verify(mMockListener).onWifiChanged(eq(mMockNetworkInfo), eq(mMockWifiInfo));
+        verify(mMockListener).onWifiInfoChanged(
+                WifiInfoProvider.CHANGED_NETWORK_INFO | WifiInfoProvider.CHANGED_WIFI_INFO);
     }
 
     @Test
@@ -180,6 +186,7 @@ public class WifiInfoProviderImplTest {
                 .thenReturn(mMockNetworkInfo2);
 
         mContext.sendBroadcast(new Intent(WifiManager.NETWORK_STATE_CHANGED_ACTION));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
 
         assertThat(mWifiInfoProviderImpl.getNetwork()).isEqualTo(mMockNetwork);
         assertThat(mWifiInfoProviderImpl.getWifiInfo()).isEqualTo(mMockWifiInfo2);
@@ -199,6 +206,7 @@ public class WifiInfoProviderImplTest {
                 .thenReturn(mMockNetworkInfo2);
 
         mContext.sendBroadcast(new Intent(WifiManager.RSSI_CHANGED_ACTION));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
 
         assertThat(mWifiInfoProviderImpl.getNetwork()).isEqualTo(mMockNetwork);
         assertThat(mWifiInfoProviderImpl.getWifiInfo()).isEqualTo(mMockWifiInfo2);
@@ -210,8 +218,9 @@ public class WifiInfoProviderImplTest {
         mWifiInfoProviderImpl.onStart();
 
         mCallbackCaptor.getValue().onLost(mMockNetwork);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
 
-        verify(mMockListener).onLost(any(Network.class));
+        verify(mMockListener).onWifiInfoChanged(WifiInfoProvider.CHANGED_NETWORK_LOST);
     }
 
     @Test
@@ -220,9 +229,11 @@ public class WifiInfoProviderImplTest {
 
         mCallbackCaptor.getValue().onLinkPropertiesChanged(
                 mMockNetwork, mMockChangedLinkProperties);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
 
-        verify(mMockListener).onLinkPropertiesChanged(
-                any(Network.class), eq(mMockChangedLinkProperties));
+        verify(mMockListener).onWifiInfoChanged(WifiInfoProvider.CHANGED_LINK_PROPERTIES);
+        assertThat(mWifiInfoProviderImpl.getLinkProperties())
+                .isEqualTo(mMockChangedLinkProperties);
     }
 
     @Test
@@ -231,8 +242,66 @@ public class WifiInfoProviderImplTest {
 
         mCallbackCaptor.getValue().onCapabilitiesChanged(
                 mMockNetwork, mMockChangedNetworkCapabilities);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(mMockListener).onWifiInfoChanged(WifiInfoProvider.CHANGED_NETWORK_CAPABILITIES);
+        assertThat(mWifiInfoProviderImpl.getNetworkCapabilities())
+                .isEqualTo(mMockChangedNetworkCapabilities);
+    }
+
+    @Test
+    public void changesWithinFrame_listenerCalledOnceWithAllChangedFields() {
+        mWifiInfoProviderImpl.onStart();
+
+        ShadowLooper.pauseMainLooper();
+        mContext.sendBroadcast(new Intent(WifiManager.RSSI_CHANGED_ACTION));
+        mContext.sendBroadcast(new Intent(WifiManager.NETWORK_STATE_CHANGED_ACTION));
+        mContext.sendBroadcast(new Intent(WifiManager.RSSI_CHANGED_ACTION));
+        mCallbackCaptor.getValue().onLinkPropertiesChanged(
+                mMockNetwork, mMockChangedLinkProperties);
+        ShadowLooper.unPauseMainLooper();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        verify(mMockListener).onWifiInfoChanged(WifiInfoProvider.CHANGED_NETWORK_INFO
+                | WifiInfoProvider.CHANGED_WIFI_INFO | WifiInfoProvider.CHANGED_LINK_PROPERTIES);
+        verify(mMockListener, times(2)).onWifiInfoChanged(anyInt());
+    }
+
+    @Test
+    public void changesWithinFrame_gettersReturnPreviousFrameInfo() {
+        mWifiInfoProviderImpl.onStart();
+
+        ShadowLooper.pauseMainLooper();
+        mCallbackCaptor.getValue().onLinkPropertiesChanged(
+                mMockNetwork, mMockChangedLinkProperties);
+
+        assertThat(mWifiInfoProviderImpl.getLinkProperties()).isEqualTo(mMockLinkProperties);
+        ShadowLooper.unPauseMainLooper();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertThat(mWifiInfoProviderImpl.getLinkProperties())
+                .isEqualTo(mMockChangedLinkProperties);
+    }
+
+    @Test
+    public void configuredNetworksChangedIntent_singleNetwork_updatesIndexWithoutReloading() {
+        WifiConfiguration config = new WifiConfiguration();
+        config.networkId = NETWORK_ID;
+        WifiConfiguration updatedConfig = new WifiConfiguration();
+        updatedConfig.networkId = NETWORK_ID;
+        when(mMockWifiManager.getPrivilegedConfiguredNetworks())
+                .thenReturn(Collections.singletonList(config));
+        when(mMockWifiInfo.getNetworkId()).thenReturn(NETWORK_ID);
+        when(mMockAccessPoint.matches(any(WifiConfiguration.class))).thenReturn(true);
+        mWifiInfoProviderImpl.onStart();
+
+        mContext.sendBroadcast(new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION));
+        Intent intent = new Intent(WifiManager.CONFIGURED_NETWORKS_CHANGED_ACTION);
+        intent.putExtra(WifiManager.EXTRA_WIFI_CONFIGURATION, updatedConfig);
+        intent.putExtra(WifiManager.EXTRA_CHANGE_REASON, WifiManager.CHANGE_REASON_CONFIG_CHANGE);
+        mContext.sendBroadcast(intent);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
 
-        verify(mMockListener).onCapabilitiesChanged(
-                any(Network.class), eq(mMockChangedNetworkCapabilities));
+        verify(mMockWifiManager).getPrivilegedConfiguredNetworks();
+        assertThat(mWifiInfoProviderImpl.getNetworkConfiguration()).isEqualTo(updatedConfig);
     }
 }
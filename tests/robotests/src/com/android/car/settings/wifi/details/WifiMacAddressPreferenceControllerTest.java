@@ -23,7 +23,6 @@ import static org.robolectric.Shadows.shadowOf;
 
 import android.content.Context;
 import android.content.pm.PackageManager;
-import android.net.NetworkInfo;
 import android.net.wifi.WifiInfo;
 
 import androidx.lifecycle.Lifecycle;
@@ -49,8 +48,6 @@ public class WifiMacAddressPreferenceControllerTest {
     @Mock
     private WifiInfoProvider mMockWifiInfoProvider;
     @Mock
-    private NetworkInfo mMockNetworkInfo;
-    @Mock
     private WifiInfo mMockWifiInfo;
 
     private Context mContext;
@@ -79,7 +76,7 @@ public class WifiMacAddressPreferenceControllerTest {
         when(mMockAccessPoint.isActive()).thenReturn(true);
         when(mMockWifiInfo.getMacAddress()).thenReturn(MAC_ADDRESS);
 
-        mController.onWifiChanged(mMockNetworkInfo, mMockWifiInfo);
+        mController.onWifiInfoChanged(WifiInfoProvider.CHANGED_WIFI_INFO);
         assertThat(mPreference.getDetailText()).isEqualTo(MAC_ADDRESS);
     }
 
@@ -87,7 +84,7 @@ public class WifiMacAddressPreferenceControllerTest {
     public void onWifiChanged_isNotActive_noUpdate() {
         when(mMockAccessPoint.isActive()).thenReturn(false);
 
-        mController.onWifiChanged(mMockNetworkInfo, mMockWifiInfo);
+        mController.onWifiInfoChanged(WifiInfoProvider.CHANGED_WIFI_INFO);
         assertThat(mPreference.getDetailText()).isNull();
     }
 }
\ No newline at end of file
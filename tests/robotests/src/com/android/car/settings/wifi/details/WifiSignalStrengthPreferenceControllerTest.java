@@ -23,8 +23,6 @@ import static org.robolectric.Shadows.shadowOf;
 
 import android.content.Context;
 import android.content.pm.PackageManager;
-import android.net.NetworkInfo;
-import android.net.wifi.WifiInfo;
 
 import androidx.lifecycle.Lifecycle;
 
@@ -49,10 +47,6 @@ public class WifiSignalStrengthPreferenceControllerTest {
     private AccessPoint mMockAccessPoint;
     @Mock
     private WifiInfoProvider mMockWifiInfoProvider;
-    @Mock
-    private NetworkInfo mMockNetworkInfo;
-    @Mock
-    private WifiInfo mMockWifiInfo;
 
     private WifiDetailsPreference mWifiDetailPreference;
     private Context mContext;
@@ -83,7 +77,7 @@ public class WifiSignalStrengthPreferenceControllerTest {
         String expectedStrength =
                 mContext.getResources().getStringArray(R.array.wifi_signals)[LEVEL];
 
-        mController.onWifiChanged(mMockNetworkInfo, mMockWifiInfo);
+        mController.onWifiInfoChanged(WifiInfoProvider.CHANGED_WIFI_INFO);
         assertThat(mWifiDetailPreference.getDetailText()).isEqualTo(expectedStrength);
     }
 
@@ -91,7 +85,7 @@ public class WifiSignalStrengthPreferenceControllerTest {
     public void onWifiChanged_isNotActive_noUpdate() {
         when(mMockAccessPoint.isActive()).thenReturn(false);
 
-        mController.onWifiChanged(mMockNetworkInfo, mMockWifiInfo);
+        mController.onWifiInfoChanged(WifiInfoProvider.CHANGED_WIFI_INFO);
         assertThat(mWifiDetailPreference.getDetailText()).isNull();
     }
 }
\ No newline at end of file